@@ -86,7 +86,24 @@ public class ArffLoader {
         BufferedReader br = new BufferedReader(reader);
 
         //Init streamTokenizer
-        streamTokenizer = new StreamTokenizer(br);
+        streamTokenizer = newStreamTokenizer(br);
+
+        this.instanceInformation = this.getHeader();
+
+        if (range != null) { //is MultiLabel
+            this.instanceInformation.setRangeOutputIndices(range);
+        }
+
+    }
+
+    /**
+     * Creates a stream tokenizer for the arff syntax.
+     *
+     * @param reader the reader
+     * @return the stream tokenizer
+     */
+    protected static StreamTokenizer newStreamTokenizer(Reader reader) {
+        StreamTokenizer streamTokenizer = new StreamTokenizer(reader);
         streamTokenizer.resetSyntax();
         streamTokenizer.whitespaceChars(0, ' ');
         streamTokenizer.wordChars(' ' + 1, '\u00FF');
@@ -97,13 +114,7 @@ public class ArffLoader {
         streamTokenizer.ordinaryChar('{');
         streamTokenizer.ordinaryChar('}');
         streamTokenizer.eolIsSignificant(true);
-
-        this.instanceInformation = this.getHeader();
-
-        if (range != null) { //is MultiLabel
-            this.instanceInformation.setRangeOutputIndices(range);
-        }
-
+        return streamTokenizer;
     }
 
     /**
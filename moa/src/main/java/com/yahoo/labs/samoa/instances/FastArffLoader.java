@@ -0,0 +1,693 @@
+/*
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * 	        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific
+ * language governing permissions and limitations under the
+ * License.
+ */
+package com.yahoo.labs.samoa.instances;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.StringReader;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.StandardOpenOption;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * The Class FastArffLoader. Loads an Arff file with sparse or dense format,
+ * reading the data section in large blocks from a file channel and parsing
+ * the bytes directly, instead of going through a StreamTokenizer.
+ *
+ * The header is parsed by ArffLoader. Data lines made of plain ASCII tokens
+ * are parsed without creating strings: decimal numbers of up to 19
+ * significant digits are converted in place, rounding as Double.valueOf()
+ * does, and nominal values are looked up in an index of the labels' bytes.
+ * Any other line (quoted values, non ASCII characters) is parsed by
+ * ArffLoader, and any other number by Double.valueOf(), so the instances
+ * read are the same.
+ */
+public class FastArffLoader extends ArffLoader implements Closeable {
+
+    /**
+     * The size of the blocks read from the file.
+     */
+    protected static final int BUFFER_SIZE = 1 << 20;
+
+    private static final double[] POWERS_OF_TEN = {
+        1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+        1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22};
+
+    // 128 bit approximations (rounded down) of the powers of ten, normalized
+    // so that the highest bit is set, used by the Eisel-Lemire algorithm
+    private static final int MIN_POWER_OF_TEN = -348;
+    private static final int MAX_POWER_OF_TEN = 347;
+    private static final long[] POWERS_OF_TEN_HIGH = new long[MAX_POWER_OF_TEN - MIN_POWER_OF_TEN + 1];
+    private static final long[] POWERS_OF_TEN_LOW = new long[MAX_POWER_OF_TEN - MIN_POWER_OF_TEN + 1];
+
+    static {
+        for (int exponent = MIN_POWER_OF_TEN; exponent <= MAX_POWER_OF_TEN; exponent++) {
+            BigInteger power = BigInteger.TEN.pow(Math.abs(exponent));
+            BigInteger approximation;
+            if (exponent >= 0) {
+                int shift = power.bitLength() - 128;
+                approximation = shift > 0 ? power.shiftRight(shift) : power.shiftLeft(-shift);
+            } else {
+                approximation = BigInteger.ONE.shiftLeft(power.bitLength() + 127).divide(power);
+            }
+            POWERS_OF_TEN_HIGH[exponent - MIN_POWER_OF_TEN] = approximation.shiftRight(64).longValue();
+            POWERS_OF_TEN_LOW[exponent - MIN_POWER_OF_TEN] = approximation.longValue();
+        }
+    }
+
+    /**
+     * The lines of the file.
+     */
+    protected LineReader lineReader;
+
+    /**
+     * Whether each attribute is numeric.
+     */
+    protected boolean[] numericAttributes;
+
+    /**
+     * The index of the labels of each attribute, null for numeric ones.
+     */
+    protected NominalIndex[] nominalIndices;
+
+    // value of the last number parsed, when parseNumber() succeeds
+    private double parsedNumber;
+
+    // indices and values of the sparse instance being read
+    private int[] sparseIndices = new int[16];
+    private double[] sparseValues = new double[16];
+
+    /**
+     * Instantiates a new fast arff loader.
+     *
+     * @param file the arff file
+     * @param classAttribute the class attribute
+     * @throws IOException if the file can not be read
+     */
+    public FastArffLoader(File file, int classAttribute) throws IOException {
+        this(file, (Range) null);
+        if (classAttribute < 0) {
+            this.instanceInformation.setClassIndex(this.instanceInformation.numAttributes() - 1);
+        } else if (classAttribute > 0) {
+            this.instanceInformation.setClassIndex(classAttribute - 1);
+        }
+    }
+
+    /**
+     * Instantiates a new fast arff loader.
+     *
+     * @param file the arff file
+     * @param range the output attributes, for multi-target streams, or null
+     * @throws IOException if the file can not be read
+     */
+    public FastArffLoader(File file, Range range) throws IOException {
+        this(new LineReader(file), range);
+    }
+
+    private FastArffLoader(LineReader lineReader, Range range) throws IOException {
+        super(new StringReader(lineReader.readHeader()), range);
+        this.lineReader = lineReader;
+        int numAttributes = this.instanceInformation.numAttributes();
+        this.numericAttributes = new boolean[numAttributes];
+        this.nominalIndices = new NominalIndex[numAttributes];
+        for (int i = 0; i < numAttributes; i++) {
+            Attribute attribute = this.instanceInformation.attribute(i);
+            this.numericAttributes[i] = attribute.isNumeric();
+            if (!attribute.isNumeric()) {
+                this.nominalIndices[i] = new NominalIndex(attribute);
+            }
+        }
+    }
+
+    /**
+     * Gets the fraction of the file that has been read.
+     *
+     * @return the progress fraction
+     */
+    public double getProgressFraction() {
+        return this.lineReader.getProgressFraction();
+    }
+
+    @Override
+    public void close() throws IOException {
+        this.lineReader.close();
+    }
+
+    /**
+     * Reads instance. It detects if it is dense or sparse.
+     *
+     * @return the instance, or null at the end of the file
+     */
+    @Override
+    public Instance readInstance() {
+        try {
+            while (this.lineReader.nextLine()) {
+                byte[] line = this.lineReader.buffer;
+                int start = skipSeparators(line, this.lineReader.lineStart, this.lineReader.lineEnd);
+                int end = this.lineReader.lineEnd;
+                if (start == end || line[start] == '%') {
+                    continue;
+                }
+                Instance instance = null;
+                if (isPlainAscii(line, start, end)) {
+                    instance = line[start] == '{'
+                            ? readSparseLine(line, start + 1, end)
+                            : readDenseLine(line, start, end);
+                }
+                if (instance == null) {
+                    instance = readLineWithTokenizer(line, start, end);
+                }
+                if (instance != null) {
+                    return instance;
+                }
+            }
+        } catch (IOException ex) {
+            Logger.getLogger(FastArffLoader.class.getName()).log(Level.SEVERE, null, ex);
+        }
+        return null;
+    }
+
+    /**
+     * Reads a dense line, or returns null if it has to be read by ArffLoader.
+     */
+    private Instance readDenseLine(byte[] line, int position, int end) {
+        int numAttributes = this.numericAttributes.length;
+        Instance instance = null;
+        int numAttribute = 0;
+        while (position < end) {
+            byte c = line[position];
+            if (c == '%') {
+                break;
+            }
+            if (c == '{' || c == '}') {
+                position = skipSeparators(line, position + 1, end);
+                continue;
+            }
+            int tokenEnd = endOfWord(line, position, end);
+            if (numAttribute >= numAttributes) {
+                return null;
+            }
+            double value;
+            if (tokenEnd - position == 1 && c == '?') {
+                value = Double.NaN;
+            } else if (this.numericAttributes[numAttribute]) {
+                if (!parseNumber(line, position, tokenEnd)) {
+                    return null;
+                }
+                value = this.parsedNumber;
+            } else {
+                value = this.nominalIndices[numAttribute].indexOf(line, position, tokenEnd);
+            }
+            if (instance == null) {
+                instance = newDenseInstance(numAttributes);
+            }
+            this.setValue(instance, numAttribute, value, this.numericAttributes[numAttribute]);
+            numAttribute++;
+            position = skipSeparators(line, tokenEnd, end);
+        }
+        return instance;
+    }
+
+    /**
+     * Reads a sparse line after the '{', or returns null if it has to be read
+     * by ArffLoader.
+     */
+    private Instance readSparseLine(byte[] line, int position, int end) {
+        int numAttributes = this.numericAttributes.length;
+        int numValues = 0;
+        position = skipSeparators(line, position, end);
+        while (position < end && line[position] != '}') {
+            // index
+            int tokenEnd = endOfWord(line, position, end);
+            if (tokenEnd == position) {
+                return null;
+            }
+            int numAttribute = 0;
+            for (int i = position; i < tokenEnd; i++) {
+                int digit = line[i] - '0';
+                if (digit < 0 || digit > 9 || i - position > 8) {
+                    return null;
+                }
+                numAttribute = numAttribute * 10 + digit;
+            }
+            if (numAttribute >= numAttributes) {
+                return null;
+            }
+            // value
+            position = skipSeparators(line, tokenEnd, end);
+            tokenEnd = endOfWord(line, position, end);
+            if (tokenEnd == position) {
+                return null;
+            }
+            double value;
+            if (this.numericAttributes[numAttribute]) {
+                if (!parseNumber(line, position, tokenEnd)) {
+                    return null;
+                }
+                value = this.parsedNumber;
+            } else {
+                value = this.nominalIndices[numAttribute].indexOf(line, position, tokenEnd);
+            }
+            if (numValues == this.sparseIndices.length) {
+                int[] indices = new int[numValues * 2];
+                System.arraycopy(this.sparseIndices, 0, indices, 0, numValues);
+                double[] values = new double[numValues * 2];
+                System.arraycopy(this.sparseValues, 0, values, 0, numValues);
+                this.sparseIndices = indices;
+                this.sparseValues = values;
+            }
+            this.sparseIndices[numValues] = numAttribute;
+            this.sparseValues[numValues] = value;
+            numValues++;
+            position = skipSeparators(line, tokenEnd, end);
+        }
+        if (position == end) {
+            return null;
+        }
+        // nothing but a comment may follow the '}'
+        position = skipSeparators(line, position + 1, end);
+        if (position < end && line[position] != '%') {
+            return null;
+        }
+        int[] indexValues = new int[numValues];
+        double[] attributeValues = new double[numValues];
+        System.arraycopy(this.sparseIndices, 0, indexValues, 0, numValues);
+        System.arraycopy(this.sparseValues, 0, attributeValues, 0, numValues);
+        Instance instance = newSparseInstance(1.0);
+        instance.addSparseValues(indexValues, attributeValues, this.instanceInformation.numAttributes());
+        return instance;
+    }
+
+    /**
+     * Reads a line with the stream tokenizer of ArffLoader.
+     */
+    private Instance readLineWithTokenizer(byte[] line, int start, int end) throws IOException {
+        String text = new String(line, start, end - start, Charset.defaultCharset());
+        this.streamTokenizer = newStreamTokenizer(new StringReader(text + "\n"));
+        this.streamTokenizer.nextToken();
+        return super.readInstance();
+    }
+
+    /**
+     * Parses a number, leaving it in parsedNumber. Decimal numbers of up to 19
+     * significant digits are converted in place, any other number is parsed
+     * by Double.valueOf(). Returns false if the token is not a number.
+     */
+    private boolean parseNumber(byte[] line, int start, int end) {
+        int position = start;
+        boolean negative = false;
+        if (position < end && (line[position] == '-' || line[position] == '+')) {
+            negative = line[position] == '-';
+            position++;
+        }
+        long mantissa = 0;
+        int significantDigits = 0;
+        int exponent = 0;
+        boolean digits = false;
+        boolean exact = true;
+        boolean point = false;
+        for (; position < end; position++) {
+            byte c = line[position];
+            if (c >= '0' && c <= '9') {
+                digits = true;
+                if (mantissa != 0 || c != '0') {
+                    significantDigits++;
+                }
+                if (significantDigits > 19) {
+                    exact = false;
+                } else {
+                    mantissa = mantissa * 10 + (c - '0');
+                }
+                if (point) {
+                    exponent--;
+                }
+            } else if (c == '.' && !point) {
+                point = true;
+            } else {
+                break;
+            }
+        }
+        if (position < end && digits && (line[position] == 'e' || line[position] == 'E')) {
+            position++;
+            boolean negativeExponent = false;
+            if (position < end && (line[position] == '-' || line[position] == '+')) {
+                negativeExponent = line[position] == '-';
+                position++;
+            }
+            int exponentStart = position;
+            int value = 0;
+            for (; position < end && line[position] >= '0' && line[position] <= '9'; position++) {
+                if (position - exponentStart < 4) {
+                    value = value * 10 + (line[position] - '0');
+                } else {
+                    exact = false;
+                }
+            }
+            if (position == exponentStart) {
+                exact = false;
+            }
+            exponent += negativeExponent ? -value : value;
+        }
+        if (digits && position == end && exact) {
+            if (significantDigits <= 15 && exponent >= -22 && exponent <= 22) {
+                // both the mantissa and the power of ten are exact, so is the result
+                double value = exponent >= 0
+                        ? (double) mantissa * POWERS_OF_TEN[exponent]
+                        : (double) mantissa / POWERS_OF_TEN[-exponent];
+                this.parsedNumber = negative ? -value : value;
+                return true;
+            }
+            if (eiselLemire(mantissa, exponent, negative)) {
+                return true;
+            }
+        }
+        try {
+            this.parsedNumber = Double.valueOf(new String(line, start, end - start, "US-ASCII")).doubleValue();
+            return true;
+        } catch (NumberFormatException ex) {
+            return false;
+        } catch (IOException ex) {
+            return false;
+        }
+    }
+
+    /**
+     * Converts mantissa * 10^exponent, the mantissa being an unsigned 64 bit
+     * integer, to the nearest double with the algorithm of D. Lemire, "Number
+     * Parsing at a Gigabyte per Second" (2021), leaving it in parsedNumber.
+     * Returns false in the few cases the algorithm can not decide how to round,
+     * and for subnormal and infinite results.
+     */
+    private boolean eiselLemire(long mantissa, int exponent, boolean negative) {
+        if (mantissa == 0) {
+            this.parsedNumber = negative ? -0.0 : 0.0;
+            return true;
+        }
+        if (exponent < MIN_POWER_OF_TEN || exponent > MAX_POWER_OF_TEN) {
+            return false;
+        }
+        // normalization
+        int leadingZeros = Long.numberOfLeadingZeros(mantissa);
+        mantissa <<= leadingZeros;
+        long exponent2 = ((217706L * exponent) >> 16) + 64 + 1023 - leadingZeros;
+        // multiplication
+        long powerHigh = POWERS_OF_TEN_HIGH[exponent - MIN_POWER_OF_TEN];
+        long powerLow = POWERS_OF_TEN_LOW[exponent - MIN_POWER_OF_TEN];
+        long high = multiplyHigh(mantissa, powerHigh);
+        long low = mantissa * powerHigh;
+        // wider approximation
+        if ((high & 0x1FF) == 0x1FF && Long.compareUnsigned(low + mantissa, mantissa) < 0) {
+            long wideHigh = multiplyHigh(mantissa, powerLow);
+            long wideLow = mantissa * powerLow;
+            long mergedHigh = high;
+            long mergedLow = low + wideHigh;
+            if (Long.compareUnsigned(mergedLow, low) < 0) {
+                mergedHigh++;
+            }
+            if ((mergedHigh & 0x1FF) == 0x1FF && mergedLow + 1 == 0
+                    && Long.compareUnsigned(wideLow + mantissa, mantissa) < 0) {
+                return false;
+            }
+            high = mergedHigh;
+            low = mergedLow;
+        }
+        // shifting to 54 bits
+        long msb = high >>> 63;
+        long bits = high >>> (msb + 9);
+        exponent2 -= 1 ^ msb;
+        // half-way ambiguity
+        if (low == 0 && (high & 0x1FF) == 0 && (bits & 3) == 1) {
+            return false;
+        }
+        // from 54 to 53 bits
+        bits += bits & 1;
+        bits >>>= 1;
+        if ((bits >>> 53) > 0) {
+            bits >>>= 1;
+            exponent2++;
+        }
+        if (exponent2 <= 0 || exponent2 >= 0x7FF) {
+            return false;
+        }
+        bits = (exponent2 << 52) | (bits & 0x000FFFFFFFFFFFFFL);
+        if (negative) {
+            bits |= 0x8000000000000000L;
+        }
+        this.parsedNumber = Double.longBitsToDouble(bits);
+        return true;
+    }
+
+    // High 64 bits of the unsigned 128 bit product of x and y
+    private static long multiplyHigh(long x, long y) {
+        long x0 = x & 0xFFFFFFFFL;
+        long x1 = x >>> 32;
+        long y0 = y & 0xFFFFFFFFL;
+        long y1 = y >>> 32;
+        long p01 = x0 * y1;
+        long middle = x1 * y0 + ((x0 * y0) >>> 32) + (p01 & 0xFFFFFFFFL);
+        return x1 * y1 + (middle >>> 32) + (p01 >>> 32);
+    }
+
+    // Separators are whitespace and commas, as for the stream tokenizer
+    private static int skipSeparators(byte[] line, int position, int end) {
+        while (position < end && (line[position] <= ' ' && line[position] >= 0 || line[position] == ',')) {
+            position++;
+        }
+        return position;
+    }
+
+    private static int endOfWord(byte[] line, int position, int end) {
+        while (position < end) {
+            byte c = line[position];
+            if (c <= ' ' || c == ',' || c == '%' || c == '{' || c == '}') {
+                break;
+            }
+            position++;
+        }
+        return position;
+    }
+
+    // Quotes and non ASCII characters are left to the stream tokenizer
+    private static boolean isPlainAscii(byte[] line, int start, int end) {
+        for (int i = start; i < end; i++) {
+            byte c = line[i];
+            if (c < 0 || c == '"' || c == '\'') {
+                return false;
+            }
+            if (c == '%') {
+                return true;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Index of the labels of a nominal attribute by their bytes. Labels not in
+     * the index are looked up, or added, through Attribute.indexOfValue().
+     */
+    protected static class NominalIndex {
+
+        protected Attribute attribute;
+
+        protected byte[][] keys = new byte[16][];
+
+        protected int[] values = new int[16];
+
+        protected int size;
+
+        public NominalIndex(Attribute attribute) {
+            this.attribute = attribute;
+            for (int i = 0; i < attribute.numValues(); i++) {
+                byte[] key = attribute.value(i).getBytes(Charset.defaultCharset());
+                put(key, hash(key, 0, key.length), attribute.indexOfValue(attribute.value(i)));
+            }
+        }
+
+        public int indexOf(byte[] bytes, int start, int end) {
+            int hash = hash(bytes, start, end);
+            int mask = this.keys.length - 1;
+            for (int slot = hash & mask; this.keys[slot] != null; slot = (slot + 1) & mask) {
+                if (equals(this.keys[slot], bytes, start, end)) {
+                    return this.values[slot];
+                }
+            }
+            byte[] key = new byte[end - start];
+            System.arraycopy(bytes, start, key, 0, key.length);
+            int value = this.attribute.indexOfValue(new String(key, Charset.defaultCharset()));
+            put(key, hash, value);
+            return value;
+        }
+
+        private void put(byte[] key, int hash, int value) {
+            if (2 * (this.size + 1) > this.keys.length) {
+                byte[][] keys = this.keys;
+                int[] values = this.values;
+                this.keys = new byte[keys.length * 2][];
+                this.values = new int[keys.length * 2];
+                this.size = 0;
+                for (int i = 0; i < keys.length; i++) {
+                    if (keys[i] != null) {
+                        put(keys[i], hash(keys[i], 0, keys[i].length), values[i]);
+                    }
+                }
+            }
+            int mask = this.keys.length - 1;
+            int slot = hash & mask;
+            while (this.keys[slot] != null) {
+                if (equals(this.keys[slot], key, 0, key.length)) {
+                    return;
+                }
+                slot = (slot + 1) & mask;
+            }
+            this.keys[slot] = key;
+            this.values[slot] = value;
+            this.size++;
+        }
+
+        private static int hash(byte[] bytes, int start, int end) {
+            int hash = 1;
+            for (int i = start; i < end; i++) {
+                hash = 31 * hash + bytes[i];
+            }
+            return hash ^ (hash >>> 16);
+        }
+
+        private static boolean equals(byte[] key, byte[] bytes, int start, int end) {
+            if (key.length != end - start) {
+                return false;
+            }
+            for (int i = 0; i < key.length; i++) {
+                if (key[i] != bytes[start + i]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    /**
+     * Reads the lines of a file in large blocks from a file channel. The
+     * current line is buffer[lineStart, lineEnd), without the end of line.
+     */
+    protected static class LineReader implements Closeable {
+
+        protected FileChannel channel;
+
+        protected long fileSize;
+
+        protected long bytesRead;
+
+        protected boolean endOfFile;
+
+        protected byte[] buffer = new byte[BUFFER_SIZE];
+
+        protected int position;
+
+        protected int limit;
+
+        protected int lineStart;
+
+        protected int lineEnd;
+
+        public LineReader(File file) throws IOException {
+            this.channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+            this.fileSize = this.channel.size();
+        }
+
+        /**
+         * Reads the header, up to and including the @data line.
+         *
+         * @return the header
+         * @throws IOException if the file can not be read
+         */
+        public String readHeader() throws IOException {
+            ByteArrayOutputStream header = new ByteArrayOutputStream();
+            while (nextLine()) {
+                header.write(this.buffer, this.lineStart, this.lineEnd - this.lineStart);
+                header.write('\n');
+                int start = skipSeparators(this.buffer, this.lineStart, this.lineEnd);
+                if (this.lineEnd - start >= 5 && new String(this.buffer, start, 5, "US-ASCII").equalsIgnoreCase("@data")) {
+                    break;
+                }
+            }
+            return new String(header.toByteArray(), Charset.defaultCharset());
+        }
+
+        /**
+         * Moves to the next line.
+         *
+         * @return false at the end of the file
+         * @throws IOException if the file can not be read
+         */
+        public boolean nextLine() throws IOException {
+            int end = this.position;
+            while (true) {
+                while (end < this.limit && this.buffer[end] != '\n' && this.buffer[end] != '\r') {
+                    end++;
+                }
+                if (end < this.limit || this.endOfFile) {
+                    break;
+                }
+                end -= this.position;
+                fill();
+                end += this.position;
+            }
+            if (end == this.position && end == this.limit) {
+                return false;
+            }
+            this.lineStart = this.position;
+            this.lineEnd = end;
+            this.position = end < this.limit ? end + 1 : end;
+            return true;
+        }
+
+        // keeps the unread bytes, growing the buffer for long lines, and reads more
+        private void fill() throws IOException {
+            int remaining = this.limit - this.position;
+            if (remaining == this.buffer.length) {
+                byte[] buffer = new byte[this.buffer.length * 2];
+                System.arraycopy(this.buffer, this.position, buffer, 0, remaining);
+                this.buffer = buffer;
+            } else {
+                System.arraycopy(this.buffer, this.position, this.buffer, 0, remaining);
+            }
+            this.position = 0;
+            this.limit = remaining;
+            int read = this.channel.read(ByteBuffer.wrap(this.buffer, this.limit, this.buffer.length - this.limit));
+            if (read < 0) {
+                this.endOfFile = true;
+            } else {
+                this.limit += read;
+                this.bytesRead += read;
+            }
+        }
+
+        public double getProgressFraction() {
+            return this.fileSize > 0 ? (double) this.bytesRead / this.fileSize : 1.0;
+        }
+
+        @Override
+        public void close() throws IOException {
+            this.channel.close();
+        }
+    }
+}
@@ -119,6 +119,18 @@ public class Instances implements Serializable {
         this.computeAttributesIndices();
     }
 
+    /**
+     * Instantiates a new instances that reads from an arff loader.
+     *
+     * @param loader the loader
+     */
+    public Instances(ArffLoader loader) {
+        this.arff = loader;
+        this.instanceInformation = arff.getStructure();
+        this.instances = new ArrayList<Instance>();
+        this.computeAttributesIndices();
+    }
+
     /**
      * Instantiates a new instances.
      *
@@ -0,0 +1,72 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * 	        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific
+ * language governing permissions and limitations under the
+ * License.
+ */
+package com.yahoo.labs.samoa.instances;
+
+/**
+ * The Class SubspaceInstance.
+ *
+ * Reusable, read-only projection of an instance onto a fixed subset of
+ * its attributes. It behaves like the FilteredSparseInstance that would
+ * be built from the same attributes, but values are read from the
+ * parent instance instead of being copied. Call setInstance() to point
+ * the view to the next instance of the stream.
+ *
+ * Learners must not keep a reference to the view, since its values change
+ * with the parent instance; copy() returns a detached FilteredSparseInstance.
+ */
+public class SubspaceInstance extends InstanceImpl {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * The dataset of the last parent instance.
+     */
+    protected transient Instances parentDataset;
+
+    /**
+     * Instantiates a new subspace instance.
+     *
+     * @param indexValues      the attribute indices in the subspace, including the class index
+     * @param numberAttributes the number attributes
+     */
+    public SubspaceInstance(int[] indexValues, int numberAttributes) {
+        super(1.0, new SubspaceInstanceData(indexValues, numberAttributes));
+    }
+
+    /**
+     * Points the view to another instance.
+     *
+     * @param inst the instance the values are read from
+     * @return this view
+     */
+    public SubspaceInstance setInstance(Instance inst) {
+        ((SubspaceInstanceData) this.instanceData).setInstance(inst);
+        if (inst.dataset() != this.parentDataset) {
+            this.parentDataset = inst.dataset();
+            setDataset(this.parentDataset);
+        }
+        return this;
+    }
+
+    /**
+     * Copy.
+     *
+     * @return a FilteredSparseInstance with the values currently seen through the view
+     */
+    @Override
+    public Instance copy() {
+        return new FilteredSparseInstance(this);
+    }
+}
@@ -0,0 +1,165 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * 	        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific
+ * language governing permissions and limitations under the
+ * License.
+ */
+package com.yahoo.labs.samoa.instances;
+
+/**
+ * The Class SubspaceInstanceData.
+ *
+ * Read-only view of a fixed subset of the attributes of another instance.
+ * Values are read from the parent instance and never copied.
+ * As in FilteredSparseInstanceData, attributes outside the subspace
+ * are reported as missing (NaN).
+ */
+public class SubspaceInstanceData implements InstanceData {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * The attribute indices in the subspace, in sparse order.
+     */
+    protected int[] indexValues;
+
+    /**
+     * The position of each attribute in indexValues, or -1 if the
+     * attribute is not in the subspace.
+     */
+    protected int[] positions;
+
+    /**
+     * The instance the values are read from.
+     */
+    protected Instance instance;
+
+    /**
+     * Instantiates a new subspace instance data.
+     *
+     * @param indexValues      the attribute indices in the subspace
+     * @param numberAttributes the number attributes
+     */
+    public SubspaceInstanceData(int[] indexValues, int numberAttributes) {
+        this.indexValues = indexValues;
+        this.positions = new int[numberAttributes];
+        for (int i = 0; i < numberAttributes; i++) {
+            this.positions[i] = -1;
+        }
+        for (int i = 0; i < indexValues.length; i++) {
+            this.positions[indexValues[i]] = i;
+        }
+    }
+
+    /**
+     * Sets the instance the values are read from.
+     *
+     * @param instance the instance
+     */
+    public void setInstance(Instance instance) {
+        this.instance = instance;
+    }
+
+    /**
+     * Gets the instance the values are read from.
+     *
+     * @return the instance
+     */
+    public Instance getInstance() {
+        return instance;
+    }
+
+    @Override
+    public int numAttributes() {
+        return this.positions.length;
+    }
+
+    /**
+     * Value of the attribute in the indexAttribute position.
+     * Attributes outside the subspace are returned as NaN
+     * (marker of missing value).
+     *
+     * @param indexAttribute the index attribute
+     * @return the double
+     */
+    @Override
+    public double value(int indexAttribute) {
+        if (this.positions[indexAttribute] < 0) {
+            return Double.NaN;
+        }
+        return this.instance.value(indexAttribute);
+    }
+
+    @Override
+    public boolean isMissing(int indexAttribute) {
+        return Double.isNaN(this.value(indexAttribute));
+    }
+
+    @Override
+    public int numValues() {
+        return this.indexValues.length;
+    }
+
+    @Override
+    public int index(int indexAttribute) {
+        return this.indexValues[indexAttribute];
+    }
+
+    @Override
+    public double valueSparse(int indexAttribute) {
+        return this.instance.value(this.indexValues[indexAttribute]);
+    }
+
+    @Override
+    public boolean isMissingSparse(int indexAttribute) {
+        return Double.isNaN(this.valueSparse(indexAttribute));
+    }
+
+    @Override
+    public double[] toDoubleArray() {
+        double[] array = new double[numAttributes()];
+        for (int i = 0; i < numValues(); i++) {
+            array[index(i)] = valueSparse(i);
+        }
+        return array;
+    }
+
+    @Override
+    public void setValue(int attributeIndex, double d) {
+        throw new UnsupportedOperationException("SubspaceInstanceData is read-only");
+    }
+
+    @Override
+    public void deleteAttributeAt(int index) {
+        throw new UnsupportedOperationException("SubspaceInstanceData is read-only");
+    }
+
+    @Override
+    public void insertAttributeAt(int index) {
+        throw new UnsupportedOperationException("SubspaceInstanceData is read-only");
+    }
+
+    /**
+     * Copies the values currently seen through the view into a
+     * FilteredSparseInstanceData, so the copy does not change when the
+     * view is pointed to another instance.
+     *
+     * @return the instance data
+     */
+    @Override
+    public InstanceData copy() {
+        double[] attributeValues = new double[this.indexValues.length];
+        for (int i = 0; i < attributeValues.length; i++) {
+            attributeValues[i] = valueSparse(i);
+        }
+        return new FilteredSparseInstanceData(attributeValues, this.indexValues.clone(), numAttributes());
+    }
+}
@@ -0,0 +1,251 @@
+/*
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * 	        http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific
+ * language governing permissions and limitations under the
+ * License.  
+ */
+package com.yahoo.labs.samoa.instances;
+
+import java.util.Arrays;
+
+/**
+ * Sliding window of instances with a fixed capacity, stored row by row in
+ * primitive arrays.
+ *
+ * The rows are kept in a ring buffer: adding an instance to a full window
+ * evicts the oldest one, and deleting the oldest instance only moves the
+ * start of the buffer, so both take constant time, and the window does not
+ * keep any Instance object alive. Instance 0 is the oldest one. The window
+ * stores the values of all the attributes and the weight, so instances are
+ * read back as dense instances: instance(int) returns a new instance with a
+ * copy of the row, while value(int, int), classValue(int) and weight(int)
+ * read the window without allocating.
+ */
+public class WindowInstances extends Instances {
+
+    private static final long serialVersionUID = 1L;
+
+    private static final int INITIAL_CAPACITY = 1024;
+
+    protected final int capacity;
+
+    protected final int numAttributes;
+
+    // Rows of attribute values and their weights, allocated as the window grows
+    protected double[] values;
+
+    protected double[] weights;
+
+    protected int allocated;
+
+    protected int first;
+
+    protected int size;
+
+    // Header of the instances read from the window
+    protected final InstancesHeader header;
+
+    /**
+     * Creates an empty window.
+     *
+     * @param dataset the header of the instances
+     * @param capacity the maximum number of instances
+     */
+    public WindowInstances(Instances dataset, int capacity) {
+        super(dataset, 0);
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("The capacity of the window must be positive: " + capacity);
+        }
+        this.capacity = capacity;
+        this.numAttributes = dataset.numAttributes();
+        this.allocated = Math.min(capacity, INITIAL_CAPACITY);
+        this.values = new double[this.allocated * this.numAttributes];
+        this.weights = new double[this.allocated];
+        this.header = new InstancesHeader(this);
+    }
+
+    public int capacity() {
+        return this.capacity;
+    }
+
+    @Override
+    public int numInstances() {
+        return this.size;
+    }
+
+    /**
+     * Adds an instance as the newest one, evicting the oldest one if the
+     * window is full.
+     */
+    @Override
+    public void add(Instance inst) {
+        if (this.size == this.capacity) {
+            this.first = (this.first + 1) % this.allocated;
+            this.size--;
+        } else if (this.size == this.allocated) {
+            grow();
+        }
+        this.size++;
+        setRow(row(this.size - 1), inst);
+    }
+
+    protected void grow() {
+        int newAllocated = (int) Math.min(this.capacity, 2L * this.allocated);
+        double[] newValues = new double[newAllocated * this.numAttributes];
+        double[] newWeights = new double[newAllocated];
+        // unroll the ring buffer
+        for (int i = 0; i < this.size; i++) {
+            int row = row(i);
+            System.arraycopy(this.values, row * this.numAttributes, newValues, i * this.numAttributes, this.numAttributes);
+            newWeights[i] = this.weights[row];
+        }
+        this.values = newValues;
+        this.weights = newWeights;
+        this.allocated = newAllocated;
+        this.first = 0;
+    }
+
+    protected int row(int index) {
+        int row = this.first + index;
+        return row < this.allocated ? row : row - this.allocated;
+    }
+
+    protected int checkedRow(int index) {
+        if (index < 0 || index >= this.size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + this.size);
+        }
+        return row(index);
+    }
+
+    protected void setRow(int row, Instance inst) {
+        int offset = row * this.numAttributes;
+        for (int j = 0; j < this.numAttributes; j++) {
+            this.values[offset + j] = inst.value(j);
+        }
+        this.weights[row] = inst.weight();
+    }
+
+    /**
+     * Returns a new dense instance with the values of the instance at the
+     * given index.
+     */
+    @Override
+    public Instance instance(int index) {
+        int row = checkedRow(index);
+        int offset = row * this.numAttributes;
+        Instance inst = new DenseInstance(this.weights[row],
+                Arrays.copyOfRange(this.values, offset, offset + this.numAttributes));
+        inst.setDataset(this.header);
+        return inst;
+    }
+
+    /**
+     * Returns the value of an attribute of the instance at the given index.
+     */
+    public double value(int index, int attIndex) {
+        return this.values[checkedRow(index) * this.numAttributes + attIndex];
+    }
+
+    /**
+     * Returns the class value of the instance at the given index.
+     */
+    public double classValue(int index) {
+        return value(index, classIndex());
+    }
+
+    /**
+     * Returns the weight of the instance at the given index.
+     */
+    public double weight(int index) {
+        return this.weights[checkedRow(index)];
+    }
+
+    @Override
+    public void set(int index, Instance inst) {
+        setRow(checkedRow(index), inst);
+    }
+
+    @Override
+    public void delete() {
+        this.first = 0;
+        this.size = 0;
+    }
+
+    /**
+     * Deletes the instance at the given index, in constant time for the
+     * oldest one, by moving the newer instances otherwise.
+     */
+    @Override
+    public void delete(int index) {
+        checkedRow(index);
+        if (index == 0) {
+            this.first = row(1);
+        } else {
+            for (int i = index; i < this.size - 1; i++) {
+                copyRow(row(i + 1), row(i));
+            }
+        }
+        this.size--;
+        if (this.size == 0) {
+            this.first = 0;
+        }
+    }
+
+    protected void copyRow(int from, int to) {
+        System.arraycopy(this.values, from * this.numAttributes, this.values, to * this.numAttributes, this.numAttributes);
+        this.weights[to] = this.weights[from];
+    }
+
+    @Override
+    public void swap(int i, int j) {
+        int rowI = checkedRow(i);
+        int rowJ = checkedRow(j);
+        int offsetI = rowI * this.numAttributes;
+        int offsetJ = rowJ * this.numAttributes;
+        for (int k = 0; k < this.numAttributes; k++) {
+            double value = this.values[offsetI + k];
+            this.values[offsetI + k] = this.values[offsetJ + k];
+            this.values[offsetJ + k] = value;
+        }
+        double weight = this.weights[rowI];
+        this.weights[rowI] = this.weights[rowJ];
+        this.weights[rowJ] = weight;
+    }
+
+    @Override
+    protected void stratStep(int numFolds) {
+        double[] newValues = new double[this.values.length];
+        double[] newWeights = new double[this.weights.length];
+        int index = 0;
+        for (int start = 0; start < numFolds; start++) {
+            for (int i = start; i < this.size; i += numFolds) {
+                int row = row(i);
+                System.arraycopy(this.values, row * this.numAttributes, newValues, index * this.numAttributes, this.numAttributes);
+                newWeights[index] = this.weights[row];
+                index++;
+            }
+        }
+        this.values = newValues;
+        this.weights = newWeights;
+        this.first = 0;
+    }
+
+    @Override
+    public void deleteAttributeAt(Integer integer) {
+        throw new UnsupportedOperationException("The attributes of a window cannot be changed.");
+    }
+
+    @Override
+    public void insertAttributeAt(Attribute attribute, int position) {
+        throw new UnsupportedOperationException("The attributes of a window cannot be changed.");
+    }
+}
@@ -31,6 +31,14 @@ import moa.core.SizeOf;
  */
 public abstract class AbstractMOAObject implements MOAObject {
 
+    /**
+     * Produces a copy of this object by serializing it and reading it back.
+     * Classes that are copied often can override this method with a copy
+     * constructor, and should call it for subclasses, whose state the copy
+     * constructor does not know about.
+     *
+     * @return a copy of this object
+     */
     @Override
     public MOAObject copy() {
         return copy(this);
@@ -0,0 +1,288 @@
+package as.graph;
+
+/**
+ * Centrality metrics of an undirected graph computed over primitive,
+ * int-indexed adjacency arrays. Nodes are identified by slots 0..n-1 and the
+ * adjacency of each slot is an int array of neighbor slots. All arrays, including
+ * the scratch space used by the algorithms, are kept between computations and
+ * only grow, so recomputing the metrics after a topology change does not box
+ * or allocate per node.
+ *
+ * The algorithms follow the ones Graph used to run over its hash maps step by
+ * step, i.e., nodes are visited in slot order and neighbors in adjacency order,
+ * so filling the slots in the graph's iteration order yields the same values.
+ */
+class CentralityEngine {
+
+    public static final String DEGREE = "Degree";
+    public static final String BETWEENNESS = "Betweenness";
+    public static final String CLOSENESS = "Closeness";
+    public static final String EIGENVECTOR = "Eigenvector";
+    public static final String PAGERANK = "Pagerank";
+
+    private static final float KATZ_CONVERGENCE = 0.00001f;
+
+    // number of nodes (slots in use)
+    private int size;
+    // adjacency lists (neighbor slots) and their lengths
+    private int[][] adjacency = new int[0][];
+    private int[] degrees = new int[0];
+    // result, indexed by slot
+    private float[] scores = new float[0];
+    // slots in the order the betweenness is normalized in
+    private int[] betweennessOrder = new int[0];
+
+    // scratch space
+    private float[] sigma = new float[0];
+    private float[] distance = new float[0];
+    private float[] delta = new float[0];
+    private float[] previous = new float[0];
+    private int[] stack = new int[0];
+    private int[] queue = new int[0];
+    private int[][] predecessors = new int[0][];
+    private int[] predecessorsCount = new int[0];
+
+    /**
+     * Clears the engine and prepares it to receive numNodes nodes.
+     *
+     * @param numNodes number of nodes
+     */
+    public void reset(int numNodes) {
+        if (numNodes > this.degrees.length) {
+            int capacity = Math.max(numNodes, this.degrees.length * 2);
+            int[][] adjacency = new int[capacity][];
+            System.arraycopy(this.adjacency, 0, adjacency, 0, this.adjacency.length);
+            int[][] predecessors = new int[capacity][];
+            System.arraycopy(this.predecessors, 0, predecessors, 0, this.predecessors.length);
+            this.adjacency = adjacency;
+            this.predecessors = predecessors;
+            this.degrees = new int[capacity];
+            this.scores = new float[capacity];
+            this.betweennessOrder = new int[capacity];
+            this.sigma = new float[capacity];
+            this.distance = new float[capacity];
+            this.delta = new float[capacity];
+            this.previous = new float[capacity];
+            this.stack = new int[capacity];
+            this.queue = new int[capacity];
+            this.predecessorsCount = new int[capacity];
+        }
+        this.size = numNodes;
+    }
+
+    /**
+     * Returns the array that must be filled with the neighbor slots of a node.
+     *
+     * @param slot slot of the node
+     * @param degree number of neighbors of the node
+     * @return adjacency array of the node, with at least degree positions
+     */
+    public int[] neighbors(int slot, int degree) {
+        if (this.adjacency[slot] == null || this.adjacency[slot].length < degree) {
+            this.adjacency[slot] = new int[Math.max(degree, 4)];
+        }
+        this.degrees[slot] = degree;
+        return this.adjacency[slot];
+    }
+
+    /**
+     * Returns the array that must be filled with the slots of the nodes in the
+     * order their betweenness is summed in to normalize it, before computing
+     * the betweenness. Float sums depend on the order, so this lets the graph
+     * keep the order of the hash map it used to normalize with.
+     *
+     * @return order array, with at least as many positions as nodes
+     */
+    public int[] betweennessOrder() {
+        return this.betweennessOrder;
+    }
+
+    /**
+     * Computes the chosen centrality metric for all nodes.
+     *
+     * @param metric name of the metric
+     * @return normalized metric values, indexed by slot. The array belongs
+     * to the engine and is overwritten by the next computation.
+     */
+    public float[] compute(String metric) {
+        if (this.size < 3 || metric.equals(DEGREE)) {
+            calculateDegree();
+        } else if (metric.equals(BETWEENNESS)) {
+            calculateBetweenness();
+        } else if (metric.equals(CLOSENESS)) {
+            calculateCloseness();
+        } else if (metric.equals(EIGENVECTOR)) {
+            calculateKatzCentrality(0.0f);
+        } else if (metric.equals(PAGERANK)) {
+            calculateKatzCentrality(0.5f);
+        }
+        return this.scores;
+    }
+
+    //Degree
+    private void calculateDegree() {
+        float sum = 0.0f;
+        for (int i = 0; i < this.size; i++) {
+            this.scores[i] = (float) this.degrees[i];
+            sum += this.scores[i];
+        }
+        if (sum != 0.0f) {
+            for (int i = 0; i < this.size; i++) {
+                this.scores[i] = this.scores[i] / sum;
+            }
+        } else {
+            for (int i = 0; i < this.size; i++) {
+                this.scores[i] = 1 / (float) this.size;
+            }
+        }
+    }
+
+    /**
+     * Betweenness as computed by Graph so far. Note that the queue is used as
+     * a LIFO (LinkedList.push followed by LinkedList.remove), and that is
+     * kept here so that the values do not change.
+     */
+    private void calculateBetweenness() {
+        float[] cb = this.scores;
+        for (int i = 0; i < this.size; i++) {
+            cb[i] = 0.0f;
+            int degree = this.degrees[i];
+            if (this.predecessors[i] == null || this.predecessors[i].length < degree) {
+                this.predecessors[i] = new int[Math.max(degree, 4)];
+            }
+        }
+
+        for (int s = 0; s < this.size; s++) {
+            int stackSize = 0;
+            int queueSize = 0;
+            for (int i = 0; i < this.size; i++) {
+                this.sigma[i] = 0.0f;
+                this.distance[i] = -1.0f;
+                this.predecessorsCount[i] = 0;
+            }
+            this.sigma[s] = 1.0f;
+            this.distance[s] = 0.0f;
+            this.queue[queueSize++] = s;
+
+            while (queueSize != 0) {
+                int v = this.queue[--queueSize];
+                this.stack[stackSize++] = v;
+
+                int[] neighbors = this.adjacency[v];
+                for (int k = 0; k < this.degrees[v]; k++) {
+                    int w = neighbors[k];
+                    if (this.distance[w] < 0) {
+                        this.queue[queueSize++] = w;
+                        this.distance[w] = this.distance[v] + 1;
+                    }
+                    if (this.distance[w] == this.distance[v] + 1) {
+                        this.sigma[w] = this.sigma[w] + this.sigma[v];
+                        this.predecessors[w][this.predecessorsCount[w]++] = v;
+                    }
+                }
+            }
+
+            for (int i = 0; i < this.size; i++) {
+                this.delta[i] = 0.0f;
+            }
+
+            while (stackSize != 0) {
+                int w = this.stack[--stackSize];
+                int[] p = this.predecessors[w];
+                for (int k = 0; k < this.predecessorsCount[w]; k++) {
+                    int e = p[k];
+                    this.delta[e] = this.delta[e] + (this.sigma[e] / this.sigma[w]) * (1 + this.delta[w]);
+                }
+                if (w != s) {
+                    cb[w] = cb[w] + this.delta[w];
+                }
+            }
+        }
+
+        float sum = 0.0f;
+        for (int i = 0; i < this.size; i++) {
+            sum += cb[this.betweennessOrder[i]];
+        }
+        for (int i = 0; i < this.size; i++) {
+            cb[i] = cb[i] / sum;
+        }
+    }
+
+    /**
+     * Cc(v) = (N-1)/[sum(u in graph) geodesicDistance(v,u)], computed within
+     * components with a breadth first search from every node.
+     */
+    private void calculateCloseness() {
+        for (int v = 0; v < this.size; v++) {
+            for (int i = 0; i < this.size; i++) {
+                this.distance[i] = -1.0f;
+            }
+            int sum = 0;
+            int head = 0;
+            int tail = 0;
+            this.queue[tail++] = v;
+            this.distance[v] = 0.0f;
+            while (head != tail) {
+                int current = this.queue[head++];
+                int length = (int) this.distance[current];
+                sum += length;
+                int[] neighbors = this.adjacency[current];
+                for (int k = 0; k < this.degrees[current]; k++) {
+                    int n = neighbors[k];
+                    if (this.distance[n] < 0) {
+                        this.distance[n] = length + 1;
+                        this.queue[tail++] = n;
+                    }
+                }
+            }
+            this.scores[v] = sum == 0 ? 0.0f : (this.size - 1) / (float) sum;
+        }
+
+        normalize();
+    }
+
+    //Pagerank
+    private void calculateKatzCentrality(float alpha) {
+        float[] old = this.previous;
+        float[] current = this.scores;
+        for (int i = 0; i < this.size; i++) {
+            old[i] = (float) 1 / this.size;
+        }
+
+        boolean converged = false;
+        while (!converged) {
+            for (int i = 0; i < this.size; i++) {
+                float sum = 0.0f;
+                int[] neighbors = this.adjacency[i];
+                for (int k = 0; k < this.degrees[i]; k++) {
+                    int j = neighbors[k];
+                    sum += old[j] / (float) this.degrees[j];
+                }
+                current[i] = ((1 - (float) alpha) / (float) this.size) + alpha * sum;
+            }
+
+            //determines whether results converged
+            converged = true;
+            for (int i = 0; i < this.size; i++) {
+                if (Math.abs(current[i] - old[i]) > KATZ_CONVERGENCE) {
+                    converged = false;
+                    break;
+                }
+            }
+
+            System.arraycopy(current, 0, old, 0, this.size);
+        }
+
+        normalize();
+    }
+
+    private void normalize() {
+        float sum = 0.0f;
+        for (int i = 0; i < this.size; i++) {
+            sum += this.scores[i];
+        }
+        for (int i = 0; i < this.size; i++) {
+            this.scores[i] = this.scores[i] / sum;
+        }
+    }
+}
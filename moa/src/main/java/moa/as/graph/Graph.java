@@ -6,7 +6,6 @@ import java.util.Collection;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
-import java.util.LinkedList;
 import java.util.List;
 import java.util.Map.Entry;
 import java.util.Queue;
@@ -45,6 +44,10 @@ public class Graph<N, E> {
         public HashMap<Node, E> neighbors = new HashMap<Node, E>();
         // Node value. 
         public N value;
+        // Position of this node in the centrality engine arrays
+        public int slot;
+        // Value of the chosen centrality metric for this node
+        public float centrality;
 
         public Node(int ID, N value) {
             this.ID = ID;
@@ -174,6 +177,7 @@ public class Graph<N, E> {
     private String choosenCentralityMetric;
     private boolean metricUpdated;
     private HashMap<Integer, Float> metricValues;
+    private CentralityEngine centralityEngine = new CentralityEngine();
 
     //public final String CLOSENESS = "Closeness";
     //CONSTRUCTOR
@@ -511,7 +515,7 @@ public class Graph<N, E> {
     public float getCentralityMetric(int vID) {
         if (this.choosenCentralityMetric != null) {
             calculateCentralityMetric();
-            return metricValues.get(vID);
+            return nodes.get(vID).centrality;
         }
         return -1.0f;
     }
@@ -519,6 +523,12 @@ public class Graph<N, E> {
     public HashMap<Integer, Float> getCentralityMetric() {
         if (this.choosenCentralityMetric != null) {
             calculateCentralityMetric();
+            if (metricValues == null) {
+                metricValues = new HashMap<Integer, Float>();
+                for (Node node : nodes.values()) {
+                    metricValues.put(node.ID, node.centrality);
+                }
+            }
         }
         return metricValues;
     }
@@ -528,274 +538,43 @@ public class Graph<N, E> {
         //case the metric is not updated
         //then we calculate it accordingly to the 
         // choosen metric variable (choosenCentralityMetric)
+        //all changes made since the last call are processed at once
         if (!metricUpdated) {
-            if (this.getNodesQuantity() < 3 || this.choosenCentralityMetric.equals("Degree")) {
-                this.metricValues = calculateDegree();
-            } else if (this.choosenCentralityMetric.equals("Betweenness")) {
-                this.metricValues = calculateBetweenness();
-            } else if (this.choosenCentralityMetric.equals("Closeness")) {
-                this.metricValues = calculateCloseness();
-            } else if (this.choosenCentralityMetric.equals("Eigenvector")) {
-                this.metricValues = calculateKatzCentrality(0.0f);
-            } else if (this.choosenCentralityMetric.equals("Pagerank")) {
-                this.metricValues = calculateKatzCentrality(0.5f);
-            }
-        }
-        metricUpdated = true;
-    }
-
-    //Betweenness
-    private HashMap<Integer, Float> calculateBetweenness() {
-        //declara��o de Cb
-        HashMap<Integer, Float> cb = new HashMap<Integer, Float>();
-        //inicializa��o de Cb
-        for (Integer i : this.nodes.keySet()) {
-            cb.put(i, 0.0f);
-        }
-        //declara��o de sigma
-        HashMap<Integer, Float> sigma = new HashMap<Integer, Float>();
-
-        //declara��o de d
-        HashMap<Integer, Float> d = new HashMap<Integer, Float>();
-
-        //declara��o de delta
-        HashMap<Integer, Float> delta = new HashMap<Integer, Float>();
-
-        for (Integer s : this.nodes.keySet()) {
-            //declara��o de S
-            Stack<Integer> stack = new Stack<Integer>();
-
-            //declara��o de P
-            HashMap<Integer, ArrayList<Integer>> p = new HashMap<Integer, ArrayList<Integer>>();
-            for (Integer i : this.nodes.keySet()) {
-                p.put(i, new ArrayList<Integer>());
-            }
-
-            //declara��o de Q
-            LinkedList<Integer> queue = new LinkedList<Integer>();
-
-            //inicializa��o de sigma e de d
-            for (Integer i : nodes.keySet()) {
-                sigma.put(i, 0.0f);
-                d.put(i, -1.0f);
-            }
-            sigma.put(s, 1.0f);
-            d.put(s, 0.0f);
-
-            //push em Queue o s
-            queue.push(s);
-
-            while (queue.size() != 0) {
-                int v = queue.remove();
-                stack.push(v);
-
-                for (Integer w : getNeighborsIDs(v)) {
-                    if (d.get(w) < 0) {
-                        queue.push(w);
-                        d.put(w, d.get(v) + 1);
-                    }
-
-                    if (d.get(w) == d.get(v) + 1) {
-                        sigma.put(w, sigma.get(w) + sigma.get(v));
-                        p.get(w).add(v);
-                    }
-                }
-            }
-
-            //inicializa��o de delta
-            for (Integer i : nodes.keySet()) {
-                delta.put(i, 0.0f);
-            }
-
-            //while Stack is not empty
-            while (!stack.empty()) {
-                int w = stack.pop();
-                for (Integer e : p.get(w)) {
-                    delta.put(e, delta.get(e) + (sigma.get(e) / sigma.get(w)) * (1 + delta.get(w)));
-                }
-                if (w != s) {
-                    cb.put(w, cb.get(w) + delta.get(w));
-                }
-            }
-        }
-
-        //normalization
-        float sum = 0.0f;
-        for (Integer i : cb.keySet()) {
-            sum += cb.get(i);
-        }
-        for (Integer i : cb.keySet()) {
-            cb.put(i, cb.get(i) / sum);
-        }
-
-        //retorna o resultado
-        return cb;
-    }
-
-    //Degree
-    private HashMap<Integer, Float> calculateDegree() {
-        //hashmap de resultado
-        HashMap<Integer, Float> rs = new HashMap<Integer, Float>();
-        //vertices do grafo
-        ArrayList<Integer> vertices = new ArrayList<Integer>(nodes.keySet());
-
-        //armazena o grau dos n�s
-        for (Integer i : vertices) {
-            rs.put(i, (float) this.getNeighbors(i).size());
-        }
-
-        //normalize the result
-        float sum = 0.0f;
-        //calculates the sum of the values obtained
-        for (Integer i : rs.keySet()) {
-            sum += rs.get(i);
-        }
-        //updates the values
-        if (sum != 0.0f) {
-            for (Integer i : rs.keySet()) {
-                rs.put(i, rs.get(i) / sum);
-            }
-        } else {
-            for (Integer i : rs.keySet()) {
-                rs.put(i, 1 / (float) this.getNodesQuantity());
+            // nodes and neighbors are copied into the engine in the same
+            // order the hash maps iterate them, which is the order the
+            // metrics have always been computed in
+            this.centralityEngine.reset(nodes.size());
+            int slot = 0;
+            for (Node node : nodes.values()) {
+                node.slot = slot++;
             }
-        }
-
-        //retorna o resultado
-        return rs;
-    }
-
-    /**
-     * Note: This Closeness Centrality calculates Cc(v) values within
-     * components, i.e. it works for multipartite graphs. Cc(v) = (N-1)/[sum(u
-     * in graph) geodesicDistance(v,u]. There is no issue when v = u, since it
-     * will add 0 to the sum. Also, if for any u geodesicDistance(v,u) == -1 (u
-     * is unreachable from v and vice-versa) this contributes as 0 to Cc(v) as
-     * well.
-     *
-     * @return For every node in the graph (key), its normalized Closeness
-     * Centrality measure (value).
-     */
-    private HashMap<Integer, Float> calculateCloseness() {
-        class CcNode {
-
-            int nodeID;
-            int lengthFromBegin;
-
-            CcNode(int nodeID, int lengthFromBegin) {
-                this.nodeID = nodeID;
-                this.lengthFromBegin = lengthFromBegin;
-            }
-        }
-
-        HashMap<Integer, Float> rs = new HashMap<Integer, Float>();
-        for (Integer vID : getNodesIDs()) {
-            int sum = 0;
-            // bfs for each node
-            Set<Integer> explored = new HashSet<Integer>();
-            Queue<CcNode> frontier = new ArrayDeque<CcNode>();
-
-            frontier.add(new CcNode(vID, 0));
-
-            while (!frontier.isEmpty()) {
-                CcNode current = frontier.remove();
-                explored.add(current.nodeID);
-                sum += current.lengthFromBegin;
-
-                for (Integer n : getNeighborsIDs(current.nodeID)) {
-                    if (!explored.contains(n)) {
-                        boolean isInFrontier = false;
-                        for (CcNode f : frontier) {
-                            if (f.nodeID == n) {
-                                isInFrontier = true;
-                                break;
-                            }
-                        }
-                        if (!isInFrontier) {
-                            frontier.add(new CcNode(n, current.lengthFromBegin + 1));
-                        }
-                    }
+            for (Node node : nodes.values()) {
+                int[] adjacency = this.centralityEngine.neighbors(node.slot, node.neighbors.size());
+                int k = 0;
+                for (Node neighbor : node.neighbors.keySet()) {
+                    adjacency[k++] = neighbor.slot;
                 }
             }
-            rs.put(vID, sum == 0 ? 0.0f : (getNodesQuantity() - 1) / (float) sum);
-            //rs.put(vID, sum == 0 ? 0.0f : getNodesQuantity()/(float)sum);
-        }
-
-        float sum = 0.0f;
-        for (Integer i : nodes.keySet()) {
-            sum += rs.get(i);
-        }
-        for (Integer i : nodes.keySet()) {
-            rs.put(i, rs.get(i) / sum);
-        }
-
-        return rs;
-    }
-
-    //Pagerank
-    private HashMap<Integer, Float> calculateKatzCentrality(float alpha) {
-        HashMap<Integer, Float> rs = new HashMap<Integer, Float>();
-        HashMap<Integer, Float> old = new HashMap<Integer, Float>();
-        HashMap<Integer, Float> current = new HashMap<Integer, Float>();
-
-        //distribute pagerank values equally
-        //pr(p;0) = 1/n;
-        for (Integer i : nodes.keySet()) {
-            old.put(i, (float) 1 / nodes.keySet().size());
-        }
-
-        boolean converged = false;
-
-        //at each step of the computation, we have
-        //pr(p_i; t+1) = ((1-d)/n) + d * (sum_p_j belongs to M(pi)) (pr(p_j; t) / L(p_j))
-        //M(p_i) is the set of nodes that neighbours i
-        //d is the parameter
-        //L(p_j) is the # of neighbors of j
-        //do it until it converges
-        //float d = 0.5f;
-        while (!converged) {
-            for (Integer i : nodes.keySet()) {
-                float sum = 0.0f;
-                ArrayList<Integer> neighbors = (ArrayList<Integer>) getNeighborsIDs(i);
-                for (Integer j : neighbors) {
-                    sum += old.get(j) / (float) this.getNeighborsIDs(j).size();
+            if (CentralityEngine.BETWEENNESS.equals(this.choosenCentralityMetric)) {
+                // the betweenness was normalized iterating a new hash map
+                // of the node IDs, which may differ from the nodes order
+                HashMap<Integer, Node> ids = new HashMap<Integer, Node>();
+                for (Node node : nodes.values()) {
+                    ids.put(node.ID, node);
                 }
-                current.put(i, ((1 - (float) alpha) / (float) nodes.keySet().size()) + alpha * sum);
-
-                //System.out.println("v:" + i + ": " + current.get(i));
-            }
-            //System.out.println("-------------------");
-
-            //determines whether results converged
-            converged = true;
-            for (Integer c : current.keySet()) {
-                if (Math.abs(current.get(c) - old.get(c)) > 0.00001f) {
-                    converged = false;
-                    break;
+                int[] order = this.centralityEngine.betweennessOrder();
+                int k = 0;
+                for (Node node : ids.values()) {
+                    order[k++] = node.slot;
                 }
             }
-
-            //copy current into old
-            for (Integer c : current.keySet()) {
-                old.put(c, current.get(c));
+            float[] scores = this.centralityEngine.compute(this.choosenCentralityMetric);
+            for (Node node : nodes.values()) {
+                node.centrality = scores[node.slot];
             }
-
-        }
-
-        //copy current to rs
-        for (Integer i : nodes.keySet()) {
-            rs.put(i, current.get(i));
+            metricValues = null;
         }
-
-        float sum = 0.0f;
-        for (Integer i : nodes.keySet()) {
-            sum += rs.get(i);
-        }
-        for (Integer i : nodes.keySet()) {
-            rs.put(i, rs.get(i) / sum);
-        }
-
-        return rs;
+        metricUpdated = true;
     }
 
     /**
@@ -26,6 +26,7 @@ import java.util.List;
 import java.util.Random;
 
 import moa.MOAObject;
+import moa.core.ByteSizeEstimable;
 import moa.core.Example;
 
 import com.yahoo.labs.samoa.instances.InstancesHeader;
@@ -33,6 +34,7 @@ import com.yahoo.labs.samoa.instances.InstancesHeader;
 import moa.core.Measurement;
 import moa.core.ObjectRepository;
 import moa.core.StringUtils;
+import moa.core.TimingUtils;
 import moa.gui.AWTRenderer;
 import moa.learners.Learner;
 import moa.options.AbstractOptionHandler;
@@ -74,6 +76,21 @@ public abstract class AbstractClassifier extends AbstractOptionHandler
     /** Random Generator used in randomizable learners  */
     public Random classifierRandom;
 
+    /** Whether the model size is estimated, for models that are ByteSizeEstimable */
+    protected boolean byteSizeEstimated = false;
+
+    /** Number of model size requests between measurements of the serialized size */
+    protected int byteSizeMeasurementFrequency = 1;
+
+    /** Last model size given by getModelByteSize(), -1 if none */
+    protected int lastByteSize = -1;
+
+    /** Number of calls to getModelByteSize() */
+    protected long byteSizeRequests = 0;
+
+    /** CPU time spent obtaining the model size, in nanoseconds */
+    protected long byteSizeMeasurementTime = 0;
+
     /**
      * Creates an classifier and setups the random seed option
      * if the classifier is randomizable.
@@ -105,6 +122,27 @@ public abstract class AbstractClassifier extends AbstractOptionHandler
     @Override
     public abstract double[] getVotesForInstance(Instance inst);
 
+    /**
+     * Returns the array for the votes of an instance in getVotesForInstances,
+     * filled with zeros: the array already in the row if it has the given
+     * length, or a new array stored in the row.
+     *
+     * @param votes the array receiving the votes for each instance
+     * @param index the index of the instance
+     * @param length the number of votes
+     * @return the array for the votes of the instance
+     */
+    protected static double[] votesRow(double[][] votes, int index, int length) {
+        double[] row = votes[index];
+        if (row == null || row.length != length) {
+            row = new double[length];
+            votes[index] = row;
+        } else {
+            Arrays.fill(row, 0.0);
+        }
+        return row;
+    }
+
     @Override
     public Prediction getPredictionForInstance(Example<Instance> example){
 		return getPredictionForInstance(example.getData());
@@ -185,7 +223,7 @@ public abstract class AbstractClassifier extends AbstractOptionHandler
         measurementList.add(new Measurement("model training instances",
                 trainingWeightSeenByModel()));
         measurementList.add(new Measurement("model serialized size (bytes)",
-                measureByteSize()));
+                reportedByteSize()));
         Measurement[] modelMeasurements = getModelMeasurementsImpl();
         if (modelMeasurements != null) {
             measurementList.addAll(Arrays.asList(modelMeasurements));
@@ -195,6 +233,12 @@ public abstract class AbstractClassifier extends AbstractOptionHandler
         if ((subModels != null) && (subModels.length > 0)) {
             List<Measurement[]> subMeasurements = new LinkedList<Measurement[]>();
             for (Learner subModel : subModels) {
+                if (subModel instanceof AbstractClassifier && isByteSizeMeasurementSet()) {
+                    // sub-models report their size the same way
+                    AbstractClassifier subClassifier = (AbstractClassifier) subModel;
+                    subClassifier.setByteSizeMeasurement(this.byteSizeEstimated, this.byteSizeMeasurementFrequency);
+                    subClassifier.getModelByteSize();
+                }
                 if (subModel != null) {
                     subMeasurements.add(subModel.getModelMeasurements());
                 }
@@ -205,6 +249,94 @@ public abstract class AbstractClassifier extends AbstractOptionHandler
         return measurementList.toArray(new Measurement[measurementList.size()]);
     }
 
+    /**
+     * Sets how getModelByteSize() obtains the size of the model. By default,
+     * the serialized size is measured at every request, walking the whole
+     * model with measureByteSize().
+     *
+     * @param estimated whether to use estimateByteSize() instead, for models
+     * that are ByteSizeEstimable
+     * @param frequency number of requests between measurements of the
+     * serialized size, the last size being reused in between
+     */
+    public void setByteSizeMeasurement(boolean estimated, int frequency) {
+        this.byteSizeEstimated = estimated;
+        this.byteSizeMeasurementFrequency = Math.max(frequency, 1);
+    }
+
+    /**
+     * Makes a new learner of the class of this one the same as a copy of this
+     * learner reset with resetLearning(): sets its options, random seed, model
+     * context and size measurement to the ones of this learner, and resets
+     * it. Learners whose state is all reset by resetLearning() use it to get
+     * an untrained copy without serializing their model.
+     *
+     * @param learner a new learner of the class of this one
+     */
+    protected void prepareUntrainedCopy(AbstractClassifier learner) {
+        learner.getOptions().setViaCLIString(getOptions().getAsCLIString());
+        if (this.randomSeedOption != null) {
+            learner.randomSeedOption.setValue(this.randomSeedOption.getValue());
+        }
+        learner.prepareForUse();
+        learner.randomSeed = this.randomSeed;
+        learner.modelContext = this.modelContext;
+        learner.setByteSizeMeasurement(this.byteSizeEstimated, this.byteSizeMeasurementFrequency);
+        learner.resetLearning();
+    }
+
+    /**
+     * Gets the size of the model, as set by setByteSizeMeasurement(). The
+     * size is also the one reported in the model measurements, that are
+     * usually obtained right after.
+     *
+     * @return the size of the model, in bytes
+     */
+    public int getModelByteSize() {
+        long start = TimingUtils.getNanoCPUTimeOfCurrentThread();
+        if (this.byteSizeEstimated && this instanceof ByteSizeEstimable) {
+            this.lastByteSize = ((ByteSizeEstimable) this).estimateByteSize();
+        } else if (this.lastByteSize < 0 || this.byteSizeRequests % this.byteSizeMeasurementFrequency == 0) {
+            this.lastByteSize = measureByteSize();
+        }
+        this.byteSizeRequests++;
+        this.byteSizeMeasurementTime += TimingUtils.getNanoCPUTimeOfCurrentThread() - start;
+        return this.lastByteSize;
+    }
+
+    /**
+     * Gets the CPU time spent obtaining the size of this model and of its
+     * current sub-models.
+     *
+     * @return the time, in seconds
+     */
+    public double getByteSizeMeasurementTime() {
+        double time = TimingUtils.nanoTimeToSeconds(this.byteSizeMeasurementTime);
+        Learner[] subModels = getSublearners();
+        if (subModels != null) {
+            for (Learner subModel : subModels) {
+                if (subModel instanceof AbstractClassifier) {
+                    time += ((AbstractClassifier) subModel).getByteSizeMeasurementTime();
+                }
+            }
+        }
+        return time;
+    }
+
+    protected boolean isByteSizeMeasurementSet() {
+        return this.byteSizeEstimated || this.byteSizeMeasurementFrequency > 1;
+    }
+
+    private int reportedByteSize() {
+        if (isByteSizeMeasurementSet() && this.lastByteSize >= 0) {
+            return this.lastByteSize;
+        }
+        long start = TimingUtils.getNanoCPUTimeOfCurrentThread();
+        int byteSize = measureByteSize();
+        this.byteSizeMeasurementTime += TimingUtils.getNanoCPUTimeOfCurrentThread() - start;
+        return byteSize;
+    }
+
     @Override
     public void getDescription(StringBuilder out, int indent) {
         StringUtils.appendIndented(out, indent, "Model type: ");
@@ -76,6 +76,23 @@ public interface Classifier extends Learner<Example<Instance>> {
      * test instance in each class
      */
     public double[] getVotesForInstance(Instance inst);
+
+    /**
+     * Predicts the class memberships for a block of instances, as
+     * getVotesForInstance does for each of them. The votes for instances[i]
+     * are stored in votes[i], for i below numInstances, either in the array
+     * already there when the learner can reuse it, or in a new array. The
+     * arrays in votes belong to the caller.
+     *
+     * @param instances the instances to be classified
+     * @param numInstances the number of instances in the block
+     * @param votes the array receiving the votes for each instance
+     */
+    public default void getVotesForInstances(Instance[] instances, int numInstances, double[][] votes) {
+        for (int i = 0; i < numInstances; i++) {
+            votes[i] = getVotesForInstance(instances[i]);
+        }
+    }
     
     /**
      * Sets the reference to the header of the data stream. The header of the
@@ -0,0 +1,229 @@
+/*
+ *    CompiledTree.java
+ *
+ *    This program is free software; you can redistribute it and/or modify
+ *    it under the terms of the GNU General Public License as published by
+ *    the Free Software Foundation; either version 3 of the License, or
+ *    (at your option) any later version.
+ *
+ *    This program is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *    GNU General Public License for more details.
+ *
+ *    You should have received a copy of the GNU General Public License
+ *    along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package moa.classifiers.core;
+
+import com.yahoo.labs.samoa.instances.Instance;
+import moa.classifiers.core.conditionaltests.InstanceConditionalTest;
+import moa.classifiers.core.conditionaltests.NominalAttributeBinaryTest;
+import moa.classifiers.core.conditionaltests.NominalAttributeMultiwayTest;
+import moa.classifiers.core.conditionaltests.NumericAttributeBinaryTest;
+
+import java.io.Serializable;
+import java.util.Arrays;
+
+/**
+ * Decision tree flattened into parallel primitive arrays for prediction.
+ *
+ * Each split node keeps the kind of its test, the attribute index and the
+ * split value, and the offset of its branches in a shared children array.
+ * A branch target is either another split node (>= 0) or a payload (< 0),
+ * the object the owning tree predicts with, usually a leaf node, together
+ * with a branch index that the tree can use to read the leaf from its parent.
+ * Finding the payload of an instance is a loop over the arrays that does not
+ * allocate. The tests of the conditional test classes are evaluated inline,
+ * any other test through branchForInstance.
+ *
+ * A null payload means the tree has to be searched the usual way: it is used
+ * for nodes the owning tree cannot compile, and find also answers -1 for
+ * branches that did not exist when the tree was compiled. The compiled tree
+ * does not follow changes of the tree it was built from, the owner has to
+ * discard it when its structure changes.
+ */
+public class CompiledTree implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    protected static final byte NUMERIC_LESS_OR_EQUAL = 0;
+
+    protected static final byte NUMERIC_LESS = 1;
+
+    protected static final byte NOMINAL_BINARY = 2;
+
+    protected static final byte NOMINAL_MULTIWAY = 3;
+
+    protected static final byte GENERIC = 4;
+
+    private static final int INITIAL_CAPACITY = 16;
+
+    // The root node of the tree that was compiled
+    protected final Object source;
+
+    protected int root;
+
+    // Split nodes
+    protected byte[] kinds = new byte[INITIAL_CAPACITY];
+    protected int[] attIndices = new int[INITIAL_CAPACITY];
+    protected double[] splitValues = new double[INITIAL_CAPACITY];
+    protected int[] firstChildren = new int[INITIAL_CAPACITY];
+    protected int[] numBranches = new int[INITIAL_CAPACITY];
+    protected int[] missingTargets = new int[INITIAL_CAPACITY];
+    protected InstanceConditionalTest[] genericTests = new InstanceConditionalTest[INITIAL_CAPACITY];
+    protected int numNodes;
+
+    // Branch targets of all the split nodes
+    protected int[] children = new int[INITIAL_CAPACITY];
+    protected int numChildren;
+
+    // Payloads
+    protected Object[] payloadNodes = new Object[INITIAL_CAPACITY];
+    protected int[] payloadBranches = new int[INITIAL_CAPACITY];
+    protected int numPayloads;
+
+    public CompiledTree(Object source) {
+        this.source = source;
+    }
+
+    /**
+     * Returns true if this was compiled from the tree with the given root.
+     */
+    public boolean isCompiledFrom(Object treeRoot) {
+        return this.source == treeRoot;
+    }
+
+    /**
+     * Adds a split node with the given number of branches, all of them
+     * without payload until set, and returns its target.
+     */
+    public int addSplit(InstanceConditionalTest splitTest, int branches) {
+        if (this.numNodes == this.kinds.length) {
+            int capacity = this.numNodes * 2;
+            this.kinds = Arrays.copyOf(this.kinds, capacity);
+            this.attIndices = Arrays.copyOf(this.attIndices, capacity);
+            this.splitValues = Arrays.copyOf(this.splitValues, capacity);
+            this.firstChildren = Arrays.copyOf(this.firstChildren, capacity);
+            this.numBranches = Arrays.copyOf(this.numBranches, capacity);
+            this.missingTargets = Arrays.copyOf(this.missingTargets, capacity);
+            this.genericTests = Arrays.copyOf(this.genericTests, capacity);
+        }
+        if (this.numChildren + branches > this.children.length) {
+            this.children = Arrays.copyOf(this.children, Math.max(this.children.length * 2, this.numChildren + branches));
+        }
+        int node = this.numNodes++;
+        Class<?> testClass = splitTest.getClass();
+        if (testClass == NumericAttributeBinaryTest.class) {
+            NumericAttributeBinaryTest test = (NumericAttributeBinaryTest) splitTest;
+            this.kinds[node] = test.isEqualsPassesTest() ? NUMERIC_LESS_OR_EQUAL : NUMERIC_LESS;
+            this.attIndices[node] = test.getAttIndex();
+            this.splitValues[node] = test.getSplitValue();
+        } else if (testClass == NominalAttributeBinaryTest.class) {
+            NominalAttributeBinaryTest test = (NominalAttributeBinaryTest) splitTest;
+            this.kinds[node] = NOMINAL_BINARY;
+            this.attIndices[node] = test.getAttIndex();
+            this.splitValues[node] = test.getAttValue();
+        } else if (testClass == NominalAttributeMultiwayTest.class) {
+            this.kinds[node] = NOMINAL_MULTIWAY;
+            this.attIndices[node] = ((NominalAttributeMultiwayTest) splitTest).getAttIndex();
+        } else {
+            // subclasses may override branchForInstance
+            this.kinds[node] = GENERIC;
+            this.genericTests[node] = splitTest;
+        }
+        this.firstChildren[node] = this.numChildren;
+        this.numBranches[node] = branches;
+        int none = addPayload(null, -1);
+        this.missingTargets[node] = none;
+        Arrays.fill(this.children, this.numChildren, this.numChildren + branches, none);
+        this.numChildren += branches;
+        return node;
+    }
+
+    /**
+     * Adds a payload and returns its target. A null node means the instances
+     * reaching it have to be searched in the tree.
+     */
+    public int addPayload(Object node, int branch) {
+        if (this.numPayloads == this.payloadNodes.length) {
+            int capacity = this.numPayloads * 2;
+            this.payloadNodes = Arrays.copyOf(this.payloadNodes, capacity);
+            this.payloadBranches = Arrays.copyOf(this.payloadBranches, capacity);
+        }
+        this.payloadNodes[this.numPayloads] = node;
+        this.payloadBranches[this.numPayloads] = branch;
+        return -1 - this.numPayloads++;
+    }
+
+    public void setChild(int node, int branch, int target) {
+        this.children[this.firstChildren[node] + branch] = target;
+    }
+
+    /**
+     * Sets the target of the instances with a missing value for the split.
+     */
+    public void setMissingBranch(int node, int target) {
+        this.missingTargets[node] = target;
+    }
+
+    public void setRoot(int target) {
+        this.root = target;
+    }
+
+    /**
+     * Returns the payload index for the instance, or -1 if it has to be
+     * searched in the tree.
+     */
+    public int find(Instance inst) {
+        int target = this.root;
+        while (target >= 0) {
+            int attIndex = this.attIndices[target];
+            int branch;
+            switch (this.kinds[target]) {
+                case NUMERIC_LESS_OR_EQUAL:
+                    branch = inst.isMissing(attIndex) ? -1
+                            : (inst.valueInputAttribute(attIndex) <= this.splitValues[target] ? 0 : 1);
+                    break;
+                case NUMERIC_LESS:
+                    branch = inst.isMissing(attIndex) ? -1
+                            : (inst.valueInputAttribute(attIndex) < this.splitValues[target] ? 0 : 1);
+                    break;
+                case NOMINAL_BINARY:
+                    if (attIndex >= inst.classIndex()) {
+                        attIndex++;
+                    }
+                    branch = inst.isMissing(attIndex) ? -1
+                            : ((int) inst.value(attIndex) == (int) this.splitValues[target] ? 0 : 1);
+                    break;
+                case NOMINAL_MULTIWAY:
+                    branch = inst.isMissing(attIndex) ? -1 : (int) inst.value(attIndex);
+                    break;
+                default:
+                    branch = this.genericTests[target].branchForInstance(inst);
+            }
+            if (branch < 0) {
+                target = this.missingTargets[target];
+            } else if (branch < this.numBranches[target]) {
+                target = this.children[this.firstChildren[target] + branch];
+            } else {
+                return -1;
+            }
+        }
+        int payload = -1 - target;
+        return this.payloadNodes[payload] != null ? payload : -1;
+    }
+
+    public Object getPayloadNode(int payload) {
+        return this.payloadNodes[payload];
+    }
+
+    public int getPayloadBranch(int payload) {
+        return this.payloadBranches[payload];
+    }
+
+    public int numSplitNodes() {
+        return this.numNodes;
+    }
+}
@@ -0,0 +1,232 @@
+/*
+ *    FIMTDDArrayNumericAttributeClassObserver.java
+ *
+ *    This program is free software; you can redistribute it and/or modify
+ *    it under the terms of the GNU General Public License as published by
+ *    the Free Software Foundation; either version 3 of the License, or
+ *    (at your option) any later version.
+ *
+ *    This program is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *    GNU General Public License for more details.
+ *
+ *    You should have received a copy of the GNU General Public License
+ *    along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package moa.classifiers.core.attributeclassobservers;
+
+import com.github.javacliparser.IntOption;
+import moa.classifiers.core.AttributeSplitSuggestion;
+import moa.classifiers.core.conditionaltests.NumericAttributeBinaryTest;
+import moa.classifiers.core.splitcriteria.SplitCriterion;
+import moa.options.OptionHandler;
+
+/**
+ * Numeric attribute observer for FIMTDD that keeps the E-BST statistics in
+ * parallel primitive arrays sorted by attribute value, instead of one tree
+ * node per distinct value.
+ *
+ * Each position holds the count, sum and sum of squares of the targets seen
+ * with exactly that value, so the left statistics of the E-BST are prefix sums
+ * and FindBestSplit is a single loop over the arrays. Inserts use a binary
+ * search, so sorted or drifting values do not degenerate into a linked list,
+ * and the candidate splits are evaluated in the same order as before.
+ *
+ * The number of distinct split points can be capped. When the cap is reached,
+ * the two neighbouring points with the fewest observations are merged, the
+ * larger value being kept as the split point, so the memory used by a leaf is
+ * bounded.
+ */
+public class FIMTDDArrayNumericAttributeClassObserver extends FIMTDDNumericAttributeClassObserver {
+
+    private static final long serialVersionUID = 1L;
+
+    private static final int INITIAL_CAPACITY = 16;
+
+    public IntOption maxSplitPointsOption = new IntOption("maxSplitPoints", 'm',
+            "Maximum number of distinct split points kept, merging neighbouring points when exceeded (0 = no limit).",
+            0, 0, Integer.MAX_VALUE);
+
+    // Distinct attribute values (split points), sorted, and their statistics
+    protected double[] cutPoints = new double[INITIAL_CAPACITY];
+    protected double[] counts = new double[INITIAL_CAPACITY];
+    protected double[] sumsOfValues = new double[INITIAL_CAPACITY];
+    protected double[] sumsOfSquares = new double[INITIAL_CAPACITY];
+
+    // Number of split points in use
+    protected int size = 0;
+
+    // Distributions handed to the split criterion while searching
+    protected transient double[] preSplitDistBuffer;
+    protected transient double[][] postSplitDistsBuffer;
+
+    public FIMTDDArrayNumericAttributeClassObserver() {
+    }
+
+    /**
+     * Creates a copy of an observer, with the same option and split points.
+     */
+    public FIMTDDArrayNumericAttributeClassObserver(FIMTDDArrayNumericAttributeClassObserver other) {
+        super(other);
+        this.maxSplitPointsOption.setValue(other.maxSplitPointsOption.getValue());
+        this.cutPoints = other.cutPoints.clone();
+        this.counts = other.counts.clone();
+        this.sumsOfValues = other.sumsOfValues.clone();
+        this.sumsOfSquares = other.sumsOfSquares.clone();
+        this.size = other.size;
+    }
+
+    @Override
+    public OptionHandler copy() {
+        return getClass() == FIMTDDArrayNumericAttributeClassObserver.class
+                ? new FIMTDDArrayNumericAttributeClassObserver(this) : super.copy();
+    }
+
+    @Override
+    public void observeAttributeClass(double attVal, double classVal, double weight) {
+        if (Double.isNaN(attVal)) { //Instance.isMissingValue(attVal)
+            return;
+        }
+        int position = search(attVal);
+        if (position >= this.size || this.cutPoints[position] != attVal) {
+            if (this.maxSplitPointsOption.getValue() > 0 && this.size >= Math.max(2, this.maxSplitPointsOption.getValue())) {
+                mergeSplitPoints();
+                position = search(attVal);
+            }
+            if (position >= this.size || this.cutPoints[position] != attVal) {
+                insertSplitPoint(position, attVal);
+            }
+        }
+        // As in the E-BST, each observation counts once, whatever its weight
+        this.counts[position] += 1;
+        this.sumsOfValues[position] += classVal;
+        this.sumsOfSquares[position] += classVal * classVal;
+    }
+
+    /**
+     * Returns the position of the first split point greater than or equal to
+     * the value, or size if there is none.
+     */
+    protected int search(double attVal) {
+        int low = 0;
+        int high = this.size;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (this.cutPoints[middle] < attVal) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    protected void insertSplitPoint(int position, double attVal) {
+        if (this.size == this.cutPoints.length) {
+            int capacity = this.cutPoints.length * 2;
+            if (this.maxSplitPointsOption.getValue() > 0) {
+                capacity = Math.min(capacity, Math.max(2, this.maxSplitPointsOption.getValue()));
+            }
+            this.cutPoints = grow(this.cutPoints, capacity);
+            this.counts = grow(this.counts, capacity);
+            this.sumsOfValues = grow(this.sumsOfValues, capacity);
+            this.sumsOfSquares = grow(this.sumsOfSquares, capacity);
+        }
+        int tail = this.size - position;
+        System.arraycopy(this.cutPoints, position, this.cutPoints, position + 1, tail);
+        System.arraycopy(this.counts, position, this.counts, position + 1, tail);
+        System.arraycopy(this.sumsOfValues, position, this.sumsOfValues, position + 1, tail);
+        System.arraycopy(this.sumsOfSquares, position, this.sumsOfSquares, position + 1, tail);
+        this.cutPoints[position] = attVal;
+        this.counts[position] = 0.0;
+        this.sumsOfValues[position] = 0.0;
+        this.sumsOfSquares[position] = 0.0;
+        this.size++;
+    }
+
+    private static double[] grow(double[] array, int capacity) {
+        double[] grown = new double[capacity];
+        System.arraycopy(array, 0, grown, 0, array.length);
+        return grown;
+    }
+
+    /**
+     * Merges the pair of neighbouring split points with the smallest total
+     * count into the larger of the two values, so the points left cover
+     * similar numbers of observations.
+     */
+    protected void mergeSplitPoints() {
+        int merge = 0;
+        for (int i = 1; i < this.size - 1; i++) {
+            if (this.counts[i] + this.counts[i + 1] < this.counts[merge] + this.counts[merge + 1]) {
+                merge = i;
+            }
+        }
+        this.counts[merge + 1] += this.counts[merge];
+        this.sumsOfValues[merge + 1] += this.sumsOfValues[merge];
+        this.sumsOfSquares[merge + 1] += this.sumsOfSquares[merge];
+        int tail = this.size - merge - 1;
+        System.arraycopy(this.cutPoints, merge + 1, this.cutPoints, merge, tail);
+        System.arraycopy(this.counts, merge + 1, this.counts, merge, tail);
+        System.arraycopy(this.sumsOfValues, merge + 1, this.sumsOfValues, merge, tail);
+        System.arraycopy(this.sumsOfSquares, merge + 1, this.sumsOfSquares, merge, tail);
+        this.size--;
+    }
+
+    /**
+     * Iterative version of the FindBestSplit algorithm from E.Ikonomovska et al.
+     */
+    @Override
+    public AttributeSplitSuggestion getBestEvaluatedSplitSuggestion(SplitCriterion criterion, double[] preSplitDist, int attIndex, boolean binaryOnly) {
+        if (this.preSplitDistBuffer == null) {
+            this.preSplitDistBuffer = new double[3];
+            this.postSplitDistsBuffer = new double[2][3];
+        }
+        double[] pre = this.preSplitDistBuffer;
+        double[] left = this.postSplitDistsBuffer[0];
+        double[] right = this.postSplitDistsBuffer[1];
+        left[0] = 0;
+        left[1] = 0;
+        left[2] = 0;
+        right[0] = preSplitDist[0];
+        right[1] = preSplitDist[1];
+        right[2] = preSplitDist[2];
+
+        int bestPosition = -1;
+        double bestMerit = 0.0;
+        double[][] bestPostSplitDists = null;
+        for (int i = 0; i < this.size && right[0] != 0.0; i++) {
+            left[0] += this.counts[i];
+            right[0] -= this.counts[i];
+            left[1] += this.sumsOfValues[i];
+            right[1] -= this.sumsOfValues[i];
+            left[2] += this.sumsOfSquares[i];
+            right[2] -= this.sumsOfSquares[i];
+            pre[0] = left[0] + right[0];
+            pre[1] = left[1] + right[1];
+            pre[2] = left[2] + right[2];
+            double merit = criterion.getMeritOfSplit(pre, this.postSplitDistsBuffer);
+            if (bestPosition < 0 || merit > bestMerit) {
+                if (bestPostSplitDists == null) {
+                    bestPostSplitDists = new double[2][3];
+                }
+                System.arraycopy(left, 0, bestPostSplitDists[0], 0, 3);
+                System.arraycopy(right, 0, bestPostSplitDists[1], 0, 3);
+                bestPosition = i;
+                bestMerit = merit;
+            }
+        }
+        if (bestPosition < 0) {
+            return null;
+        }
+        return new AttributeSplitSuggestion(
+                new NumericAttributeBinaryTest(attIndex, this.cutPoints[bestPosition], true),
+                bestPostSplitDists, bestMerit);
+    }
+
+    @Override
+    public void getDescription(StringBuilder sb, int indent) {
+    }
+}
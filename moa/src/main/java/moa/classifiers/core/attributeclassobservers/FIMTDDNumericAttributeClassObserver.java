@@ -32,6 +32,7 @@ import moa.classifiers.core.conditionaltests.NumericAttributeBinaryTest;
 import moa.classifiers.core.splitcriteria.SplitCriterion;
 import moa.core.DoubleVector;
 import moa.core.ObjectRepository;
+import moa.options.OptionHandler;
 import moa.tasks.TaskMonitor;
 
 public class FIMTDDNumericAttributeClassObserver extends BinaryTreeNumericAttributeClassObserver implements NumericAttributeClassObserver {
@@ -60,6 +61,21 @@ public class FIMTDDNumericAttributeClassObserver extends BinaryTreeNumericAttrib
             this.leftStatistics.addToValue(2, label * label);
         }
 
+        /**
+         * Creates a copy of a node and of its subtree.
+         */
+        public Node(Node other) {
+            this.cut_point = other.cut_point;
+            this.leftStatistics = new DoubleVector(other.leftStatistics);
+            this.rightStatistics = new DoubleVector(other.rightStatistics);
+            if (other.left != null) {
+                this.left = new Node(other.left);
+            }
+            if (other.right != null) {
+                this.right = new Node(other.right);
+            }
+        }
+
         /**
          * Insert a new value into the tree, updating both the sum of values and
          * sum of squared values arrays
@@ -111,6 +127,32 @@ public class FIMTDDNumericAttributeClassObserver extends BinaryTreeNumericAttrib
     double countRightTotal;
     double countLeftTotal;
 
+    public FIMTDDNumericAttributeClassObserver() {
+    }
+
+    /**
+     * Creates a copy of an observer, with a copy of its E-BST.
+     */
+    public FIMTDDNumericAttributeClassObserver(FIMTDDNumericAttributeClassObserver other) {
+        if (other.root != null) {
+            this.root = new Node(other.root);
+        }
+        this.sumTotalLeft = other.sumTotalLeft;
+        this.sumTotalRight = other.sumTotalRight;
+        this.sumSqTotalLeft = other.sumSqTotalLeft;
+        this.sumSqTotalRight = other.sumSqTotalRight;
+        this.countRightTotal = other.countRightTotal;
+        this.countLeftTotal = other.countLeftTotal;
+    }
+
+    @Override
+    public OptionHandler copy() {
+        // the classification tree of the superclass is not copied, it is not
+        // used when observing numeric targets
+        return getClass() == FIMTDDNumericAttributeClassObserver.class && super.root == null
+                ? new FIMTDDNumericAttributeClassObserver(this) : super.copy();
+    }
+
     public void observeAttributeClass(double attVal, double classVal, double weight) {
         if (Double.isNaN(attVal)) { //Instance.isMissingValue(attVal)
         } else {
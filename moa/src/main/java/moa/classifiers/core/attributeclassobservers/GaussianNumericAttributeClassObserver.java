@@ -33,6 +33,7 @@ import moa.core.AutoExpandVector;
 import moa.core.DoubleVector;
 import moa.core.GaussianEstimator;
 import moa.options.AbstractOptionHandler;
+import moa.options.OptionHandler;
 import com.github.javacliparser.IntOption;
 
 /**
@@ -57,6 +58,28 @@ public class GaussianNumericAttributeClassObserver extends AbstractOptionHandler
     public IntOption numBinsOption = new IntOption("numBins", 'n',
             "The number of bins.", 10, 1, Integer.MAX_VALUE);
 
+    public GaussianNumericAttributeClassObserver() {
+    }
+
+    /**
+     * Creates a copy of an observer, with the same option and copies of its
+     * estimators.
+     */
+    public GaussianNumericAttributeClassObserver(GaussianNumericAttributeClassObserver other) {
+        this.numBinsOption.setValue(other.numBinsOption.getValue());
+        this.minValueObservedPerClass = new DoubleVector(other.minValueObservedPerClass);
+        this.maxValueObservedPerClass = new DoubleVector(other.maxValueObservedPerClass);
+        for (int i = 0; i < other.attValDistPerClass.size(); i++) {
+            GaussianEstimator valDist = other.attValDistPerClass.get(i);
+            this.attValDistPerClass.set(i, valDist != null ? valDist.copy() : null);
+        }
+    }
+
+    @Override
+    public OptionHandler copy() {
+        return getClass() == GaussianNumericAttributeClassObserver.class ? new GaussianNumericAttributeClassObserver(this) : super.copy();
+    }
+
     @Override
     public void observeAttributeClass(double attVal, int classVal, double weight) {
         if (Utils.isMissingValue(attVal)) {
@@ -30,6 +30,7 @@ import moa.core.Utils;
 import moa.core.AutoExpandVector;
 import moa.core.DoubleVector;
 import moa.options.AbstractOptionHandler;
+import moa.options.OptionHandler;
 
 /**
  * Class for observing the class data distribution for a nominal attribute.
@@ -50,6 +51,26 @@ public class NominalAttributeClassObserver extends AbstractOptionHandler impleme
 
     public AutoExpandVector<DoubleVector> attValDistPerClass = new AutoExpandVector<DoubleVector>();
 
+    public NominalAttributeClassObserver() {
+    }
+
+    /**
+     * Creates a copy of an observer, with copies of its distributions.
+     */
+    public NominalAttributeClassObserver(NominalAttributeClassObserver other) {
+        this.totalWeightObserved = other.totalWeightObserved;
+        this.missingWeightObserved = other.missingWeightObserved;
+        for (int i = 0; i < other.attValDistPerClass.size(); i++) {
+            DoubleVector valDist = other.attValDistPerClass.get(i);
+            this.attValDistPerClass.set(i, valDist != null ? new DoubleVector(valDist) : null);
+        }
+    }
+
+    @Override
+    public OptionHandler copy() {
+        return getClass() == NominalAttributeClassObserver.class ? new NominalAttributeClassObserver(this) : super.copy();
+    }
+
     @Override
     public void observeAttributeClass(double attVal, int classVal, double weight) {
         if (Utils.isMissingValue(attVal)) {
@@ -88,4 +88,12 @@ public class NumericAttributeBinaryTest extends InstanceConditionalBinaryTest {
     public double getSplitValue() {
         return this.attValue;
     }
+
+    public int getAttIndex() {
+        return this.attIndex;
+    }
+
+    public boolean isEqualsPassesTest() {
+        return this.equalsPassesTest;
+    }
 }
@@ -40,6 +40,26 @@ public class ADWINChangeDetector extends AbstractChangeDetector {
     public FloatOption deltaAdwinOption = new FloatOption("deltaAdwin", 'a',
             "Delta of Adwin change detection", 0.002, 0.0, 1.0);
 
+    public ADWINChangeDetector() {
+    }
+
+    /**
+     * Creates a copy of an ADWINChangeDetector, with the same option and a
+     * copy of its ADWIN.
+     */
+    public ADWINChangeDetector(ADWINChangeDetector other) {
+        super(other);
+        this.deltaAdwinOption.setValue(other.deltaAdwinOption.getValue());
+        if (other.adwin != null) {
+            this.adwin = new ADWIN(other.adwin);
+        }
+    }
+
+    @Override
+    public ChangeDetector copy() {
+        return getClass() == ADWINChangeDetector.class ? new ADWINChangeDetector(this) : super.copy();
+    }
+
     @Override
     public void input(double inputValue) {
         if (this.adwin == null) {
@@ -56,6 +56,23 @@ public abstract class AbstractChangeDetector extends AbstractOptionHandler
      */
     protected boolean isInitialized;
 
+    public AbstractChangeDetector() {
+    }
+
+    /**
+     * Creates a change detector in the same state as another one, for the
+     * copy constructors of the subclasses.
+     *
+     * @param other the change detector to copy
+     */
+    protected AbstractChangeDetector(AbstractChangeDetector other) {
+        this.isChangeDetected = other.isChangeDetected;
+        this.isWarningZone = other.isWarningZone;
+        this.estimation = other.estimation;
+        this.delay = other.delay;
+        this.isInitialized = other.isInitialized;
+    }
+
     /**
      * Resets this change detector. It must be similar to starting a new change
      * detector from scratch.
@@ -73,6 +73,30 @@ public class DDM extends AbstractChangeDetector {
         resetLearning();
     }
 
+    /**
+     * Creates a copy of a DDM, with the same options and state.
+     */
+    public DDM(DDM other) {
+        super(other);
+        this.minNumInstancesOption.setValue(other.minNumInstancesOption.getValue());
+        this.warningLevelOption.setValue(other.warningLevelOption.getValue());
+        this.outcontrolLevelOption.setValue(other.outcontrolLevelOption.getValue());
+        m_n = other.m_n;
+        minNumInstances = other.minNumInstances;
+        m_p = other.m_p;
+        m_s = other.m_s;
+        m_psmin = other.m_psmin;
+        m_pmin = other.m_pmin;
+        m_smin = other.m_smin;
+        warningLevel = other.warningLevel;
+        outcontrolLevel = other.outcontrolLevel;
+    }
+
+    @Override
+    public ChangeDetector copy() {
+        return getClass() == DDM.class ? new DDM(this) : super.copy();
+    }
+
     @Override
     public void resetLearning() {
         m_n = 1;
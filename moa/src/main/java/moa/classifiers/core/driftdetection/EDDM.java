@@ -66,6 +66,27 @@ public class EDDM extends AbstractChangeDetector {
         resetLearning();
     }
 
+    /**
+     * Creates a copy of an EDDM, with the same state.
+     */
+    public EDDM(EDDM other) {
+        super(other);
+        m_numErrors = other.m_numErrors;
+        m_minNumErrors = other.m_minNumErrors;
+        m_n = other.m_n;
+        m_d = other.m_d;
+        m_lastd = other.m_lastd;
+        m_mean = other.m_mean;
+        m_stdTemp = other.m_stdTemp;
+        m_m2smax = other.m_m2smax;
+        m_lastLevel = other.m_lastLevel;
+    }
+
+    @Override
+    public ChangeDetector copy() {
+        return getClass() == EDDM.class ? new EDDM(this) : super.copy();
+    }
+
     @Override
     public void resetLearning() {
         m_n = 1;
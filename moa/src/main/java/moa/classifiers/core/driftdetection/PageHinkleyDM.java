@@ -65,6 +65,28 @@ public class PageHinkleyDM extends AbstractChangeDetector {
         resetLearning();
     }
 
+    /**
+     * Creates a copy of a PageHinkleyDM, with the same options and state.
+     */
+    public PageHinkleyDM(PageHinkleyDM other) {
+        super(other);
+        this.minNumInstancesOption.setValue(other.minNumInstancesOption.getValue());
+        this.deltaOption.setValue(other.deltaOption.getValue());
+        this.lambdaOption.setValue(other.lambdaOption.getValue());
+        this.alphaOption.setValue(other.alphaOption.getValue());
+        m_n = other.m_n;
+        sum = other.sum;
+        x_mean = other.x_mean;
+        alpha = other.alpha;
+        delta = other.delta;
+        lambda = other.lambda;
+    }
+
+    @Override
+    public ChangeDetector copy() {
+        return getClass() == PageHinkleyDM.class ? new PageHinkleyDM(this) : super.copy();
+    }
+
     @Override
     public void resetLearning() {
         m_n = 1;
@@ -140,6 +140,42 @@ public class Perceptron extends AbstractClassifier  implements MultiClassClassif
         return votes;
     }
 
+    /**
+     * Predicts a block of instances, reading the input attributes of each
+     * instance once for all the classes.
+     */
+    @Override
+    public void getVotesForInstances(Instance[] instances, int numInstances, double[][] votes) {
+        double[] inputs = new double[0];
+        for (int i = 0; i < numInstances; i++) {
+            Instance inst = instances[i];
+            double[] instanceVotes = votesRow(votes, i, inst.numClasses());
+            if (this.reset == false) {
+                int numInputs = inst.numAttributes() - 1;
+                if (inputs.length < numInputs) {
+                    inputs = new double[numInputs];
+                }
+                for (int j = 0; j < numInputs; j++) {
+                    inputs[j] = inst.valueInputAttribute(j);
+                }
+                for (int c = 0; c < instanceVotes.length; c++) {
+                    double[] weights = this.weightAttribute[c];
+                    double sum = 0.0;
+                    for (int j = 0; j < numInputs; j++) {
+                        sum += weights[j] * inputs[j];
+                    }
+                    sum += weights[numInputs];
+                    instanceVotes[c] = 1.0 / (1.0 + Math.exp(-sum));
+                }
+                try {
+                    Utils.normalize(instanceVotes);
+                } catch (Exception e) {
+                    // ignore all zero votes error
+                }
+            }
+        }
+    }
+
     @Override
     protected Measurement[] getModelMeasurementsImpl() {
         return null;
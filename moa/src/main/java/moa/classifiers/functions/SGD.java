@@ -287,14 +287,39 @@ public class SGD extends AbstractClassifier implements MultiClassClassifier, Reg
         double[] result = (inst.classAttribute().isNominal())
                 ? new double[2]
                 : new double[1];
+        computeVotes(inst, result);
+        return result;
+    }
 
+    /**
+     * Predicts a block of instances, writing the votes of each instance to the
+     * array already in its row when it has the right length.
+     */
+    @Override
+    public void getVotesForInstances(Instance[] instances, int numInstances, double[][] votes) {
+        for (int i = 0; i < numInstances; i++) {
+            Instance inst = instances[i];
+            if (m_weights == null) {
+                votesRow(votes, i, inst.numClasses());
+            } else {
+                computeVotes(inst, votesRow(votes, i, inst.classAttribute().isNominal() ? 2 : 1));
+            }
+        }
+    }
 
+    /**
+     * Computes the votes for an instance once the model is initialized.
+     *
+     * @param inst the instance to be classified
+     * @param result the array receiving the votes, filled with zeros
+     */
+    protected void computeVotes(Instance inst, double[] result) {
         double wx = dotProd(inst, m_weights, inst.classIndex());// * m_wScale;
         double z = (wx + m_bias);
 
         if (inst.classAttribute().isNumeric()) {
             result[0] = z;
-            return result;
+            return;
         }
 
         if (z <= 0) {
@@ -313,7 +338,6 @@ public class SGD extends AbstractClassifier implements MultiClassClassifier, Reg
                 result[1] = 1;
             }
         }
-        return result;
     }
 
     @Override
@@ -303,12 +303,38 @@ public class SGDMultiClass extends AbstractClassifier implements MultiClassClass
         double[] result = (inst.classAttribute().isNominal())
                 ? new double[inst.numClasses()]
                 : new double[1];
-        
+        computeVotes(inst, result);
+        return result;
+    }
+
+    /**
+     * Predicts a block of instances, writing the votes of each instance to the
+     * array already in its row when it has the right length.
+     */
+    @Override
+    public void getVotesForInstances(Instance[] instances, int numInstances, double[][] votes) {
+        for (int i = 0; i < numInstances; i++) {
+            Instance inst = instances[i];
+            if (m_weights == null) {
+                votesRow(votes, i, inst.numClasses());
+            } else {
+                computeVotes(inst, votesRow(votes, i, inst.classAttribute().isNominal() ? inst.numClasses() : 1));
+            }
+        }
+    }
+
+    /**
+     * Computes the votes for an instance once the model is initialized.
+     *
+     * @param inst the instance to be classified
+     * @param result the array receiving the votes, filled with zeros
+     */
+    protected void computeVotes(Instance inst, double[] result) {
         if (inst.classAttribute().isNumeric()) {
             double wx = dotProd(inst, m_weights[0], inst.classIndex());// * m_wScale;
             double z = (wx + m_bias[0]);
             result[0] = z;
-            return result;
+            return;
         }
 
         for (int i = 0; i < m_weights.length; i++){
@@ -335,7 +361,6 @@ public class SGDMultiClass extends AbstractClassifier implements MultiClassClass
                 }
             }
         }
-        return result;
     }
 
     @Override
@@ -0,0 +1,879 @@
+/*
+ *    SAMkNNCompact.java
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ *
+ */
+package moa.classifiers.lazy;
+import java.io.Serializable;
+import java.util.*;
+
+import moa.classifiers.AbstractClassifier;
+import moa.classifiers.MultiClassClassifier;
+import moa.core.Measurement;
+import com.yahoo.labs.samoa.instances.Instance;
+import com.yahoo.labs.samoa.instances.InstancesHeader;
+import com.github.javacliparser.IntOption;
+import com.github.javacliparser.FloatOption;
+import com.github.javacliparser.FlagOption;
+import moa.clusterers.kmeanspm.CoresetKMeans;
+/**
+ * Self Adjusting Memory (SAM) coupled with the k Nearest Neighbor classifier (kNN),
+ * keeping its memories in primitive arrays.<p>
+ *
+ * Same algorithm, options and predictions as SAMkNN, with the following
+ * differences in the data structures:
+ * <ul>
+ * <li>the STM is a ring buffer of rows of input attribute values, and the LTM
+ * a row-major matrix, instead of Instances of copied instances;</li>
+ * <li>the STM distance matrix is circular, so the STM shrinks without shifting
+ * the matrix, and it grows with the STM instead of being allocated for the
+ * maximum window size;</li>
+ * <li>cleaning the discarded instances against the STM reads the STM distances
+ * from the matrix instead of computing them again over a copy of the STM;</li>
+ * <li>the distances of the last predicted instance to the STM and LTM are kept
+ * and reused when training on the same instance;</li>
+ * <li>the accuracy histories of the memories keep running sums.</li>
+ * </ul>
+ * Unlike SAMkNN, training without predicting first does not fail.<p>
+ *
+ * Valid options are:<p>
+ *
+ * -k number of neighbours <br> -w max instances <br> -m minimum number of instances in the STM <br> -p LTM size relative to max instances <br> -r Recalculation of the STM error <br>
+ *
+ * Paper:
+ * "KNN Classifier with Self Adjusting Memory for Heterogeneous Concept Drift"
+ *  Viktor Losing, Barbara Hammer and Heiko Wersing
+ * http://ieeexplore.ieee.org/document/7837853
+ */
+public class SAMkNNCompact extends AbstractClassifier implements MultiClassClassifier {
+    private static final long serialVersionUID = 1L;
+
+    private static final int INITIAL_CAPACITY = 64;
+
+    public IntOption kOption = new IntOption( "k", 'k', "The number of neighbors", 5, 1, Integer.MAX_VALUE);
+
+    public IntOption limitOption = new IntOption( "limit", 'w', "The maximum number of instances to store", 5000, 1, Integer.MAX_VALUE);
+    public IntOption minSTMSizeOption = new IntOption( "minSTMSize", 'm', "The minimum number of instances in the STM", 50, 1, Integer.MAX_VALUE);
+
+    public FloatOption relativeLTMSizeOption = new FloatOption(
+            "relativeLTMSize",
+            'p',
+            "The allowed LTM size relative to the total limit.",
+            0.4, 0.0, 1.0);
+
+    public FlagOption recalculateSTMErrorOption = new FlagOption("recalculateError", 'r',
+            "Recalculates the error rate of the STM for size adaption (Costly operation). Otherwise, an approximation is used.");
+
+    private int maxClassValue = 0;
+
+    @Override
+    public String getPurposeString() {
+        return "SAMkNN with primitive memories and a circular STM distance matrix.";
+    }
+
+    private int numAttributes;
+    private int classIndex;
+    private int numInputs;
+    private int maxLTMSize;
+    private int maxSTMSize;
+
+    // STM, oldest first, in a ring buffer of capacity stmCapacity starting at stmFirst
+    private double[] stmValues;
+    private double[] stmClasses;
+    private int stmCapacity;
+    private int stmFirst;
+    private int stmSize;
+    // Number of instances removed from the front of the STM so far
+    private long stmRemoved;
+    // Distances between STM instances, indexed by their slots in the ring buffer
+    private double[] distanceMatrixSTM;
+
+    private Rows ltm;
+    // Incremented whenever the LTM changes
+    private long ltmVersion;
+
+    private History stmHistory;
+    private History ltmHistory;
+    private History cmHistory;
+    private Map<Integer, List<Integer>> predictionHistories;
+    private Random random;
+
+    // Distances of the last predicted instance to the STM and the LTM
+    private double[] lastInputs;
+    private double[] lastDistancesSTM;
+    private int lastSTMSize;
+    private long lastSTMRemoved;
+    private double[] lastDistancesLTM;
+    private long lastLTMVersion;
+
+    // Scratch buffers
+    private double[] inputs;
+    private double[] distances;
+    private double[] otherDistances;
+    private int[] nnIndices;
+    private int[] otherNNIndices;
+    private double[] nnDistances;
+
+    protected void init(){
+        this.maxLTMSize = (int)(relativeLTMSizeOption.getValue() * limitOption.getValue());
+        this.maxSTMSize = limitOption.getValue() - this.maxLTMSize;
+        this.stmCapacity = Math.min(INITIAL_CAPACITY, limitOption.getValue() + 1);
+        this.stmValues = new double[this.stmCapacity * this.numInputs];
+        this.stmClasses = new double[this.stmCapacity];
+        this.stmFirst = 0;
+        this.stmSize = 0;
+        this.stmRemoved = 0;
+        this.distanceMatrixSTM = new double[this.stmCapacity * this.stmCapacity];
+        this.ltm = new Rows(this.numInputs);
+        this.ltmVersion = 0;
+        this.stmHistory = new History();
+        this.ltmHistory = new History();
+        this.cmHistory = new History();
+        this.predictionHistories = new HashMap<>();
+        this.random = new Random();
+        this.lastInputs = null;
+        this.lastDistancesSTM = new double[INITIAL_CAPACITY];
+        this.lastDistancesLTM = new double[INITIAL_CAPACITY];
+        this.inputs = new double[this.numInputs];
+        this.distances = new double[INITIAL_CAPACITY];
+        this.otherDistances = new double[INITIAL_CAPACITY];
+        this.nnIndices = new int[this.kOption.getValue()];
+        this.otherNNIndices = new int[this.kOption.getValue()];
+        this.nnDistances = new double[this.kOption.getValue()];
+    }
+
+    @Override
+    public void setModelContext(InstancesHeader context) {
+        super.setModelContext(context);
+        this.numAttributes = context.numAttributes();
+        this.classIndex = context.classIndex();
+        this.numInputs = this.numAttributes - 1;
+        this.init();
+    }
+
+    @Override
+    public void resetLearningImpl() {
+        this.maxClassValue = 0;
+        if (this.modelContext != null) {
+            this.init();
+        }
+    }
+
+    @Override
+    public void trainOnInstanceImpl(Instance inst) {
+        if (inst.classValue() > maxClassValue)
+            maxClassValue = (int)inst.classValue();
+        readInputs(inst, this.inputs);
+        boolean predicted = Arrays.equals(this.inputs, this.lastInputs);
+        addToSTM(this.inputs, inst.classValue());
+        memorySizeCheck();
+
+        // distances of the new instance to the STM, reusing those of the prediction
+        int last = this.stmSize - 1;
+        int lastSlot = stmSlot(last);
+        int offset = (int) (this.stmRemoved - this.lastSTMRemoved);
+        for (int i = 0; i < last; i++) {
+            double distance;
+            if (predicted && i + offset < this.lastSTMSize) {
+                distance = this.lastDistancesSTM[i + offset];
+            } else {
+                distance = distance(this.inputs, 0, this.stmValues, stmSlot(i) * this.numInputs);
+            }
+            this.distanceMatrixSTM[lastSlot * this.stmCapacity + stmSlot(i)] = distance;
+        }
+        this.distanceMatrixSTM[lastSlot * this.stmCapacity + lastSlot] = distance(this.inputs, 0, this.inputs, 0);
+
+        if (this.stmSize > this.kOption.getValue() && this.ltm.size > 0) {
+            double[] distancesLTM;
+            if (predicted && this.lastLTMVersion == this.ltmVersion) {
+                distancesLTM = this.lastDistancesLTM;
+            } else {
+                distancesLTM = this.otherDistances = get1ToNDistances(this.inputs, 0, this.ltm, this.otherDistances);
+            }
+            cleanSingle(last, this.ltm, distancesLTM);
+        }
+        this.lastInputs = null;
+
+        int oldWindowSize = this.stmSize;
+        int newWindowSize = this.getNewSTMSize(recalculateSTMErrorOption.isSet());
+
+        if (newWindowSize < oldWindowSize) {
+            int diff = oldWindowSize - newWindowSize;
+            Rows discardedSTMInstances = new Rows(this.numInputs);
+            for (int i = 0; i < diff; i++) {
+                discardedSTMInstances.add(this.stmValues, stmSlot(i) * this.numInputs, this.stmClasses[stmSlot(i)]);
+            }
+            removeFromSTM(diff);
+            for (int i = 0; i < diff; i++) {
+                this.stmHistory.removeFirst();
+                this.ltmHistory.removeFirst();
+                this.cmHistory.removeFirst();
+            }
+
+            this.cleanAll(discardedSTMInstances);
+            for (int i = 0; i < discardedSTMInstances.size; i++){
+                this.ltm.add(discardedSTMInstances.values, i * this.numInputs, discardedSTMInstances.classes[i]);
+            }
+            this.ltmVersion++;
+            memorySizeCheck();
+        }
+    }
+
+    /**
+     * Predicts the label of a given sample by using the STM, LTM and the CM.
+     */
+    @Override
+    public double[] getVotesForInstance(Instance inst) {
+        double vSTM[];
+        double vLTM[];
+        double vCM[];
+        double v[];
+        int predClassSTM = 0;
+        int predClassLTM = 0;
+        int predClassCM = 0;
+        try {
+            if (this.stmSize>0) {
+                if (this.lastInputs == null) {
+                    this.lastInputs = new double[this.numInputs];
+                }
+                readInputs(inst, this.lastInputs);
+                double[] distancesSTM = this.lastDistancesSTM = get1ToNDistances(this.lastInputs, this.lastDistancesSTM);
+                double[] distancesLTM = this.lastDistancesLTM = get1ToNDistances(this.lastInputs, 0, this.ltm, this.lastDistancesLTM);
+                this.lastSTMSize = this.stmSize;
+                this.lastSTMRemoved = this.stmRemoved;
+                this.lastLTMVersion = this.ltmVersion;
+
+                int n = nArgMin(Math.min(this.stmSize, this.kOption.getValue()), distancesSTM, 0, this.stmSize - 1, this.nnIndices);
+                vSTM = getDistanceWeightedVotes(distancesSTM, this.nnIndices, n, this.stmClasses, true);
+                predClassSTM = this.getClassFromVotes(vSTM);
+                vCM = getCMVotes(distancesSTM, distancesLTM);
+                predClassCM = this.getClassFromVotes(vCM);
+                n = nArgMin(Math.min(this.ltm.size, this.kOption.getValue()), distancesLTM, 0, this.ltm.size - 1, this.nnIndices);
+                vLTM = getDistanceWeightedVotes(distancesLTM, this.nnIndices, n, this.ltm.classes, false);
+                predClassLTM = this.getClassFromVotes(vLTM);
+                int correctSTM = this.stmHistory.sum;
+                int correctLTM = this.ltmHistory.sum;
+                int correctCM = this.cmHistory.sum;
+                if(correctSTM>=correctLTM && correctSTM>=correctCM){
+                    v=vSTM;
+                }else if(correctLTM>correctSTM && correctLTM>=correctCM){
+                    v=vLTM;
+                }else{
+                    v=vCM;
+                }
+            }else {
+                v = new double[inst.numClasses()];
+            }
+            this.stmHistory.add((predClassSTM==inst.classValue()) ? 1 : 0);
+            this.ltmHistory.add((predClassLTM==inst.classValue()) ? 1 : 0);
+            this.cmHistory.add((predClassCM==inst.classValue()) ? 1 : 0);
+        } catch(Exception e) {
+            return new double[inst.numClasses()];
+        }
+        return v;
+    }
+
+    @Override
+    protected Measurement[] getModelMeasurementsImpl() {
+        return null;
+    }
+
+    @Override
+    public void getModelDescription(StringBuilder out, int indent) {
+    }
+
+    public boolean isRandomizable() {
+        return false;
+    }
+
+    private void readInputs(Instance inst, double[] values) {
+        for (int i = 0; i < this.numInputs; i++) {
+            values[i] = inst.valueInputAttribute(i);
+        }
+    }
+
+    private int stmSlot(int index) {
+        int slot = this.stmFirst + index;
+        return slot < this.stmCapacity ? slot : slot - this.stmCapacity;
+    }
+
+    private void addToSTM(double[] values, double classValue) {
+        if (this.stmSize == this.stmCapacity) {
+            growSTM();
+        }
+        int slot = stmSlot(this.stmSize);
+        System.arraycopy(values, 0, this.stmValues, slot * this.numInputs, this.numInputs);
+        this.stmClasses[slot] = classValue;
+        this.stmSize++;
+    }
+
+    private void removeFromSTM(int count) {
+        this.stmFirst = stmSlot(count);
+        this.stmSize -= count;
+        this.stmRemoved += count;
+    }
+
+    /**
+     * Doubles the capacity of the STM and of its distance matrix, moving the
+     * STM to the start of the ring buffer.
+     */
+    private void growSTM() {
+        int capacity = this.stmCapacity * 2;
+        double[] values = new double[capacity * this.numInputs];
+        double[] classes = new double[capacity];
+        double[] matrix = new double[capacity * capacity];
+        for (int i = 0; i < this.stmSize; i++) {
+            int slot = stmSlot(i);
+            System.arraycopy(this.stmValues, slot * this.numInputs, values, i * this.numInputs, this.numInputs);
+            classes[i] = this.stmClasses[slot];
+            for (int j = 0; j <= i; j++) {
+                matrix[i * capacity + j] = this.distanceMatrixSTM[slot * this.stmCapacity + stmSlot(j)];
+            }
+        }
+        this.stmValues = values;
+        this.stmClasses = classes;
+        this.distanceMatrixSTM = matrix;
+        this.stmCapacity = capacity;
+        this.stmFirst = 0;
+    }
+
+    /**
+     * Returns the distance between two STM instances.
+     */
+    private double distanceSTM(int i, int j) {
+        return i >= j ? this.distanceMatrixSTM[stmSlot(i) * this.stmCapacity + stmSlot(j)]
+                : this.distanceMatrixSTM[stmSlot(j) * this.stmCapacity + stmSlot(i)];
+    }
+
+    private static double[] ensureCapacity(double[] buffer, int size) {
+        return buffer.length >= size ? buffer : new double[Math.max(size, 2 * buffer.length)];
+    }
+
+    /**
+     * Performs classwise kMeans++ clustering of the LTM. The number of samples is halved per class.
+     */
+    private void clusterDown(){
+        int classIndex = this.classIndex;
+        for (int c = 0; c <= this.maxClassValue; c++){
+            List<double[]> classSamples = new ArrayList<>();
+            int kept = 0;
+            for (int i = 0; i < this.ltm.size; i++) {
+                if (this.ltm.classes[i] == c) {
+                    classSamples.add(this.ltm.toDoubleArray(i, classIndex));
+                } else {
+                    this.ltm.move(i, kept++);
+                }
+            }
+            this.ltm.size = kept;
+            // same order as SAMkNN, that collects them from the end of the LTM
+            Collections.reverse(classSamples);
+            if (classSamples.size() > 0) {
+                //used kMeans++ implementation expects the weight of each sample at the first index,
+                // make sure that the first value gets the uniform weight 1, overwrite class value
+                for (double[] sample : classSamples) {
+                    if (classIndex != 0) {
+                        sample[classIndex] = sample[0];
+                    }
+                    sample[0] = 1;
+                }
+
+                List<double[]> centroids = CoresetKMeans.generatekMeansPlusPlusCentroids(
+                        Math.max(classSamples.size() / 2, 1), classSamples, this.random);
+                CoresetKMeans.kMeans(centroids, classSamples);
+
+                double[] attributes = new double[this.numAttributes];
+                for (double[] centroid : centroids) {
+                    //returned centroids do not contain the weight anymore, but simply the data
+                    System.arraycopy(centroid, 0, attributes, 1, this.numAttributes - 1);
+                    //switch back if necessary
+                    if (classIndex != 0) {
+                        attributes[0] = attributes[classIndex];
+                    }
+                    attributes[classIndex] = c;
+                    this.ltm.addAttributes(attributes, classIndex);
+                }
+            }
+        }
+        this.ltmVersion++;
+    }
+
+    /**
+     * Makes sure that the STM and LTM combined doe not surpass the maximum size.
+     */
+    private void memorySizeCheck(){
+        if (this.stmSize + this.ltm.size > this.maxSTMSize + this.maxLTMSize){
+            if (this.ltm.size > this.maxLTMSize){
+                this.clusterDown();
+            }else{ //shift values from STM directly to LTM since STM is full
+                int numShifts = this.maxLTMSize - this.ltm.size + 1;
+                for (int i = 0; i < numShifts; i++){
+                    int slot = stmSlot(i);
+                    this.ltm.add(this.stmValues, slot * this.numInputs, this.stmClasses[slot]);
+                    this.stmHistory.removeFirst();
+                    this.ltmHistory.removeFirst();
+                    this.cmHistory.removeFirst();
+                }
+                removeFromSTM(numShifts);
+                this.clusterDown();
+                this.predictionHistories.clear();
+            }
+        }
+    }
+
+    /**
+     * Removes the instances of toClean that contradict the STM instance at the
+     * given index, given the distances of that instance to toClean.
+     */
+    private void cleanSingle(int cleanAgainstIndex, Rows toClean, double[] distancesToClean){
+        // distances to the STM without the instance itself
+        double[] distancesSTM = this.distances = ensureCapacity(this.distances, this.stmSize);
+        for (int i = 0, j = 0; i < this.stmSize; i++) {
+            if (i != cleanAgainstIndex) {
+                distancesSTM[j++] = distanceSTM(cleanAgainstIndex, i);
+            }
+        }
+        int numSTM = this.stmSize - 1;
+        int nSTM = nArgMin(Math.min(this.kOption.getValue(), numSTM), distancesSTM, 0, numSTM - 1, this.nnIndices);
+        int nLTM = nArgMin(Math.min(this.kOption.getValue(), toClean.size), distancesToClean, 0, toClean.size - 1, this.otherNNIndices);
+
+        double classValue = this.stmClasses[stmSlot(cleanAgainstIndex)];
+        double distThreshold = 0;
+        for (int n = 0; n < nSTM; n++){
+            int nnIdx = this.nnIndices[n];
+            int stmIdx = nnIdx < cleanAgainstIndex ? nnIdx : nnIdx + 1;
+            if (this.stmClasses[stmSlot(stmIdx)] == classValue){
+                if (distancesSTM[nnIdx] > distThreshold){
+                    distThreshold = distancesSTM[nnIdx];
+                }
+            }
+        }
+        int numDeletions = 0;
+        for (int n = 0; n < nLTM; n++){
+            int nnIdx = this.otherNNIndices[n];
+            if (toClean.classes[nnIdx] != classValue) {
+                if (distancesToClean[nnIdx] <= distThreshold){
+                    this.otherNNIndices[numDeletions++] = nnIdx;
+                }
+            }
+        }
+        if (numDeletions > 0) {
+            toClean.delete(this.otherNNIndices, numDeletions);
+            if (toClean == this.ltm) {
+                this.ltmVersion++;
+            }
+        }
+    }
+
+    /**
+     * Removes distance-based all instances from the input samples that contradict those in the STM.
+     */
+    private void cleanAll(Rows toClean) {
+        if (this.stmSize > this.kOption.getValue() && toClean.size > 0){
+            for (int i = 0; i < this.stmSize; i++){
+                int offset = stmSlot(i) * this.numInputs;
+                this.otherDistances = get1ToNDistances(this.stmValues, offset, toClean, this.otherDistances);
+                cleanSingle(i, toClean, this.otherDistances);
+            }
+        }
+    }
+
+    /**
+     * Returns the distance weighted votes.
+     */
+    private double [] getDistanceWeightedVotes(double distances[], int[] nnIndices, int n, double[] classes, boolean stm){
+        double v[] = new double[this.maxClassValue +1];
+        for (int i = 0; i < n; i++) {
+            int nnIdx = nnIndices[i];
+            v[(int) classes[stm ? stmSlot(nnIdx) : nnIdx]] += 1./Math.max(distances[nnIdx], 0.000000001);
+        }
+        return v;
+    }
+
+    /**
+     * Returns the distance weighted votes for the combined memory (CM).
+     */
+    private double [] getCMVotes(double distancesSTM[], double distancesLTM[]){
+        int size = this.stmSize + this.ltm.size;
+        double[] distancesCM = this.distances = ensureCapacity(this.distances, size);
+        System.arraycopy(distancesSTM, 0, distancesCM, 0, this.stmSize);
+        System.arraycopy(distancesLTM, 0, distancesCM, this.stmSize, this.ltm.size);
+        int n = nArgMin(Math.min(size, this.kOption.getValue()), distancesCM, 0, size - 1, this.nnIndices);
+        double v[] = new double[this.maxClassValue +1];
+        for (int i = 0; i < n; i++) {
+            int nnIdx = this.nnIndices[i];
+            double classValue = nnIdx < this.stmSize ? this.stmClasses[stmSlot(nnIdx)]
+                    : this.ltm.classes[nnIdx - this.stmSize];
+            v[(int) classValue] += 1. / Math.max(distancesCM[nnIdx], 0.000000001);
+        }
+        return v;
+    }
+
+    /**
+     * Returns the class with maximum vote.
+     */
+    private int getClassFromVotes(double votes[]){
+        double maxVote = -1;
+        int maxVoteClass = -1;
+        for (int i = 0; i < votes.length; i++){
+            if (votes[i] > maxVote){
+                maxVote = votes[i];
+                maxVoteClass = i;
+            }
+        }
+        return maxVoteClass;
+    }
+
+    /**
+     * Returns the label predicted for the STM instance at the given index by
+     * the STM instances from startIdx to endIdx.
+     */
+    private int getLabelFct(int index, int startIdx, int endIdx){
+        double[] row = this.distances = ensureCapacity(this.distances, endIdx + 1);
+        // the first distance is read for missing neighbours, as in SAMkNN
+        row[0] = distanceSTM(index, 0);
+        for (int j = startIdx; j <= endIdx; j++) {
+            row[j] = distanceSTM(index, j);
+        }
+        int n = nArgMin(Math.min(this.kOption.getValue(), this.limitOption.getValue() + 1), row, startIdx, endIdx, this.nnIndices);
+        double votes[] = getDistanceWeightedVotes(row, this.nnIndices, n, this.stmClasses, true);
+        return this.getClassFromVotes(votes);
+    }
+
+    /**
+     * Returns the Euclidean distance between the inputs at the given offsets.
+     */
+    private double distance(double[] values, int offset, double[] otherValues, int otherOffset) {
+        double sum = 0;
+        for (int i = 0; i < this.numInputs; i++) {
+            double diff = values[offset + i] - otherValues[otherOffset + i];
+            sum += diff * diff;
+        }
+        return Math.sqrt(sum);
+    }
+
+    /**
+     * Returns the Euclidean distances between the given inputs and the STM.
+     */
+    private double[] get1ToNDistances(double[] sample, double[] buffer) {
+        double[] distances = ensureCapacity(buffer, this.stmSize);
+        for (int i = 0; i < this.stmSize; i++) {
+            distances[i] = distance(sample, 0, this.stmValues, stmSlot(i) * this.numInputs);
+        }
+        return distances;
+    }
+
+    /**
+     * Returns the Euclidean distances between the given inputs and the rows.
+     */
+    private double[] get1ToNDistances(double[] sample, int offset, Rows rows, double[] buffer) {
+        double[] distances = ensureCapacity(buffer, rows.size);
+        for (int i = 0; i < rows.size; i++) {
+            distances[i] = distance(sample, offset, rows.values, i * this.numInputs);
+        }
+        return distances;
+    }
+
+    /**
+     * Writes the indices of the n smallest values from startIdx to endIdx,
+     * sorted by value and then by index, as SAMkNN.nArgMin, and returns n.
+     * Indices that cannot be found, because values are NaN, are 0.
+     */
+    private int nArgMin(int n, double[] values, int startIdx, int endIdx, int[] indices){
+        double[] selected = this.nnDistances;
+        int count = 0;
+        for (int j = startIdx; j <= endIdx; j++) {
+            double value = values[j];
+            if (!(value < Double.MAX_VALUE) || (count == n && !(value < selected[n - 1]))) {
+                continue;
+            }
+            int position = count < n ? count++ : n - 1;
+            while (position > 0 && selected[position - 1] > value) {
+                selected[position] = selected[position - 1];
+                indices[position] = indices[position - 1];
+                position--;
+            }
+            selected[position] = value;
+            indices[position] = j;
+        }
+        for (int i = count; i < n; i++) {
+            indices[i] = 0;
+        }
+        return n;
+    }
+
+    /**
+     * Removes predictions of the largest window size and shifts the remaining ones accordingly.
+     */
+    private void adaptHistories(int numberOfDeletions){
+        for (int i = 0; i < numberOfDeletions; i++){
+            SortedSet<Integer> keys = new TreeSet<>(this.predictionHistories.keySet());
+            this.predictionHistories.remove(keys.first());
+            keys = new TreeSet<>(this.predictionHistories.keySet());
+            for (Integer key : keys){
+                List<Integer> predHistory = this.predictionHistories.remove(key);
+                this.predictionHistories.put(key-keys.first(), predHistory);
+            }
+        }
+    }
+
+    /**
+     * Creates a prediction history incrementally by using the previous predictions.
+     */
+    private List<Integer> getIncrementalTestTrainPredHistory(int startIdx, List<Integer> predictionHistory){
+        for (int i= startIdx + this.kOption.getValue() + predictionHistory.size(); i < this.stmSize; i++){
+            predictionHistory.add((this.getLabelFct(i, startIdx,  i-1)==this.stmClasses[stmSlot(i)]) ? 1 : 0);
+        }
+        return predictionHistory;
+    }
+
+    /**
+     * Creates a prediction history from the scratch.
+     */
+    private List<Integer> getTestTrainPredHistory(int startIdx){
+        List<Integer> predictionHistory = new ArrayList<>();
+        for (int i= startIdx + this.kOption.getValue(); i < this.stmSize; i++){
+            predictionHistory.add((this.getLabelFct(i, startIdx, i-1)==this.stmClasses[stmSlot(i)]) ? 1 : 0);
+        }
+        return predictionHistory;
+    }
+
+    /**
+     * Returns the window size with the minimum Interleaved test-train error, using bisection (with recalculation of the STM error).
+     */
+    private int getMinErrorRateWindowSize() {
+        int numSamples = this.stmSize;
+        if (numSamples < 2 * this.minSTMSizeOption.getValue()) {
+            return numSamples;
+        } else {
+            List<Integer> numSamplesRange = new ArrayList<>();
+            numSamplesRange.add(numSamples);
+            while (numSamplesRange.get(numSamplesRange.size() - 1) >= 2 * this.minSTMSizeOption.getValue())
+                numSamplesRange.add(numSamplesRange.get(numSamplesRange.size() - 1) / 2);
+
+            Iterator<Integer> it = this.predictionHistories.keySet().iterator();
+            while (it.hasNext()) {
+                Integer key = it.next();
+                if (!numSamplesRange.contains(numSamples - key)) {
+                    it.remove();
+                }
+            }
+            List<Double> errorRates = new ArrayList<>();
+            for (Integer numSamplesIt : numSamplesRange) {
+                int idx = numSamples - numSamplesIt;
+                List<Integer> predHistory;
+                if (this.predictionHistories.containsKey(idx)) {
+                    predHistory = this.getIncrementalTestTrainPredHistory(idx, this.predictionHistories.get(idx));
+                } else {
+                    predHistory = this.getTestTrainPredHistory(idx);
+                }
+                this.predictionHistories.put(idx, predHistory);
+                errorRates.add(this.getHistoryErrorRate(predHistory));
+            }
+            int minErrorRateIdx = errorRates.indexOf(Collections.min(errorRates));
+            int windowSize = numSamplesRange.get(minErrorRateIdx);
+            if (windowSize < numSamples) {
+                this.adaptHistories(minErrorRateIdx);
+            }
+            return windowSize;
+        }
+    }
+
+    /**
+     * Calculates the achieved error rate of a history.
+     */
+    private double getHistoryErrorRate(List<Integer> predHistory){
+        double sumCorrect = 0;
+        for (Integer e : predHistory) {
+            sumCorrect += e;
+        }
+        return 1. - (sumCorrect / predHistory.size());
+    }
+
+    /**
+     * Returns the window size with the minimum Interleaved test-train error, using bisection (without recalculation using an incremental approximation).
+     */
+    private int getMinErrorRateWindowSizeIncremental() {
+        int numSamples = this.stmSize;
+        if (numSamples < 2 * this.minSTMSizeOption.getValue()) {
+            return numSamples;
+        } else {
+            List<Integer> numSamplesRange = new ArrayList<>();
+            numSamplesRange.add(numSamples);
+            while (numSamplesRange.get(numSamplesRange.size() - 1) >= 2 * this.minSTMSizeOption.getValue())
+                numSamplesRange.add(numSamplesRange.get(numSamplesRange.size() - 1) / 2);
+            List<Double> errorRates = new ArrayList<>();
+            for (Integer numSamplesIt : numSamplesRange) {
+                int idx = numSamples - numSamplesIt;
+                List<Integer> predHistory;
+                if (this.predictionHistories.containsKey(idx)) {
+                    predHistory = this.getIncrementalTestTrainPredHistory(idx, this.predictionHistories.get(idx));
+                } else if (this.predictionHistories.containsKey(idx-1)){
+                    predHistory = this.predictionHistories.remove(idx-1);
+                    predHistory.remove(0);
+                    predHistory = this.getIncrementalTestTrainPredHistory(idx, predHistory);
+                    this.predictionHistories.put(idx, predHistory);
+                } else {
+                    predHistory = this.getTestTrainPredHistory(idx);
+                    this.predictionHistories.put(idx, predHistory);
+                }
+                errorRates.add(this.getHistoryErrorRate(predHistory));
+            }
+            int minErrorRateIdx = errorRates.indexOf(Collections.min(errorRates));
+            if (minErrorRateIdx > 0) {
+                for (int i = 1; i < errorRates.size(); i++){
+                    if (errorRates.get(i) < errorRates.get(0)){
+                        int idx = numSamples - numSamplesRange.get(i);
+                        List<Integer> predHistory = this.getTestTrainPredHistory(idx);
+                        errorRates.set(i, this.getHistoryErrorRate(predHistory));
+                        this.predictionHistories.remove(idx);
+                        this.predictionHistories.put(idx, predHistory);
+                    }
+                }
+                minErrorRateIdx = errorRates.indexOf(Collections.min(errorRates));
+            }
+            int windowSize = numSamplesRange.get(minErrorRateIdx);
+            if (windowSize < numSamples) {
+                this.adaptHistories(minErrorRateIdx);
+            }
+            return windowSize;
+        }
+    }
+
+    /**
+     * Returns the bisected STM size which minimizes the interleaved-test-train error.
+     */
+    private int getNewSTMSize(boolean recalculateErrors){
+        if (recalculateErrors)
+            return this.getMinErrorRateWindowSize();
+        else
+            return this.getMinErrorRateWindowSizeIncremental();
+    }
+
+    /**
+     * Input attribute values and class values of instances, one row per instance.
+     */
+    private static class Rows implements Serializable {
+
+        private static final long serialVersionUID = 1L;
+
+        private final int numInputs;
+
+        private double[] values;
+
+        private double[] classes;
+
+        private int size;
+
+        private Rows(int numInputs) {
+            this.numInputs = numInputs;
+            this.values = new double[INITIAL_CAPACITY * numInputs];
+            this.classes = new double[INITIAL_CAPACITY];
+        }
+
+        private void add(double[] source, int offset, double classValue) {
+            if (this.size == this.classes.length) {
+                this.values = Arrays.copyOf(this.values, 2 * this.values.length);
+                this.classes = Arrays.copyOf(this.classes, 2 * this.classes.length);
+            }
+            System.arraycopy(source, offset, this.values, this.size * this.numInputs, this.numInputs);
+            this.classes[this.size++] = classValue;
+        }
+
+        /**
+         * Adds a row from the values of all the attributes.
+         */
+        private void addAttributes(double[] attributes, int classIndex) {
+            double[] inputs = new double[this.numInputs];
+            for (int i = 0; i < this.numInputs; i++) {
+                inputs[i] = attributes[i < classIndex ? i : i + 1];
+            }
+            add(inputs, 0, attributes[classIndex]);
+        }
+
+        /**
+         * Returns the values of all the attributes of a row.
+         */
+        private double[] toDoubleArray(int row, int classIndex) {
+            double[] attributes = new double[this.numInputs + 1];
+            for (int i = 0; i < this.numInputs; i++) {
+                attributes[i < classIndex ? i : i + 1] = this.values[row * this.numInputs + i];
+            }
+            attributes[classIndex] = this.classes[row];
+            return attributes;
+        }
+
+        private void move(int from, int to) {
+            if (from != to) {
+                System.arraycopy(this.values, from * this.numInputs, this.values, to * this.numInputs, this.numInputs);
+                this.classes[to] = this.classes[from];
+            }
+        }
+
+        /**
+         * Deletes the rows at the given indices, keeping the order of the others.
+         */
+        private void delete(int[] indices, int count) {
+            Arrays.sort(indices, 0, count);
+            int kept = indices[0];
+            for (int i = indices[0], next = 0; i < this.size; i++) {
+                if (next < count && indices[next] == i) {
+                    while (next < count && indices[next] == i) {
+                        next++;
+                    }
+                } else {
+                    move(i, kept++);
+                }
+            }
+            this.size = kept;
+        }
+    }
+
+    /**
+     * Sliding history of correct (1) and wrong (0) predictions, with its sum.
+     */
+    private static class History implements Serializable {
+
+        private static final long serialVersionUID = 1L;
+
+        private int[] values = new int[INITIAL_CAPACITY];
+
+        private int first;
+
+        private int size;
+
+        private int sum;
+
+        private void add(int value) {
+            if (this.size == this.values.length) {
+                int[] grown = new int[2 * this.values.length];
+                for (int i = 0; i < this.size; i++) {
+                    grown[i] = this.values[(this.first + i) % this.values.length];
+                }
+                this.values = grown;
+                this.first = 0;
+            }
+            this.values[(this.first + this.size) % this.values.length] = value;
+            this.size++;
+            this.sum += value;
+        }
+
+        private void removeFirst() {
+            if (this.size > 0) {
+                this.sum -= this.values[this.first];
+                this.first = (this.first + 1) % this.values.length;
+                this.size--;
+            }
+        }
+    }
+}
@@ -23,10 +23,12 @@ import moa.classifiers.MultiClassClassifier;
 import moa.classifiers.lazy.neighboursearch.KDTree;
 import moa.classifiers.lazy.neighboursearch.LinearNNSearch;
 import moa.classifiers.lazy.neighboursearch.NearestNeighbourSearch;
+import moa.classifiers.lazy.neighboursearch.WindowNNSearch;
 import moa.core.Measurement;
 import com.yahoo.labs.samoa.instances.Instance;
 import com.yahoo.labs.samoa.instances.Instances;
 import com.yahoo.labs.samoa.instances.InstancesHeader;
+import com.yahoo.labs.samoa.instances.WindowInstances;
 import com.github.javacliparser.IntOption;
 import com.github.javacliparser.MultiChoiceOption;
 
@@ -50,9 +52,10 @@ public class kNN extends AbstractClassifier implements MultiClassClassifier {
 
         public MultiChoiceOption nearestNeighbourSearchOption = new MultiChoiceOption(
             "nearestNeighbourSearch", 'n', "Nearest Neighbour Search to use", new String[]{
-                "LinearNN", "KDTree"},
+                "LinearNN", "KDTree", "WindowNN"},
             new String[]{"Brute force search algorithm for nearest neighbour search. ",
-                "KDTree search algorithm for nearest neighbour search"
+                "KDTree search algorithm for nearest neighbour search",
+                "Brute force search over a window kept in a ring buffer and updated incrementally"
             }, 0);
 
 
@@ -65,10 +68,13 @@ public class kNN extends AbstractClassifier implements MultiClassClassifier {
 
     protected Instances window; 
 
+    // Window used instead of the instances in window with the WindowNN search
+    protected WindowNNSearch windowSearch;
+
 	@Override
 	public void setModelContext(InstancesHeader context) {
 		try {
-			this.window = new Instances(context,0); //new StringReader(context.toString())
+			this.window = newWindow(context); //new StringReader(context.toString())
 			this.window.setClassIndex(context.classIndex());
 		} catch(Exception e) {
 			System.err.println("Error: no Model Context available.");
@@ -77,17 +83,38 @@ public class kNN extends AbstractClassifier implements MultiClassClassifier {
 		}
 	}
 
+	/**
+	 * Returns an empty window. The window of the LinearNN search keeps the
+	 * instances in primitive arrays, where removing the oldest one takes
+	 * constant time. KDTree reads the instances many times while it is
+	 * built, so its window keeps the instance objects.
+	 */
+	protected Instances newWindow(Instances header) {
+		if (this.nearestNeighbourSearchOption.getChosenIndex() == 0) {
+			return new WindowInstances(header, this.limitOption.getValue());
+		}
+		return new Instances(header, 0);
+	}
+
     @Override
     public void resetLearningImpl() {
 		this.window = null;
+		this.windowSearch = null;
     }
 
     @Override
     public void trainOnInstanceImpl(Instance inst) {
 		if (inst.classValue() > C)
 			C = (int)inst.classValue();
+		if (this.nearestNeighbourSearchOption.getChosenIndex() == 2) {
+			if (this.windowSearch == null) {
+				this.windowSearch = new WindowNNSearch(inst.dataset(), this.limitOption.getValue());
+			}
+			this.windowSearch.add(inst);
+			return;
+		}
 		if (this.window == null) {
-			this.window = new Instances(inst.dataset());
+			this.window = newWindow(inst.dataset());
 		}
 		if (this.limitOption.getValue() <= this.window.numInstances()) {
 			this.window.delete(0);
@@ -98,13 +125,17 @@ public class kNN extends AbstractClassifier implements MultiClassClassifier {
 	@Override
     public double[] getVotesForInstance(Instance inst) {
 		double v[] = new double[C+1];
+		if (this.windowSearch != null) {
+			this.windowSearch.addClassCounts(inst, Math.min(kOption.getValue(), this.windowSearch.numInstances()), v);
+			return v;
+		}
 		try {
 			NearestNeighbourSearch search;
-			if (this.nearestNeighbourSearchOption.getChosenIndex()== 0) {
-				search = new LinearNNSearch(this.window);  
-			} else {
+			if (this.nearestNeighbourSearchOption.getChosenIndex() == 1) {
 				search = new KDTree();
 				search.setInstances(this.window);
+			} else {
+				search = new LinearNNSearch(this.window);  
 			}	
 			if (this.window.numInstances()>0) {	
 				Instances neighbours = search.kNearestNeighbours(inst,Math.min(kOption.getValue(),this.window.numInstances()));
@@ -121,6 +152,22 @@ public class kNN extends AbstractClassifier implements MultiClassClassifier {
 		return v;
     }
 
+	/**
+	 * Predicts a block of instances, searching the window once for all of them
+	 * with the WindowNN search.
+	 */
+	@Override
+	public void getVotesForInstances(Instance[] instances, int numInstances, double[][] votes) {
+		if (this.windowSearch == null) {
+			super.getVotesForInstances(instances, numInstances, votes);
+			return;
+		}
+		for (int i = 0; i < numInstances; i++) {
+			votesRow(votes, i, C+1);
+		}
+		this.windowSearch.addClassCounts(instances, numInstances, Math.min(kOption.getValue(), this.windowSearch.numInstances()), votes);
+	}
+
     @Override
     protected Measurement[] getModelMeasurementsImpl() {
         return null;
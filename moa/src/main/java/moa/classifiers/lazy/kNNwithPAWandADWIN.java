@@ -52,6 +52,15 @@ public class kNNwithPAWandADWIN extends kNN implements MultiClassClassifier {
 
     protected double prob;
 
+    /**
+     * Returns an empty window that can grow past the limit, since instances
+     * are removed from it at random positions.
+     */
+    @Override
+    protected Instances newWindow(Instances header) {
+        return new Instances(header, 0);
+    }
+
     @Override
     public void resetLearningImpl() {
         this.window = null;
@@ -151,12 +151,13 @@ public class LinearNNSearch
     MyHeap heap = new MyHeap(kNN);
     double distance; int firstkNN=0;
     for(int i=0; i<m_Instances.numInstances(); i++) {
-      if(target == m_Instances.instance(i)) //for hold-one-out cross-validation
+      Instance candidate = m_Instances.instance(i);
+      if(target == candidate) //for hold-one-out cross-validation
         continue;
       if(firstkNN<kNN) {
         if(print)
           System.out.println("K(a): "+(heap.size()+heap.noOfKthNearest()));
-        distance = m_DistanceFunction.distance(target, m_Instances.instance(i), Double.POSITIVE_INFINITY);
+        distance = m_DistanceFunction.distance(target, candidate, Double.POSITIVE_INFINITY);
         if(distance == 0.0 && m_SkipIdentical)
           if(i<m_Instances.numInstances()-1)
             continue;
@@ -169,7 +170,7 @@ public class LinearNNSearch
         MyHeapElement temp = heap.peek();
         if(print)
           System.out.println("K(b): "+(heap.size()+heap.noOfKthNearest()));
-        distance = m_DistanceFunction.distance(target, m_Instances.instance(i), temp.distance);
+        distance = m_DistanceFunction.distance(target, candidate, temp.distance);
         if(distance == 0.0 && m_SkipIdentical)
           continue;
         if(distance < temp.distance) {
@@ -0,0 +1,342 @@
+/*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/*
+ *    WindowNNSearch.java
+ */
+
+package moa.classifiers.lazy.neighboursearch;
+
+import java.io.Serializable;
+import java.util.Arrays;
+import com.yahoo.labs.samoa.instances.Instance;
+import com.yahoo.labs.samoa.instances.Instances;
+
+/**
+ * Brute force nearest neighbour search over a sliding window that is kept
+ * between queries.
+ *
+ * The input attribute values of the window are stored row by row in a
+ * primitive ring buffer, so adding an instance evicts the oldest one in
+ * constant time, and a query is a scan over contiguous memory. Distances are
+ * the normalized Euclidean distances of EuclideanDistance, computed in the
+ * same order, with the attribute ranges of the current window. The ranges are
+ * updated on insertion and only computed again for an attribute when its
+ * minimum or maximum is evicted. As in LinearNNSearch, the neighbours are the
+ * k nearest instances together with all the instances at the same distance as
+ * the k-th one.
+ *
+ * Queries can be made in blocks, which normalizes every instance of the window
+ * once for the whole block.
+ */
+public class WindowNNSearch implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private static final int INITIAL_CAPACITY = 1024;
+
+    protected final int maxInstances;
+
+    protected final int numAttributes;
+
+    // Dataset index and type of the input attributes
+    protected final int[] attributeIndices;
+    protected final boolean[] nominal;
+
+    // Ring buffer of rows of input attribute values, and their class values
+    protected double[] values;
+    protected double[] classValues;
+    protected int capacity;
+    protected int first;
+    protected int size;
+
+    // Ranges of the input attributes in the window
+    protected final double[] minValues;
+    protected final double[] maxValues;
+    protected final boolean[] rangeOutdated;
+
+    public WindowNNSearch(Instances header, int maxInstances) {
+        this.maxInstances = maxInstances;
+        this.numAttributes = header.numAttributes() - (header.classIndex() >= 0 ? 1 : 0);
+        this.attributeIndices = new int[this.numAttributes];
+        this.nominal = new boolean[this.numAttributes];
+        for (int i = 0, j = 0; i < header.numAttributes(); i++) {
+            if (i != header.classIndex()) {
+                this.attributeIndices[j] = i;
+                this.nominal[j] = header.attribute(i).isNominal();
+                j++;
+            }
+        }
+        this.capacity = Math.min(maxInstances, INITIAL_CAPACITY);
+        this.values = new double[this.capacity * this.numAttributes];
+        this.classValues = new double[this.capacity];
+        this.minValues = new double[this.numAttributes];
+        this.maxValues = new double[this.numAttributes];
+        this.rangeOutdated = new boolean[this.numAttributes];
+        Arrays.fill(this.minValues, Double.POSITIVE_INFINITY);
+        Arrays.fill(this.maxValues, Double.NEGATIVE_INFINITY);
+    }
+
+    public int numInstances() {
+        return this.size;
+    }
+
+    /**
+     * Adds an instance to the window, evicting the oldest one if the window is
+     * full.
+     */
+    public void add(Instance inst) {
+        if (this.size == this.maxInstances) {
+            evictOldest();
+        } else if (this.size == this.capacity) {
+            // the buffer only wraps around when full, so rows are still in order
+            this.capacity = (int) Math.min(this.maxInstances, 2L * this.capacity);
+            this.values = Arrays.copyOf(this.values, this.capacity * this.numAttributes);
+            this.classValues = Arrays.copyOf(this.classValues, this.capacity);
+        }
+        int row = (this.first + this.size) % this.capacity;
+        int offset = row * this.numAttributes;
+        for (int j = 0; j < this.numAttributes; j++) {
+            double value = inst.value(this.attributeIndices[j]);
+            this.values[offset + j] = value;
+            if (!Double.isNaN(value)) {
+                if (value < this.minValues[j]) {
+                    this.minValues[j] = value;
+                }
+                if (value > this.maxValues[j]) {
+                    this.maxValues[j] = value;
+                }
+            }
+        }
+        this.classValues[row] = inst.classValue();
+        this.size++;
+    }
+
+    protected void evictOldest() {
+        int offset = this.first * this.numAttributes;
+        for (int j = 0; j < this.numAttributes; j++) {
+            double value = this.values[offset + j];
+            if (value == this.minValues[j] || value == this.maxValues[j]) {
+                this.rangeOutdated[j] = true;
+            }
+        }
+        this.first = (this.first + 1) % this.capacity;
+        this.size--;
+    }
+
+    protected void updateRanges() {
+        for (int j = 0; j < this.numAttributes; j++) {
+            if (this.rangeOutdated[j]) {
+                double min = Double.POSITIVE_INFINITY;
+                double max = Double.NEGATIVE_INFINITY;
+                for (int i = 0; i < this.size; i++) {
+                    double value = this.values[((this.first + i) % this.capacity) * this.numAttributes + j];
+                    if (value < min) {
+                        min = value;
+                    }
+                    if (value > max) {
+                        max = value;
+                    }
+                }
+                this.minValues[j] = min;
+                this.maxValues[j] = max;
+                this.rangeOutdated[j] = false;
+            }
+        }
+    }
+
+    /**
+     * Adds one to the count of the class of each neighbour of the target.
+     */
+    public void addClassCounts(Instance target, int k, double[] counts) {
+        addClassCounts(new Instance[]{target}, k, new double[][]{counts});
+    }
+
+    /**
+     * Adds one to the count of the class of each neighbour of each target.
+     */
+    public void addClassCounts(Instance[] targets, int k, double[][] counts) {
+        addClassCounts(targets, targets.length, k, counts);
+    }
+
+    /**
+     * Adds one to the count of the class of each neighbour of the first
+     * numTargets targets.
+     */
+    public void addClassCounts(Instance[] targets, int numTargets, int k, double[][] counts) {
+        if (this.size == 0 || k <= 0) {
+            return;
+        }
+        updateRanges();
+        int numAtts = this.numAttributes;
+        double[] widths = new double[numAtts];
+        boolean[] normalized = new boolean[numAtts];
+        for (int j = 0; j < numAtts; j++) {
+            widths[j] = this.maxValues[j] - this.minValues[j];
+            normalized[j] = !this.nominal[j] && !Double.isNaN(this.minValues[j])
+                    && this.maxValues[j] != this.minValues[j];
+        }
+        // targets, and their normalized numeric values
+        double[][] targetValues = new double[numTargets][numAtts];
+        double[][] targetNorms = new double[numTargets][numAtts];
+        Neighbours[] neighbours = new Neighbours[numTargets];
+        for (int t = 0; t < numTargets; t++) {
+            for (int j = 0; j < numAtts; j++) {
+                double value = targets[t].value(this.attributeIndices[j]);
+                targetValues[t][j] = value;
+                targetNorms[t][j] = normalized[j] ? (value - this.minValues[j]) / widths[j] : 0;
+            }
+            neighbours[t] = new Neighbours(k);
+        }
+
+        double[] rowNorms = new double[numAtts];
+        for (int i = 0, row = this.first; i < this.size; i++, row++) {
+            if (row == this.capacity) {
+                row = 0;
+            }
+            int offset = row * numAtts;
+            for (int j = 0; j < numAtts; j++) {
+                double value = this.values[offset + j];
+                rowNorms[j] = normalized[j] ? (value - this.minValues[j]) / widths[j] : 0;
+            }
+            for (int t = 0; t < numTargets; t++) {
+                double[] targetValue = targetValues[t];
+                double[] targetNorm = targetNorms[t];
+                double cutOff = neighbours[t].cutOff();
+                double distance = 0;
+                for (int j = 0; j < numAtts; j++) {
+                    double value = this.values[offset + j];
+                    double diff;
+                    if (this.nominal[j]) {
+                        diff = Double.isNaN(value) || Double.isNaN(targetValue[j])
+                                || (int) value != (int) targetValue[j] ? 1 : 0;
+                    } else if (Double.isNaN(value) || Double.isNaN(targetValue[j])) {
+                        if (Double.isNaN(value) && Double.isNaN(targetValue[j])) {
+                            diff = 1;
+                        } else {
+                            diff = Double.isNaN(value) ? targetNorm[j] : rowNorms[j];
+                            if (diff < 0.5) {
+                                diff = 1.0 - diff;
+                            }
+                        }
+                    } else {
+                        diff = targetNorm[j] - rowNorms[j];
+                    }
+                    distance += diff * diff;
+                    if (distance > cutOff) {
+                        break;
+                    }
+                }
+                // the distance is NaN when the target has a value of an
+                // attribute missing in the whole window, whose range is then
+                // empty, and as in LinearNNSearch such rows only fill the
+                // heap while it has fewer than k rows
+                if (distance <= cutOff || Double.isNaN(distance)) {
+                    neighbours[t].offer(distance, row);
+                }
+            }
+        }
+        for (int t = 0; t < numTargets; t++) {
+            neighbours[t].addClassCounts(counts[t]);
+        }
+    }
+
+    /**
+     * The k nearest rows found so far, in a max heap on the distance, and the
+     * rows at the same distance as the k-th one.
+     */
+    protected class Neighbours {
+
+        protected final double[] distances;
+
+        protected final int[] rows;
+
+        protected int heapSize;
+
+        protected int[] ties = new int[8];
+
+        protected int numTies;
+
+        protected Neighbours(int k) {
+            this.distances = new double[k];
+            this.rows = new int[k];
+        }
+
+        protected double cutOff() {
+            return this.heapSize < this.distances.length ? Double.POSITIVE_INFINITY : this.distances[0];
+        }
+
+        protected void offer(double distance, int row) {
+            if (this.heapSize < this.distances.length) {
+                int i = this.heapSize++;
+                while (i > 0 && distance > this.distances[(i - 1) / 2]) {
+                    this.distances[i] = this.distances[(i - 1) / 2];
+                    this.rows[i] = this.rows[(i - 1) / 2];
+                    i = (i - 1) / 2;
+                }
+                this.distances[i] = distance;
+                this.rows[i] = row;
+            } else if (distance < this.distances[0]) {
+                double top = this.distances[0];
+                int topRow = this.rows[0];
+                replaceTop(distance, row);
+                if (this.distances[0] == top) {
+                    addTie(topRow);
+                } else {
+                    this.numTies = 0;
+                }
+            } else if (distance == this.distances[0]) {
+                addTie(row);
+            }
+        }
+
+        protected void replaceTop(double distance, int row) {
+            int i = 0;
+            while (true) {
+                int child = 2 * i + 1;
+                if (child >= this.heapSize) {
+                    break;
+                }
+                if (child + 1 < this.heapSize && this.distances[child + 1] > this.distances[child]) {
+                    child++;
+                }
+                if (this.distances[child] <= distance) {
+                    break;
+                }
+                this.distances[i] = this.distances[child];
+                this.rows[i] = this.rows[child];
+                i = child;
+            }
+            this.distances[i] = distance;
+            this.rows[i] = row;
+        }
+
+        protected void addTie(int row) {
+            if (this.numTies == this.ties.length) {
+                this.ties = Arrays.copyOf(this.ties, 2 * this.numTies);
+            }
+            this.ties[this.numTies++] = row;
+        }
+
+        protected void addClassCounts(double[] counts) {
+            for (int i = 0; i < this.heapSize; i++) {
+                counts[(int) classValues[this.rows[i]]]++;
+            }
+            for (int i = 0; i < this.numTies; i++) {
+                counts[(int) classValues[this.ties[i]]]++;
+            }
+        }
+    }
+}
@@ -22,6 +22,8 @@ import com.yahoo.labs.samoa.instances.Instance;
 
 import moa.classifiers.AbstractClassifier;
 import moa.classifiers.MultiClassClassifier;
+import moa.core.ByteSizeEstimable;
+import moa.core.ByteSizeEstimator;
 import moa.core.DoubleVector;
 import moa.core.InstanceExample;
 import moa.core.Measurement;
@@ -80,7 +82,7 @@ import moa.classifiers.core.driftdetection.ChangeDetector;
  * @author Heitor Murilo Gomes (heitor_murilo_gomes at yahoo dot com dot br)
  * @version $Revision: 1 $
  */
-public class AdaptiveRandomForest extends AbstractClassifier implements MultiClassClassifier {
+public class AdaptiveRandomForest extends AbstractClassifier implements MultiClassClassifier, ByteSizeEstimable {
 
     @Override
     public String getPurposeString() {
@@ -137,6 +139,7 @@ public class AdaptiveRandomForest extends AbstractClassifier implements MultiCla
     protected long instancesSeen;
     protected int subspaceSize;
     protected BasicClassificationPerformanceEvaluator evaluator;
+    protected ByteSizeEstimator byteSizeEstimator = new ByteSizeEstimator();
 
     private ExecutorService executor;
     
@@ -147,6 +150,7 @@ public class AdaptiveRandomForest extends AbstractClassifier implements MultiCla
         this.subspaceSize = 0;
         this.instancesSeen = 0;
         this.evaluator = new BasicClassificationPerformanceEvaluator();
+        this.byteSizeEstimator.reset();
         
         // Multi-threading
         int numberOfJobs;
@@ -215,6 +219,60 @@ public class AdaptiveRandomForest extends AbstractClassifier implements MultiCla
         return combinedVote.getArrayRef();
     }
 
+    /**
+     * Predicts a block of instances tree by tree, each tree predicting the
+     * whole block, and combines the votes of the trees as getVotesForInstance
+     * does, reading the accuracy of each tree once for the block.
+     */
+    @Override
+    public void getVotesForInstances(Instance[] instances, int numInstances, double[][] votes) {
+        if (numInstances == 0) {
+            return;
+        }
+        Instance[] testInstances = new Instance[numInstances];
+        for (int i = 0; i < numInstances; i++) {
+            testInstances[i] = instances[i].copy();
+        }
+        if(this.ensemble == null) 
+            initEnsemble(testInstances[0]);
+        DoubleVector[] combinedVotes = new DoubleVector[numInstances];
+        for (int i = 0; i < numInstances; i++) {
+            combinedVotes[i] = new DoubleVector();
+        }
+        double[][] treeVotes = new double[numInstances][];
+        for (ARFBaseLearner member : this.ensemble) {
+            member.classifier.getVotesForInstances(testInstances, numInstances, treeVotes);
+            double acc = Double.NaN;
+            for (int i = 0; i < numInstances; i++) {
+                double[] vote = treeVotes[i];
+                double sum = 0.0;
+                double sumOfAbsoluteValues = 0.0;
+                for (double value : vote) {
+                    sum += value;
+                    sumOfAbsoluteValues += (value > 0.0) ? value : -value;
+                }
+                if (sum > 0.0) {
+                    if (Double.isNaN(acc)) {
+                        acc = member.evaluator.getPerformanceMeasurements()[1].getValue();
+                    }
+                    // the same operations as normalizing and weighting a DoubleVector
+                    double scale = 1.0 / sumOfAbsoluteValues;
+                    boolean weighted = ! this.disableWeightedVote.isSet() && acc > 0.0;
+                    for (int v = 0; v < vote.length; v++) {
+                        double value = vote[v] * scale;
+                        if (weighted) {
+                            value = value * acc;
+                        }
+                        combinedVotes[i].addToValue(v, value);
+                    }
+                }
+            }
+        }
+        for (int i = 0; i < numInstances; i++) {
+            votes[i] = combinedVotes[i].getArrayRef();
+        }
+    }
+
     @Override
     public boolean isRandomizable() {
         return true;
@@ -229,6 +287,24 @@ public class AdaptiveRandomForest extends AbstractClassifier implements MultiCla
         return null;
     }
 
+    /**
+     * Adds up the estimated sizes of the trees, foreground and background,
+     * plus the size of the rest of the ensemble as last measured.
+     */
+    @Override
+    public int estimateByteSize() {
+        int byteSize = 0;
+        if (this.ensemble != null) {
+            for (ARFBaseLearner member : this.ensemble) {
+                byteSize += ByteSizeEstimator.estimateByteSize(member.classifier);
+                if (member.bkgLearner != null) {
+                    byteSize += ByteSizeEstimator.estimateByteSize(member.bkgLearner.classifier);
+                }
+            }
+        }
+        return this.byteSizeEstimator.estimateEnsembleByteSize(this, byteSize, this.trainingWeightSeenByModel);
+    }
+
     protected void initEnsemble(Instance instance) {
         // Init the ensemble.
         int ensembleSize = this.ensembleSizeOption.getValue();
@@ -395,8 +471,7 @@ public class AdaptiveRandomForest extends AbstractClassifier implements MultiCla
                         this.lastWarningOn = instancesSeen;
                         this.numberOfWarningsDetected++;
                         // Create a new bkgTree classifier
-                        ARFHoeffdingTree bkgClassifier = (ARFHoeffdingTree) this.classifier.copy();
-                        bkgClassifier.resetLearning();
+                        ARFHoeffdingTree bkgClassifier = this.classifier.copyUntrained();
                         
                         // Resets the evaluator
                         BasicClassificationPerformanceEvaluator bkgEvaluator = (BasicClassificationPerformanceEvaluator) this.evaluator.copy();
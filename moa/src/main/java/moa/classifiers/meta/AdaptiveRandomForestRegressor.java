@@ -26,6 +26,8 @@ import moa.classifiers.Regressor;
 import moa.classifiers.AbstractClassifier;
 import moa.classifiers.core.driftdetection.ChangeDetector;
 import moa.classifiers.trees.ARFFIMTDD;
+import moa.core.ByteSizeEstimable;
+import moa.core.ByteSizeEstimator;
 import moa.core.DoubleVector;
 import moa.core.InstanceExample;
 import moa.core.Measurement;
@@ -33,6 +35,9 @@ import moa.core.MiscUtils;
 import moa.evaluation.BasicRegressionPerformanceEvaluator;
 import moa.options.ClassOption;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.concurrent.Callable;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 
@@ -44,7 +49,7 @@ import java.util.concurrent.Executors;
  * In European Symposium on Artificial Neural Networks, Computational Intelligence and Machine Learning (ESANN), 2018.
  * https://www.elen.ucl.ac.be/Proceedings/esann/esannpdf/es2018-183.pdf</p>
  */
-public class AdaptiveRandomForestRegressor extends AbstractClassifier implements Regressor {
+public class AdaptiveRandomForestRegressor extends AbstractClassifier implements Regressor, ByteSizeEstimable {
 
     @Override
     public String getPurposeString() {
@@ -99,8 +104,18 @@ public class AdaptiveRandomForestRegressor extends AbstractClassifier implements
     protected long instancesSeen;
     protected int subspaceSize;
     protected BasicRegressionPerformanceEvaluator evaluator;
+    protected ByteSizeEstimator byteSizeEstimator = new ByteSizeEstimator();
     private ExecutorService executor;
 
+    // Multi-threading: one task per tree, created in initEnsemble() and reused
+    // for every instance. The instance being processed, the poisson weights
+    // and the trees' predictions are shared through these fields.
+    private Collection<TrainingRunnable> trainers;
+    private Collection<PredictionRunnable> predictors;
+    private Instance currentInstance;
+    private int[] treeWeights;
+    private double[] treePredictions;
+
     @Override
     public void resetLearningImpl() {
         // Reset attributes
@@ -108,6 +123,7 @@ public class AdaptiveRandomForestRegressor extends AbstractClassifier implements
         this.subspaceSize = 0;
         this.instancesSeen = 0;
         this.evaluator = new BasicRegressionPerformanceEvaluator();
+        this.byteSizeEstimator.reset();
 
         // Multi-threading
         int numberOfJobs;
@@ -127,6 +143,21 @@ public class AdaptiveRandomForestRegressor extends AbstractClassifier implements
         if(this.ensemble == null)
             initEnsemble(instance);
 
+        if(this.executor != null) {
+            // the poisson weights are drawn up front, in tree order, so the
+            // random sequence is the same as in the single-threaded mode
+            for (int i = 0 ; i < this.ensemble.length ; i++)
+                this.treeWeights[i] = MiscUtils.poisson(this.lambdaOption.getValue(), this.classifierRandom);
+            this.currentInstance = instance;
+            try {
+                this.executor.invokeAll(this.trainers);
+            } catch (InterruptedException ex) {
+                throw new RuntimeException("Could not call invokeAll() on training threads.");
+            }
+            this.currentInstance = null;
+            return;
+        }
+
         for (int i = 0 ; i < this.ensemble.length ; i++) {
             DoubleVector vote = new DoubleVector(this.ensemble[i].getVotesForInstance(instance));
             InstanceExample example = new InstanceExample(instance);
@@ -149,8 +180,21 @@ public class AdaptiveRandomForestRegressor extends AbstractClassifier implements
         DoubleVector ages = new DoubleVector();
         DoubleVector performance = new DoubleVector();
 
+        if(this.executor != null) {
+            this.currentInstance = testInstance;
+            try {
+                this.executor.invokeAll(this.predictors);
+            } catch (InterruptedException ex) {
+                throw new RuntimeException("Could not call invokeAll() on prediction threads.");
+            }
+            this.currentInstance = null;
+        }
+
         for(int i = 0 ; i < this.ensemble.length ; ++i) {
-            double currentPrediction = this.ensemble[i].getVotesForInstance(testInstance)[0];
+            // predictions are combined in tree order so that the sum does
+            // not depend on the order in which the threads finished
+            double currentPrediction = this.executor != null ? this.treePredictions[i] :
+                    this.ensemble[i].getVotesForInstance(testInstance)[0];
             if(!Double.isNaN(currentPrediction)) {
                 ages.addToValue(i, this.instancesSeen - this.ensemble[i].createdOn);
                 performance.addToValue(i, this.ensemble[i].evaluator.getSquareError());
@@ -169,11 +213,66 @@ public class AdaptiveRandomForestRegressor extends AbstractClassifier implements
         return new double[] {predictions.sumOfValues() / accounted};
     }
 
+    /**
+     * Predicts a block of instances tree by tree, each tree predicting the
+     * whole block, and averages the predictions of the trees as
+     * getVotesForInstance does. With several jobs, each instance is predicted
+     * by the threads in turn.
+     */
+    @Override
+    public void getVotesForInstances(Instance[] instances, int numInstances, double[][] votes) {
+        if (this.executor != null || numInstances == 0) {
+            super.getVotesForInstances(instances, numInstances, votes);
+            return;
+        }
+        Instance[] testInstances = new Instance[numInstances];
+        for (int i = 0; i < numInstances; i++) {
+            testInstances[i] = instances[i].copy();
+        }
+        if(this.ensemble == null)
+            initEnsemble(testInstances[0]);
+        double[] sums = new double[numInstances];
+        int[] accounted = new int[numInstances];
+        double[][] treeVotes = new double[numInstances][];
+        // predictions are added in tree order, as in getVotesForInstance
+        for (ARFFIMTDDBaseLearner member : this.ensemble) {
+            member.classifier.getVotesForInstances(testInstances, numInstances, treeVotes);
+            for (int i = 0; i < numInstances; i++) {
+                double currentPrediction = treeVotes[i][0];
+                if (!Double.isNaN(currentPrediction)) {
+                    sums[i] += currentPrediction;
+                    accounted[i]++;
+                }
+            }
+        }
+        for (int i = 0; i < numInstances; i++) {
+            votesRow(votes, i, 1)[0] = sums[i] / accounted[i];
+        }
+    }
+
     @Override
     protected Measurement[] getModelMeasurementsImpl() {
         return null;
     }
 
+    /**
+     * Adds up the estimated sizes of the trees, foreground and background,
+     * plus the size of the rest of the ensemble as last measured.
+     */
+    @Override
+    public int estimateByteSize() {
+        int byteSize = 0;
+        if (this.ensemble != null) {
+            for (ARFFIMTDDBaseLearner member : this.ensemble) {
+                byteSize += ByteSizeEstimator.estimateByteSize(member.classifier);
+                if (member.bkgLearner != null) {
+                    byteSize += ByteSizeEstimator.estimateByteSize(member.bkgLearner.classifier);
+                }
+            }
+        }
+        return this.byteSizeEstimator.estimateEnsembleByteSize(this, byteSize, this.trainingWeightSeenByModel);
+    }
+
     protected void initEnsemble(Instance instance) {
         // Init the ensemble.
         int ensembleSize = this.ensembleSizeOption.getValue();
@@ -235,6 +334,17 @@ public class AdaptiveRandomForestRegressor extends AbstractClassifier implements
                     warningDetectionMethodOption,
                     false);
         }
+
+        if(this.executor != null) {
+            this.trainers = new ArrayList<>(ensembleSize);
+            this.predictors = new ArrayList<>(ensembleSize);
+            for(int i = 0 ; i < ensembleSize ; ++i) {
+                this.trainers.add(new TrainingRunnable(i));
+                this.predictors.add(new PredictionRunnable(i));
+            }
+            this.treeWeights = new int[ensembleSize];
+            this.treePredictions = new double[ensembleSize];
+        }
     }
 
     @Override
@@ -346,8 +456,7 @@ public class AdaptiveRandomForestRegressor extends AbstractClassifier implements
                         this.lastWarningOn = instancesSeen;
                         this.numberOfWarningsDetected++;
                         // Create a new bkgTree classifier
-                        ARFFIMTDD bkgClassifier = (ARFFIMTDD) this.classifier.copy();
-                        bkgClassifier.resetLearning();
+                        ARFFIMTDD bkgClassifier = this.classifier.copyUntrained();
 
                         // Resets the evaluator
                         BasicRegressionPerformanceEvaluator bkgEvaluator = (BasicRegressionPerformanceEvaluator) this.evaluator.copy();
@@ -386,4 +495,57 @@ public class AdaptiveRandomForestRegressor extends AbstractClassifier implements
         public void getDescription(StringBuilder sb, int indent) {
         }
     }
-}
\ No newline at end of file
+
+    /***
+     * Inner class to assist with the multi-thread execution. Evaluates a
+     * single tree on the current instance and, if its poisson weight is
+     * positive, trains it and updates its drift detectors.
+     */
+    protected class TrainingRunnable implements Runnable, Callable<Integer> {
+        final private int index;
+
+        public TrainingRunnable(int index) {
+            this.index = index;
+        }
+
+        @Override
+        public void run() {
+            ARFFIMTDDBaseLearner learner = ensemble[this.index];
+            Instance instance = currentInstance;
+            learner.evaluator.addResult(new InstanceExample(instance), learner.getVotesForInstance(instance));
+            int k = treeWeights[this.index];
+            if (k > 0) {
+                learner.trainOnInstance(instance, k, instancesSeen);
+            }
+        }
+
+        @Override
+        public Integer call() throws Exception {
+            run();
+            return 0;
+        }
+    }
+
+    /***
+     * Inner class to assist with the multi-thread execution. Stores the
+     * prediction of a single tree for the current instance.
+     */
+    protected class PredictionRunnable implements Runnable, Callable<Integer> {
+        final private int index;
+
+        public PredictionRunnable(int index) {
+            this.index = index;
+        }
+
+        @Override
+        public void run() {
+            treePredictions[this.index] = ensemble[this.index].getVotesForInstance(currentInstance)[0];
+        }
+
+        @Override
+        public Integer call() throws Exception {
+            run();
+            return 0;
+        }
+    }
+}
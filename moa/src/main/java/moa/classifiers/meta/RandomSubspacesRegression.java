@@ -3,13 +3,14 @@ package moa.classifiers.meta;
 import com.github.javacliparser.FlagOption;
 import com.github.javacliparser.FloatOption;
 import com.github.javacliparser.IntOption;
-import com.yahoo.labs.samoa.instances.FilteredSparseInstance;
 import com.yahoo.labs.samoa.instances.Instance;
+import com.yahoo.labs.samoa.instances.SubspaceInstance;
 import moa.AbstractMOAObject;
 import moa.classifiers.AbstractClassifier;
 import moa.classifiers.Classifier;
 import moa.classifiers.Regressor;
 import moa.classifiers.core.driftdetection.ChangeDetector;
+import moa.classifiers.trees.FIMTDD;
 import moa.core.DoubleVector;
 import moa.core.InstanceExample;
 import moa.core.Measurement;
@@ -17,7 +18,11 @@ import moa.core.MiscUtils;
 import moa.evaluation.BasicRegressionPerformanceEvaluator;
 import moa.options.ClassOption;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Random;
 import java.util.TreeSet;
+import java.util.concurrent.Callable;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 
@@ -66,6 +71,15 @@ public class RandomSubspacesRegression extends AbstractClassifier implements Reg
     long instancesSeen;
     private ExecutorService executor;
 
+    // Multi-threading: one task per member, created in initEnsemble() and
+    // reused for every instance. The instance being processed, the poisson
+    // weights and the members' predictions are shared through these fields.
+    private Collection<TrainingRunnable> trainers;
+    private Collection<PredictionRunnable> predictors;
+    private Instance currentInstance;
+    private int[] memberWeights;
+    private double[] memberPredictions;
+
 
     @Override
     public double[] getVotesForInstance(Instance inst) {
@@ -77,8 +91,21 @@ public class RandomSubspacesRegression extends AbstractClassifier implements Reg
         // DoubleVector ages = new DoubleVector();
         // DoubleVector performance = new DoubleVector();
 
+        if(this.executor != null) {
+            this.currentInstance = testInstance;
+            try {
+                this.executor.invokeAll(this.predictors);
+            } catch (InterruptedException ex) {
+                throw new RuntimeException("Could not call invokeAll() on prediction threads.");
+            }
+            this.currentInstance = null;
+        }
+
         for(int i = 0 ; i < this.ensemble.length ; ++i) {
-            double currentPrediction = this.ensemble[i].getVotesForInstance(testInstance)[0];
+            // predictions are combined in member order so that the sum does
+            // not depend on the order in which the threads finished
+            double currentPrediction = this.executor != null ? this.memberPredictions[i] :
+                    this.ensemble[i].getVotesForInstance(testInstance)[0];
             if(!Double.isNaN(currentPrediction)) {
                 // ages.addToValue(i, this.instancesSeen - this.ensemble[i].createdOn);
                 // performance.addToValue(i, this.ensemble[i].evaluator.getSquareError());
@@ -128,7 +155,19 @@ public class RandomSubspacesRegression extends AbstractClassifier implements Reg
                     !this.disableDriftDetectionOption.isSet(),
                     driftDetectionMethodOption,
                     warningDetectionMethodOption,
-                    false, subspacePercentageOption.getValue());
+                    false, subspacePercentageOption.getValue(),
+                    this.classifierRandom.nextLong());
+        }
+
+        if(this.executor != null) {
+            this.trainers = new ArrayList<>(ensembleSize);
+            this.predictors = new ArrayList<>(ensembleSize);
+            for(int i = 0 ; i < ensembleSize ; i++) {
+                this.trainers.add(new TrainingRunnable(i));
+                this.predictors.add(new PredictionRunnable(i));
+            }
+            this.memberWeights = new int[ensembleSize];
+            this.memberPredictions = new double[ensembleSize];
         }
     }
 
@@ -139,6 +178,22 @@ public class RandomSubspacesRegression extends AbstractClassifier implements Reg
         instancesSeen++;
         if (ensemble == null) initEnsemble(inst);
 
+        if (this.executor != null) {
+            // the poisson weights are drawn up front, in member order, so the
+            // random sequence is the same as in the single-threaded mode
+            double lambda = lambdaOption.getValue();
+            for (int i = 0; i < ensemble.length; i++)
+                this.memberWeights[i] = MiscUtils.poisson(lambda, this.classifierRandom);
+            this.currentInstance = inst;
+            try {
+                this.executor.invokeAll(this.trainers);
+            } catch (InterruptedException ex) {
+                throw new RuntimeException("Could not call invokeAll() on training threads.");
+            }
+            this.currentInstance = null;
+            return;
+        }
+
         for (int i = 0; i < ensemble.length; i++){
             DoubleVector vote = new DoubleVector(this.ensemble[i].getVotesForInstance(inst));
             InstanceExample ex = new InstanceExample(inst);
@@ -194,6 +249,15 @@ public class RandomSubspacesRegression extends AbstractClassifier implements Reg
         private int featureIndices[] = null;
         private double pctFeatures;
 
+        // Each member draws its subspace from its own generator, so the
+        // subspaces do not depend on the order in which threads run.
+        private Random subspaceRandom;
+
+        // Reusable view of the member's subspace, built on first use. Only
+        // FIMTDD learners, which neither keep nor modify instances, read it
+        // directly.
+        private transient SubspaceInstance subspaceView;
+
         private void init(int indexOriginal,
                           Classifier instantiatedClassifier,
                           BasicRegressionPerformanceEvaluator evaluatorInstantiated,
@@ -203,12 +267,14 @@ public class RandomSubspacesRegression extends AbstractClassifier implements Reg
                           ClassOption driftOption,
                           ClassOption warningOption,
                           boolean isBackgroundLearner,
-                          double pctFeatures) {
+                          double pctFeatures,
+                          long subspaceSeed) {
             this.indexOriginal = indexOriginal;
             this.createdOn = instancesSeen;
             this.lastDriftOn = 0;
             this.lastWarningOn = 0;
             this.pctFeatures = pctFeatures;
+            this.subspaceRandom = new Random(subspaceSeed);
 
             this.learner = instantiatedClassifier;
             this.evaluator = evaluatorInstantiated;
@@ -241,13 +307,14 @@ public class RandomSubspacesRegression extends AbstractClassifier implements Reg
                                    ClassOption driftOption,
                                    ClassOption warningOption,
                                    boolean isBackgroundLearner,
-                                   double pctFeatures) {
+                                   double pctFeatures,
+                                   long subspaceSeed) {
             init(indexOriginal, instantiatedClassifier,
                     evaluatorInstantiated, instancesSeen,
                     useBkgLearner, useDriftDetector,
                     driftOption, warningOption,
                     isBackgroundLearner,
-                    pctFeatures);
+                    pctFeatures, subspaceSeed);
         }
 
 
@@ -255,6 +322,8 @@ public class RandomSubspacesRegression extends AbstractClassifier implements Reg
             if(this.useBkgLearner && this.bkgLearner != null) {
                 this.learner = this.bkgLearner.learner;
                 this.featureIndices = this.bkgLearner.featureIndices;
+                this.subspaceView = this.bkgLearner.subspaceView;
+                this.subspaceRandom = this.bkgLearner.subspaceRandom;
                 this.driftDetectionMethod = this.bkgLearner.driftDetectionMethod;
                 this.warningDetectionMethod = this.bkgLearner.warningDetectionMethod;
 
@@ -315,7 +384,8 @@ public class RandomSubspacesRegression extends AbstractClassifier implements Reg
                                 bkgEvaluator, instancesSeen,
                                 this.useBkgLearner, this.useDriftDetector,
                                 this.driftOption, this.warningOption, true,
-                                subspacePercentageOption.getValue());
+                                subspacePercentageOption.getValue(),
+                                this.subspaceRandom.nextLong());
 
                         // Update the warning detection object for the current object
                         // (this effectively resets changes made to the object while it was still a bkg learner).
@@ -342,36 +412,23 @@ public class RandomSubspacesRegression extends AbstractClassifier implements Reg
 //        }
 
         public Instance filterInstance(Instance instnc) {
-//            Instance filtered = instnc.copy();
-//            if(featureIndices != null && featureIndices.length > 0 &&
-//                    featureIndices.length < instnc.numAttributes() - 1) {
-//                TreeSet<Integer> indices = new TreeSet<>();
-//                for(int i = 0; i < featureIndices.length; i++) indices.add(featureIndices[i]);
-//                for(int i = 0; i < filtered.numAttributes(); i++){
-//                    if(!indices.contains(i) && i != filtered.classIndex()){
-//                        filtered.setMissing(i);
-//                    }
-//                }
-//            }
-//            return filtered;
             Instance filtered;
             if(featureIndices != null && featureIndices.length > 0 &&
                     featureIndices.length < instnc.numAttributes() - 1){
-                int numAttributes = instnc.numAttributes();
-
-                // copies all values including the class
-                int indices[] = new int[featureIndices.length + 1];
-                double values[] = new double[featureIndices.length + 1];
-                for (int i = 0; i < featureIndices.length; i++) {
-                    indices[i] = featureIndices[i];
-                    values[i] = instnc.value(featureIndices[i]);
+                if(subspaceView == null) {
+                    // the view reads the selected features and the class
+                    // straight from the instance, nothing is copied
+                    int indices[] = new int[featureIndices.length + 1];
+                    System.arraycopy(featureIndices, 0, indices, 0, featureIndices.length);
+                    indices[indices.length - 1] = instnc.classIndex();
+                    subspaceView = new SubspaceInstance(indices, instnc.numAttributes());
+                }
+                filtered = subspaceView.setInstance(instnc);
+                if(!(learner instanceof FIMTDD)) {
+                    // other learners may keep or modify the instance, so
+                    // they get a detached copy of the view
+                    filtered = filtered.copy();
                 }
-                //adds the class index and value
-                indices[indices.length - 1] = instnc.classIndex();
-                values[indices.length - 1] = instnc.classValue();
-
-                filtered = new FilteredSparseInstance(1.0, values, indices, numAttributes);
-                filtered.setDataset(instnc.dataset());
             }else{
                 filtered = instnc;
             }
@@ -384,7 +441,7 @@ public class RandomSubspacesRegression extends AbstractClassifier implements Reg
             int numSelectedFeatures = (int) Math.ceil(pctFeatures * numFeatures);
             TreeSet<Integer> selected = new TreeSet<>();
             while(selected.size() < numSelectedFeatures) {
-                int position = classifierRandom.nextInt(numFeatures);
+                int position = subspaceRandom.nextInt(numFeatures);
                 if(position != classIndex){
                     selected.add(position);
                 }
@@ -406,4 +463,55 @@ public class RandomSubspacesRegression extends AbstractClassifier implements Reg
             sb.append("Base learner for Random Subspaces for Regression.");
         }
     }
+
+    /***
+     * Inner class to assist with the multi-thread execution. Evaluates, trains
+     * and checks for drifts on a single member using the current instance and
+     * the poisson weight previously drawn for it.
+     */
+    protected class TrainingRunnable implements Runnable, Callable<Integer> {
+        final private int index;
+
+        public TrainingRunnable(int index) {
+            this.index = index;
+        }
+
+        @Override
+        public void run() {
+            RSRegressionLearner learner = ensemble[this.index];
+            Instance instance = currentInstance;
+            double vote[] = learner.getVotesForInstance(instance);
+            learner.evaluator.addResult(new InstanceExample(instance), vote);
+            learner.trainOnInstance(instance, memberWeights[this.index], instancesSeen);
+        }
+
+        @Override
+        public Integer call() throws Exception {
+            run();
+            return 0;
+        }
+    }
+
+    /***
+     * Inner class to assist with the multi-thread execution. Stores the
+     * prediction of a single member for the current instance.
+     */
+    protected class PredictionRunnable implements Runnable, Callable<Integer> {
+        final private int index;
+
+        public PredictionRunnable(int index) {
+            this.index = index;
+        }
+
+        @Override
+        public void run() {
+            memberPredictions[this.index] = ensemble[this.index].getVotesForInstance(currentInstance)[0];
+        }
+
+        @Override
+        public Integer call() throws Exception {
+            run();
+            return 0;
+        }
+    }
 }
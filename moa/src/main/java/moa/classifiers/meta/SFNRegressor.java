@@ -1,14 +1,21 @@
 package moa.classifiers.meta;
 
 import as.graph.Graph;
+import java.io.Serializable;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
-import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import moa.classifiers.AbstractClassifier;
 import moa.classifiers.Classifier;
 import moa.classifiers.Regressor;
 import moa.classifiers.core.driftdetection.ADWIN;
+import moa.core.ByteSizeEstimable;
+import moa.core.ByteSizeEstimator;
 import moa.core.Measurement;
 import moa.options.ClassOption;
 import com.github.javacliparser.FlagOption;
@@ -24,7 +31,7 @@ import moa.core.Utils;
  *
  * @author Jean Paul Barddal
  */
-public class SFNRegressor extends AbstractClassifier implements Regressor {
+public class SFNRegressor extends AbstractClassifier implements Regressor, ByteSizeEstimable {
 
     //Definição de nó para o grafo
     public class SFNRVertex {
@@ -46,8 +53,16 @@ public class SFNRegressor extends AbstractClassifier implements Regressor {
         private String errorMethod;
 
         private double sumError;
-        
-        
+
+        //centrality of this vertex, refreshed whenever the network changes
+        private double centrality;
+
+        //drift detector over this vertex errors (ADWIN drift detection only)
+        private ADWIN adwin;
+
+        //results for the instance being processed
+        private double lastVote;
+        private boolean lastDrift;
 
         //construtor
         public SFNRVertex() {
@@ -99,6 +114,27 @@ public class SFNRegressor extends AbstractClassifier implements Regressor {
             return classifier.correctlyClassifies(instnc);
         }
 
+        /**
+         * Predicts the instance, keeping the vote in lastVote, and updates
+         * the ADWIN detector of this vertex, if any, keeping in lastDrift
+         * whether its error estimation increased.
+         */
+        public void processInstance(Instance instance) {
+            double vote[] = getVotesForInstance(instance);
+            lastVote = vote[0];
+            lastDrift = false;
+            if (adwin != null) {
+                double errEstim = adwin.getEstimation();
+                // same as correctlyClassifies(), without predicting again
+                boolean correctlyClassifies = Utils.maxIndex(vote) == (int) instance.classValue();
+                if (adwin.setInput(correctlyClassifies ? 0 : 1)) {
+                    if (adwin.getEstimation() > errEstim) {
+                        lastDrift = true;
+                    }
+                }
+            }
+        }
+
     }
 
     //////////////////////////////////////
@@ -108,6 +144,7 @@ public class SFNRegressor extends AbstractClassifier implements Regressor {
     private final String removalMethod[] = {"Elitism", "AVG", "STDDEV+AVG"};
     private final String optDriftDetectionMethod[] = {"MaxErrorThreshold", "ADWIN"};
     private final String metrics[] = {"Betweenness", "Closeness", "Degree", "Pagerank", "Eigenvector"};
+    private final String errorEstimation[] = {"Basic", "Window", "FadingFactor"}; //Basic is reset every time the model measurements are obtained
     //////////////////////////////////////
     // VARIÁVEIS DE OPTIONS
     //////////////////////////////////////    
@@ -122,6 +159,11 @@ public class SFNRegressor extends AbstractClassifier implements Regressor {
             = new IntOption("kMax", 'k',
                     "Determines the maximum amount of nodes in the network.",
                     3, 3, 1000);
+    public MultiChoiceOption errorEstimationOption = new MultiChoiceOption("errorEstimation", 'v', "Determine how RMSLE, MAE and RMSE are estimated in the model measurements.", errorEstimation, errorEstimation, 0);
+    public IntOption errorWindowWidthOption = new IntOption("errorWindowWidth", 'w', "Number of instances used by the Window error estimation.", 1000, 1, Integer.MAX_VALUE);
+    public FloatOption errorFadingFactorOption = new FloatOption("errorFadingFactor", 'a', "Fading factor used by the FadingFactor error estimation.", 0.999, 0.0, 1.0);
+    public IntOption numberOfJobsOption = new IntOption("numberOfJobs", 'j',
+            "Total number of concurrent jobs used for processing (-1 = as much as possible, 0 = do not use multithreading)", 1, -1, Integer.MAX_VALUE);
     /////////////////////////////////////
     // VARIÁVEIS INTERNAS
     /////////////////////////////////////
@@ -134,8 +176,20 @@ public class SFNRegressor extends AbstractClassifier implements Regressor {
             = new ArrayList<Instance>();
     private int instancesInThisPeriod = 0;
     private double sumError = 0.0;
-    private HashMap<Integer, ADWIN> adError = new HashMap<Integer, ADWIN>();
-    private HashMap<Instance, Double> relationRealObtained;
+    private ErrorEstimator squaredLogError;
+    private ErrorEstimator absoluteError;
+    private ErrorEstimator squaredError;
+
+    //vertices in the network iteration order, rebuilt whenever the network changes
+    private transient SFNRVertex vertices[] = new SFNRVertex[0];
+    private boolean verticesChanged = true;
+
+    //multi-threading: one prediction and one training task per vertex,
+    //rebuilt with the vertices array
+    private transient ExecutorService executor;
+    private transient List<Callable<Integer>> predictors;
+    private transient List<Callable<Integer>> trainers;
+    private Instance currentInstance;
     
     //
     @Override
@@ -145,48 +199,176 @@ public class SFNRegressor extends AbstractClassifier implements Regressor {
         instancesSeen = 0;
         badInstances = new ArrayList<Instance>();
         sumError = 0.0;
-        adError = new HashMap<Integer, ADWIN>();
-        this.relationRealObtained = new HashMap<>();
+        this.squaredLogError = newErrorEstimator();
+        this.absoluteError = newErrorEstimator();
+        this.squaredError = newErrorEstimator();
+        this.vertices = new SFNRVertex[0];
+        this.verticesChanged = true;
+
+        // Multi-threading
+        int numberOfJobs;
+        if(this.numberOfJobsOption.getValue() == -1)
+            numberOfJobs = Runtime.getRuntime().availableProcessors();
+        else
+            numberOfJobs = this.numberOfJobsOption.getValue();
+        // SINGLE_THREAD and requesting for only 1 thread are equivalent.
+        // this.executor will be null and not used...
+        this.executor = null;
+        if(numberOfJobs != AdaptiveRandomForest.SINGLE_THREAD && numberOfJobs != 1)
+            this.executor = Executors.newFixedThreadPool(numberOfJobs);
     }
 
     @Override
     public void trainOnInstanceImpl(Instance instnc) {
-        for (Integer iterator : network.getNodesIDs()) {
-            ((SFNRVertex) network.getNode(iterator)).trainOnInstance(instnc);
+        refreshVertices();
+        if (this.executor != null) {
+            invokeAll(this.trainers, instnc);
+        } else {
+            for (SFNRVertex vertex : this.vertices) {
+                vertex.trainOnInstance(instnc);
+            }
+        }
+    }
+
+    /**
+     * Rebuilds the vertices array, their centrality and the multi-threading
+     * tasks after the network has changed.
+     */
+    private void refreshVertices() {
+        if (!this.verticesChanged) {
+            return;
         }
+        List<Integer> ids = network.getNodesIDs();
+        this.vertices = new SFNRVertex[ids.size()];
+        for (int i = 0; i < this.vertices.length; i++) {
+            this.vertices[i] = network.getNode(ids.get(i));
+            this.vertices[i].centrality = network.getCentralityMetric(ids.get(i));
+        }
+        if (this.executor != null) {
+            this.predictors = new ArrayList<Callable<Integer>>(this.vertices.length);
+            this.trainers = new ArrayList<Callable<Integer>>(this.vertices.length);
+            for (final SFNRVertex vertex : this.vertices) {
+                this.predictors.add(new Callable<Integer>() {
+                    @Override
+                    public Integer call() throws Exception {
+                        vertex.processInstance(currentInstance);
+                        return 0;
+                    }
+                });
+                this.trainers.add(new Callable<Integer>() {
+                    @Override
+                    public Integer call() throws Exception {
+                        vertex.trainOnInstance(currentInstance);
+                        return 0;
+                    }
+                });
+            }
+        }
+        this.verticesChanged = false;
+    }
+
+    private void invokeAll(Collection<Callable<Integer>> tasks, Instance instnc) {
+        this.currentInstance = instnc;
+        try {
+            this.executor.invokeAll(tasks);
+        } catch (InterruptedException ex) {
+            throw new RuntimeException("Could not call invokeAll() on vertices threads.");
+        }
+        this.currentInstance = null;
+    }
+
+    /**
+     * Adds up the estimated sizes of the learners in the network.
+     */
+    @Override
+    public int estimateByteSize() {
+        refreshVertices();
+        int byteSize = 0;
+        for (SFNRVertex vertex : this.vertices) {
+            byteSize += ByteSizeEstimator.estimateByteSize(vertex.classifier);
+        }
+        return byteSize;
     }
 
     @Override
     protected Measurement[] getModelMeasurementsImpl() {
-        Measurement measures[] = new Measurement[2];
-        Measurement qtdNodes = new Measurement("# nodes", network.getNodesQuantity());
-        Measurement rmsle = new Measurement("RMSLE", calculateRMSLE());
-        measures[0] = qtdNodes;
-        measures[1] = rmsle;
+        Measurement measures[] = new Measurement[4];
+        measures[0] = new Measurement("# nodes", network.getNodesQuantity());
+        measures[1] = new Measurement("RMSLE", Math.sqrt(this.squaredLogError.estimation()));
+        measures[2] = new Measurement("MAE", this.absoluteError.estimation());
+        measures[3] = new Measurement("RMSE", Math.sqrt(this.squaredError.estimation()));
+        //Basic estimation only covers the instances since the last measurements
+        if (this.errorEstimationOption.getChosenIndex() == 0) {
+            this.squaredLogError.reset();
+            this.absoluteError.reset();
+            this.squaredError.reset();
+        }
         return measures;
     }
-    
-    private double calculateRMSLE(){
-        double rmsle = 0.0;
-        
-        for(Instance ite : this.relationRealObtained.keySet()){
-            double inc = Math.pow(Math.log((double) this.relationRealObtained.get(ite) + 1) - Math.log((double) ite.classValue() + 1), 2);
-            //System.out.println("real: " + ite.classValue() + " obt: " + this.relationRealObtained.get(ite) + " inc: " + inc);
-            if(Double.isNaN(inc)){
-                rmsle += 0.0; 
-            }else{
-                rmsle += Math.pow(Math.log((double) this.relationRealObtained.get(ite) + 1) - Math.log((double) ite.classValue() + 1), 2);
+
+    private ErrorEstimator newErrorEstimator() {
+        if (this.errorEstimationOption.getChosenLabel().equals("Window")) {
+            return new ErrorEstimator(this.errorWindowWidthOption.getValue(), 1.0);
+        } else if (this.errorEstimationOption.getChosenLabel().equals("FadingFactor")) {
+            return new ErrorEstimator(0, this.errorFadingFactorOption.getValue());
+        }
+        return new ErrorEstimator(0, 1.0);
+    }
+
+    /**
+     * Mean of a stream of errors kept in constant memory: a plain running
+     * sum, a sum over a sliding window of the last errors or a sum faded by
+     * a factor. As in the former RMSLE calculation, NaN errors (e.g. the log
+     * of a negative value) are counted as zero.
+     */
+    protected static class ErrorEstimator implements Serializable {
+
+        private static final long serialVersionUID = 1L;
+
+        //last errors, only used by the window estimation
+        private final double window[];
+
+        private final double alpha;
+
+        private int posWindow;
+
+        private double sum;
+
+        private double weight;
+
+        public ErrorEstimator(int windowWidth, double alpha) {
+            this.window = windowWidth > 0 ? new double[windowWidth] : null;
+            this.alpha = alpha;
+        }
+
+        public void add(double value) {
+            if (Double.isNaN(value)) {
+                value = 0.0;
+            }
+            if (this.window != null) {
+                if (this.weight == this.window.length) {
+                    this.sum -= this.window[this.posWindow];
+                } else {
+                    this.weight++;
+                }
+                this.window[this.posWindow] = value;
+                this.posWindow = (this.posWindow + 1) % this.window.length;
+                this.sum += value;
+            } else {
+                this.sum = this.alpha * this.sum + value;
+                this.weight = this.alpha * this.weight + 1.0;
             }
         }
-        
-        rmsle = rmsle / (double)this.relationRealObtained.size();
-        rmsle = Math.sqrt(rmsle);
-        
-        //reset variables
-        this.relationRealObtained.clear();
-        
-        //return
-        return rmsle;
+
+        public double estimation() {
+            return this.sum / this.weight;
+        }
+
+        public void reset() {
+            this.posWindow = 0;
+            this.sum = 0.0;
+            this.weight = 0.0;
+        }
     }
 
     @Override
@@ -208,19 +390,32 @@ public class SFNRegressor extends AbstractClassifier implements Regressor {
             this.addVertex(newVertice);
         }
 
+        refreshVertices();
+        if (this.executor != null) {
+            invokeAll(this.predictors, instnc);
+        } else {
+            for (SFNRVertex vertex : this.vertices) {
+                vertex.processInstance(instnc);
+            }
+        }
+
+        //votes are combined in the network order, whatever the threads order
         double votes[] = new double[1];
         votes[0] = 0.0;
         double sum = 0.0;
-        for (Integer v : this.network.getNodesIDs()) {
-            double metrica = network.getCentralityMetric(v);
-            votes[0] += metrica * network.getNode(v).getVotesForInstance(instnc)[0];
+        for (SFNRVertex vertex : this.vertices) {
+            double metrica = vertex.centrality;
+            votes[0] += metrica * vertex.lastVote;
             sum += metrica;
         }
         votes[0] /= sum;
         if(instnc.classIsMissing()){
 //            System.out.println(votes[0]);
         }
-        this.relationRealObtained.put(instnc, votes[0]);
+        double logError = Math.log(votes[0] + 1) - Math.log(instnc.classValue() + 1);
+        this.squaredLogError.add(logError * logError);
+        this.absoluteError.add(Math.abs(votes[0] - instnc.classValue()));
+        this.squaredError.add((votes[0] - instnc.classValue()) * (votes[0] - instnc.classValue()));
         
         double error = 0.0;
         if (this.errorMethodOption.getValueAsCLIString().equals("MAE")) {
@@ -240,14 +435,10 @@ public class SFNRegressor extends AbstractClassifier implements Regressor {
         if (instancesSeen % updatePeriodOption.getValue() == 0 && driftDetectionMethodOption.getValueAsCLIString().equals("MaxErrorThreshold")) {
             driftDetected = (sumError / this.instancesInThisPeriod > maxErrorThresholdOption.getValue());
         } else if (driftDetectionMethodOption.getValueAsCLIString().equals("ADWIN")) {
-            ArrayList<Integer> vertices = new ArrayList<Integer>(network.getNodesIDs());
-            for (int i = 0; i < network.getNodesQuantity(); i++) {
-                double errEstim = adError.get(vertices.get(i)).getEstimation();
-                boolean correctlyClassifies = this.network.getNode(vertices.get(i)).correctlyClassifies(instnc);
-                if (adError.get(vertices.get(i)).setInput(correctlyClassifies ? 0 : 1)) {
-                    if (adError.get(vertices.get(i)).getEstimation() > errEstim) {
-                        driftDetected = true;
-                    }
+            //the detectors were updated along with the predictions
+            for (SFNRVertex vertex : this.vertices) {
+                if (vertex.lastDrift) {
+                    driftDetected = true;
                 }
             }
 
@@ -261,8 +452,9 @@ public class SFNRegressor extends AbstractClassifier implements Regressor {
             //cleans overall stats
             cleanStats();
             //cleans every node stats
-            for (Integer v : this.network.getNodesIDs()) {
-                network.getNode(v).cleanStats();
+            refreshVertices();
+            for (SFNRVertex vertex : this.vertices) {
+                vertex.cleanStats();
             }
         } else if (!driftDetected && this.instancesSeen % this.updatePeriodOption.getValue() == 0) {
             cleanStats();
@@ -315,8 +507,9 @@ public class SFNRegressor extends AbstractClassifier implements Regressor {
             network.addNode(lastID++, newVertex);
             network.setEdge(neighbor, lastID - 1, 1);
             if (this.driftDetectionMethodOption.getValueAsCLIString().equals("ADWIN")) {
-                this.adError.put(lastID - 1, new ADWIN());
+                newVertex.adwin = new ADWIN();
             }
+            this.verticesChanged = true;
         }
     }
 
@@ -357,8 +550,7 @@ public class SFNRegressor extends AbstractClassifier implements Regressor {
             ArrayList<Integer> neighbors
                     = new ArrayList<Integer>(network.getNeighborsIDs(id));
             network.removeNode(id);
-            //remove o detector relativo do adwin
-            adError.remove(id);
+            this.verticesChanged = true;
 
             Collections.sort(neighbors,
                     new Comparator() {
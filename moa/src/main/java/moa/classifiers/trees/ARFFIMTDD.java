@@ -36,6 +36,8 @@ import moa.classifiers.core.conditionaltests.InstanceConditionalTest;
 import moa.classifiers.core.splitcriteria.SplitCriterion;
 import moa.classifiers.AbstractClassifier;
 import moa.core.AutoExpandVector;
+import moa.core.ByteSizeEstimable;
+import moa.core.ByteSizeEstimator;
 import moa.core.DoubleVector;
 import moa.core.Measurement;
 import moa.core.SizeOf;
@@ -49,7 +51,7 @@ import moa.core.StringUtils;
  * In European Symposium on Artificial Neural Networks, Computational Intelligence and Machine Learning (ESANN), 2018.
  * https://www.elen.ucl.ac.be/Proceedings/esann/esannpdf/es2018-183.pdf</p>
  */
-public class ARFFIMTDD extends AbstractClassifier implements Regressor {
+public class ARFFIMTDD extends AbstractClassifier implements Regressor, ByteSizeEstimable {
 
     private static final long serialVersionUID = 1L;
 
@@ -58,6 +60,8 @@ public class ARFFIMTDD extends AbstractClassifier implements Regressor {
     protected int leafNodeCount = 0;
     protected int splitNodeCount = 0;
 
+    protected ByteSizeEstimator byteSizeEstimator = new ByteSizeEstimator();
+
     protected double examplesSeen = 0.0;
     protected double sumOfValues = 0.0;
     protected double sumOfSquares = 0.0;
@@ -65,6 +69,14 @@ public class ARFFIMTDD extends AbstractClassifier implements Regressor {
     protected DoubleVector sumOfAttrValues = new DoubleVector();
     protected DoubleVector sumOfAttrSquares = new DoubleVector();
 
+    // Attribute means and standard deviations used to normalize instances in the leaf
+    // models, cached until the attribute sums change, and the scratch buffer that receives
+    // the normalized instance
+    protected transient double[] attrMeans;
+    protected transient double[] attrSDs;
+    protected transient boolean attrStatisticsUpToDate;
+    protected transient double[] normalizedInstanceBuffer;
+
     public int maxID = 0;
 
     public IntOption subspaceSizeOption = new IntOption("subspaceSizeSize", 'k',
@@ -123,6 +135,10 @@ public class ARFFIMTDD extends AbstractClassifier implements Regressor {
     public FlagOption learningRatioConstOption = new FlagOption(
             "learningRatioConst", 'p', "Keep learning rate constant instead of decaying.");
 
+    public ClassOption numericEstimatorOption = new ClassOption(
+            "numericEstimator", 'n', "Numeric estimator to use.",
+            FIMTDDNumericAttributeClassObserver.class, "FIMTDDNumericAttributeClassObserver");
+
     //endregion ================ OPTIONS ================
 
     //region ================ CLASSES ================
@@ -627,39 +643,67 @@ public class ARFFIMTDD extends AbstractClassifier implements Regressor {
             sumOfValues += inst.weight() * inst.classValue();
             sumOfSquares += inst.weight() * inst.classValue() * inst.classValue();
 
-            // Loop for compatibility with bagging methods
-            for (int i = 0; i < (int) inst.weight(); i++) {
-                updateWeights(inst, learningRatio);
+            // (int) weight steps for compatibility with bagging methods
+            int steps = (int) inst.weight();
+            if (steps > 0) {
+                updateWeights(inst, learningRatio, steps);
             }
         }
 
         public void updateWeights(Instance inst, double learningRatio) {
+            updateWeights(inst, learningRatio, 1);
+        }
+
+        /**
+         * Applies the given number of gradient steps over the same instance at once.
+         * The normalized instance x does not change between steps, so the error left
+         * after each step shrinks by (1 - learningRatio * |x|^2) and all the steps add
+         * up to x * delta * (1 - (1 - learningRatio * |x|^2)^steps) / |x|^2.
+         */
+        public void updateWeights(Instance inst, double learningRatio, int steps) {
             // Compute the normalized instance and the delta
-            DoubleVector normalizedInstance = normalizedInstance(inst);
+            double[] normalizedInstance = normalizedValues(inst);
             double normalizedPrediction = prediction(normalizedInstance);
             double normalizedValue = tree.normalizeTargetValue(inst.classValue());
             double delta = normalizedValue - normalizedPrediction;
-            normalizedInstance.scaleValues(delta * learningRatio);
-
-            weightAttribute.addValues(normalizedInstance);
+            double factor = delta * learningRatio;
+            if (steps > 1) {
+                double squaredNorm = 0.0;
+                for (int j = 0; j < normalizedInstance.length; j++) {
+                    squaredNorm += normalizedInstance[j] * normalizedInstance[j];
+                }
+                if (squaredNorm > 0) {
+                    factor = delta * (1 - Math.pow(1 - learningRatio * squaredNorm, steps)) / squaredNorm;
+                }
+            }
+            for (int j = 0; j < normalizedInstance.length; j++) {
+                weightAttribute.addToValue(j, normalizedInstance[j] * factor);
+            }
         }
 
         public DoubleVector normalizedInstance(Instance inst) {
-            // Normalize Instance
-            DoubleVector normalizedInstance = new DoubleVector();
+            return new DoubleVector(normalizedValues(inst));
+        }
+
+        /**
+         * Normalizes the instance into the scratch buffer of the tree, which is
+         * overwritten by the next call.
+         */
+        protected double[] normalizedValues(Instance inst) {
+            double[] normalizedInstance = tree.getNormalizedInstanceBuffer(inst.numAttributes());
+            double[] means = tree.attrMeans;
+            double[] sds = tree.attrSDs;
             for (int j = 0; j < inst.numAttributes() - 1; j++) {
                 int instAttIndex = modelAttIndexToInstanceAttIndex(j, inst);
-                double mean = tree.sumOfAttrValues.getValue(j) / tree.examplesSeen;
-                double sd = computeSD(tree.sumOfAttrSquares.getValue(j), tree.sumOfAttrValues.getValue(j), tree.examplesSeen);
-                if (inst.attribute(instAttIndex).isNumeric() && tree.examplesSeen > 1 && sd > 0)
-                    normalizedInstance.setValue(j, (inst.value(instAttIndex) - mean) / (3 * sd));
+                if (inst.attribute(instAttIndex).isNumeric() && tree.examplesSeen > 1 && sds[j] > 0)
+                    normalizedInstance[j] = (inst.value(instAttIndex) - means[j]) / (3 * sds[j]);
                 else
-                    normalizedInstance.setValue(j, 0);
+                    normalizedInstance[j] = 0;
             }
             if (tree.examplesSeen > 1)
-                normalizedInstance.setValue(inst.numAttributes() - 1, 1.0); // Value to be multiplied with the constant factor
+                normalizedInstance[inst.numAttributes() - 1] = 1.0; // Value to be multiplied with the constant factor
             else
-                normalizedInstance.setValue(inst.numAttributes() - 1, 0.0);
+                normalizedInstance[inst.numAttributes() - 1] = 0.0;
             return normalizedInstance;
         }
 
@@ -670,9 +714,12 @@ public class ARFFIMTDD extends AbstractClassifier implements Regressor {
             return scalarProduct(weightAttribute, instanceValues);
         }
 
+        protected double prediction(double[] instanceValues) {
+            return scalarProduct(weightAttribute.getArrayRef(), instanceValues);
+        }
+
         protected double prediction(Instance inst) {
-            DoubleVector normalizedInstance = normalizedInstance(inst);
-            double normalizedPrediction = prediction(normalizedInstance);
+            double normalizedPrediction = prediction(normalizedValues(inst));
             return denormalizePrediction(normalizedPrediction, tree);
         }
 
@@ -713,6 +760,26 @@ public class ARFFIMTDD extends AbstractClassifier implements Regressor {
         return "Implementation of the FIMT-DD tree as described by Ikonomovska et al.";
     }
 
+    /**
+     * Gets a tree with the options and random seed of this one that has not
+     * been trained, as copy() followed by resetLearning() does, without
+     * serializing the trained tree. Subclasses, which may have more state,
+     * are still copied through serialization.
+     *
+     * @return the untrained tree
+     */
+    public ARFFIMTDD copyUntrained() {
+        ARFFIMTDD tree;
+        if (getClass() == ARFFIMTDD.class) {
+            tree = new ARFFIMTDD();
+            prepareUntrainedCopy(tree);
+        } else {
+            tree = (ARFFIMTDD) copy();
+            tree.resetLearning();
+        }
+        return tree;
+    }
+
     public void resetLearningImpl() {
         this.treeRoot = null;
         this.leafNodeCount = 0;
@@ -724,6 +791,14 @@ public class ARFFIMTDD extends AbstractClassifier implements Regressor {
 
         this.sumOfAttrValues = new DoubleVector();
         this.sumOfAttrSquares = new DoubleVector();
+        this.attrStatisticsUpToDate = false;
+        this.byteSizeEstimator.reset();
+    }
+
+    @Override
+    public int estimateByteSize() {
+        return this.byteSizeEstimator.estimateByteSize(this, this.leafNodeCount + this.splitNodeCount,
+                this.trainingWeightSeenByModel);
     }
 
     public boolean isRandomizable() {
@@ -755,6 +830,20 @@ public class ARFFIMTDD extends AbstractClassifier implements Regressor {
         return new double[] {prediction};
     }
 
+    /**
+     * Predicts a block of instances, writing each prediction to the array of
+     * its votes.
+     */
+    @Override
+    public void getVotesForInstances(Instance[] instances, int numInstances, double[][] votes) {
+        for (int i = 0; i < numInstances; i++) {
+            double[] row = votesRow(votes, i, 1);
+            if (treeRoot != null) {
+                row[0] = treeRoot.getPrediction(instances[i]);
+            }
+        }
+    }
+
     public double normalizeTargetValue(double value) {
         if (examplesSeen > 1) {
             double sd = Math.sqrt((sumOfSquares - ((sumOfValues * sumOfValues)/examplesSeen))/examplesSeen);
@@ -789,6 +878,7 @@ public class ARFFIMTDD extends AbstractClassifier implements Regressor {
             sumOfAttrValues.addToValue(i, inst.weight() * inst.value(aIndex));
             sumOfAttrSquares.addToValue(i, inst.weight() * inst.value(aIndex) * inst.value(aIndex));
         }
+        attrStatisticsUpToDate = false;
 
         double prediction = treeRoot.getPrediction(inst);
         processInstance(inst, treeRoot, prediction, getNormalizedError(inst, prediction), true, false);
@@ -875,7 +965,8 @@ public class ARFFIMTDD extends AbstractClassifier implements Regressor {
     // region --- Object instatiation methods
 
     protected FIMTDDNumericAttributeClassObserver newNumericClassObserver() {
-        return new FIMTDDNumericAttributeClassObserver();
+        FIMTDDNumericAttributeClassObserver numericClassObserver = (FIMTDDNumericAttributeClassObserver) getPreparedClassOption(this.numericEstimatorOption);
+        return (FIMTDDNumericAttributeClassObserver) numericClassObserver.copy();
     }
 
     protected SplitNode newSplitNode(InstanceConditionalTest splitTest) {
@@ -997,6 +1088,35 @@ public class ARFFIMTDD extends AbstractClassifier implements Regressor {
             return 0.0;
     }
 
+    /**
+     * Returns the buffer that receives the normalized instances of the leaf models,
+     * after bringing the cached attribute means and standard deviations up to date.
+     */
+    protected double[] getNormalizedInstanceBuffer(int numAttributes) {
+        if (normalizedInstanceBuffer == null || normalizedInstanceBuffer.length != numAttributes) {
+            normalizedInstanceBuffer = new double[numAttributes];
+            attrMeans = new double[numAttributes];
+            attrSDs = new double[numAttributes];
+            attrStatisticsUpToDate = false;
+        }
+        if (!attrStatisticsUpToDate) {
+            for (int j = 0; j < numAttributes - 1; j++) {
+                attrMeans[j] = sumOfAttrValues.getValue(j) / examplesSeen;
+                attrSDs[j] = computeSD(sumOfAttrSquares.getValue(j), sumOfAttrValues.getValue(j), examplesSeen);
+            }
+            attrStatisticsUpToDate = true;
+        }
+        return normalizedInstanceBuffer;
+    }
+
+    public double scalarProduct(double[] u, double[] v) {
+        double ret = 0.0;
+        for (int i = 0; i < Math.max(u.length, v.length); i++) {
+            ret += (i < u.length ? u[i] : 0.0) * (i < v.length ? v[i] : 0.0);
+        }
+        return ret;
+    }
+
     public double scalarProduct(DoubleVector u, DoubleVector v) {
         double ret = 0.0;
         for (int i = 0; i < Math.max(u.numValues(), v.numValues()); i++) {
@@ -166,6 +166,26 @@ public class ARFHoeffdingTree extends HoeffdingTree {
         this.removePoorAttsOption = null;
     }
     
+    /**
+     * Gets a tree with the options and random seed of this one that has not
+     * been trained, as copy() followed by resetLearning() does, without
+     * serializing the trained tree. Subclasses, which may have more state,
+     * are still copied through serialization.
+     *
+     * @return the untrained tree
+     */
+    public ARFHoeffdingTree copyUntrained() {
+        ARFHoeffdingTree tree;
+        if (getClass() == ARFHoeffdingTree.class) {
+            tree = new ARFHoeffdingTree();
+            prepareUntrainedCopy(tree);
+        } else {
+            tree = (ARFHoeffdingTree) copy();
+            tree.resetLearning();
+        }
+        return tree;
+    }
+
     @Override
     protected LearningNode newLearningNode(double[] initialClassObservations) {
         LearningNode ret;
@@ -180,6 +200,11 @@ public class ARFHoeffdingTree extends HoeffdingTree {
         return ret;
     }
 
+    @Override
+    protected boolean nodesVoteWithClassDistribution() {
+        return getClass() == ARFHoeffdingTree.class && this.leafpredictionOption.getChosenIndex() == 0;
+    }
+
     @Override
     public boolean isRandomizable() {
         return true;
@@ -505,4 +505,15 @@ public class HoeffdingAdaptiveTree extends HoeffdingTree {
         }
         return new double[0];
     }
+
+    /**
+     * Predicts each instance with getVotesForInstance, since the votes of
+     * this tree add up the votes of several leaves.
+     */
+    @Override
+    public void getVotesForInstances(Instance[] instances, int numInstances, double[][] votes) {
+        for (int i = 0; i < numInstances; i++) {
+            votes[i] = getVotesForInstance(instances[i]);
+        }
+    }
 }
@@ -34,6 +34,7 @@ import moa.classifiers.AbstractClassifier;
 import moa.classifiers.MultiClassClassifier;
 import moa.classifiers.bayes.NaiveBayes;
 import moa.classifiers.core.AttributeSplitSuggestion;
+import moa.classifiers.core.CompiledTree;
 import moa.classifiers.core.attributeclassobservers.AttributeClassObserver;
 import moa.classifiers.core.attributeclassobservers.DiscreteAttributeClassObserver;
 import moa.classifiers.core.attributeclassobservers.NullAttributeClassObserver;
@@ -41,6 +42,8 @@ import moa.classifiers.core.attributeclassobservers.NumericAttributeClassObserve
 import moa.classifiers.core.conditionaltests.InstanceConditionalTest;
 import moa.classifiers.core.splitcriteria.SplitCriterion;
 import moa.core.AutoExpandVector;
+import moa.core.ByteSizeEstimable;
+import moa.core.ByteSizeEstimator;
 import moa.core.DoubleVector;
 import moa.core.Measurement;
 import moa.core.SizeOf;
@@ -93,7 +96,7 @@ import com.yahoo.labs.samoa.instances.Instance;
  * @author Richard Kirkby (rkirkby@cs.waikato.ac.nz)
  * @version $Revision: 7 $
  */
-public class HoeffdingTree extends AbstractClassifier implements MultiClassClassifier {
+public class HoeffdingTree extends AbstractClassifier implements MultiClassClassifier, ByteSizeEstimable {
 
     private static final long serialVersionUID = 1L;
 
@@ -163,6 +166,9 @@ public FlagOption binarySplitsOption = new FlagOption("binarySplits", 'b',
     public FlagOption noPrePruneOption = new FlagOption("noPrePrune", 'p',
             "Disable pre-pruning.");
 
+    public FlagOption compiledInferenceOption = new FlagOption("compiledInference", 'i',
+            "Predict with a flat array copy of the tree, compiled again when the tree changes.");
+
     public static class FoundNode {
 
         public Node node;
@@ -480,6 +486,11 @@ public FlagOption binarySplitsOption = new FlagOption("binarySplits", 'b',
 
     protected boolean growthAllowed;
 
+    protected ByteSizeEstimator byteSizeEstimator = new ByteSizeEstimator();
+
+    // Tree used for predictions with compiledInference, null until compiled or after a split
+    protected transient CompiledTree compiledTree;
+
     public int calcByteSize() {
         int size = (int) SizeOf.sizeOf(this);
         if (this.treeRoot != null) {
@@ -493,9 +504,17 @@ public FlagOption binarySplitsOption = new FlagOption("binarySplits", 'b',
         return calcByteSize();
     }
 
+    @Override
+    public int estimateByteSize() {
+        return this.byteSizeEstimator.estimateByteSize(this,
+                this.decisionNodeCount + this.activeLeafNodeCount + this.inactiveLeafNodeCount,
+                this.trainingWeightSeenByModel);
+    }
+
     @Override
     public void resetLearningImpl() {
         this.treeRoot = null;
+        this.compiledTree = null;
         this.decisionNodeCount = 0;
         this.activeLeafNodeCount = 0;
         this.inactiveLeafNodeCount = 0;
@@ -503,6 +522,7 @@ public FlagOption binarySplitsOption = new FlagOption("binarySplits", 'b',
         this.activeLeafByteSizeEstimate = 0.0;
         this.byteSizeEstimateOverheadFraction = 1.0;
         this.growthAllowed = true;
+        this.byteSizeEstimator.reset();
         if (this.leafpredictionOption.getChosenIndex()>0) { 
             this.removePoorAttsOption = null;
         }
@@ -520,6 +540,8 @@ public FlagOption binarySplitsOption = new FlagOption("binarySplits", 'b',
             leafNode = newLearningNode();
             foundNode.parent.setChild(foundNode.parentBranch, leafNode);
             this.activeLeafNodeCount++;
+            // the branch may be new to the compiled tree
+            this.compiledTree = null;
         }
         if (leafNode instanceof LearningNode) {
             LearningNode learningNode = (LearningNode) leafNode;
@@ -545,12 +567,7 @@ public FlagOption binarySplitsOption = new FlagOption("binarySplits", 'b',
     @Override
     public double[] getVotesForInstance(Instance inst) {
         if (this.treeRoot != null) {
-            FoundNode foundNode = this.treeRoot.filterInstanceToLeaf(inst,
-                    null, -1);
-            Node leafNode = foundNode.node;
-            if (leafNode == null) {
-                leafNode = foundNode.parent;
-            }
+            Node leafNode = findPredictingNode(inst, this.compiledInferenceOption.isSet());
             return leafNode.getClassVotes(inst, this);
           } else {
             int numClasses = inst.dataset().numClasses();
@@ -558,6 +575,56 @@ public FlagOption binarySplitsOption = new FlagOption("binarySplits", 'b',
           }
     }
 
+    /**
+     * Predicts a block of instances through the compiled tree, whether or not
+     * compiledInference is set, so the tree is compiled at most once for the
+     * block. When the nodes vote with their class distribution, it is copied
+     * to the arrays of the votes.
+     */
+    @Override
+    public void getVotesForInstances(Instance[] instances, int numInstances, double[][] votes) {
+        if (this.treeRoot == null) {
+            super.getVotesForInstances(instances, numInstances, votes);
+            return;
+        }
+        boolean copyDistribution = nodesVoteWithClassDistribution();
+        for (int i = 0; i < numInstances; i++) {
+            Node leafNode = findPredictingNode(instances[i], true);
+            if (copyDistribution) {
+                double[] distribution = leafNode.observedClassDistribution.getArrayRef();
+                System.arraycopy(distribution, 0, votesRow(votes, i, distribution.length), 0, distribution.length);
+            } else {
+                votes[i] = leafNode.getClassVotes(instances[i], this);
+            }
+        }
+    }
+
+    /**
+     * Returns the node that predicts the instance: its leaf, or the split
+     * node above if the instance reaches a missing child.
+     */
+    protected Node findPredictingNode(Instance inst, boolean compiled) {
+        Node leafNode = compiled ? findCompiledLeaf(inst) : null;
+        if (leafNode == null) {
+            FoundNode foundNode = this.treeRoot.filterInstanceToLeaf(inst,
+                    null, -1);
+            leafNode = foundNode.node;
+            if (leafNode == null) {
+                leafNode = foundNode.parent;
+            }
+        }
+        return leafNode;
+    }
+
+    /**
+     * Returns whether all the nodes vote with their observed class
+     * distribution, as the majority class leaves of this tree do, so that
+     * getVotesForInstances can copy it without calling getClassVotes.
+     */
+    protected boolean nodesVoteWithClassDistribution() {
+        return getClass() == HoeffdingTree.class && this.leafpredictionOption.getChosenIndex() == 0;
+    }
+
     @Override
     protected Measurement[] getModelMeasurementsImpl() {
         return new Measurement[]{
@@ -576,6 +643,61 @@ public FlagOption binarySplitsOption = new FlagOption("binarySplits", 'b',
                     this.byteSizeEstimateOverheadFraction)};
     }
 
+    /**
+     * Returns the node that predicts the instance, the same as found by
+     * filterInstanceToLeaf, using the compiled tree, or null if the instance
+     * has to be filtered through the tree. The tree is compiled if needed.
+     */
+    protected Node findCompiledLeaf(Instance inst) {
+        if (this.compiledTree == null || !this.compiledTree.isCompiledFrom(this.treeRoot)) {
+            this.compiledTree = compileTree();
+        }
+        int payload = this.compiledTree.find(inst);
+        if (payload < 0) {
+            return null;
+        }
+        Node node = (Node) this.compiledTree.getPayloadNode(payload);
+        int branch = this.compiledTree.getPayloadBranch(payload);
+        if (branch >= 0) {
+            // leaves are read from their parent, so they can be replaced without compiling again
+            Node leaf = ((SplitNode) node).getChild(branch);
+            if (leaf != null) {
+                if (!leaf.isLeaf()) {
+                    // split by a subclass without discarding the compiled tree
+                    this.compiledTree = null;
+                    return null;
+                }
+                node = leaf;
+            }
+        }
+        return node;
+    }
+
+    protected CompiledTree compileTree() {
+        CompiledTree compiled = new CompiledTree(this.treeRoot);
+        compiled.setRoot(compileSubtree(compiled, this.treeRoot, null, -1));
+        return compiled;
+    }
+
+    protected int compileSubtree(CompiledTree compiled, Node node,
+            SplitNode parent, int parentBranch) {
+        if (node == null || node.isLeaf()) {
+            return parent == null ? compiled.addPayload(node, -1)
+                    : compiled.addPayload(parent, parentBranch);
+        }
+        if (node.getClass() != SplitNode.class) {
+            // split nodes of subclasses may filter instances their own way
+            return compiled.addPayload(null, -1);
+        }
+        SplitNode splitNode = (SplitNode) node;
+        int target = compiled.addSplit(splitNode.splitTest, splitNode.numChildren());
+        compiled.setMissingBranch(target, compiled.addPayload(splitNode, -1));
+        for (int i = 0; i < splitNode.numChildren(); i++) {
+            compiled.setChild(target, i, compileSubtree(compiled, splitNode.getChild(i), splitNode, i));
+        }
+        return target;
+    }
+
     public int measureTreeDepth() {
         if (this.treeRoot != null) {
             return this.treeRoot.subtreeDepth();
@@ -692,6 +814,7 @@ public FlagOption binarySplitsOption = new FlagOption("binarySplits", 'b',
                     } else {
                         parent.setChild(parentIndex, newSplit);
                     }
+                    this.compiledTree = null;
                 }
                 // manage memory
                 enforceTrackerLimit();
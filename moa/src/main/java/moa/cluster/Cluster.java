@@ -103,17 +103,23 @@ public abstract class Cluster extends AbstractMOAObject {
 
 
     public void setMeasureValue(String measureKey, String value){
-        measure_values.put(measureKey, value);
+        synchronized(measure_values){
+            measure_values.put(measureKey, value);
+        }
     }
 
     public void setMeasureValue(String measureKey, double value){
-        measure_values.put(measureKey, Double.toString(value));
+        synchronized(measure_values){
+            measure_values.put(measureKey, Double.toString(value));
+        }
     }
 
 
     public String getMeasureValue(String measureKey){
         if(measure_values.containsKey(measureKey))
-            return measure_values.get(measureKey);
+            synchronized(measure_values){
+                return measure_values.get(measureKey);
+            }
         else
             return "";
     }
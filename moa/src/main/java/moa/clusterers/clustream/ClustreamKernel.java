@@ -137,6 +137,17 @@ public class ClustreamKernel extends CFCluster {
         return res;
     }
 
+    /**
+     * Writes this kernel's center into an array, as getCenter() computes it.
+     * @param center the array
+     * @param offset the position of the first coordinate
+     */
+    public void getCenter(double[] center, int offset) {
+        for (int i = 0; i < this.LS.length; i++) {
+            center[offset + i] = this.LS[i] / N;
+        }
+    }
+
     /**
      * See interface <code>Cluster</code>
      * @param point
@@ -0,0 +1,348 @@
+/*
+ *    KernelCenterIndex.java
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ *
+ *
+ */
+
+package moa.clusterers.clustream;
+
+import java.io.Serializable;
+
+/**
+ * Ball tree over the centers of a fixed number of CluStream kernels, to find
+ * the closest kernel to a point and the two closest kernels without scanning
+ * all of them.
+ *
+ * The centers are kept row by row in one primitive matrix. When a kernel
+ * changes, its row is recomputed and the radii of the balls containing it are
+ * enlarged, so the tree stays exact while its balls get looser; it is rebuilt
+ * once as many kernels have changed as there are kernels, and before a search
+ * for the closest pair, which searches from every kernel. Distances are
+ * computed as the linear scans of Clustream do, and ties go to the kernel
+ * with the lowest index, so the searches give the same kernels as the scans.
+ */
+public class KernelCenterIndex implements Serializable {
+
+	private static final long serialVersionUID = 1L;
+
+	private static final int LEAF_SIZE = 8;
+
+	// Relative slack on the pruning bound, for the rounding of the distances
+	private static final double PRUNING_SLACK = 1e-9;
+
+	private final int numKernels;
+
+	private final int dimensions;
+
+	// Kernel centers, one row per kernel
+	private final double[] centers;
+
+	// Kernel indices ordered so that each node holds a contiguous range
+	private final int[] order;
+
+	private final int[] leafOf;
+
+	private final int maxNodes;
+
+	private final int[] nodeStart;
+
+	private final int[] nodeEnd;
+
+	private final int[] nodeLeft;
+
+	private final int[] nodeRight;
+
+	private final int[] nodeParent;
+
+	private final double[] nodePivot;
+
+	private final double[] nodeRadius;
+
+	private int numNodes;
+
+	private boolean built;
+
+	private int changesSinceBuild;
+
+	// Nodes left to search and the distances to their pivots
+	private final int[] stack;
+
+	private final double[] stackDistance;
+
+	private final double[] scratch;
+
+	// Index and distance of the last search
+	private int foundIndex;
+
+	private double foundDistance;
+
+	public KernelCenterIndex(int numKernels, int dimensions) {
+		this.numKernels = numKernels;
+		this.dimensions = dimensions;
+		this.centers = new double[numKernels * dimensions];
+		this.order = new int[numKernels];
+		this.leafOf = new int[numKernels];
+		this.maxNodes = 2 * numKernels + 1;
+		this.nodeStart = new int[this.maxNodes];
+		this.nodeEnd = new int[this.maxNodes];
+		this.nodeLeft = new int[this.maxNodes];
+		this.nodeRight = new int[this.maxNodes];
+		this.nodeParent = new int[this.maxNodes];
+		this.nodePivot = new double[this.maxNodes * dimensions];
+		this.nodeRadius = new double[this.maxNodes];
+		this.stack = new int[this.maxNodes];
+		this.stackDistance = new double[this.maxNodes];
+		this.scratch = new double[dimensions];
+	}
+
+	/**
+	 * Records the current center of a kernel.
+	 */
+	public void update(int index, ClustreamKernel kernel) {
+		kernel.getCenter(this.centers, index * this.dimensions);
+		if (!this.built) {
+			return;
+		}
+		if (++this.changesSinceBuild >= this.numKernels) {
+			this.built = false;
+			return;
+		}
+		int offset = index * this.dimensions;
+		for (int node = this.leafOf[index]; node >= 0; node = this.nodeParent[node]) {
+			double radius = distance(this.nodePivot, node * this.dimensions, this.centers, offset);
+			if (radius > this.nodeRadius[node]) {
+				this.nodeRadius[node] = radius;
+			}
+		}
+	}
+
+	/**
+	 * Finds the closest kernel to a point.
+	 *
+	 * @param exclude a kernel to ignore, or -1
+	 * @return the index of the kernel, or -1 if no distance is below
+	 * Double.MAX_VALUE
+	 */
+	public int nearest(double[] point, int exclude) {
+		ensureBuilt();
+		search(point, 0, exclude, Double.MAX_VALUE);
+		return this.foundIndex;
+	}
+
+	/**
+	 * Finds the closest kernel to another kernel.
+	 */
+	public int nearestToKernel(int index) {
+		System.arraycopy(this.centers, index * this.dimensions, this.scratch, 0, this.dimensions);
+		return nearest(this.scratch, index);
+	}
+
+	/**
+	 * Returns the distance to the kernel found by the last search.
+	 */
+	public double foundDistance() {
+		return this.foundDistance;
+	}
+
+	/**
+	 * Finds the two closest kernels, the pair that comes first in index order
+	 * among the pairs at the smallest distance.
+	 *
+	 * @param pair receives the two indices, the lower one first
+	 * @return the distance between the two kernels
+	 */
+	public double closestPair(int[] pair) {
+		// searching from every kernel costs as much as a rebuild
+		if (this.changesSinceBuild > 0) {
+			this.built = false;
+		}
+		ensureBuilt();
+		pair[0] = 0;
+		pair[1] = 0;
+		double minDistance = Double.MAX_VALUE;
+		for (int i = 0; i < this.numKernels; i++) {
+			// only a kernel strictly closer than the current pair replaces it
+			search(this.centers, i * this.dimensions, i, minDistance);
+			if (this.foundIndex >= 0) {
+				minDistance = this.foundDistance;
+				pair[0] = i;
+				pair[1] = this.foundIndex;
+			}
+		}
+		return minDistance;
+	}
+
+	private void ensureBuilt() {
+		if (this.built) {
+			return;
+		}
+		for (int i = 0; i < this.numKernels; i++) {
+			this.order[i] = i;
+		}
+		this.numNodes = 0;
+		build(0, this.numKernels, -1);
+		this.built = true;
+		this.changesSinceBuild = 0;
+	}
+
+	private int build(int start, int end, int parent) {
+		int node = this.numNodes++;
+		this.nodeStart[node] = start;
+		this.nodeEnd[node] = end;
+		this.nodeParent[node] = parent;
+		int pivot = node * this.dimensions;
+		for (int j = 0; j < this.dimensions; j++) {
+			this.nodePivot[pivot + j] = 0.0;
+		}
+		for (int i = start; i < end; i++) {
+			int offset = this.order[i] * this.dimensions;
+			for (int j = 0; j < this.dimensions; j++) {
+				this.nodePivot[pivot + j] += this.centers[offset + j];
+			}
+		}
+		for (int j = 0; j < this.dimensions; j++) {
+			this.nodePivot[pivot + j] /= end - start;
+		}
+		double radius = 0.0;
+		for (int i = start; i < end; i++) {
+			radius = Math.max(radius, distance(this.nodePivot, pivot, this.centers, this.order[i] * this.dimensions));
+		}
+		this.nodeRadius[node] = radius;
+		if (end - start <= LEAF_SIZE) {
+			this.nodeLeft[node] = -1;
+			this.nodeRight[node] = -1;
+			for (int i = start; i < end; i++) {
+				this.leafOf[this.order[i]] = node;
+			}
+			return node;
+		}
+		// split at the median of the dimension with the largest spread
+		int splitDimension = 0;
+		double largestSpread = -1.0;
+		for (int j = 0; j < this.dimensions; j++) {
+			double min = Double.POSITIVE_INFINITY;
+			double max = Double.NEGATIVE_INFINITY;
+			for (int i = start; i < end; i++) {
+				double value = this.centers[this.order[i] * this.dimensions + j];
+				min = Math.min(min, value);
+				max = Math.max(max, value);
+			}
+			if (max - min > largestSpread) {
+				largestSpread = max - min;
+				splitDimension = j;
+			}
+		}
+		int middle = (start + end) >>> 1;
+		select(start, end - 1, middle, splitDimension);
+		this.nodeLeft[node] = build(start, middle, node);
+		this.nodeRight[node] = build(middle, end, node);
+		return node;
+	}
+
+	// Quickselect of the order range so that position k holds its median
+	private void select(int left, int right, int k, int dimension) {
+		while (right > left) {
+			double pivotValue = this.centers[this.order[(left + right) >>> 1] * this.dimensions + dimension];
+			int i = left;
+			int j = right;
+			while (i <= j) {
+				while (this.centers[this.order[i] * this.dimensions + dimension] < pivotValue) {
+					i++;
+				}
+				while (this.centers[this.order[j] * this.dimensions + dimension] > pivotValue) {
+					j--;
+				}
+				if (i <= j) {
+					int swap = this.order[i];
+					this.order[i] = this.order[j];
+					this.order[j] = swap;
+					i++;
+					j--;
+				}
+			}
+			if (k <= j) {
+				right = j;
+			} else if (k >= i) {
+				left = i;
+			} else {
+				return;
+			}
+		}
+	}
+
+	/*
+	 * Depth-first search closer child first. Only distances strictly below
+	 * the bound are found, and among equal distances the lowest index.
+	 */
+	private void search(double[] point, int pointOffset, int exclude, double bound) {
+		int bestIndex = -1;
+		double bestDistance = bound;
+		int top = 0;
+		this.stack[top] = 0;
+		this.stackDistance[top++] = distance(point, pointOffset, this.nodePivot, 0);
+		while (top > 0) {
+			int node = this.stack[--top];
+			double toPivot = this.stackDistance[top];
+			double radius = this.nodeRadius[node];
+			if (toPivot - radius > bestDistance + PRUNING_SLACK * (toPivot + radius)) {
+				continue;
+			}
+			int left = this.nodeLeft[node];
+			if (left < 0) {
+				for (int i = this.nodeStart[node]; i < this.nodeEnd[node]; i++) {
+					int index = this.order[i];
+					if (index == exclude) {
+						continue;
+					}
+					double distance = distance(point, pointOffset, this.centers, index * this.dimensions);
+					if (distance < bestDistance
+							|| (distance == bestDistance && bestIndex >= 0 && index < bestIndex)) {
+						bestDistance = distance;
+						bestIndex = index;
+					}
+				}
+			} else {
+				int right = this.nodeRight[node];
+				double toLeft = distance(point, pointOffset, this.nodePivot, left * this.dimensions);
+				double toRight = distance(point, pointOffset, this.nodePivot, right * this.dimensions);
+				// the closer child is pushed last, to be searched first
+				if (toLeft < toRight) {
+					top = push(top, right, toRight);
+					top = push(top, left, toLeft);
+				} else {
+					top = push(top, left, toLeft);
+					top = push(top, right, toRight);
+				}
+			}
+		}
+		this.foundIndex = bestIndex;
+		this.foundDistance = bestDistance;
+	}
+
+	private int push(int top, int node, double toPivot) {
+		this.stack[top] = node;
+		this.stackDistance[top] = toPivot;
+		return top + 1;
+	}
+
+	private double distance(double[] a, int offsetA, double[] b, int offsetB) {
+		double distance = 0.0;
+		for (int i = 0; i < this.dimensions; i++) {
+			double d = a[offsetA + i] - b[offsetB + i];
+			distance += d * d;
+		}
+		return Math.sqrt(distance);
+	}
+}
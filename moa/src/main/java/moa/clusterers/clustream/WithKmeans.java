@@ -38,6 +38,7 @@ import moa.cluster.Clustering;
 import moa.cluster.SphereCluster;
 import moa.clusterers.AbstractClusterer;
 import moa.core.Measurement;
+import com.github.javacliparser.FlagOption;
 import com.github.javacliparser.IntOption;
 import com.yahoo.labs.samoa.instances.DenseInstance;
 import com.yahoo.labs.samoa.instances.Instance;
@@ -56,6 +57,9 @@ public class WithKmeans extends AbstractClusterer {
 	public IntOption kernelRadiFactorOption = new IntOption(
 			"kernelRadiFactor", 't',
 			"Multiplier for the kernel radius", 2);
+
+	public FlagOption spatialIndexOption = new FlagOption("spatialIndex", 'i',
+			"Find the closest kernels with a ball tree over the kernel centers.");
 	
 	public IntOption kOption = new IntOption(
 			"k", 'k',
@@ -64,6 +68,7 @@ public class WithKmeans extends AbstractClusterer {
 	private int timeWindow;
 	private long timestamp = -1;
 	private ClustreamKernel[] kernels;
+	private KernelCenterIndex index; // Ball tree over the kernel centers, if used
 	private boolean initialized;
 	private List<ClustreamKernel> buffer; // Buffer for initialization with kNN
 	private int bufferSize;
@@ -79,6 +84,7 @@ public class WithKmeans extends AbstractClusterer {
 		this.kernels = new ClustreamKernel[maxNumKernelsOption.getValue()];
 		this.timeWindow = timeWindowOption.getValue();
 		this.initialized = false;
+		this.index = null;
 		this.buffer = new LinkedList<ClustreamKernel>();
 		this.bufferSize = maxNumKernelsOption.getValue();
 		t = kernelRadiFactorOption.getValue();
@@ -100,6 +106,12 @@ public class WithKmeans extends AbstractClusterer {
 				}
 	
 				buffer.clear();
+				if ( spatialIndexOption.isSet() ) {
+					index = new KernelCenterIndex( kernels.length, dim );
+					for ( int i = 0; i < kernels.length; i++ ) {
+						index.update( i, kernels[i] );
+					}
+				}
 				initialized = true;
 				return;
 			}
@@ -107,16 +119,23 @@ public class WithKmeans extends AbstractClusterer {
 
 
 		// 1. Determine closest kernel
-		ClustreamKernel closestKernel = null;
+		double[] point = instance.toDoubleArray();
+		int closest = -1;
 		double minDistance = Double.MAX_VALUE;
-		for ( int i = 0; i < kernels.length; i++ ) {
-			//System.out.println(i+" "+kernels[i].getWeight()+" "+kernels[i].getDeviation());
-			double distance = distance(instance.toDoubleArray(), kernels[i].getCenter());
-			if (distance < minDistance) {
-				closestKernel = kernels[i];
-				minDistance = distance;
+		if ( index != null ) {
+			closest = index.nearest( point, -1 );
+			minDistance = index.foundDistance();
+		} else {
+			for ( int i = 0; i < kernels.length; i++ ) {
+				//System.out.println(i+" "+kernels[i].getWeight()+" "+kernels[i].getDeviation());
+				double distance = distance(point, kernels[i].getCenter() );
+				if ( distance < minDistance ) {
+					closest = i;
+					minDistance = distance;
+				}
 			}
 		}
+		ClustreamKernel closestKernel = kernels[closest];
 
 		// 2. Check whether instance fits into closestKernel
 		double radius = 0.0;
@@ -124,14 +143,19 @@ public class WithKmeans extends AbstractClusterer {
 			// Special case: estimate radius by determining the distance to the
 			// next closest cluster
 			radius = Double.MAX_VALUE;
-			double[] center = closestKernel.getCenter();
-			for ( int i = 0; i < kernels.length; i++ ) {
-				if ( kernels[i] == closestKernel ) {
-					continue;
-				}
+			if ( index != null ) {
+				index.nearestToKernel( closest );
+				radius = index.foundDistance();
+			} else {
+				double[] center = closestKernel.getCenter();
+				for ( int i = 0; i < kernels.length; i++ ) {
+					if ( kernels[i] == closestKernel ) {
+						continue;
+					}
 
-				double distance = distance(kernels[i].getCenter(), center );
-				radius = Math.min( distance, radius );
+					double distance = distance(kernels[i].getCenter(), center );
+					radius = Math.min( distance, radius );
+				}
 			}
 		} else {
 			radius = closestKernel.getRadius();
@@ -140,6 +164,9 @@ public class WithKmeans extends AbstractClusterer {
 		if ( minDistance < radius ) {
 			// Date fits, put into kernel and be happy
 			closestKernel.insert( instance, timestamp );
+			if ( index != null ) {
+				index.update( closest, closestKernel );
+			}
 			return;
 		}
 
@@ -151,6 +178,9 @@ public class WithKmeans extends AbstractClusterer {
 		for ( int i = 0; i < kernels.length; i++ ) {
 			if ( kernels[i].getRelevanceStamp() < threshold ) {
 				kernels[i] = new ClustreamKernel( instance, dim, timestamp, t, m );
+				if ( index != null ) {
+					index.update( i, kernels[i] );
+				}
 				return;
 			}
 		}
@@ -158,15 +188,22 @@ public class WithKmeans extends AbstractClusterer {
 		// 3.2 Merge closest two kernels
 		int closestA = 0;
 		int closestB = 0;
-		minDistance = Double.MAX_VALUE;
-		for ( int i = 0; i < kernels.length; i++ ) {
-			double[] centerA = kernels[i].getCenter();
-			for ( int j = i + 1; j < kernels.length; j++ ) {
-				double dist = distance( centerA, kernels[j].getCenter() );
-				if ( dist < minDistance ) {
-					minDistance = dist;
-					closestA = i;
-					closestB = j;
+		if ( index != null ) {
+			int[] pair = new int[2];
+			index.closestPair( pair );
+			closestA = pair[0];
+			closestB = pair[1];
+		} else {
+			minDistance = Double.MAX_VALUE;
+			for ( int i = 0; i < kernels.length; i++ ) {
+				double[] centerA = kernels[i].getCenter();
+				for ( int j = i + 1; j < kernels.length; j++ ) {
+					double dist = distance( centerA, kernels[j].getCenter() );
+					if ( dist < minDistance ) {
+						minDistance = dist;
+						closestA = i;
+						closestB = j;
+					}
 				}
 			}
 		}
@@ -174,6 +211,10 @@ public class WithKmeans extends AbstractClusterer {
 
 		kernels[closestA].add( kernels[closestB] );
 		kernels[closestB] = new ClustreamKernel( instance, dim, timestamp, t,  m );
+		if ( index != null ) {
+			index.update( closestA, kernels[closestA] );
+			index.update( closestB, kernels[closestB] );
+		}
 	}
 	
 	@Override
@@ -0,0 +1,422 @@
+/*
+ *    DstreamCompact.java
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package moa.clusterers.dstream;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+
+import com.github.javacliparser.FloatOption;
+import com.yahoo.labs.samoa.instances.Instance;
+
+import moa.cluster.CFCluster;
+import moa.cluster.Clustering;
+import moa.clusterers.AbstractClusterer;
+import moa.core.Measurement;
+import moa.core.StringUtils;
+
+/**
+ * D-Stream over a compact grid store, for streams that keep millions of
+ * density grids active.
+ *
+ * The grids and their characteristic vectors live in a {@link GridStore}, so
+ * a grid costs a few dozen bytes in primitive arrays instead of a DensityGrid,
+ * a CharacteristicVector and a map entry, and a record allocates nothing. The
+ * online component, the density thresholds, the gap and the detection of
+ * sporadic grids are those of {@link Dstream}. At every gap, instead of
+ * adjusting the clusters grid by grid, the clusters are recomputed by a sweep
+ * over the grids from their definitions in section 3 of Chen and Tu 2007:
+ * dense grids that are neighbours belong to the same cluster, and a
+ * transitional grid joins the largest cluster among its dense neighbours of
+ * which it would be an outside grid. The result does not depend on the order
+ * in which the grids are visited.
+ *
+ * Citation: Y. Chen and L. Tu, “Density-Based Clustering for Real-Time Stream Data,” in
+ * Proceedings of the 13th ACM SIGKDD international conference on Knowledge discovery and
+ * data mining, 2007, pp. 133–142.
+ */
+public class DstreamCompact extends AbstractClusterer {
+
+	private static final long serialVersionUID = 1L;
+
+	public FloatOption decayFactorOption = new FloatOption("decayFactor",
+			'd', "The decay factor, lambda, in (0,1)", 0.998, 0.001, 0.999);
+
+	public FloatOption cmOption = new FloatOption("Cm", 'm', "Controls the "
+			+ "threshold for dense grids, > 1", 3.0, 1.001, Double.MAX_VALUE);
+
+	public FloatOption clOption = new FloatOption("Cl", 'l', "Controls the "
+			+ "threshold for sparse grids, in (0,1)", 0.8, 0.001, 0.999);
+
+	public FloatOption betaOption = new FloatOption("Beta", 'b', "Adjusts the "
+			+ "window of protection for renaming previously deleted grids as "
+			+ "sporadic, > 0", 0.3, 0.001, Double.MAX_VALUE);
+
+	private int currTime;
+
+	private int gap;
+
+	private double decayFactor;
+
+	private double cm;
+
+	private double cl;
+
+	private double beta;
+
+	private double dm;
+
+	private double dl;
+
+	private int d;
+
+	/**
+	 * The number of density grids, kept as a double so that it does not
+	 * overflow with many dimensions
+	 */
+	private double N;
+
+	private GridStore store;
+
+	private int[] minVals;
+
+	private int[] maxVals;
+
+	// Coordinates of the current record
+	private int[] coordinates;
+
+	private int numClusters;
+
+	// Number of dense grids of each cluster, from the last sweep
+	private int[] clusterSize;
+
+	// Union-find forest over the slots, reused by the sweeps
+	private int[] parent;
+
+	// Neighbour labels of a transitional grid
+	private int[] neighbourLabels;
+
+	// Clusters built from the labels of the last sweep, on demand
+	private Clustering clustering;
+
+	@Override
+	public boolean isRandomizable() {
+		return false;
+	}
+
+	@Override
+	public double[] getVotesForInstance(Instance inst) {
+		return null;
+	}
+
+	@Override
+	public Clustering getClusteringResult() {
+		if (this.clustering == null) {
+			this.clustering = buildClustering();
+		}
+		return this.clustering;
+	}
+
+	@Override
+	public void resetLearningImpl() {
+		this.currTime = 0;
+		this.decayFactor = this.decayFactorOption.getValue();
+		this.cm = this.cmOption.getValue();
+		this.cl = this.clOption.getValue();
+		this.beta = this.betaOption.getValue();
+		this.gap = 1;
+		this.dm = -1.0;
+		this.dl = -1.0;
+		this.d = -1;
+		this.N = -1;
+		this.store = null;
+		this.minVals = null;
+		this.maxVals = null;
+		this.coordinates = null;
+		this.numClusters = 0;
+		this.clusterSize = new int[16];
+		this.parent = new int[0];
+		this.neighbourLabels = null;
+		this.clustering = null;
+	}
+
+	@Override
+	public void trainOnInstanceImpl(Instance inst) {
+		boolean recalculateN = false;
+		if (this.store == null) {
+			this.d = inst.numAttributes();
+			this.store = new GridStore(this.d);
+			this.minVals = new int[this.d];
+			this.maxVals = new int[this.d];
+			this.coordinates = new int[this.d];
+			this.neighbourLabels = new int[2 * this.d];
+			for (int i = 0; i < this.d; i++) {
+				if (inst.attribute(i).isNumeric()) {
+					this.maxVals[i] = (int) inst.value(i);
+					this.minVals[i] = (int) inst.value(i);
+				}
+			}
+			recalculateN = true;
+		}
+
+		// the density grid that contains the record
+		for (int i = 0; i < this.d; i++) {
+			int g = (int) inst.value(i);
+			this.coordinates[i] = g;
+			if (inst.attribute(i).isNumeric()) {
+				if (g > this.maxVals[i]) {
+					this.maxVals[i] = g;
+					recalculateN = true;
+				} else if (g < this.minVals[i]) {
+					this.minVals[i] = g;
+					recalculateN = true;
+				}
+			}
+		}
+
+		if (recalculateN) {
+			double n = 1;
+			for (int i = 0; i < this.d; i++) {
+				if (inst.attribute(i).isNominal()) {
+					n *= inst.attribute(i).numValues();
+				} else {
+					n *= 3 + this.maxVals[i] - this.minVals[i];
+				}
+			}
+			this.N = n;
+			this.dl = this.cl / (this.N * (1.0 - this.decayFactor));
+			this.dm = this.cm / (this.N * (1.0 - this.decayFactor));
+			// eq 26 of Chen and Tu 2007, at least 1
+			double optionA = this.cl / this.cm;
+			double optionB = (this.N - this.cm) / (this.N - this.cl);
+			this.gap = (int) Math.floor(Math.log(Math.max(optionA, optionB)) / Math.log(this.decayFactor));
+			if (this.gap == 0) {
+				this.gap = 1;
+			}
+		}
+
+		int slot = this.store.slot(this.coordinates);
+		if (slot < 0) {
+			this.store.add(this.coordinates, this.currTime, this.dl, this.dm);
+		} else {
+			this.store.addRecord(slot, this.currTime, this.decayFactor);
+		}
+
+		if (this.currTime != 0 && this.currTime % this.gap == 0) {
+			if (this.currTime != this.gap) {
+				this.store.removeSporadic(this.currTime, this.gap, this.decayFactor, this.cl, this.N, this.beta);
+			}
+			// the labels only depend on the attributes of the grids
+			if (this.store.updateDensities(this.currTime, this.decayFactor, this.dl, this.dm)) {
+				cluster();
+			}
+		}
+		this.currTime++;
+	}
+
+	/**
+	 * Labels every grid with its cluster: connected components of the dense
+	 * grids, then the transitional grids next to them, then NO_CLASS.
+	 */
+	private void cluster() {
+		int size = this.store.size();
+		if (this.parent.length < size) {
+			this.parent = new int[Math.max(size, 2 * this.parent.length)];
+		}
+		for (int s = 0; s < size; s++) {
+			this.parent[s] = s;
+		}
+		for (int s = 0; s < size; s++) {
+			if (this.store.getAttribute(s) != GridStore.DENSE) {
+				continue;
+			}
+			for (int i = 0; i < this.d; i++) {
+				int h = this.store.neighbour(s, i, true);
+				if (h >= 0 && this.store.getAttribute(h) == GridStore.DENSE) {
+					union(s, h);
+				}
+			}
+		}
+
+		// clusters are numbered in slot order of their first dense grid
+		this.numClusters = 0;
+		for (int s = 0; s < size; s++) {
+			if (this.store.getAttribute(s) != GridStore.DENSE) {
+				this.store.setLabel(s, GridStore.NO_CLASS);
+				continue;
+			}
+			int root = find(s);
+			int label;
+			if (root == s) {
+				label = newCluster();
+			} else {
+				label = this.store.getLabel(root);
+			}
+			this.store.setLabel(s, label);
+			this.clusterSize[label]++;
+		}
+
+		for (int s = 0; s < size; s++) {
+			if (this.store.getAttribute(s) == GridStore.TRANSITIONAL) {
+				this.store.setLabel(s, largestAdjacentCluster(s));
+			}
+		}
+		this.clustering = null;
+	}
+
+	// the root of a component comes first in slot order, so it is labelled first
+	private int newCluster() {
+		if (this.numClusters == this.clusterSize.length) {
+			this.clusterSize = Arrays.copyOf(this.clusterSize, 2 * this.numClusters);
+		}
+		this.clusterSize[this.numClusters] = 0;
+		return this.numClusters++;
+	}
+
+	/*
+	 * The largest cluster with a dense neighbour of the grid, among those in
+	 * which the grid would be an outside grid; ties go to the lowest label.
+	 */
+	private int largestAdjacentCluster(int slot) {
+		int count = 0;
+		for (int i = 0; i < this.d; i++) {
+			for (int up = 0; up < 2; up++) {
+				int h = this.store.neighbour(slot, i, up == 1);
+				if (h >= 0 && this.store.getAttribute(h) == GridStore.DENSE) {
+					this.neighbourLabels[count++] = this.store.getLabel(h);
+				}
+			}
+		}
+		int best = GridStore.NO_CLASS;
+		for (int j = 0; j < count; j++) {
+			int label = this.neighbourLabels[j];
+			int occurrences = 0;
+			for (int k = 0; k < count; k++) {
+				if (this.neighbourLabels[k] == label) {
+					occurrences++;
+				}
+			}
+			if (occurrences == 2 * this.d) {
+				continue;
+			}
+			if (best == GridStore.NO_CLASS || this.clusterSize[label] > this.clusterSize[best]
+					|| (this.clusterSize[label] == this.clusterSize[best] && label < best)) {
+				best = label;
+			}
+		}
+		return best;
+	}
+
+	// Links the roots so that the lower slot is the root
+	private void union(int a, int b) {
+		int rootA = find(a);
+		int rootB = find(b);
+		if (rootA < rootB) {
+			this.parent[rootB] = rootA;
+		} else if (rootB < rootA) {
+			this.parent[rootA] = rootB;
+		}
+	}
+
+	private int find(int s) {
+		int root = s;
+		while (this.parent[root] != root) {
+			root = this.parent[root];
+		}
+		// path compression
+		while (this.parent[s] != root) {
+			int next = this.parent[s];
+			this.parent[s] = root;
+			s = next;
+		}
+		return root;
+	}
+
+	private Clustering buildClustering() {
+		Clustering result = new Clustering();
+		if (this.store == null || this.numClusters == 0) {
+			return result;
+		}
+		ArrayList<HashMap<DensityGrid, Boolean>> grids = new ArrayList<HashMap<DensityGrid, Boolean>>(this.numClusters);
+		DensityGrid[] first = new DensityGrid[this.numClusters];
+		for (int label = 0; label < this.numClusters; label++) {
+			grids.add(new HashMap<DensityGrid, Boolean>());
+		}
+		int[] coords = new int[this.d];
+		for (int s = 0; s < this.store.size(); s++) {
+			int label = this.store.getLabel(s);
+			if (label == GridStore.NO_CLASS) {
+				continue;
+			}
+			for (int i = 0; i < this.d; i++) {
+				coords[i] = this.store.coordinate(s, i);
+			}
+			DensityGrid dg = new DensityGrid(coords);
+			if (first[label] == null) {
+				first[label] = dg;
+			}
+			grids.get(label).put(dg, isInside(s, label));
+		}
+		for (int label = 0; label < this.numClusters; label++) {
+			result.add(new GridCluster((CFCluster) first[label], new ArrayList<CFCluster>(), grids.get(label), label));
+		}
+		return result;
+	}
+
+	// Definition 3.5 of Chen and Tu 2007: all the neighbours are in the cluster
+	private boolean isInside(int slot, int label) {
+		for (int i = 0; i < this.d; i++) {
+			for (int up = 0; up < 2; up++) {
+				int h = this.store.neighbour(slot, i, up == 1);
+				if (h < 0 || this.store.getLabel(h) != label) {
+					return false;
+				}
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Returns the number of density grids being monitored.
+	 */
+	public int getNumGrids() {
+		return this.store == null ? 0 : this.store.size();
+	}
+
+	public int getGap() {
+		return this.gap;
+	}
+
+	@Override
+	protected Measurement[] getModelMeasurementsImpl() {
+		return new Measurement[] {
+				new Measurement("grids", getNumGrids()),
+				new Measurement("clusters", this.numClusters),
+				new Measurement("gap", this.gap)};
+	}
+
+	@Override
+	public void getModelDescription(StringBuilder out, int indent) {
+		StringUtils.appendIndented(out, indent, "D-Stream over " + getNumGrids() + " density grids");
+		if (this.store != null && this.store.isHashed()) {
+			out.append(", with hashed keys");
+		}
+		StringUtils.appendNewline(out);
+		StringUtils.appendIndented(out, indent, this.numClusters + " clusters, gap " + this.gap);
+		StringUtils.appendNewline(out);
+	}
+}
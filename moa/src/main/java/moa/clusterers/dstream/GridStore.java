@@ -0,0 +1,597 @@
+/*
+ *    GridStore.java
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package moa.clusterers.dstream;
+
+import java.io.Serializable;
+import java.util.Arrays;
+
+import moa.core.LongIntHashMap;
+
+/**
+ * The density grids of D-Stream and their characteristic vectors, stored in
+ * primitive arrays.
+ *
+ * A grid is identified by a long key packing its coordinates in mixed radix:
+ * each dimension covers a range of coordinates, and the key is the sum of the
+ * offsets in the ranges times the strides of the dimensions. The ranges keep
+ * one coordinate of margin around the grids seen, so the neighbours of a grid
+ * in dimension i are the keys at plus and minus the stride of i. When a
+ * coordinate falls out of its range, the ranges are widened and all the keys
+ * are packed again.
+ *
+ * When the ranges of many dimensions span more grids than a long counts, the
+ * store switches to hashed keys: the key of a grid is a hash of its
+ * coordinates, the coordinates are kept in a row per grid, and the grids with
+ * the same key are chained, so that a lookup compares the coordinates and a
+ * collision cannot merge two grids. The removal times of the deleted grids
+ * stay keyed by the hash alone, so a collision there could only give a grid
+ * the removal time of another one.
+ *
+ * The characteristic vectors are kept column by column, one slot per grid,
+ * and a primitive map gives the slot of a key. Slots are dense: grids are
+ * removed by a batch sweep that compacts the columns and rebuilds the map.
+ * The grids removed as sporadic are kept in a second map with their removal
+ * time, as long as that time still matters to rule S2 of Chen and Tu 2007.
+ */
+public class GridStore implements Serializable {
+
+	private static final long serialVersionUID = 1L;
+
+	public static final int NO_CLASS = -1;
+
+	public static final byte SPARSE = 0;
+
+	public static final byte TRANSITIONAL = 1;
+
+	public static final byte DENSE = 2;
+
+	private static final int INITIAL_CAPACITY = 1024;
+
+	// Number of powers of the decay factor kept in a table
+	private static final int POWERS = 4096;
+
+	private final int dimensions;
+
+	// Lowest coordinate, number of coordinates and key stride of each dimension
+	private final int[] lo;
+
+	private final long[] extent;
+
+	private long[] stride;
+
+	// Whether the keys are hashes of the coordinates instead of packed
+	private boolean hashed;
+
+	// Coordinates of each slot and next slot with the same key, when hashed
+	private int[] rows;
+
+	private int[] chain;
+
+	private final int[] scratch;
+
+	private int size;
+
+	private long[] keys;
+
+	private int[] updateTime;
+
+	private int[] removeTime;
+
+	private int[] densityTimeStamp;
+
+	private double[] density;
+
+	private int[] label;
+
+	private byte[] attribute;
+
+	private boolean[] sporadic;
+
+	// Slot of each key, the first of its chain when hashed
+	private LongIntHashMap slots;
+
+	// Removal times of the grids deleted as sporadic
+	private LongIntHashMap deleted;
+
+	// Whether grids were added or removed since the last density update
+	private boolean gridsChanged;
+
+	// Powers of the decay factor, the same values as Math.pow gives
+	private double powersOf = Double.NaN;
+
+	private double[] powers;
+
+	public GridStore(int dimensions) {
+		this(dimensions, false);
+	}
+
+	/**
+	 * Creates a store that hashes the keys from the start if hashed is true.
+	 */
+	GridStore(int dimensions, boolean hashed) {
+		this.dimensions = dimensions;
+		this.lo = new int[dimensions];
+		this.extent = new long[dimensions];
+		this.stride = new long[dimensions];
+		this.scratch = new int[dimensions];
+		this.keys = new long[INITIAL_CAPACITY];
+		this.updateTime = new int[INITIAL_CAPACITY];
+		this.removeTime = new int[INITIAL_CAPACITY];
+		this.densityTimeStamp = new int[INITIAL_CAPACITY];
+		this.density = new double[INITIAL_CAPACITY];
+		this.label = new int[INITIAL_CAPACITY];
+		this.attribute = new byte[INITIAL_CAPACITY];
+		this.sporadic = new boolean[INITIAL_CAPACITY];
+		this.slots = new LongIntHashMap(INITIAL_CAPACITY);
+		this.deleted = new LongIntHashMap();
+		if (hashed) {
+			this.hashed = true;
+			this.rows = new int[INITIAL_CAPACITY * dimensions];
+			this.chain = new int[INITIAL_CAPACITY];
+		}
+	}
+
+	public int size() {
+		return this.size;
+	}
+
+	public int getDimensions() {
+		return this.dimensions;
+	}
+
+	/**
+	 * Returns whether the keys are hashes of the coordinates.
+	 */
+	public boolean isHashed() {
+		return this.hashed;
+	}
+
+	/**
+	 * Returns the slot of the grid with the given coordinates, or -1 if the
+	 * grid is not stored.
+	 */
+	public int slot(int[] coordinates) {
+		if (this.hashed) {
+			return find(coordinates, hash(coordinates));
+		}
+		long key = 0;
+		for (int i = 0; i < this.dimensions; i++) {
+			long offset = (long) coordinates[i] - this.lo[i];
+			if (offset < 0 || offset >= this.extent[i]) {
+				return -1;
+			}
+			key += offset * this.stride[i];
+		}
+		return this.slots.get(key, -1);
+	}
+
+	/**
+	 * Returns the coordinate of the grid of a slot in a dimension.
+	 */
+	public int coordinate(int slot, int dimension) {
+		if (this.hashed) {
+			return this.rows[slot * this.dimensions + dimension];
+		}
+		return unpack(this.keys[slot], dimension);
+	}
+
+	/**
+	 * Returns the slot of the neighbour of a grid one coordinate up or down in
+	 * a dimension, or -1 if the neighbour is not stored.
+	 */
+	public int neighbour(int slot, int dimension, boolean up) {
+		if (this.hashed) {
+			System.arraycopy(this.rows, slot * this.dimensions, this.scratch, 0, this.dimensions);
+			int c = this.scratch[dimension];
+			if (up ? c == Integer.MAX_VALUE : c == Integer.MIN_VALUE) {
+				return -1;
+			}
+			this.scratch[dimension] = up ? c + 1 : c - 1;
+			return slot(this.scratch);
+		}
+		long key = this.keys[slot];
+		long offset = (key / this.stride[dimension]) % this.extent[dimension];
+		if (up ? offset + 1 >= this.extent[dimension] : offset == 0) {
+			return -1;
+		}
+		return this.slots.get(up ? key + this.stride[dimension] : key - this.stride[dimension], -1);
+	}
+
+	/**
+	 * Stores a new grid with the given coordinates and the characteristic
+	 * vector of a grid receiving its first record at time t, and returns its
+	 * slot. The grid must not be stored yet.
+	 */
+	public int add(int[] coordinates, int t, double dl, double dm) {
+		long key = key(coordinates);
+		if (this.size == this.keys.length) {
+			grow();
+		}
+		int slot = this.size++;
+		this.keys[slot] = key;
+		this.updateTime[slot] = t;
+		this.removeTime[slot] = this.deleted.remove(key, -1);
+		this.densityTimeStamp[slot] = t;
+		this.density[slot] = 1.0;
+		this.label[slot] = NO_CLASS;
+		this.sporadic[slot] = false;
+		this.attribute[slot] = attributeOf(1.0, dl, dm);
+		if (this.hashed) {
+			System.arraycopy(coordinates, 0, this.rows, slot * this.dimensions, this.dimensions);
+			this.chain[slot] = this.slots.get(key, -1);
+		}
+		this.slots.put(key, slot);
+		this.gridsChanged = true;
+		return slot;
+	}
+
+	/**
+	 * Adds a record to the grid of a slot at time t, decaying its density
+	 * since its last update as CharacteristicVector.densityWithNew does.
+	 */
+	public void addRecord(int slot, int t, double decayFactor) {
+		this.density[slot] = pow(decayFactor, t - this.updateTime[slot]) * this.density[slot] + 1.0;
+		this.densityTimeStamp[slot] = t;
+		this.updateTime[slot] = t;
+	}
+
+	/**
+	 * Decays the density of every grid to time t and classifies the grids as
+	 * sparse, transitional or dense.
+	 *
+	 * @return true if a grid changed attribute, or grids were added or
+	 * removed, since the last update
+	 */
+	public boolean updateDensities(int t, double decayFactor, double dl, double dm) {
+		boolean changed = this.gridsChanged;
+		for (int s = 0; s < this.size; s++) {
+			double d = pow(decayFactor, t - this.densityTimeStamp[s]) * this.density[s];
+			this.density[s] = d;
+			this.densityTimeStamp[s] = t;
+			byte att = attributeOf(d, dl, dm);
+			if (att != this.attribute[s]) {
+				this.attribute[s] = att;
+				changed = true;
+			}
+		}
+		this.gridsChanged = false;
+		return changed;
+	}
+
+	/**
+	 * Removes the sporadic grids not updated for gap time steps, marks the
+	 * sporadic grids with rules S1 and S2 of Chen and Tu 2007, and forgets
+	 * the removal times that no longer protect a grid.
+	 */
+	public void removeSporadic(int t, int gap, double decayFactor, double cl, double n, double beta) {
+		int kept = 0;
+		for (int s = 0; s < this.size; s++) {
+			if (this.sporadic[s] && t - this.updateTime[s] >= gap) {
+				this.deleted.put(this.keys[s], t);
+				continue;
+			}
+			if (kept != s) {
+				move(s, kept);
+			}
+			this.sporadic[kept] = isSporadic(kept, t, decayFactor, cl, n, beta);
+			kept++;
+		}
+		if (kept < this.size) {
+			this.size = kept;
+			this.gridsChanged = true;
+			indexSlots();
+		}
+		// once t >= (1 + beta) tm, rule S2 holds as if the grid was never removed
+		int expired = 0;
+		for (int pos = 0; pos < this.deleted.capacity(); pos++) {
+			if (this.deleted.isUsed(pos) && t >= (1 + beta) * this.deleted.valueAt(pos)) {
+				expired++;
+			}
+		}
+		if (expired > 0) {
+			LongIntHashMap stillProtected = new LongIntHashMap(this.deleted.size() - expired);
+			for (int pos = 0; pos < this.deleted.capacity(); pos++) {
+				if (this.deleted.isUsed(pos) && t < (1 + beta) * this.deleted.valueAt(pos)) {
+					stillProtected.put(this.deleted.keyAt(pos), this.deleted.valueAt(pos));
+				}
+			}
+			this.deleted = stillProtected;
+		}
+	}
+
+	private boolean isSporadic(int s, int t, double decayFactor, double cl, double n, double beta) {
+		double current = pow(decayFactor, t - this.updateTime[s]) * this.density[s];
+		double threshold = (cl * (1.0 - pow(decayFactor, t - this.densityTimeStamp[s] + 1)))
+				/ (n * (1.0 - decayFactor));
+		return current < threshold && (this.removeTime[s] == -1 || t >= (1 + beta) * this.removeTime[s]);
+	}
+
+	public double getDensity(int slot) {
+		return this.density[slot];
+	}
+
+	public int getUpdateTime(int slot) {
+		return this.updateTime[slot];
+	}
+
+	public int getRemoveTime(int slot) {
+		return this.removeTime[slot];
+	}
+
+	public byte getAttribute(int slot) {
+		return this.attribute[slot];
+	}
+
+	public boolean isSporadic(int slot) {
+		return this.sporadic[slot];
+	}
+
+	public int getLabel(int slot) {
+		return this.label[slot];
+	}
+
+	public void setLabel(int slot, int label) {
+		this.label[slot] = label;
+	}
+
+	public int numDeleted() {
+		return this.deleted.size();
+	}
+
+	private double pow(double decayFactor, int exponent) {
+		if (exponent < 0 || exponent >= POWERS) {
+			return Math.pow(decayFactor, exponent);
+		}
+		if (decayFactor != this.powersOf) {
+			this.powers = new double[POWERS];
+			for (int k = 0; k < POWERS; k++) {
+				this.powers[k] = Math.pow(decayFactor, k);
+			}
+			this.powersOf = decayFactor;
+		}
+		return this.powers[exponent];
+	}
+
+	private static byte attributeOf(double density, double dl, double dm) {
+		if (density <= dl) {
+			return SPARSE;
+		}
+		return density >= dm ? DENSE : TRANSITIONAL;
+	}
+
+	private void move(int from, int to) {
+		this.keys[to] = this.keys[from];
+		this.updateTime[to] = this.updateTime[from];
+		this.removeTime[to] = this.removeTime[from];
+		this.densityTimeStamp[to] = this.densityTimeStamp[from];
+		this.density[to] = this.density[from];
+		this.label[to] = this.label[from];
+		this.attribute[to] = this.attribute[from];
+		this.sporadic[to] = this.sporadic[from];
+		if (this.hashed) {
+			System.arraycopy(this.rows, from * this.dimensions, this.rows, to * this.dimensions, this.dimensions);
+		}
+	}
+
+	private void grow() {
+		int capacity = 2 * this.keys.length;
+		this.keys = Arrays.copyOf(this.keys, capacity);
+		this.updateTime = Arrays.copyOf(this.updateTime, capacity);
+		this.removeTime = Arrays.copyOf(this.removeTime, capacity);
+		this.densityTimeStamp = Arrays.copyOf(this.densityTimeStamp, capacity);
+		this.density = Arrays.copyOf(this.density, capacity);
+		this.label = Arrays.copyOf(this.label, capacity);
+		this.attribute = Arrays.copyOf(this.attribute, capacity);
+		this.sporadic = Arrays.copyOf(this.sporadic, capacity);
+		if (this.hashed) {
+			this.rows = Arrays.copyOf(this.rows, capacity * this.dimensions);
+			this.chain = Arrays.copyOf(this.chain, capacity);
+		}
+	}
+
+	// Maps the keys to their slots again, chaining the slots of equal keys
+	private void indexSlots() {
+		this.slots.clear();
+		for (int s = 0; s < this.size; s++) {
+			if (this.hashed) {
+				this.chain[s] = this.slots.get(this.keys[s], -1);
+			}
+			this.slots.put(this.keys[s], s);
+		}
+	}
+
+	// The slot in the chain of a hashed key whose row holds the coordinates
+	private int find(int[] coordinates, long key) {
+		int s = this.slots.get(key, -1);
+		while (s >= 0) {
+			int row = s * this.dimensions;
+			int i = 0;
+			while (i < this.dimensions && this.rows[row + i] == coordinates[i]) {
+				i++;
+			}
+			if (i == this.dimensions) {
+				return s;
+			}
+			s = this.chain[s];
+		}
+		return -1;
+	}
+
+	/**
+	 * Returns the hashed key of the given coordinates. Different coordinates
+	 * can have the same key.
+	 */
+	protected long hash(int[] coordinates) {
+		long h = 0;
+		for (int i = 0; i < this.dimensions; i++) {
+			h = (h + coordinates[i]) * 0x9E3779B97F4A7C15L;
+			h ^= h >>> 29;
+		}
+		h ^= h >>> 32;
+		h *= 0xBF58476D1CE4E5B9L;
+		return h ^ (h >>> 31);
+	}
+
+	/*
+	 * The key of a grid to add: its hash, or its packed coordinates after
+	 * placing or widening the ranges as needed.
+	 */
+	private long key(int[] coordinates) {
+		if (!this.hashed) {
+			if (this.size == 0 && this.deleted.isEmpty()) {
+				// the first grid places the ranges
+				long[] firstExtent = new long[this.dimensions];
+				Arrays.fill(firstExtent, 3);
+				long[] firstStride = computeStrides(firstExtent);
+				if (firstStride == null) {
+					switchToHashed();
+				} else {
+					for (int i = 0; i < this.dimensions; i++) {
+						this.lo[i] = coordinates[i] - 1;
+					}
+					System.arraycopy(firstExtent, 0, this.extent, 0, this.dimensions);
+					this.stride = firstStride;
+				}
+			} else {
+				for (int i = 0; i < this.dimensions; i++) {
+					long offset = (long) coordinates[i] - this.lo[i];
+					if (offset < 1 || offset >= this.extent[i] - 1) {
+						widen(coordinates);
+						break;
+					}
+				}
+			}
+		}
+		if (this.hashed) {
+			return hash(coordinates);
+		}
+		long key = 0;
+		for (int i = 0; i < this.dimensions; i++) {
+			key += ((long) coordinates[i] - this.lo[i]) * this.stride[i];
+		}
+		return key;
+	}
+
+	private int unpack(long key, int dimension) {
+		return (int) (this.lo[dimension] + (key / this.stride[dimension]) % this.extent[dimension]);
+	}
+
+	// The strides of the given extents, or null if the keys would overflow
+	private long[] computeStrides(long[] extents) {
+		long[] strides = new long[this.dimensions];
+		long s = 1;
+		for (int i = 0; i < this.dimensions; i++) {
+			strides[i] = s;
+			if (s > Long.MAX_VALUE / extents[i]) {
+				return null;
+			}
+			s *= extents[i];
+		}
+		return strides;
+	}
+
+	/*
+	 * Widens the ranges to hold the coordinates and their neighbours, with as
+	 * much slack again as the new range so that growth is amortized, and
+	 * packs all the keys again. Without room for the slack in a long key the
+	 * ranges are widened just enough, and without room for that the keys are
+	 * hashed.
+	 */
+	private void widen(int[] coordinates) {
+		long[] newExtent = new long[this.dimensions];
+		int[] newLo = new int[this.dimensions];
+		long[] newStride = null;
+		for (int withSlack = 1; withSlack >= 0 && newStride == null; withSlack--) {
+			for (int i = 0; i < this.dimensions; i++) {
+				long min = Math.min((long) coordinates[i] - 1, this.lo[i]);
+				long max = Math.max((long) coordinates[i] + 1, this.lo[i] + this.extent[i] - 1);
+				if (min == this.lo[i] && max == this.lo[i] + this.extent[i] - 1) {
+					newLo[i] = this.lo[i];
+					newExtent[i] = this.extent[i];
+					continue;
+				}
+				long slack = withSlack * (max - min + 1) / 2;
+				if (min < this.lo[i]) {
+					min = Math.max(min - slack, (long) Integer.MIN_VALUE);
+				}
+				if (max > this.lo[i] + this.extent[i] - 1) {
+					max = Math.min(max + slack, (long) Integer.MAX_VALUE);
+				}
+				newLo[i] = (int) min;
+				newExtent[i] = max - min + 1;
+			}
+			newStride = computeStrides(newExtent);
+		}
+		if (newStride == null) {
+			switchToHashed();
+			return;
+		}
+		int[] oldLo = this.lo.clone();
+		long[] oldExtent = this.extent.clone();
+		long[] oldStride = this.stride;
+		System.arraycopy(newLo, 0, this.lo, 0, this.dimensions);
+		System.arraycopy(newExtent, 0, this.extent, 0, this.dimensions);
+		this.stride = newStride;
+		for (int s = 0; s < this.size; s++) {
+			this.keys[s] = repack(this.keys[s], oldLo, oldExtent, oldStride);
+		}
+		indexSlots();
+		LongIntHashMap repacked = new LongIntHashMap(this.deleted.size());
+		for (int pos = 0; pos < this.deleted.capacity(); pos++) {
+			if (this.deleted.isUsed(pos)) {
+				repacked.put(repack(this.deleted.keyAt(pos), oldLo, oldExtent, oldStride), this.deleted.valueAt(pos));
+			}
+		}
+		this.deleted = repacked;
+	}
+
+	private long repack(long key, int[] oldLo, long[] oldExtent, long[] oldStride) {
+		long repacked = 0;
+		for (int i = 0; i < this.dimensions; i++) {
+			long coordinate = oldLo[i] + (key / oldStride[i]) % oldExtent[i];
+			repacked += (coordinate - this.lo[i]) * this.stride[i];
+		}
+		return repacked;
+	}
+
+	// Unpacks the coordinates of the grids into rows and hashes all the keys
+	private void switchToHashed() {
+		this.rows = new int[this.keys.length * this.dimensions];
+		this.chain = new int[this.keys.length];
+		for (int s = 0; s < this.size; s++) {
+			for (int i = 0; i < this.dimensions; i++) {
+				this.rows[s * this.dimensions + i] = unpack(this.keys[s], i);
+			}
+		}
+		LongIntHashMap rehashed = new LongIntHashMap(this.deleted.size());
+		for (int pos = 0; pos < this.deleted.capacity(); pos++) {
+			if (this.deleted.isUsed(pos)) {
+				for (int i = 0; i < this.dimensions; i++) {
+					this.scratch[i] = unpack(this.deleted.keyAt(pos), i);
+				}
+				rehashed.put(hash(this.scratch), this.deleted.valueAt(pos));
+			}
+		}
+		this.deleted = rehashed;
+		this.hashed = true;
+		for (int s = 0; s < this.size; s++) {
+			System.arraycopy(this.rows, s * this.dimensions, this.scratch, 0, this.dimensions);
+			this.keys[s] = hash(this.scratch);
+		}
+		indexSlots();
+	}
+}
@@ -20,6 +20,7 @@
 
 package moa.clusterers.outliers.AbstractC;
 
+import java.util.ArrayList;
 import java.util.Vector;
 import moa.clusterers.outliers.AbstractC.ISBIndex.ISBNode;
 import moa.clusterers.outliers.AbstractC.ISBIndex.ISBSearchResult;
@@ -146,7 +147,7 @@ public class AbstractC extends AbstractCBase {
         // perform range query search
         if (bTrace) Println("Perform range query seach");
         nRangeQueriesExecuted++;
-        Vector<ISBIndex.ISBSearchResult> neighbors = ISB.RangeSearch(nodeNew, m_radius);
+        ArrayList<ISBSearchResult> neighbors = ISB.RangeSearch(nodeNew, m_radius);
 
         // process each returned node
         for (ISBSearchResult res : neighbors) {
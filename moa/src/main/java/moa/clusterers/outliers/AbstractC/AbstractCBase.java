@@ -141,7 +141,7 @@ public abstract class AbstractCBase extends MyBaseOutlierDetector {
     
     void RemoveNode(ISBNode node) {
         windowNodes.remove(node);
-        ISB.Remove(node);
+        ISB.RemoveExpired(GetWindowStart());
         RemoveExpiredOutlier(new Outlier(node.inst, node.id, node)); // ### remove when expired?
         // update statistics
         if ((node.nInlier > 0) && (node.nOutlier > 0))
@@ -228,7 +228,7 @@ public class ApproxSTORM extends STORMBase {
         // perform range query search
         if (bTrace) Println("Perform range query seach:");
         nRangeQueriesExecuted++;
-        Vector<ISBIndex.ISBSearchResult> nodes = ISB.RangeSearch(nodeNew, m_radius);
+        ArrayList<ISBSearchResult> nodes = ISB.RangeSearch(nodeNew, m_radius);
 
         // process each returned node
         int nSafeInliers;
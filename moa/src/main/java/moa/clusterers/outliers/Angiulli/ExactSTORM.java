@@ -163,8 +163,8 @@ public class ExactSTORM extends STORMBase {
     }
     
     void RemoveNode(ISBNode node) {
-        // remove node from ISB
-        ISB.Remove(node);   
+        // remove expired nodes from ISB
+        ISB.RemoveExpired(GetWindowStart());   
         // remove from fifo
         windowNodes.remove(node);
         // remove from outliers
@@ -219,7 +219,7 @@ public class ExactSTORM extends STORMBase {
         // perform range query search
         if (bTrace) Println("Perform range query seach:");
         nRangeQueriesExecuted++;
-        Vector<ISBIndex.ISBSearchResult> nodes = ISB.RangeSearch(nodeNew, m_radius);
+        ArrayList<ISBSearchResult> nodes = ISB.RangeSearch(nodeNew, m_radius);
 
         // process each returned node
         for (ISBSearchResult res : nodes) {
@@ -26,6 +26,7 @@ import java.util.Vector;
 import moa.clusterers.outliers.MCOD.ISBIndex.ISBNode;
 import moa.clusterers.outliers.MCOD.ISBIndex.ISBNode.NodeType;
 import moa.clusterers.outliers.MCOD.ISBIndex.ISBSearchResult;
+import moa.clusterers.outliers.utils.mtree.StreamMTree;
 import com.github.javacliparser.FloatOption;
 import com.github.javacliparser.IntOption;
 import com.yahoo.labs.samoa.instances.Instance;
@@ -70,7 +71,7 @@ public class MCOD extends MCODBase {
         // create helper sets for micro-cluster management
         setMC = new TreeSet<MicroCluster>();
         // micro-cluster index
-        mtreeMC = new MTreeMicroClusters();
+        mtreeMC = new StreamMTree<MicroCluster>();
         // create event queue
         eventQueue = new EventQueue();
         
@@ -124,7 +125,7 @@ public class MCOD extends MCODBase {
         if (bTrace) { Print("ProcessNewNode: "); PrintNode(nodeNew); }
         
         if (bTrace) Println("Perform 3R/2 range query to cluster centers w.r.t new node"); 
-        Vector<SearchResultMC> resultsMC;
+        ArrayList<SearchResultMC> resultsMC;
         // results are sorted ascenting by distance
         resultsMC = RangeSearchMC(nodeNew, 1.5 * m_radius); 
         if (bTrace) {
@@ -160,19 +161,20 @@ public class MCOD extends MCODBase {
             if (bTrace) { Print("mcClosest.nodes: "); PrintNodeList(mcClosest.nodes); } 
             
             if (bTrace) Println("Update neighbors of set PD"); 
-            Vector<ISBNode> nodes;
-            nodes = ISB_PD.GetAllNodes();
-            for (ISBNode q : nodes) {
+            // only nodes of PD within range R can be neighbors of nodeNew
+            nRangeQueriesExecuted++;
+            ArrayList<ISBSearchResult> resultNodes;
+            resultNodes = ISB_PD.RangeSearch(nodeNew, m_radius);
+            for (ISBSearchResult sr : resultNodes) {
+                ISBNode q = sr.node;
                 if (q.Rmc.contains(mcClosest)) {
-                    if (GetEuclideanDist(q, nodeNew) <= m_radius) {
-                        if (bNewNode) {
-                            // update q.count_after and its' outlierness
+                    if (bNewNode) {
+                        // update q.count_after and its' outlierness
+                        AddNeighbor(q, nodeNew, true);
+                    } else {
+                        if (nodesReinsert.contains(q)) {
+                            // update q.count_after or q.nn_before and its' outlierness
                             AddNeighbor(q, nodeNew, true);
-                        } else {
-                            if (nodesReinsert.contains(q)) {
-                                // update q.count_after or q.nn_before and its' outlierness
-                                AddNeighbor(q, nodeNew, true);
-                            }
                         }
                     }
                 }
@@ -187,7 +189,7 @@ public class MCOD extends MCODBase {
             // create helper sets for micro-cluster management
             ArrayList<ISBNode> setNC = new ArrayList<ISBNode>();
             ArrayList<ISBNode> setNNC = new ArrayList<ISBNode>();
-            Vector<ISBSearchResult> resultNodes;
+            ArrayList<ISBSearchResult> resultNodes;
             resultNodes = ISB_PD.RangeSearch(nodeNew, 1.5 * m_radius); // 1.5 ###
             for (ISBSearchResult sr : resultNodes) {
                 ISBNode q = sr.node;
@@ -28,6 +28,7 @@ import java.util.Vector;
 import moa.clusterers.outliers.MCOD.ISBIndex.ISBNode;
 import moa.clusterers.outliers.MCOD.ISBIndex.ISBNode.NodeType;
 import moa.clusterers.outliers.MyBaseOutlierDetector;
+import moa.clusterers.outliers.utils.mtree.StreamMTree;
 
 public abstract class MCODBase extends MyBaseOutlierDetector {    
     protected static class EventItem implements Comparable<EventItem> {
@@ -92,7 +93,7 @@ public abstract class MCODBase extends MyBaseOutlierDetector {
     protected Vector<ISBNode> windowNodes; 
     protected EventQueue eventQueue;
     // MTree index of micro-clusters
-    protected MTreeMicroClusters mtreeMC;
+    protected StreamMTree<MicroCluster> mtreeMC;
     // set of micro-clusters (for trace)
     protected TreeSet<MicroCluster> setMC;
     // nodes treated as new nodes when a mc removed
@@ -262,12 +263,12 @@ public abstract class MCODBase extends MyBaseOutlierDetector {
     }
     
     void AddMicroCluster(MicroCluster mc) {
-        mtreeMC.add(mc);
+        mtreeMC.add(mc.mcc.id, mc, mc);
         setMC.add(mc);
     }
     
     void RemoveMicroCluster(MicroCluster mc) {
-        mtreeMC.remove(mc);
+        mtreeMC.remove(mc.mcc.id);
         setMC.remove(mc);
     }
     
@@ -281,15 +282,14 @@ public abstract class MCODBase extends MyBaseOutlierDetector {
         }
     }
     
-    Vector<SearchResultMC> RangeSearchMC(ISBNode nodeNew, double radius) {
-        Vector<SearchResultMC> results = new Vector<SearchResultMC>();
-        // create a dummy mc in order to search w.r.t. nodeNew
-        MicroCluster dummy = new MicroCluster(nodeNew);
+    ArrayList<SearchResultMC> RangeSearchMC(ISBNode nodeNew, double radius) {
+        int n = mtreeMC.rangeSearch(nodeNew.obj, radius);
         // query results are returned ascenting by distance
-        MTreeMicroClusters.Query query = mtreeMC.getNearestByRange(dummy, radius);
-        for (MTreeMicroClusters.ResultItem q : query) {            
-            results.add(new SearchResultMC(q.data, q.distance));
-        }        
+        mtreeMC.sortResults();
+        ArrayList<SearchResultMC> results = new ArrayList<SearchResultMC>(n);
+        for (int i = 0; i < n; i++) {
+            results.add(new SearchResultMC(mtreeMC.resultItem(i), mtreeMC.resultDistance(i)));
+        }
         return results;
     }
     
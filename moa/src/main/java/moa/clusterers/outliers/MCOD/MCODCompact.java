@@ -0,0 +1,612 @@
+/*
+ *    MCODCompact.java
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ *
+ *
+ */
+
+package moa.clusterers.outliers.MCOD;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import moa.clusterers.outliers.MyBaseOutlierDetector;
+import moa.core.LongIntHashMap;
+import com.github.javacliparser.FloatOption;
+import com.github.javacliparser.IntOption;
+import com.yahoo.labs.samoa.instances.Instance;
+
+/**
+ * Variant of MCOD that keeps the window in primitive arrays and finds the
+ * neighbours of a new object in a grid of cells of side r instead of the
+ * micro-cluster and object M-trees.
+ *
+ * An object is an outlier when fewer than k objects of the window, itself
+ * included, lie within distance r of it, which is what MCOD reports. Each
+ * object keeps the number of later neighbours, which only grows, and the k-1
+ * most recent earlier neighbours, which expire in order. An inlier that still
+ * depends on earlier neighbours is checked again when the one that would
+ * leave it with fewer than k neighbours expires; these events are kept in one
+ * bucket per time slot of the window.
+ *
+ * Once an object has k later neighbours it is an inlier until it expires, so
+ * each cell keeps the objects with fewer in a separate list, and a new object
+ * only updates the counters of those. Its own earlier neighbours are read
+ * from the newest objects of the cells back, until k-1 are found. The grid
+ * covers at most the first four attributes, so a search reads at most 81
+ * cells; the distances are computed over all attributes, so the search stays
+ * exact.
+ */
+public class MCODCompact extends MyBaseOutlierDetector {
+    private static final long serialVersionUID = 1L;
+
+    public FloatOption radiusOption = new FloatOption("radius", 'r', "Search radius.", 0.1);
+    public IntOption kOption = new IntOption("k", 't', "Parameter k.", 50);
+
+    private static final int MAX_GRID_DIMENSIONS = 4;
+
+    private static final long FIRST_OBJ_ID = 1L;
+
+    // status bits kept for the statistics
+    private static final byte WAS_INLIER = 1;
+    private static final byte WAS_OUTLIER = 2;
+
+    protected int m_WindowSize;
+    protected double m_radius;
+    protected int m_k;
+
+    // object identifier increments with each new data stream object
+    protected long objId;
+
+    private int dimensions;
+    private int gridDimensions;
+    // bits of a cell coordinate in a cell key
+    private int coordinateBits;
+
+    // Window objects, the object with identifier id at slot id % window size
+    private long[] ids;
+    private Instance[] insts;
+    private double[] values;
+    private int[] countAfter;
+    // id - id of neighbour for the most recent earlier neighbours, ascending
+    private int[] precDeltas;
+    private int[] precCount;
+    private boolean[] outlier;
+    private byte[] history;
+    private int[] cellOf;
+    // previous object of the same cell, objects of a cell linked newest first
+    private int[] cellPrev;
+    // next object in the unsafe list of its cell
+    private int[] unsafeNext;
+    // next object in the same event bucket
+    private int[] eventNext;
+    // objects to check at each time, by time % window size
+    private int[] eventHead;
+
+    // Grid cells, by key
+    private LongIntHashMap cellIndex;
+    private long[] cellKeys;
+    private int[] cellTail;
+    private int[] cellSize;
+    // objects with fewer than k later neighbours, oldest first
+    private int[] unsafeHead;
+    private int[] unsafeTail;
+    private int[] freeCells;
+    private int numFreeCells;
+    private int numCells;
+
+    private long[] cellCoordinates;
+    private long[] neighbourCoordinates;
+    private int[] nearCells;
+    private int[] cursors;
+
+    // statistics
+    public int m_nBothInlierOutlier;
+    public int m_nOnlyInlier;
+    public int m_nOnlyOutlier;
+
+    @Override
+    public void Init() {
+        super.Init();
+
+        m_WindowSize = windowSizeOption.getValue();
+        m_radius = radiusOption.getValue();
+        m_k = kOption.getValue();
+
+        Println("Init MCODCompact:");
+        Println("   window_size: " + m_WindowSize);
+        Println("   radius: " + m_radius);
+        Println("   k: " + m_k);
+
+        objId = FIRST_OBJ_ID;
+        // the arrays need the number of attributes of the first object
+        ids = null;
+
+        m_nBothInlierOutlier = 0;
+        m_nOnlyInlier = 0;
+        m_nOnlyOutlier = 0;
+    }
+
+    private void allocate(int dimensions) {
+        int w = m_WindowSize;
+        int precCapacity = Math.max(0, m_k - 1);
+        this.dimensions = dimensions;
+        gridDimensions = Math.min(dimensions, MAX_GRID_DIMENSIONS);
+        coordinateBits = gridDimensions > 0 ? Math.min(32, 64 / gridDimensions) : 0;
+
+        ids = new long[w];
+        insts = new Instance[w];
+        values = new double[w * dimensions];
+        countAfter = new int[w];
+        precDeltas = new int[w * precCapacity];
+        precCount = new int[w];
+        outlier = new boolean[w];
+        history = new byte[w];
+        cellOf = new int[w];
+        cellPrev = new int[w];
+        unsafeNext = new int[w];
+        eventNext = new int[w];
+        eventHead = new int[w];
+        Arrays.fill(eventHead, -1);
+
+        cellIndex = new LongIntHashMap();
+        cellKeys = new long[16];
+        cellTail = new int[16];
+        cellSize = new int[16];
+        unsafeHead = new int[16];
+        unsafeTail = new int[16];
+        freeCells = new int[16];
+        numFreeCells = 0;
+        numCells = 0;
+
+        cellCoordinates = new long[gridDimensions];
+        neighbourCoordinates = new long[gridDimensions];
+        int numNearCells = 1;
+        for (int j = 0; j < gridDimensions; j++) {
+            numNearCells *= 3;
+        }
+        nearCells = new int[numNearCells];
+        cursors = new int[numNearCells];
+    }
+
+    long GetWindowEnd() {
+        return objId - 1;
+    }
+
+    long GetWindowStart() {
+        long x = GetWindowEnd() - m_WindowSize + 1;
+        if (x < FIRST_OBJ_ID)
+            x = FIRST_OBJ_ID;
+        return x;
+    }
+
+    private int slot(long id) {
+        return (int) (id % m_WindowSize);
+    }
+
+    @Override
+    protected boolean IsNodeIdInWin(long id) {
+        int toleranceStart = 1;
+        long start = GetWindowStart() - toleranceStart;
+        return (start <= id) && (id <= GetWindowEnd());
+    }
+
+    @Override
+    protected void ProcessNewStreamObj(Instance inst) {
+        if (bShowProgress) ShowProgress("Processed " + (objId - 1) + " stream objects.");
+
+        double[] v = getInstanceValues(inst);
+        if (ids == null) {
+            allocate(v.length);
+        }
+
+        long id = objId;
+        objId++; // slide window
+
+        // the expired object holds the slot of the new one
+        if (id - m_WindowSize >= FIRST_OBJ_ID) {
+            expire(id - m_WindowSize);
+        }
+        processEvents(id);
+        insert(id, inst, v);
+    }
+
+    private void expire(long id) {
+        int s = slot(id);
+        int cell = cellOf[s];
+        if (countAfter[s] < m_k) {
+            // the oldest object of the window heads the unsafe list
+            unsafeHead[cell] = unsafeNext[s];
+            if (unsafeHead[cell] < 0) {
+                unsafeTail[cell] = -1;
+            }
+        }
+        if (--cellSize[cell] == 0) {
+            cellIndex.remove(cellKeys[cell], -1);
+            freeCells[numFreeCells++] = cell;
+        }
+        if (outlier[s]) {
+            RemoveExpiredOutlier(new Outlier(insts[s], id, id));
+        }
+        byte h = history[s];
+        if (h == (WAS_INLIER | WAS_OUTLIER))
+            m_nBothInlierOutlier++;
+        else if (h == WAS_INLIER)
+            m_nOnlyInlier++;
+        else
+            m_nOnlyOutlier++;
+        insts[s] = null;
+    }
+
+    // Checks the inliers whose critical earlier neighbour expired at time now
+    private void processEvents(long now) {
+        int bucket = slot(now);
+        int x = eventHead[bucket];
+        eventHead[bucket] = -1;
+        while (x >= 0) {
+            int next = eventNext[x];
+            if (countNeighbours(x) < m_k) {
+                setOutlier(x, true);
+            } else {
+                schedule(x);
+            }
+            x = next;
+        }
+    }
+
+    private void insert(long id, Instance inst, double[] v) {
+        int s = slot(id);
+        ids[s] = id;
+        insts[s] = inst;
+        System.arraycopy(v, 0, values, s * dimensions, dimensions);
+        countAfter[s] = 1; // the object itself
+        outlier[s] = false;
+        history[s] = 0;
+
+        nRangeQueriesExecuted++;
+        int numNearCells = findNearCells(s);
+        updateUnsafeNeighbours(s, numNearCells);
+        int found = findEarlierNeighbours(s, numNearCells);
+        precCount[s] = found;
+
+        if (1 + found < m_k) {
+            setOutlier(s, true);
+        } else {
+            setOutlier(s, false);
+            schedule(s);
+        }
+
+        addToCell(s);
+    }
+
+    private int countNeighbours(int s) {
+        int precCapacity = m_k - 1;
+        // deltas up to this bound are still in the window
+        long maxDelta = ids[s] - GetWindowStart();
+        int offset = s * precCapacity;
+        int valid = 0;
+        while (valid < precCount[s] && precDeltas[offset + valid] <= maxDelta) {
+            valid++;
+        }
+        return countAfter[s] + valid;
+    }
+
+    private void setOutlier(int s, boolean isOutlier) {
+        if (isOutlier) {
+            history[s] |= WAS_OUTLIER;
+            if (!outlier[s]) {
+                outlier[s] = true;
+                AddOutlier(new Outlier(insts[s], ids[s], ids[s]));
+            }
+        } else {
+            history[s] |= WAS_INLIER;
+            if (outlier[s]) {
+                outlier[s] = false;
+                RemoveOutlier(new Outlier(insts[s], ids[s], ids[s]));
+            }
+        }
+    }
+
+    /*
+     * Queues an inlier at the expiration of the earlier neighbour that would
+     * leave it with k - 1 neighbours, unless it has k later neighbours.
+     */
+    private void schedule(int s) {
+        int need = m_k - countAfter[s];
+        if (need <= 0) {
+            return;
+        }
+        long critical = ids[s] - precDeltas[s * (m_k - 1) + need - 1];
+        int bucket = slot(critical + m_WindowSize);
+        eventNext[s] = eventHead[bucket];
+        eventHead[bucket] = s;
+    }
+
+    // Collects in nearCells the existing cells around the cell of an object
+    private int findNearCells(int s) {
+        int offset = s * dimensions;
+        long min = -(1L << (coordinateBits - 1));
+        long max = (1L << (coordinateBits - 1)) - 1;
+        for (int j = 0; j < gridDimensions; j++) {
+            cellCoordinates[j] = cellCoordinate(values[offset + j]);
+            neighbourCoordinates[j] = cellCoordinates[j] - 1;
+        }
+        int numNearCells = 0;
+        while (true) {
+            boolean inRange = true;
+            for (int j = 0; j < gridDimensions; j++) {
+                if (neighbourCoordinates[j] < min || neighbourCoordinates[j] > max) {
+                    inRange = false;
+                }
+            }
+            int cell = inRange ? cellIndex.get(cellKey(neighbourCoordinates), -1) : -1;
+            if (cell >= 0) {
+                nearCells[numNearCells++] = cell;
+            }
+            // next of the 3^g cells around the cell of the object
+            int j = 0;
+            while (j < gridDimensions && neighbourCoordinates[j] == cellCoordinates[j] + 1) {
+                neighbourCoordinates[j] = cellCoordinates[j] - 1;
+                j++;
+            }
+            if (j == gridDimensions) {
+                return numNearCells;
+            }
+            neighbourCoordinates[j]++;
+        }
+    }
+
+    /*
+     * Counts the new object as a later neighbour of the objects within radius
+     * that have fewer than k later neighbours, the only ones whose state can
+     * change, and drops from the unsafe lists those that reach k.
+     */
+    private void updateUnsafeNeighbours(int s, int numNearCells) {
+        int offset = s * dimensions;
+        for (int c = 0; c < numNearCells; c++) {
+            int cell = nearCells[c];
+            int prev = -1;
+            int q = unsafeHead[cell];
+            while (q >= 0) {
+                int next = unsafeNext[q];
+                if (distance(offset, q * dimensions) <= m_radius) {
+                    countAfter[q]++;
+                    if (outlier[q] && countNeighbours(q) >= m_k) {
+                        setOutlier(q, false);
+                        schedule(q);
+                    }
+                    if (countAfter[q] >= m_k) {
+                        // safe inlier until it expires
+                        if (prev < 0) {
+                            unsafeHead[cell] = next;
+                        } else {
+                            unsafeNext[prev] = next;
+                        }
+                        if (next < 0) {
+                            unsafeTail[cell] = prev;
+                        }
+                        q = next;
+                        continue;
+                    }
+                }
+                prev = q;
+                q = next;
+            }
+        }
+    }
+
+    /*
+     * Finds the k - 1 most recent earlier neighbours of the new object,
+     * merging the cells from their newest objects, and keeps their distances
+     * in identifiers to the object, ascending.
+     */
+    private int findEarlierNeighbours(int s, int numNearCells) {
+        int precCapacity = m_k - 1;
+        if (precCapacity <= 0) {
+            return 0;
+        }
+        int offset = s * dimensions;
+        int base = s * precCapacity;
+        long id = ids[s];
+        int numCursors = 0;
+        for (int c = 0; c < numNearCells; c++) {
+            cursors[numCursors++] = cellTail[nearCells[c]];
+        }
+        int found = 0;
+        while (found < precCapacity && numCursors > 0) {
+            int newest = 0;
+            for (int c = 1; c < numCursors; c++) {
+                if (ids[cursors[c]] > ids[cursors[newest]]) {
+                    newest = c;
+                }
+            }
+            int q = cursors[newest];
+            if (distance(offset, q * dimensions) <= m_radius) {
+                precDeltas[base + found++] = (int) (id - ids[q]);
+            }
+            // the previous object has expired if its slot holds a newer one
+            int p = cellPrev[q];
+            if (p >= 0 && ids[p] < ids[q]) {
+                cursors[newest] = p;
+            } else {
+                cursors[newest] = cursors[--numCursors];
+            }
+        }
+        return found;
+    }
+
+    private double distance(int offsetA, int offsetB) {
+        double sum = 0;
+        for (int i = 0; i < dimensions; i++) {
+            double diff = values[offsetA + i] - values[offsetB + i];
+            sum += diff * diff;
+        }
+        return Math.sqrt(sum);
+    }
+
+    /*
+     * Cell coordinates are clamped to the range of a key field. Clamping
+     * keeps objects within radius in adjacent cells, so the search is still
+     * exact at the edges.
+     */
+    private long cellCoordinate(double value) {
+        double c = Math.floor(value / m_radius);
+        double bound = (double) (1L << (coordinateBits - 1));
+        if (c < -bound)
+            c = -bound;
+        else if (c > bound - 1)
+            c = bound - 1;
+        else if (Double.isNaN(c))
+            c = 0;
+        return (long) c;
+    }
+
+    private long cellKey(long[] coordinates) {
+        long key = 0;
+        long bias = 1L << (coordinateBits - 1);
+        long fieldMask = (1L << coordinateBits) - 1;
+        for (int j = 0; j < gridDimensions; j++) {
+            key |= ((coordinates[j] + bias) & fieldMask) << (j * coordinateBits);
+        }
+        return key;
+    }
+
+    private void addToCell(int s) {
+        for (int j = 0; j < gridDimensions; j++) {
+            cellCoordinates[j] = cellCoordinate(values[s * dimensions + j]);
+        }
+        long key = cellKey(cellCoordinates);
+        int cell = cellIndex.get(key, -1);
+        if (cell < 0) {
+            cell = newCell();
+            cellKeys[cell] = key;
+            cellIndex.put(key, cell);
+            cellTail[cell] = -1;
+            cellSize[cell] = 0;
+            unsafeHead[cell] = -1;
+            unsafeTail[cell] = -1;
+        }
+        cellPrev[s] = cellTail[cell];
+        cellTail[cell] = s;
+        cellSize[cell]++;
+        cellOf[s] = cell;
+        if (countAfter[s] < m_k) {
+            unsafeNext[s] = -1;
+            if (unsafeTail[cell] < 0) {
+                unsafeHead[cell] = s;
+            } else {
+                unsafeNext[unsafeTail[cell]] = s;
+            }
+            unsafeTail[cell] = s;
+        }
+    }
+
+    private int newCell() {
+        if (numFreeCells > 0) {
+            return freeCells[--numFreeCells];
+        }
+        if (numCells == cellKeys.length) {
+            int capacity = 2 * numCells;
+            cellKeys = Arrays.copyOf(cellKeys, capacity);
+            cellTail = Arrays.copyOf(cellTail, capacity);
+            cellSize = Arrays.copyOf(cellSize, capacity);
+            unsafeHead = Arrays.copyOf(unsafeHead, capacity);
+            unsafeTail = Arrays.copyOf(unsafeTail, capacity);
+            freeCells = Arrays.copyOf(freeCells, capacity);
+        }
+        return numCells++;
+    }
+
+    @Override
+    public String getObjectInfo(Object obj) {
+        if (obj == null) return null;
+
+        long id = (Long) obj;
+        if (ids == null || !IsNodeIdInWin(id) || ids[slot(id)] != id) return null;
+        int s = slot(id);
+
+        ArrayList<String> infoTitle = new ArrayList<String>();
+        ArrayList<String> infoValue = new ArrayList<String>();
+        StringBuilder sb = new StringBuilder();
+
+        // show node type
+        infoTitle.add("Node type");
+        infoValue.add(outlier[s] ? "Outlier" : "Inlier");
+
+        // show node position
+        for (int i = 0; i < dimensions; i++) {
+            infoTitle.add("Dim" + (i+1));
+            infoValue.add(String.format("%.3f", values[s * dimensions + i]));
+        }
+
+        // show node properties
+        infoTitle.add("id");
+        infoValue.add(String.format("%d", id));
+        infoTitle.add("count_after");
+        infoValue.add(String.format("%d", countAfter[s]));
+        infoTitle.add("|nn_before|");
+        infoValue.add(String.format("%d", countNeighbours(s) - countAfter[s]));
+
+        sb.append("<html>");
+        sb.append("<table>");
+        int i = 0;
+        while(i < infoTitle.size() && i < infoValue.size()){
+            sb.append("<tr><td><b>"+infoTitle.get(i)+":</b></td><td>"+infoValue.get(i)+"</td></tr>");
+            i++;
+        }
+        sb.append("</table>");
+
+        sb.append("</html>");
+        return sb.toString();
+    }
+
+    @Override
+    public String getStatistics() {
+        StringBuilder sb = new StringBuilder();
+
+        sb.append("Statistics:\n\n");
+
+        // get counters of expired nodes
+        int nBothInlierOutlier = m_nBothInlierOutlier;
+        int nOnlyInlier = m_nOnlyInlier;
+        int nOnlyOutlier = m_nOnlyOutlier;
+
+        // add counters of non expired nodes
+        if (ids != null) {
+            for (long id = GetWindowStart(); id <= GetWindowEnd(); id++) {
+                byte h = history[slot(id)];
+                if (h == (WAS_INLIER | WAS_OUTLIER))
+                    nBothInlierOutlier++;
+                else if (h == WAS_INLIER)
+                    nOnlyInlier++;
+                else
+                    nOnlyOutlier++;
+            }
+        }
+
+        int sum = nBothInlierOutlier + nOnlyInlier + nOnlyOutlier;
+        if (sum > 0) {
+            sb.append(String.format("  Nodes always inlier: %d (%.1f%%)\n", nOnlyInlier, (100 * nOnlyInlier) / (double)sum));
+            sb.append(String.format("  Nodes always outlier: %d (%.1f%%)\n", nOnlyOutlier, (100 * nOnlyOutlier) / (double)sum));
+            sb.append(String.format("  Nodes both inlier and outlier: %d (%.1f%%)\n", nBothInlierOutlier, (100 * nBothInlierOutlier) / (double)sum));
+
+            sb.append("  (Sum: " + sum + ")\n");
+        }
+
+        sb.append("\n  Total range queries: " + nRangeQueriesExecuted + "\n");
+        sb.append("  Max memory usage: " + iMaxMemUsage + " MB\n");
+        sb.append("  Total process time: " + String.format("%.2f ms", nTotalRunTime / 1000.0) + "\n");
+
+        return sb.toString();
+    }
+}
@@ -20,6 +20,7 @@
 
 package moa.clusterers.outliers.SimpleCOD;
 
+import java.util.ArrayList;
 import java.util.Vector;
 import moa.clusterers.outliers.SimpleCOD.ISBIndex.ISBNode;
 import moa.clusterers.outliers.SimpleCOD.ISBIndex.ISBSearchResult;
@@ -77,7 +78,7 @@ public class SimpleCOD extends SimpleCODBase {
         
         if (bTrace) Println("Perform R range query");    
         nRangeQueriesExecuted++;
-        Vector<ISBSearchResult> resultNodes;
+        ArrayList<ISBSearchResult> resultNodes;
         resultNodes = ISB.RangeSearch(nodeNew, m_radius);
         for (ISBSearchResult sr : resultNodes) {
             double distance = sr.distance;
@@ -166,7 +167,7 @@ public class SimpleCOD extends SimpleCODBase {
     void ProcessExpiredNode(ISBNode nodeExpired) { 
         if (nodeExpired != null) {
             if (bTrace) Println("\nnodeExpired: " + nodeExpired.id);
-            ISB.Remove(nodeExpired); // remove nodeExpired from index
+            ISB.RemoveExpired(GetWindowStart()); // remove nodeExpired from index
             RemoveNode(nodeExpired);
             ProcessEventQueue(nodeExpired);
         }
@@ -20,54 +20,83 @@
 
 package moa.clusterers.outliers;
 
+import java.util.ArrayList;
+import java.util.List;
 import moa.clusterers.outliers.AbstractC.AbstractC;
+import moa.clusterers.outliers.Angiulli.ApproxSTORM;
 import moa.clusterers.outliers.Angiulli.ExactSTORM;
 import moa.clusterers.outliers.MCOD.MCOD;
+import moa.clusterers.outliers.MCOD.MCODCompact;
 import moa.clusterers.outliers.SimpleCOD.SimpleCOD;
 import moa.streams.clustering.RandomRBFGeneratorEvents;
 import com.yahoo.labs.samoa.instances.Instance;
+import com.yahoo.labs.samoa.instances.InstancesHeader;
 
+/**
+ * Compares the throughput of the distance-based outlier detectors on the same
+ * stream. Arguments: number of instances (default 10000), window size
+ * (default 1000) and number of attributes (default 2).
+ */
 public class TestSpeed {    
+    static final String[] DETECTORS = {
+        "SimpleCOD", "MCOD", "MCODCompact", "ExactSTORM", "ApproxSTORM", "AbstractC"
+    };
+    
+    static MyBaseOutlierDetector CreateDetector(String name) {
+        if (name.equals("SimpleCOD")) return new SimpleCOD();
+        if (name.equals("MCOD")) return new MCOD();
+        if (name.equals("MCODCompact")) return new MCODCompact();
+        if (name.equals("ExactSTORM")) return new ExactSTORM();
+        if (name.equals("ApproxSTORM")) return new ApproxSTORM();
+        return new AbstractC();
+    }
+    
+    static MyBaseOutlierDetector RunDetector(String name, InstancesHeader header, 
+            List<Instance> instances, int numInstances, int windowSize) {
+        MyBaseOutlierDetector detector = CreateDetector(name);
+        detector.windowSizeOption.setValue(windowSize);
+        detector.setModelContext(header);
+        detector.prepareForUse();
+        detector.SetShowProgress(false);
+        for (int i = 0; i < numInstances; i++) {
+            detector.processNewInstanceImpl(instances.get(i));
+        }
+        return detector;
+    }
+    
     public static void main(String[] args) throws Exception 
     {        
-        int numInstances = 2000;        
+        int numInstances = (args.length > 0) ? Integer.parseInt(args[0]) : 10000;
+        int windowSize = (args.length > 1) ? Integer.parseInt(args[1]) : 1000;
+        int numAtts = (args.length > 2) ? Integer.parseInt(args[2]) : 2;
+        
+        // all detectors process the same instances
         RandomRBFGeneratorEvents stream = new RandomRBFGeneratorEvents();
+        stream.numAttsOption.setValue(numAtts);
         stream.prepareForUse();
+        List<Instance> instances = new ArrayList<Instance>(numInstances);
+        while (stream.hasMoreInstances() && (instances.size() < numInstances)) {               
+            instances.add(stream.nextInstance().getData());
+        }
+        numInstances = instances.size();
         
-        SimpleCOD scod = new SimpleCOD();   
-        MCOD mcod = new MCOD();        
-        ExactSTORM angiulli = new ExactSTORM();   
-        //DistanceOutliersAppr angiulli = new DistanceOutliersAppr(); 
-        AbstractC abstractC = new AbstractC();        
-        
-        angiulli.queryFreqOption.setValue(1);
-        
-        scod.setModelContext(stream.getHeader());
-        scod.prepareForUse(); 
-        
-        mcod.setModelContext(stream.getHeader());
-        mcod.prepareForUse(); 
-        
-        angiulli.setModelContext(stream.getHeader());
-        angiulli.prepareForUse(); 
-        
-        abstractC.setModelContext(stream.getHeader());
-        abstractC.prepareForUse();
-        
-        Long tmStart = System.currentTimeMillis();
-        
-        int numberSamples = 0;     
-        while (stream.hasMoreInstances() && (numberSamples < numInstances)) {               
-            Instance newInst = stream.nextInstance().getData();
+        ArrayList<String> lines = new ArrayList<String>();
+        for (String name : DETECTORS) {
+            // warm up on a prefix of the stream before timing a full run
+            RunDetector(name, stream.getHeader(), instances, Math.min(numInstances, 2 * windowSize), windowSize);
             
-            //scod.processNewInstanceImpl(newInst);  
-            mcod.processNewInstanceImpl(newInst);  
-            //angiulli.processNewInstanceImpl(newInst);  
-            //abstractC.processNewInstanceImpl(newInst); 
+            long tmStart = System.nanoTime();
+            MyBaseOutlierDetector detector = RunDetector(name, stream.getHeader(), instances, numInstances, windowSize);
+            long tmTotal = System.nanoTime() - tmStart;
             
-            numberSamples++;
-        }      
+            lines.add(String.format("%-12s %10.1f ms %12.0f obj/s %8d outliers", name, tmTotal / 1e6, 
+                    numInstances / (tmTotal / 1e9), detector.GetOutliersFound().size()));
+        }
         
-        System.out.println("Total time = " + (System.currentTimeMillis() - tmStart) + " ms");
+        System.out.println("Instances: " + numInstances + ", window size: " + windowSize + 
+                ", attributes: " + numAtts);
+        for (String line : lines) {
+            System.out.println(line);
+        }
     }
 }
@@ -0,0 +1,623 @@
+/*
+ *    This program is free software; you can redistribute it and/or modify
+ *    it under the terms of the GNU General Public License as published by
+ *    the Free Software Foundation; either version 3 of the License, or
+ *    (at your option) any later version.
+ *
+ *    This program is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *    GNU General Public License for more details.
+ *
+ *    You should have received a copy of the GNU General Public License
+ *    along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package moa.clusterers.outliers.utils.mtree;
+
+import java.util.ArrayList;
+import java.util.List;
+import moa.clusterers.outliers.utils.mtree.DistanceFunctions.EuclideanCoordinate;
+import moa.core.LongIntHashMap;
+
+/**
+ * M-Tree over the objects of a sliding window, shared by the distance-based
+ * outlier detectors.
+ *
+ * <p>Each object is indexed under a long identifier, unique in the tree,
+ * which the detectors take from the arrival order of the stream objects.
+ * Nodes keep their children in primitive arrays, together with the distance
+ * of each child to the routing object of the node, so that a range search
+ * skips the children ruled out by the triangle inequality without computing
+ * their distances. A split computes the distances to the two promoted objects
+ * once and keeps them as the distances to the new routing objects.
+ *
+ * <p>Objects are removed through a map from identifiers to leaves, or all at
+ * once below an identifier: every child also records the smallest identifier
+ * under it, so removing the expired objects of a window only visits the
+ * subtrees that hold some. Removals tighten the covering radii on the way up
+ * and drop the nodes that become empty.
+ *
+ * <p>Distances are Euclidean and computed as
+ * {@link DistanceFunctions#euclidean} does.
+ *
+ * @param <T> The type of the objects returned by range searches.
+ */
+public class StreamMTree<T> {
+
+	/**
+	 * The default maximum number of children of a node.
+	 */
+	public static final int DEFAULT_NODE_CAPACITY = 32;
+
+	// Relative slack on the pruning bounds, for the rounding of the distances
+	private static final double PRUNING_SLACK = 1e-9;
+
+	private static class Node {
+		final boolean leaf;
+		int size;
+		// Per child: the coordinates of the object of an entry, or of the
+		// routing object of a node
+		final double[] centers;
+		// Distance of each child to the routing object of this node, NaN in
+		// the root where there is none
+		final double[] parentDistances;
+		// Identifier of an entry, or smallest identifier under a node
+		final long[] ids;
+		// Covering radius of each child node, null in leaves
+		final double[] radii;
+		final Object[] items;
+		final Node[] children;
+		Node parent;
+		int indexInParent;
+		int handle = -1;
+
+		Node(boolean leaf, int capacity, int dimensions) {
+			this.leaf = leaf;
+			this.centers = new double[capacity * dimensions];
+			this.parentDistances = new double[capacity];
+			this.ids = new long[capacity];
+			this.radii = leaf ? null : new double[capacity];
+			this.items = leaf ? new Object[capacity] : null;
+			this.children = leaf ? null : new Node[capacity];
+		}
+	}
+
+	private final int nodeCapacity;
+
+	private int dimensions = -1;
+
+	private Node root;
+
+	private int size;
+
+	// Leaf of each identifier, as an index in leaves
+	private final LongIntHashMap leafOf = new LongIntHashMap();
+
+	private Node[] leaves = new Node[16];
+
+	private int[] freeHandles = new int[16];
+
+	private int numFreeHandles;
+
+	private int numHandles;
+
+	private double[] point;
+
+	// Distances of the children of a node being split to the promoted objects
+	private double[] toFirst;
+
+	private double[] toSecond;
+
+	private int[] order;
+
+	// Results of the last range search
+	private Object[] resultItems = new Object[16];
+
+	private double[] resultDistances = new double[16];
+
+	private int numResults;
+
+	public StreamMTree() {
+		this(DEFAULT_NODE_CAPACITY);
+	}
+
+	/**
+	 * Constructs an M-Tree whose nodes have at most the given number of
+	 * children.
+	 */
+	public StreamMTree(int nodeCapacity) {
+		if (nodeCapacity < 4) {
+			throw new IllegalArgumentException("Node capacity must be at least 4: " + nodeCapacity);
+		}
+		this.nodeCapacity = nodeCapacity;
+		this.toFirst = new double[nodeCapacity + 1];
+		this.toSecond = new double[nodeCapacity + 1];
+		this.order = new int[nodeCapacity + 1];
+	}
+
+	public int size() {
+		return this.size;
+	}
+
+	public boolean contains(long id) {
+		return this.leafOf.containsKey(id);
+	}
+
+	public void clear() {
+		this.root = null;
+		this.size = 0;
+		this.leafOf.clear();
+		this.leaves = new Node[16];
+		this.numFreeHandles = 0;
+		this.numHandles = 0;
+		this.numResults = 0;
+	}
+
+	/**
+	 * Adds an object at the given coordinates.
+	 *
+	 * @param id an identifier that is not in the tree
+	 * @param coordinates the coordinates of the object, which are copied
+	 * @param item the object returned by the searches
+	 */
+	public void add(long id, EuclideanCoordinate coordinates, T item) {
+		if (this.leafOf.containsKey(id)) {
+			throw new IllegalArgumentException("Identifier already in the tree: " + id);
+		}
+		load(coordinates);
+		if (this.root == null) {
+			this.root = newNode(true);
+		}
+		int d = this.dimensions;
+		Node node = this.root;
+		double distance = Double.NaN;
+		while (!node.leaf) {
+			// the closest child that covers the object, or else the one whose
+			// radius grows the least
+			int best = -1;
+			double bestDistance = 0.0;
+			double bestIncrease = Double.POSITIVE_INFINITY;
+			boolean covered = false;
+			for (int i = 0; i < node.size; i++) {
+				double toChild = distance(this.point, 0, node.centers, i * d);
+				if (toChild <= node.radii[i]) {
+					if (!covered || toChild < bestDistance) {
+						covered = true;
+						best = i;
+						bestDistance = toChild;
+					}
+				} else if (!covered && toChild - node.radii[i] < bestIncrease) {
+					bestIncrease = toChild - node.radii[i];
+					best = i;
+					bestDistance = toChild;
+				}
+			}
+			if (bestDistance > node.radii[best]) {
+				node.radii[best] = bestDistance;
+			}
+			if (id < node.ids[best]) {
+				node.ids[best] = id;
+			}
+			distance = bestDistance;
+			node = node.children[best];
+		}
+		int pos = node.size++;
+		System.arraycopy(this.point, 0, node.centers, pos * d, d);
+		node.parentDistances[pos] = distance;
+		node.ids[pos] = id;
+		node.items[pos] = item;
+		this.leafOf.put(id, node.handle);
+		this.size++;
+		if (node.size > this.nodeCapacity) {
+			split(node);
+		}
+	}
+
+	/**
+	 * Removes the object with the given identifier.
+	 *
+	 * @return true if the object was in the tree
+	 */
+	public boolean remove(long id) {
+		int handle = this.leafOf.remove(id, -1);
+		if (handle < 0) {
+			return false;
+		}
+		Node leaf = this.leaves[handle];
+		int pos = 0;
+		while (leaf.ids[pos] != id) {
+			pos++;
+		}
+		removeChild(leaf, pos);
+		this.size--;
+		// update the bounds up the path while they change
+		Node node = leaf;
+		while (node.parent != null) {
+			Node parent = node.parent;
+			int i = node.indexInParent;
+			if (node.size == 0) {
+				release(node);
+				removeChild(parent, i);
+			} else {
+				double radius = coveringRadius(node);
+				long minId = smallestId(node);
+				if (radius >= parent.radii[i] && minId == parent.ids[i]) {
+					return true;
+				}
+				parent.radii[i] = radius;
+				parent.ids[i] = minId;
+			}
+			node = parent;
+		}
+		shrinkRoot();
+		return true;
+	}
+
+	/**
+	 * Removes all the objects with identifiers below the given one.
+	 *
+	 * @return the number of objects removed
+	 */
+	public int removeExpired(long firstId) {
+		if (this.root == null) {
+			return 0;
+		}
+		int before = this.size;
+		purge(this.root, firstId);
+		shrinkRoot();
+		return before - this.size;
+	}
+
+	private void purge(Node node, long firstId) {
+		// children are removed by moving the last one, which was already visited
+		for (int i = node.size - 1; i >= 0; i--) {
+			if (node.ids[i] >= firstId) {
+				continue;
+			}
+			if (node.leaf) {
+				this.leafOf.remove(node.ids[i], -1);
+				removeChild(node, i);
+				this.size--;
+			} else {
+				Node child = node.children[i];
+				purge(child, firstId);
+				if (child.size == 0) {
+					release(child);
+					removeChild(node, i);
+				} else {
+					node.radii[i] = coveringRadius(child);
+					node.ids[i] = smallestId(child);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Finds the objects within the given distance of a point, which can then
+	 * be read with resultItem and resultDistance.
+	 *
+	 * @return the number of objects found
+	 */
+	public int rangeSearch(EuclideanCoordinate query, double range) {
+		this.numResults = 0;
+		if (this.root == null) {
+			return 0;
+		}
+		load(query);
+		search(this.root, Double.NaN, range);
+		return this.numResults;
+	}
+
+	private void search(Node node, double toRouting, double range) {
+		int d = this.dimensions;
+		for (int i = 0; i < node.size; i++) {
+			double bound = node.leaf ? range : range + node.radii[i];
+			// a NaN distance to the routing object prunes nothing
+			double lowerBound = Math.abs(toRouting - node.parentDistances[i]);
+			if (lowerBound > bound + PRUNING_SLACK * (toRouting + bound)) {
+				continue;
+			}
+			double distance = distance(this.point, 0, node.centers, i * d);
+			if (node.leaf) {
+				if (distance <= range) {
+					addResult(node.items[i], distance);
+				}
+			} else if (distance <= bound + PRUNING_SLACK * (distance + bound)) {
+				search(node.children[i], distance, range);
+			}
+		}
+	}
+
+	private void addResult(Object item, double distance) {
+		if (this.numResults == this.resultItems.length) {
+			int capacity = 2 * this.numResults;
+			this.resultItems = java.util.Arrays.copyOf(this.resultItems, capacity);
+			this.resultDistances = java.util.Arrays.copyOf(this.resultDistances, capacity);
+		}
+		this.resultItems[this.numResults] = item;
+		this.resultDistances[this.numResults++] = distance;
+	}
+
+	/**
+	 * Orders the results of the last range search by ascending distance.
+	 */
+	public void sortResults() {
+		sortResults(0, this.numResults - 1);
+	}
+
+	private void sortResults(int left, int right) {
+		while (right - left > 16) {
+			double pivot = this.resultDistances[(left + right) >>> 1];
+			int i = left;
+			int j = right;
+			while (i <= j) {
+				while (this.resultDistances[i] < pivot) {
+					i++;
+				}
+				while (this.resultDistances[j] > pivot) {
+					j--;
+				}
+				if (i <= j) {
+					swapResults(i++, j--);
+				}
+			}
+			// recurse into the smaller part
+			if (j - left < right - i) {
+				sortResults(left, j);
+				left = i;
+			} else {
+				sortResults(i, right);
+				right = j;
+			}
+		}
+		for (int i = left + 1; i <= right; i++) {
+			for (int j = i; j > left && this.resultDistances[j - 1] > this.resultDistances[j]; j--) {
+				swapResults(j - 1, j);
+			}
+		}
+	}
+
+	private void swapResults(int i, int j) {
+		Object item = this.resultItems[i];
+		this.resultItems[i] = this.resultItems[j];
+		this.resultItems[j] = item;
+		double distance = this.resultDistances[i];
+		this.resultDistances[i] = this.resultDistances[j];
+		this.resultDistances[j] = distance;
+	}
+
+	@SuppressWarnings("unchecked")
+	public T resultItem(int i) {
+		return (T) this.resultItems[i];
+	}
+
+	public double resultDistance(int i) {
+		return this.resultDistances[i];
+	}
+
+	/**
+	 * Returns all the objects of the tree, in no particular order.
+	 */
+	@SuppressWarnings("unchecked")
+	public List<T> getItems() {
+		List<T> items = new ArrayList<T>(this.size);
+		for (int h = 0; h < this.numHandles; h++) {
+			Node leaf = this.leaves[h];
+			if (leaf != null) {
+				for (int i = 0; i < leaf.size; i++) {
+					items.add((T) leaf.items[i]);
+				}
+			}
+		}
+		return items;
+	}
+
+	/*
+	 * Splits an overfull node in two around the child farthest from its
+	 * routing object and the child farthest from that one. The children are
+	 * ordered by how much closer they are to the first than to the second,
+	 * and each new node takes one half.
+	 */
+	private void split(Node node) {
+		int d = this.dimensions;
+		int n = node.size;
+		int first = 0;
+		for (int i = 1; i < n; i++) {
+			if (node.parentDistances[i] > node.parentDistances[first]) {
+				first = i;
+			}
+		}
+		int second = first;
+		for (int i = 0; i < n; i++) {
+			this.toFirst[i] = distance(node.centers, first * d, node.centers, i * d);
+			if (this.toFirst[i] > this.toFirst[second]) {
+				second = i;
+			}
+		}
+		for (int i = 0; i < n; i++) {
+			this.toSecond[i] = distance(node.centers, second * d, node.centers, i * d);
+			this.order[i] = i;
+		}
+		for (int i = 1; i < n; i++) {
+			int child = this.order[i];
+			double key = this.toFirst[child] - this.toSecond[child];
+			int j = i;
+			while (j > 0 && this.toFirst[this.order[j - 1]] - this.toSecond[this.order[j - 1]] > key) {
+				this.order[j] = this.order[j - 1];
+				j--;
+			}
+			this.order[j] = child;
+		}
+		int half = n / 2;
+		Node nodeFirst = newNode(node.leaf);
+		Node nodeSecond = newNode(node.leaf);
+		for (int i = 0; i < n; i++) {
+			int child = this.order[i];
+			if (i < half) {
+				moveChild(node, child, nodeFirst, this.toFirst[child]);
+			} else {
+				moveChild(node, child, nodeSecond, this.toSecond[child]);
+			}
+		}
+		if (node.leaf) {
+			release(node);
+		}
+
+		Node parent = node.parent;
+		if (parent == null) {
+			parent = newNode(false);
+			this.root = parent;
+			addChild(parent, nodeFirst, node.centers, first * d);
+		} else {
+			int i = node.indexInParent;
+			setChild(parent, i, nodeFirst, node.centers, first * d);
+		}
+		addChild(parent, nodeSecond, node.centers, second * d);
+		if (parent.size > this.nodeCapacity) {
+			split(parent);
+		}
+	}
+
+	private void moveChild(Node from, int i, Node to, double parentDistance) {
+		int d = this.dimensions;
+		int pos = to.size++;
+		System.arraycopy(from.centers, i * d, to.centers, pos * d, d);
+		to.parentDistances[pos] = parentDistance;
+		to.ids[pos] = from.ids[i];
+		if (to.leaf) {
+			to.items[pos] = from.items[i];
+			this.leafOf.put(from.ids[i], to.handle);
+		} else {
+			to.radii[pos] = from.radii[i];
+			Node child = from.children[i];
+			to.children[pos] = child;
+			child.parent = to;
+			child.indexInParent = pos;
+		}
+	}
+
+	private void addChild(Node parent, Node child, double[] center, int offset) {
+		setChild(parent, parent.size++, child, center, offset);
+	}
+
+	private void setChild(Node parent, int i, Node child, double[] center, int offset) {
+		int d = this.dimensions;
+		System.arraycopy(center, offset, parent.centers, i * d, d);
+		parent.parentDistances[i] = parent.parent == null ? Double.NaN
+				: distance(center, offset, parent.parent.centers, parent.indexInParent * d);
+		parent.radii[i] = coveringRadius(child);
+		parent.ids[i] = smallestId(child);
+		parent.children[i] = child;
+		child.parent = parent;
+		child.indexInParent = i;
+	}
+
+	// Removes a child by moving the last child in its place
+	private void removeChild(Node node, int i) {
+		int d = this.dimensions;
+		int last = --node.size;
+		if (i != last) {
+			System.arraycopy(node.centers, last * d, node.centers, i * d, d);
+			node.parentDistances[i] = node.parentDistances[last];
+			node.ids[i] = node.ids[last];
+			if (node.leaf) {
+				node.items[i] = node.items[last];
+			} else {
+				node.radii[i] = node.radii[last];
+				node.children[i] = node.children[last];
+				node.children[i].indexInParent = i;
+			}
+		}
+		if (node.leaf) {
+			node.items[last] = null;
+		} else {
+			node.children[last] = null;
+		}
+	}
+
+	// Drops an empty root, and internal roots with a single child
+	private void shrinkRoot() {
+		while (this.root != null) {
+			if (this.root.size == 0) {
+				release(this.root);
+				this.root = null;
+			} else if (!this.root.leaf && this.root.size == 1) {
+				this.root = this.root.children[0];
+				this.root.parent = null;
+			} else {
+				return;
+			}
+		}
+	}
+
+	private double coveringRadius(Node node) {
+		double radius = 0.0;
+		for (int i = 0; i < node.size; i++) {
+			double extent = node.leaf ? node.parentDistances[i] : node.parentDistances[i] + node.radii[i];
+			if (extent > radius) {
+				radius = extent;
+			}
+		}
+		return radius;
+	}
+
+	private long smallestId(Node node) {
+		long minId = Long.MAX_VALUE;
+		for (int i = 0; i < node.size; i++) {
+			if (node.ids[i] < minId) {
+				minId = node.ids[i];
+			}
+		}
+		return minId;
+	}
+
+	private Node newNode(boolean leaf) {
+		Node node = new Node(leaf, this.nodeCapacity + 1, this.dimensions);
+		if (leaf) {
+			int handle;
+			if (this.numFreeHandles > 0) {
+				handle = this.freeHandles[--this.numFreeHandles];
+			} else {
+				if (this.numHandles == this.leaves.length) {
+					this.leaves = java.util.Arrays.copyOf(this.leaves, 2 * this.numHandles);
+				}
+				handle = this.numHandles++;
+			}
+			this.leaves[handle] = node;
+			node.handle = handle;
+		}
+		return node;
+	}
+
+	private void release(Node node) {
+		if (node.leaf && node.handle >= 0) {
+			this.leaves[node.handle] = null;
+			if (this.numFreeHandles == this.freeHandles.length) {
+				this.freeHandles = java.util.Arrays.copyOf(this.freeHandles, 2 * this.numFreeHandles);
+			}
+			this.freeHandles[this.numFreeHandles++] = node.handle;
+			node.handle = -1;
+		}
+	}
+
+	private void load(EuclideanCoordinate coordinates) {
+		if (this.dimensions < 0) {
+			this.dimensions = coordinates.dimensions();
+			this.point = new double[this.dimensions];
+		}
+		for (int i = 0; i < this.dimensions; i++) {
+			this.point[i] = coordinates.get(i);
+		}
+	}
+
+	private double distance(double[] a, int offsetA, double[] b, int offsetB) {
+		double distance = 0;
+		for (int i = 0; i < this.dimensions; i++) {
+			double diff = a[offsetA + i] - b[offsetB + i];
+			distance += diff * diff;
+		}
+		return Math.sqrt(distance);
+	}
+}
@@ -0,0 +1,36 @@
+/*
+ *    ByteSizeEstimable.java
+ *
+ *    This program is free software; you can redistribute it and/or modify
+ *    it under the terms of the GNU General Public License as published by
+ *    the Free Software Foundation; either version 3 of the License, or
+ *    (at your option) any later version.
+ *
+ *    This program is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *    GNU General Public License for more details.
+ *
+ *    You should have received a copy of the GNU General Public License
+ *    along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package moa.core;
+
+/**
+ * Interface implemented by models that keep an estimate of their memory size
+ * up to date as they grow. Unlike measureByteSize(), which walks the whole
+ * object graph, the estimate is cheap enough to be read at every sample of
+ * an evaluation.
+ *
+ * @see ByteSizeEstimator
+ */
+public interface ByteSizeEstimable {
+
+    /**
+     * Gets an estimate of the memory size of this object.
+     *
+     * @return the estimated memory size of this object, in bytes
+     */
+    public int estimateByteSize();
+}
@@ -0,0 +1,112 @@
+/*
+ *    ByteSizeEstimator.java
+ *
+ *    This program is free software; you can redistribute it and/or modify
+ *    it under the terms of the GNU General Public License as published by
+ *    the Free Software Foundation; either version 3 of the License, or
+ *    (at your option) any later version.
+ *
+ *    This program is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *    GNU General Public License for more details.
+ *
+ *    You should have received a copy of the GNU General Public License
+ *    along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package moa.core;
+
+import java.io.Serializable;
+import moa.MOAObject;
+
+/**
+ * Estimates the memory size of a model from a count of its parts (e.g. the
+ * nodes of a tree), times a number of bytes per part that is calibrated with
+ * measureByteSize(). The model is measured again only when the number of parts
+ * doubles or halves, or the weight of the instances it was trained on doubles,
+ * since the last measurement, so a model that keeps growing is measured a
+ * logarithmic number of times.
+ *
+ * Ensembles add up the estimates of their members instead, plus the size of
+ * the rest of the ensemble (drift detectors, evaluators, etc.), that is
+ * calibrated the same way.
+ */
+public class ByteSizeEstimator implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    protected double bytesPerPart;
+
+    protected double calibrationParts;
+
+    protected double calibrationWeight;
+
+    protected double overheadBytes;
+
+    protected boolean calibrated = false;
+
+    /**
+     * Gets an estimate of the memory size of a model.
+     *
+     * @param model the model
+     * @param parts the current number of parts of the model
+     * @param weightSeen the weight of the instances the model was trained on
+     * @return the estimated memory size of the model, in bytes
+     */
+    public int estimateByteSize(MOAObject model, double parts, double weightSeen) {
+        parts = Math.max(parts, 1.0);
+        if (!this.calibrated || parts > 2 * this.calibrationParts
+                || parts < this.calibrationParts / 2
+                || weightSeen > 2 * this.calibrationWeight) {
+            int byteSize = model.measureByteSize();
+            this.bytesPerPart = byteSize / parts;
+            this.calibrationParts = parts;
+            this.calibrationWeight = Math.max(weightSeen, 1.0);
+            this.calibrated = true;
+            return byteSize;
+        }
+        return (int) (this.bytesPerPart * parts);
+    }
+
+    /**
+     * Gets an estimate of the memory size of an ensemble, from the estimated
+     * sizes of its members.
+     *
+     * @param ensemble the ensemble
+     * @param membersByteSize the sum of the estimated sizes of the members
+     * @param weightSeen the weight of the instances the ensemble was trained on
+     * @return the estimated memory size of the ensemble, in bytes
+     */
+    public int estimateEnsembleByteSize(MOAObject ensemble, int membersByteSize, double weightSeen) {
+        if (!this.calibrated || weightSeen > 2 * this.calibrationWeight) {
+            int byteSize = ensemble.measureByteSize();
+            this.overheadBytes = Math.max(byteSize - membersByteSize, 0);
+            this.calibrationWeight = Math.max(weightSeen, 1.0);
+            this.calibrated = true;
+            return byteSize;
+        }
+        return (int) (membersByteSize + this.overheadBytes);
+    }
+
+    /**
+     * Gets the estimated memory size of an object that is ByteSizeEstimable,
+     * or measures it otherwise. Ensembles use it to add up their members.
+     *
+     * @param obj the object
+     * @return the memory size of the object, in bytes
+     */
+    public static int estimateByteSize(MOAObject obj) {
+        if (obj instanceof ByteSizeEstimable) {
+            return ((ByteSizeEstimable) obj).estimateByteSize();
+        }
+        return obj.measureByteSize();
+    }
+
+    /**
+     * Forgets the calibration, e.g. when the model is reset.
+     */
+    public void reset() {
+        this.calibrated = false;
+    }
+}
@@ -46,6 +46,11 @@ public class DoubleVector extends AbstractMOAObject {
         this(toCopy.getArrayRef());
     }
 
+    @Override
+    public DoubleVector copy() {
+        return getClass() == DoubleVector.class ? new DoubleVector(this) : (DoubleVector) super.copy();
+    }
+
     public int numValues() {
         return this.array.length;
     }
@@ -0,0 +1,200 @@
+/*
+ *    LongIntHashMap.java
+ *
+ *    This program is free software; you can redistribute it and/or modify
+ *    it under the terms of the GNU General Public License as published by
+ *    the Free Software Foundation; either version 3 of the License, or
+ *    (at your option) any later version.
+ *
+ *    This program is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *    GNU General Public License for more details.
+ *
+ *    You should have received a copy of the GNU General Public License
+ *    along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package moa.core;
+
+import java.io.Serializable;
+import java.util.Arrays;
+
+/**
+ * Hash map from long keys to int values, stored in primitive arrays.
+ *
+ * The map uses open addressing with linear probing, and removes entries by
+ * shifting the following entries of their run back, so it needs no deleted
+ * markers and does not degrade with removals. An entry takes 13 bytes of
+ * table space and no object, against several objects for a HashMap entry
+ * with boxed keys. Entries can be read by position, from 0 to capacity(),
+ * skipping the free positions.
+ */
+public class LongIntHashMap implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private static final int MIN_CAPACITY = 16;
+
+    protected long[] keys;
+
+    protected int[] values;
+
+    protected boolean[] used;
+
+    protected int size;
+
+    // capacity - 1, the capacity being a power of two
+    protected int mask;
+
+    public LongIntHashMap() {
+        this(MIN_CAPACITY);
+    }
+
+    /**
+     * Creates a map that holds the given number of entries without growing.
+     */
+    public LongIntHashMap(int expectedSize) {
+        int capacity = MIN_CAPACITY;
+        while (capacity < 2L * expectedSize) {
+            capacity <<= 1;
+        }
+        allocate(capacity);
+    }
+
+    protected void allocate(int capacity) {
+        this.keys = new long[capacity];
+        this.values = new int[capacity];
+        this.used = new boolean[capacity];
+        this.mask = capacity - 1;
+    }
+
+    protected int position(long key) {
+        // the finalizer of MurmurHash3, so that packed keys spread over the table
+        key ^= key >>> 33;
+        key *= 0xff51afd7ed558ccdL;
+        key ^= key >>> 33;
+        key *= 0xc4ceb9fe1a85ec53L;
+        key ^= key >>> 33;
+        return (int) key & this.mask;
+    }
+
+    // Position of the key, or of the free position where it would go
+    protected int find(long key) {
+        int pos = position(key);
+        while (this.used[pos] && this.keys[pos] != key) {
+            pos = (pos + 1) & this.mask;
+        }
+        return pos;
+    }
+
+    public int size() {
+        return this.size;
+    }
+
+    public boolean isEmpty() {
+        return this.size == 0;
+    }
+
+    public boolean containsKey(long key) {
+        return this.used[find(key)];
+    }
+
+    /**
+     * Returns the value of the key, or defaultValue if the map does not
+     * contain it.
+     */
+    public int get(long key, int defaultValue) {
+        int pos = find(key);
+        return this.used[pos] ? this.values[pos] : defaultValue;
+    }
+
+    public void put(long key, int value) {
+        int pos = find(key);
+        if (this.used[pos]) {
+            this.values[pos] = value;
+            return;
+        }
+        this.keys[pos] = key;
+        this.values[pos] = value;
+        this.used[pos] = true;
+        this.size++;
+        // keep the table at most half full
+        if (2 * this.size > this.mask + 1) {
+            rehash(2 * (this.mask + 1));
+        }
+    }
+
+    /**
+     * Removes the key and returns its value, or defaultValue if the map did
+     * not contain it.
+     */
+    public int remove(long key, int defaultValue) {
+        int pos = find(key);
+        if (!this.used[pos]) {
+            return defaultValue;
+        }
+        int value = this.values[pos];
+        // shift back the entries that would not be found past the free position
+        int free = pos;
+        int next = (pos + 1) & this.mask;
+        while (this.used[next]) {
+            int home = position(this.keys[next]);
+            // move the entry unless its home lies cyclically in (free, next]
+            boolean stays = free <= next ? (free < home && home <= next) : (free < home || home <= next);
+            if (!stays) {
+                this.keys[free] = this.keys[next];
+                this.values[free] = this.values[next];
+                free = next;
+            }
+            next = (next + 1) & this.mask;
+        }
+        this.used[free] = false;
+        this.size--;
+        return value;
+    }
+
+    public void clear() {
+        Arrays.fill(this.used, false);
+        this.size = 0;
+    }
+
+    protected void rehash(int capacity) {
+        long[] oldKeys = this.keys;
+        int[] oldValues = this.values;
+        boolean[] oldUsed = this.used;
+        allocate(capacity);
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldUsed[i]) {
+                int pos = find(oldKeys[i]);
+                this.keys[pos] = oldKeys[i];
+                this.values[pos] = oldValues[i];
+                this.used[pos] = true;
+            }
+        }
+    }
+
+    /**
+     * Returns the number of positions of the table, for reading the entries
+     * by position.
+     */
+    public int capacity() {
+        return this.mask + 1;
+    }
+
+    public boolean isUsed(int pos) {
+        return this.used[pos];
+    }
+
+    public long keyAt(int pos) {
+        return this.keys[pos];
+    }
+
+    public int valueAt(int pos) {
+        return this.values[pos];
+    }
+
+    public void setValueAt(int pos, int value) {
+        this.values[pos] = value;
+    }
+}
@@ -31,6 +31,7 @@ import com.yahoo.labs.samoa.instances.Instance;
 import com.yahoo.labs.samoa.instances.InstanceData;
 import com.yahoo.labs.samoa.instances.Prediction;
 import moa.options.AbstractOptionHandler;
+import moa.options.OptionHandler;
 import moa.tasks.TaskMonitor;
 
 import java.io.Serializable;
@@ -88,6 +89,58 @@ public class BasicClassificationPerformanceEvaluator extends AbstractOptionHandl
     public FlagOption f1PerClassOption = new FlagOption("f1PerClass", 'f',
             "Report F1 per class.");
 
+    public BasicClassificationPerformanceEvaluator() {
+    }
+
+    /**
+     * Creates a copy of an evaluator, with the same options and copies of its
+     * estimators.
+     */
+    public BasicClassificationPerformanceEvaluator(BasicClassificationPerformanceEvaluator other) {
+        this.precisionRecallOutputOption.setValue(other.precisionRecallOutputOption.isSet());
+        this.precisionPerClassOption.setValue(other.precisionPerClassOption.isSet());
+        this.recallPerClassOption.setValue(other.recallPerClassOption.isSet());
+        this.f1PerClassOption.setValue(other.f1PerClassOption.isSet());
+        this.numClasses = other.numClasses;
+        this.lastSeenClass = other.lastSeenClass;
+        this.totalWeightObserved = other.totalWeightObserved;
+        this.weightCorrect = copyEstimator(other.weightCorrect);
+        this.weightCorrectNoChangeClassifier = copyEstimator(other.weightCorrectNoChangeClassifier);
+        this.weightMajorityClassifier = copyEstimator(other.weightMajorityClassifier);
+        this.columnKappa = copyEstimators(other.columnKappa);
+        this.rowKappa = copyEstimators(other.rowKappa);
+        this.precision = copyEstimators(other.precision);
+        this.recall = copyEstimators(other.recall);
+    }
+
+    @Override
+    public OptionHandler copy() {
+        // subclasses use other estimators
+        return getClass() == BasicClassificationPerformanceEvaluator.class
+                ? new BasicClassificationPerformanceEvaluator(this) : super.copy();
+    }
+
+    private Estimator copyEstimator(Estimator estimator) {
+        if (estimator == null) {
+            return null;
+        }
+        BasicEstimator copy = new BasicEstimator();
+        copy.len = ((BasicEstimator) estimator).len;
+        copy.sum = ((BasicEstimator) estimator).sum;
+        return copy;
+    }
+
+    private Estimator[] copyEstimators(Estimator[] estimators) {
+        if (estimators == null) {
+            return null;
+        }
+        Estimator[] copies = new Estimator[estimators.length];
+        for (int i = 0; i < estimators.length; i++) {
+            copies[i] = copyEstimator(estimators[i]);
+        }
+        return copies;
+    }
+
     @Override
     public void reset() {
         reset(this.numClasses);
@@ -20,6 +20,7 @@
 package moa.evaluation;
 
 import moa.AbstractMOAObject;
+import moa.MOAObject;
 import moa.core.Example;
 import moa.core.Measurement;
 
@@ -50,6 +51,24 @@ public class BasicRegressionPerformanceEvaluator extends AbstractMOAObject
     
     protected double averageTargetError;
 
+    public BasicRegressionPerformanceEvaluator() {
+    }
+
+    public BasicRegressionPerformanceEvaluator(BasicRegressionPerformanceEvaluator other) {
+        this.weightObserved = other.weightObserved;
+        this.squareError = other.squareError;
+        this.averageError = other.averageError;
+        this.sumTarget = other.sumTarget;
+        this.squareTargetError = other.squareTargetError;
+        this.averageTargetError = other.averageTargetError;
+    }
+
+    @Override
+    public MOAObject copy() {
+        return getClass() == BasicRegressionPerformanceEvaluator.class
+                ? new BasicRegressionPerformanceEvaluator(this) : super.copy();
+    }
+
     @Override
     public void reset() {
         this.weightObserved = 0.0;
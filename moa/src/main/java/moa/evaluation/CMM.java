@@ -80,6 +80,11 @@ public class CMM extends MeasureCollection{
      * threshold that defines when a point is being considered belonging to a cluster
      */
     private double pointInclusionProbThreshold = 0.5;
+
+    /**
+     * points per task when the evaluation runs on a fork/join pool
+     */
+    private static final int GRAIN = 32;
     
     /**
      * parameterize the error weight of missed points (default 1)
@@ -160,12 +165,21 @@ public class CMM extends MeasureCollection{
 
         //calculate fuzzy mapping from
         pointInclusionProbFC = new double[numPoints][numFClusters];
+        ParallelLoop.run(numPoints, GRAIN, new ParallelLoop.Body() {
+            public void run(int from, int to) {
+                for (int p = from; p < to; p++) {
+                    CMMPoint cmdp = gtAnalysis.getPoint(p);
+                    for (int fc = 0; fc < numFClusters; fc++) {
+                        Cluster cl = clustering.get(fc);
+                        pointInclusionProbFC[p][fc] = cl.getInclusionProbability(cmdp);
+                    }
+                }
+            }
+        });
         for (int p = 0; p < numPoints; p++) {
             CMMPoint cmdp = gtAnalysis.getPoint(p);
             //found cluster frequencies
             for (int fc = 0; fc < numFClusters; fc++) {
-                Cluster cl = clustering.get(fc);
-                pointInclusionProbFC[p][fc] = cl.getInclusionProbability(cmdp);
                 if (pointInclusionProbFC[p][fc] >= pointInclusionProbThreshold) {
                     //make sure we don't count points twice that are contained in two merged clusters
                     if(cmdp.isNoise()) continue;
@@ -295,6 +309,19 @@ public class CMM extends MeasureCollection{
         double totalError = 0.0;
         double totalErrorMax = 0.0;
 
+        /* the error of each point needs knn searches, so it is found first
+         * for all points, and the sums are made in point order afterwards
+         */
+        final double[] errors = new double[numPoints];
+        final int[] coverages = new int[numPoints];
+        ParallelLoop.run(numPoints, GRAIN, new ParallelLoop.Body() {
+            public void run(int from, int to) {
+                for (int p = from; p < to; p++) {
+                    pointError(p, errors, coverages);
+                }
+            }
+        });
+
         /** mainly iterate over all points and find the right error value for the point.
          *  within the same run calculate various other stuff like coverage etc...
          */
@@ -315,38 +342,13 @@ public class CMM extends MeasureCollection{
             totalErrorMax+=cmdp.connectivity*weight;
 
 
-            double err = 0;
-            int coverage = 0;
+            double err = errors[p];
+            int coverage = coverages[p];
 
-            //check every FCluster
-            for (int c = 0; c < numFClusters; c++) {
-                //contained in cluster c?
-                if(pointInclusionProbFC[p][c] >= pointInclusionProbThreshold){
-                    coverage++;
-
-                    if(!cmdp.isNoise()){
-                        //PLACED CORRECTLY
-                        if(matchMap[c] == cmdp.workclass()){
-                        }
-                        //MISPLACED
-                        else{
-                            double errvalue = misplacedError(cmdp, c);
-                            if(errvalue > err)
-                                err = errvalue;
-                        }
-                    }
-                    else{
-                        //NOISE
-                        double errvalue = noiseError(cmdp, c);
-                        if(errvalue > err) err = errvalue;
-                    }
-                }
-            }
             //not in any cluster
             if(coverage == 0){
                 //MISSED
                 if(!cmdp.isNoise()){
-                    err = missedError(cmdp,true);
                     errorMissed+= weight*err;
                 }
                 //NOISE
@@ -368,9 +370,6 @@ public class CMM extends MeasureCollection{
             if(coverage>0) totalCoverage++;  //points covered by clustering (incl. noise)
             if(coverage>0 && !cmdp.isNoise()) trueCoverage++; //points covered by clustering, don't count noise
             if(coverage>1) totalRedundancy++; //include noise
-
-            cmdp.p.setMeasureValue("CMM",err);
-            cmdp.p.setMeasureValue("Redundancy", coverage);
         }
 
         addValue("CMM", (totalErrorMax!=0)?1-totalError/totalErrorMax:1);
@@ -385,6 +384,50 @@ public class CMM extends MeasureCollection{
     }
 
 
+    /**
+     * Finds the error of a point and the number of found clusters covering it
+     */
+    private void pointError(int p, double[] errors, int[] coverages){
+        CMMPoint cmdp = gtAnalysis.getPoint(p);
+        double err = 0;
+        int coverage = 0;
+
+        //check every FCluster
+        for (int c = 0; c < numFClusters; c++) {
+            //contained in cluster c?
+            if(pointInclusionProbFC[p][c] >= pointInclusionProbThreshold){
+                coverage++;
+
+                if(!cmdp.isNoise()){
+                    //PLACED CORRECTLY
+                    if(matchMap[c] == cmdp.workclass()){
+                    }
+                    //MISPLACED
+                    else{
+                        double errvalue = misplacedError(cmdp, c);
+                        if(errvalue > err)
+                            err = errvalue;
+                    }
+                }
+                else{
+                    //NOISE
+                    double errvalue = noiseError(cmdp, c);
+                    if(errvalue > err) err = errvalue;
+                }
+            }
+        }
+        //not in any cluster, MISSED
+        if(coverage == 0 && !cmdp.isNoise()){
+            err = missedError(cmdp,true);
+        }
+
+        cmdp.p.setMeasureValue("CMM",err);
+        cmdp.p.setMeasureValue("Redundancy", coverage);
+        errors[p] = err;
+        coverages[p] = coverage;
+    }
+
+
     private double noiseError(CMMPoint cmdp, int assignedClusterID){
         int gtAssignedID = matchMap[assignedClusterID];
         double error;
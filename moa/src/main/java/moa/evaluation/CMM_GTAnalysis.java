@@ -42,6 +42,11 @@ import moa.gui.visualization.DataPoint;
 import com.yahoo.labs.samoa.instances.Instance;
 
 public class CMM_GTAnalysis{
+
+    /**
+     * points per task when the analysis runs on a fork/join pool
+     */
+    private static final int GRAIN = 32;
 	
     /**
      * the given ground truth clustering
@@ -294,28 +299,37 @@ public class CMM_GTAnalysis{
          * + average knn distance and average knn distance deviation of all points 
          */
         private void calculateKnn(){
+            //the knn search of each point can run on its own, the sums are made in point order
+            ParallelLoop.run(points.size(), GRAIN, new ParallelLoop.Body() {
+                public void run(int from, int to) {
+                    for (int i = from; i < to; i++) {
+                        CMMPoint cmdp = cmmpoints.get(points.get(i));
+                        if(!cmdp.isNoise()){
+                            AutoExpandVector<Double> knnDist = new AutoExpandVector<Double>();
+                            AutoExpandVector<Integer> knnPointIndex = new AutoExpandVector<Integer>();
+
+                            //calculate nearest neighbours 
+                            getKnnInCluster(cmdp, knnNeighbourhood, points, knnDist,knnPointIndex);
+
+                            //TODO: What to do if we have less then k neighbours?
+                            double avgKnn = 0;
+                            for (int k = 0; k < knnDist.size(); k++) {
+                                avgKnn+= knnDist.get(k);
+                            }
+                            if(knnDist.size()!=0)
+                                avgKnn/=knnDist.size();
+                            cmdp.knnInCluster = avgKnn;
+                            cmdp.knnIndices = knnPointIndex;
+                            cmdp.p.setMeasureValue("knnAvg", cmdp.knnInCluster);
+                        }
+                    }
+                }
+            });
             for (int p0 : points) {
                 CMMPoint cmdp = cmmpoints.get(p0);
                 if(!cmdp.isNoise()){
-                    AutoExpandVector<Double> knnDist = new AutoExpandVector<Double>();
-                    AutoExpandVector<Integer> knnPointIndex = new AutoExpandVector<Integer>();
-                    
-                    //calculate nearest neighbours 
-                    getKnnInCluster(cmdp, knnNeighbourhood, points, knnDist,knnPointIndex);
-
-                    //TODO: What to do if we have less then k neighbours?
-                    double avgKnn = 0;
-                    for (int i = 0; i < knnDist.size(); i++) {
-                        avgKnn+= knnDist.get(i);
-                    }
-                    if(knnDist.size()!=0)
-                        avgKnn/=knnDist.size();
-                    cmdp.knnInCluster = avgKnn;
-                    cmdp.knnIndices = knnPointIndex;
-                    cmdp.p.setMeasureValue("knnAvg", cmdp.knnInCluster);
-
-                    knnMeanAvg+=avgKnn;
-                    knnDevAvg+=Math.pow(avgKnn,2);
+                    knnMeanAvg+=cmdp.knnInCluster;
+                    knnDevAvg+=Math.pow(cmdp.knnInCluster,2);
                 }
             }
             knnMeanAvg=knnMeanAvg/(double)points.size();
@@ -334,7 +348,7 @@ public class CMM_GTAnalysis{
          * @param otherCid cluster id of the other cluster
          * @param initial flag for initial run
          */
-        private void calculateClusterConnection(int otherCid, boolean initial){
+        private void calculateClusterConnection(final int otherCid, boolean initial){
             double avgConnection = 0;
             if(workclass==otherCid){
                 avgConnection = 1;
@@ -343,9 +357,20 @@ public class CMM_GTAnalysis{
                 AutoExpandVector<Double> kmax = new AutoExpandVector<Double>();
                 AutoExpandVector<Integer> kmaxIndexes = new AutoExpandVector<Integer>();
 
-                for(int p : points){
+                //the knn searches of the points to the other cluster first
+                final double[] connectionValues = new double[points.size()];
+                ParallelLoop.run(points.size(), GRAIN, new ParallelLoop.Body() {
+                    public void run(int from, int to) {
+                        for (int i = from; i < to; i++) {
+                            connectionValues[i] = getConnectionValue(cmmpoints.get(points.get(i)), otherCid);
+                        }
+                    }
+                });
+
+                for (int i = 0; i < points.size(); i++) {
+                    int p = points.get(i);
                     CMMPoint cmdp = cmmpoints.get(p);
-                    double con_p_Cj = getConnectionValue(cmmpoints.get(p), otherCid);
+                    double con_p_Cj = connectionValues[i];
                     double connection = cmdp.connectivity * con_p_Cj;
                     if(initial){
                         cmdp.p.setMeasureValue("Connection to C"+otherCid, con_p_Cj);
@@ -623,13 +648,17 @@ public class CMM_GTAnalysis{
      * calculate initial connectivities
      */
     private void calculateGTPointQualities(){
-        for (int p = 0; p < numPoints; p++) {
-            CMMPoint cmdp = cmmpoints.get(p);
-            if(!cmdp.isNoise()){
-                cmdp.connectivity = getConnectionValue(cmdp, cmdp.workclass());
-                cmdp.p.setMeasureValue("Connectivity", cmdp.connectivity);
+        ParallelLoop.run(numPoints, GRAIN, new ParallelLoop.Body() {
+            public void run(int from, int to) {
+                for (int p = from; p < to; p++) {
+                    CMMPoint cmdp = cmmpoints.get(p);
+                    if(!cmdp.isNoise()){
+                        cmdp.connectivity = getConnectionValue(cmdp, cmdp.workclass());
+                        cmdp.p.setMeasureValue("Connectivity", cmdp.connectivity);
+                    }
+                }
             }
-        }
+        });
     }
 
     
@@ -718,19 +747,28 @@ public class CMM_GTAnalysis{
         if(noise.isEmpty()) 
             return 1;
 
-        double connectivity = 0;
-        for(int p : noise){
-            CMMPoint npoint = cmmpoints.get(p);
-            double maxConnection = 0;
-
-            //TODO: some kind of pruning possible. what about weighting?
-            for (int c = 0; c < gt0Clusters.size(); c++) {
-                double connection = getConnectionValue(npoint, c);
-                if(connection > maxConnection)
-                    maxConnection = connection;
+        final double[] maxConnections = new double[noise.size()];
+        ParallelLoop.run(noise.size(), GRAIN, new ParallelLoop.Body() {
+            public void run(int from, int to) {
+                for (int i = from; i < to; i++) {
+                    CMMPoint npoint = cmmpoints.get(noise.get(i));
+                    double maxConnection = 0;
+
+                    //TODO: some kind of pruning possible. what about weighting?
+                    for (int c = 0; c < gt0Clusters.size(); c++) {
+                        double connection = getConnectionValue(npoint, c);
+                        if(connection > maxConnection)
+                            maxConnection = connection;
+                    }
+                    maxConnections[i] = maxConnection;
+                    npoint.p.setMeasureValue("MaxConnection", maxConnection);
+                }
             }
-            connectivity+=maxConnection;
-            npoint.p.setMeasureValue("MaxConnection", maxConnection);
+        });
+
+        double connectivity = 0;
+        for (int i = 0; i < maxConnections.length; i++) {
+            connectivity+=maxConnections[i];
         }
 
         return 1-(connectivity / noise.size());
@@ -797,20 +835,9 @@ public class CMM_GTAnalysis{
      * @return euclidian distance
      */
     private double distance(Instance inst1, Instance inst2){
-          return distance(inst1, inst2.toDoubleArray());
-
-    }
-    
-    /**
-     * Calculates Euclidian distance 
-     * @param inst1 point as an instance
-     * @param inst2 point as double array
-     * @return euclidian distance
-     */
-    private double distance(Instance inst1, double[] inst2){
         double distance = 0.0;
         for (int i = 0; i < numDims; i++) {
-            double d = inst1.value(i) - inst2[i];
+            double d = inst1.value(i) - inst2.value(i);
             distance += d * d;
         }
         return Math.sqrt(distance);
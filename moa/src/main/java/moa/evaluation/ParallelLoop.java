@@ -0,0 +1,85 @@
+/*
+ *    ParallelLoop.java
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ *
+ *
+ */
+
+package moa.evaluation;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Loop over a range of indices that is split into fork/join tasks when it
+ * runs inside a fork/join pool with more than one thread, as the measure
+ * collections do when BatchCmd evaluates them on a pool. Anywhere else the
+ * loop runs on the calling thread.
+ *
+ * The body only sees a subrange, so measures compute one result per index
+ * in the loop and sum the results in index order afterwards, which gives the
+ * same values as a sequential run.
+ */
+public class ParallelLoop extends RecursiveAction {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Work done for a range of indices.
+     */
+    public interface Body {
+
+        void run(int from, int to);
+    }
+
+    private final Body body;
+
+    private final int from;
+
+    private final int to;
+
+    private final int grain;
+
+    private ParallelLoop(Body body, int from, int to, int grain) {
+        this.body = body;
+        this.from = from;
+        this.to = to;
+        this.grain = grain;
+    }
+
+    /**
+     * Runs the body over the indices from 0 to size, in ranges of at least
+     * grain indices.
+     */
+    public static void run(int size, int grain, Body body) {
+        ForkJoinPool pool = ForkJoinTask.getPool();
+        if (size > grain && ForkJoinTask.inForkJoinPool() && pool.getParallelism() > 1) {
+            new ParallelLoop(body, 0, size, Math.max(1, grain)).invoke();
+        } else {
+            body.run(0, size);
+        }
+    }
+
+    @Override
+    protected void compute() {
+        if (this.to - this.from <= this.grain) {
+            this.body.run(this.from, this.to);
+        } else {
+            int middle = (this.from + this.to) >>> 1;
+            invokeAll(new ParallelLoop(this.body, this.from, middle, this.grain),
+                    new ParallelLoop(this.body, middle, this.to, this.grain));
+        }
+    }
+}
@@ -21,12 +21,15 @@
 package moa.evaluation; 
 
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.Arrays;
 import moa.cluster.Cluster;
 import moa.cluster.Clustering;
 import moa.gui.visualization.DataPoint;
 
 public class SilhouetteCoefficient extends MeasureCollection{
+    // Points per task when the evaluation runs on a fork/join pool
+    private static final int GRAIN = 64;
+
     private double pointInclusionProbThreshold = 0.8;
 
     public SilhouetteCoefficient() {
@@ -45,91 +48,133 @@ public class SilhouetteCoefficient extends MeasureCollection{
         return names;
     }
 
-    public void evaluateClustering(Clustering clustering, Clustering trueClustering, ArrayList<DataPoint> points) {
-        int numFCluster = clustering.size();
+    public void evaluateClustering(Clustering clustering, Clustering trueClustering, final ArrayList<DataPoint> points) {
+        final int numFCluster = clustering.size();
+        final int numPoints = points.size();
+
+        final double [][] pointInclusionProbFC = new double[numPoints][numFCluster];
+        final Clustering found = clustering;
+        ParallelLoop.run(numPoints, GRAIN, new ParallelLoop.Body() {
+            public void run(int from, int to) {
+                for (int p = from; p < to; p++) {
+                    DataPoint point = points.get(p);
+                    for (int fc = 0; fc < numFCluster; fc++) {
+                        Cluster cl = found.get(fc);
+                        pointInclusionProbFC[p][fc] = cl.getInclusionProbability(point);
+                    }
+                }
+            }
+        });
 
-        double [][] pointInclusionProbFC = new double[points.size()][numFCluster];
-        for (int p = 0; p < points.size(); p++) {
+        // the clusters of each point, and the attribute values read once
+        final int[][] clustersOf = new int[numPoints][];
+        final double[][] values = new double[numPoints][];
+        int[] members = new int[numFCluster];
+        for (int p = 0; p < numPoints; p++) {
             DataPoint point = points.get(p);
-            for (int fc = 0; fc < numFCluster; fc++) {
-                Cluster cl = clustering.get(fc);
-                pointInclusionProbFC[p][fc] = cl.getInclusionProbability(point);
+            int count = 0;
+            if (point.classValue() != -1) {
+                for (int fc = 0; fc < numFCluster; fc++) {
+                    if(pointInclusionProbFC[p][fc] > pointInclusionProbThreshold){
+                        members[count++] = fc;
+                    }
+                }
+            }
+            clustersOf[p] = Arrays.copyOf(members, count);
+            values[p] = new double[point.numAttributes()];
+            for (int i = 0; i < values[p].length; i++) {
+                values[p][i] = point.value(i);
             }
         }
 
+        // the silhouette of each point, summed in point order afterwards
+        final double[] silhouettes = new double[numPoints];
+        final boolean[] counted = new boolean[numPoints];
+        ParallelLoop.run(numPoints, GRAIN, new ParallelLoop.Body() {
+            public void run(int from, int to) {
+                for (int p = from; p < to; p++) {
+                    silhouette(p, points.get(p), numFCluster, pointInclusionProbFC, clustersOf, values,
+                            silhouettes, counted);
+                }
+            }
+        });
+
         double silhCoeff = 0.0;
         int totalCount = 0;
-        for (int p = 0; p < points.size(); p++) {
-            DataPoint point = points.get(p);
-            ArrayList<Integer> ownClusters = new ArrayList<Integer>();
-            for (int fc = 0; fc < numFCluster; fc++) {
-                if(pointInclusionProbFC[p][fc] > pointInclusionProbThreshold){
-                    ownClusters.add(fc);
-                }
+        for (int p = 0; p < numPoints; p++) {
+            if (counted[p]) {
+                silhCoeff+=silhouettes[p];
+                totalCount++;
+            }
+        }
+        if(totalCount>0)
+            silhCoeff/=(double)totalCount;
+        //normalize from -1, 1 to 0,1
+        silhCoeff = (silhCoeff+1)/2.0;
+        addValue(0,silhCoeff);
+    }
+
+    private void silhouette(int p, DataPoint point, int numFCluster, double[][] pointInclusionProbFC,
+            int[][] clustersOf, double[][] values, double[] silhouettes, boolean[] counted) {
+        ArrayList<Integer> ownClusters = new ArrayList<Integer>();
+        for (int fc = 0; fc < numFCluster; fc++) {
+            if(pointInclusionProbFC[p][fc] > pointInclusionProbThreshold){
+                ownClusters.add(fc);
             }
+        }
 
-            if(ownClusters.size() > 0){
-                double[] distanceByClusters = new double[numFCluster];
-                int[] countsByClusters = new int[numFCluster];
-                    //calculate averageDistance of p to all cluster
-                for (int p1 = 0; p1 < points.size(); p1++) {
-                    DataPoint point1 = points.get(p1);
-                    if(p1!= p && point1.classValue() != -1){
-                        for (int fc = 0; fc < numFCluster; fc++) {
-                            if(pointInclusionProbFC[p1][fc] > pointInclusionProbThreshold){
-                                double distance = distance(point, point1);
-                                distanceByClusters[fc]+=distance;
-                                countsByClusters[fc]++;
-                            }
-                        }
+        if(ownClusters.size() > 0){
+            double[] distanceByClusters = new double[numFCluster];
+            int[] countsByClusters = new int[numFCluster];
+                //calculate averageDistance of p to all cluster
+            for (int p1 = 0; p1 < clustersOf.length; p1++) {
+                if(p1!= p && clustersOf[p1].length > 0){
+                    double distance = distance(values[p], values[p1]);
+                    for (int fc : clustersOf[p1]) {
+                        distanceByClusters[fc]+=distance;
+                        countsByClusters[fc]++;
                     }
                 }
+            }
 
-                //find closest OWN cluster as clusters might overlap
-                double minAvgDistanceOwn = Double.MAX_VALUE;
-                int minOwnIndex = -1;
-                for (int fc : ownClusters) {
-                        double normDist = distanceByClusters[fc]/(double)countsByClusters[fc];
-                        if(normDist < minAvgDistanceOwn){// && pointInclusionProbFC[p][fc] > pointInclusionProbThreshold){
-                            minAvgDistanceOwn = normDist;
-                            minOwnIndex = fc;
-                        }
-                }
+            //find closest OWN cluster as clusters might overlap
+            double minAvgDistanceOwn = Double.MAX_VALUE;
+            int minOwnIndex = -1;
+            for (int fc : ownClusters) {
+                    double normDist = distanceByClusters[fc]/(double)countsByClusters[fc];
+                    if(normDist < minAvgDistanceOwn){// && pointInclusionProbFC[p][fc] > pointInclusionProbThreshold){
+                        minAvgDistanceOwn = normDist;
+                        minOwnIndex = fc;
+                    }
+            }
 
 
-                //find closest other (or other own) cluster
-                double minAvgDistanceOther = Double.MAX_VALUE;
-                for (int fc = 0; fc < numFCluster; fc++) {
-                    if(fc != minOwnIndex){
-                        double normDist = distanceByClusters[fc]/(double)countsByClusters[fc];
-                        if(normDist < minAvgDistanceOther){
-                            minAvgDistanceOther = normDist;
-                        }
+            //find closest other (or other own) cluster
+            double minAvgDistanceOther = Double.MAX_VALUE;
+            for (int fc = 0; fc < numFCluster; fc++) {
+                if(fc != minOwnIndex){
+                    double normDist = distanceByClusters[fc]/(double)countsByClusters[fc];
+                    if(normDist < minAvgDistanceOther){
+                        minAvgDistanceOther = normDist;
                     }
                 }
+            }
 
-                double silhP = (minAvgDistanceOther-minAvgDistanceOwn)/Math.max(minAvgDistanceOther, minAvgDistanceOwn);
-                point.setMeasureValue("SC - own", minAvgDistanceOwn);
-                point.setMeasureValue("SC - other", minAvgDistanceOther);
-                point.setMeasureValue("SC", silhP);
+            double silhP = (minAvgDistanceOther-minAvgDistanceOwn)/Math.max(minAvgDistanceOther, minAvgDistanceOwn);
+            point.setMeasureValue("SC - own", minAvgDistanceOwn);
+            point.setMeasureValue("SC - other", minAvgDistanceOther);
+            point.setMeasureValue("SC", silhP);
 
-                silhCoeff+=silhP;
-                totalCount++;
-                //System.out.println(point.getTimestamp()+" Silh "+silhP+" / "+avgDistanceOwn+" "+minAvgDistanceOther+" (C"+minIndex+")");
-            }
+            silhouettes[p] = silhP;
+            counted[p] = true;
+            //System.out.println(point.getTimestamp()+" Silh "+silhP+" / "+avgDistanceOwn+" "+minAvgDistanceOther+" (C"+minIndex+")");
         }
-        if(totalCount>0)
-            silhCoeff/=(double)totalCount;
-        //normalize from -1, 1 to 0,1
-        silhCoeff = (silhCoeff+1)/2.0;
-        addValue(0,silhCoeff);
     }
 
-    private double distance(DataPoint inst1, DataPoint inst2){
+    private double distance(double[] values1, double[] values2){
         double distance = 0.0;
-        int numDims = inst1.numAttributes();
-        for (int i = 0; i < numDims; i++) {
-            double d = inst1.value(i) - inst2.value(i);
+        for (int i = 0; i < values1.length; i++) {
+            double d = values1[i] - values2[i];
             distance += d * d;
         }
         return Math.sqrt(distance);
@@ -0,0 +1,81 @@
+package moa.experiments;
+
+import com.yahoo.labs.samoa.instances.Instance;
+import moa.streams.ArffFileStream;
+import moa.streams.generators.HyperplaneGeneratorReg;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+
+
+// Reads an ARFF file with the StreamTokenizer based loader and with FastArffLoader (-l),
+// reporting MB/s, instances/s and a checksum of the values read, that must be the same.
+// Without a file, a regression file is generated with HyperplaneGeneratorReg.
+// java -cp moa-pom.jar moa.experiments.ArffLoaderBenchmark [instances] [numAtts] [arffFile]
+public class ArffLoaderBenchmark {
+
+    private static final int DEFAULT_INSTANCES = 200000;
+    private static final int DEFAULT_NUM_ATTS = 50;
+    private static final int ROUNDS = 3;
+
+    public static void main(String args[]) throws IOException {
+        int numInstances = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_INSTANCES;
+        int numAtts = args.length > 1 ? Integer.parseInt(args[1]) : DEFAULT_NUM_ATTS;
+        File file;
+        if (args.length > 2) {
+            file = new File(args[2]);
+        } else {
+            file = File.createTempFile("ArffLoaderBenchmark", ".arff");
+            file.deleteOnExit();
+            write(file, numInstances, numAtts);
+        }
+        double megabytes = file.length() / (1024.0 * 1024.0);
+        System.out.println("file\t" + file + "\t" + String.format("%.1f", megabytes) + " MB");
+
+        System.out.println("loader\tround\tMB/s\tinstances/s\tchecksum");
+        for (int round = 0; round < ROUNDS; round++) {
+            // the first round warms up the JIT and the file cache
+            run("tokenizer", false, file, megabytes, round);
+            run("fast", true, file, megabytes, round);
+        }
+    }
+
+    private static void run(String name, boolean fast, File file, double megabytes, int round) {
+        long start = System.nanoTime();
+        ArffFileStream stream = new ArffFileStream();
+        stream.arffFileOption.setValue(file.getPath());
+        stream.fastLoaderOption.setValue(fast);
+        stream.prepareForUse();
+        long instances = 0;
+        double checksum = 0.0;
+        while (stream.hasMoreInstances()) {
+            Instance inst = stream.nextInstance().getData();
+            for (int i = 0; i < inst.numValues(); i++) {
+                checksum += inst.valueSparse(i);
+            }
+            instances++;
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.out.println(name + "\t" + round + "\t" + String.format("%.1f", megabytes / seconds) + "\t"
+                + String.format("%.0f", instances / seconds) + "\t" + checksum);
+    }
+
+    private static void write(File file, int numInstances, int numAtts) throws IOException {
+        HyperplaneGeneratorReg stream = new HyperplaneGeneratorReg();
+        stream.numAttsOption.setValue(numAtts);
+        stream.prepareForUse();
+        BufferedWriter w = new BufferedWriter(new FileWriter(file));
+        try {
+            w.write(stream.getHeader().toString());
+            w.write("\n");
+            for (int i = 0; i < numInstances; i++) {
+                w.write(stream.nextInstance().getData().toString());
+                w.write("\n");
+            }
+        } finally {
+            w.close();
+        }
+    }
+}
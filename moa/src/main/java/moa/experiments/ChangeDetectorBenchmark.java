@@ -0,0 +1,102 @@
+package moa.experiments;
+
+import moa.classifiers.core.driftdetection.ADWIN;
+import moa.classifiers.core.driftdetection.ADWINChangeDetector;
+import moa.classifiers.core.driftdetection.ChangeDetector;
+import moa.classifiers.core.driftdetection.CusumDM;
+import moa.classifiers.core.driftdetection.DDM;
+import moa.classifiers.core.driftdetection.EDDM;
+import moa.classifiers.core.driftdetection.EWMAChartDM;
+import moa.classifiers.core.driftdetection.GeometricMovingAverageDM;
+import moa.classifiers.core.driftdetection.HDDM_A_Test;
+import moa.classifiers.core.driftdetection.HDDM_W_Test;
+import moa.classifiers.core.driftdetection.PageHinkleyDM;
+import moa.classifiers.core.driftdetection.RDDM;
+import moa.classifiers.core.driftdetection.SEEDChangeDetector;
+import moa.classifiers.core.driftdetection.STEPD;
+import moa.classifiers.core.driftdetection.SeqDrift1ChangeDetector;
+import moa.classifiers.core.driftdetection.SeqDrift2ChangeDetector;
+
+import java.lang.management.ManagementFactory;
+import java.util.Random;
+
+
+// Feeds the change detectors of moa.classifiers.core.driftdetection, and ADWIN used directly as
+// the ensembles do, with a stream of 0/1 errors whose error rate changes abruptly every drift
+// period: nanoseconds and bytes allocated per input, and the number of changes detected. The
+// detectors are reset after each change, as the learners do.
+// java -cp moa-pom.jar moa.experiments.ChangeDetectorBenchmark [inputs] [driftPeriod]
+public class ChangeDetectorBenchmark {
+
+    private static final int DEFAULT_INPUTS = 1000000;
+    private static final int DEFAULT_DRIFT_PERIOD = 20000;
+    private static final int ROUNDS = 3;
+
+    public static void main(String args[]) throws Exception {
+        int numInputs = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_INPUTS;
+        int driftPeriod = args.length > 1 ? Integer.parseInt(args[1]) : DEFAULT_DRIFT_PERIOD;
+
+        double[] inputs = new double[numInputs];
+        Random random = new Random(1);
+        for (int i = 0; i < numInputs; i++) {
+            double errorRate = (i / driftPeriod) % 2 == 0 ? 0.2 : 0.4;
+            inputs[i] = random.nextDouble() < errorRate ? 1.0 : 0.0;
+        }
+
+        Class<?>[] detectors = {ADWINChangeDetector.class, CusumDM.class, DDM.class, EDDM.class,
+            EWMAChartDM.class, GeometricMovingAverageDM.class, HDDM_A_Test.class, HDDM_W_Test.class,
+            PageHinkleyDM.class, RDDM.class, SEEDChangeDetector.class, STEPD.class,
+            SeqDrift1ChangeDetector.class, SeqDrift2ChangeDetector.class};
+
+        System.out.println("detector\tround\tns/input\tbytes/input\tdetections");
+        // the first rounds warm up the JIT
+        for (int round = 0; round < ROUNDS; round++) {
+            runADWIN(inputs, round);
+            for (Class<?> detectorClass : detectors) {
+                ChangeDetector detector = (ChangeDetector) detectorClass.newInstance();
+                detector.prepareForUse();
+                run(detector, inputs, round);
+            }
+        }
+    }
+
+    private static void runADWIN(double[] inputs, int round) {
+        ADWIN adwin = new ADWIN();
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long threadId = Thread.currentThread().getId();
+        int detections = 0;
+        long allocatedStart = threads.getThreadAllocatedBytes(threadId);
+        long start = System.nanoTime();
+        for (double input : inputs) {
+            if (adwin.setInput(input)) {
+                detections++;
+            }
+        }
+        print("ADWIN", round, System.nanoTime() - start,
+                threads.getThreadAllocatedBytes(threadId) - allocatedStart, inputs.length, detections);
+    }
+
+    private static void run(ChangeDetector detector, double[] inputs, int round) {
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long threadId = Thread.currentThread().getId();
+        int detections = 0;
+        long allocatedStart = threads.getThreadAllocatedBytes(threadId);
+        long start = System.nanoTime();
+        for (double input : inputs) {
+            detector.input(input);
+            if (detector.getChange()) {
+                detections++;
+                // as the learners do, start again after a change
+                detector.resetLearning();
+            }
+        }
+        print(detector.getClass().getSimpleName(), round, System.nanoTime() - start,
+                threads.getThreadAllocatedBytes(threadId) - allocatedStart, inputs.length, detections);
+    }
+
+    private static void print(String name, int round, long nanos, long allocated, int numInputs, int detections) {
+        System.out.println(name + "\t" + round + "\t"
+                + String.format("%.1f", nanos / (double) numInputs) + "\t"
+                + String.format("%.2f", allocated / (double) numInputs) + "\t" + detections);
+    }
+}
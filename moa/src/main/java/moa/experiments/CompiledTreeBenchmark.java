@@ -0,0 +1,89 @@
+package moa.experiments;
+
+import com.github.javacliparser.FlagOption;
+import com.yahoo.labs.samoa.instances.Instance;
+import moa.classifiers.AbstractClassifier;
+import moa.classifiers.trees.FIMTDD;
+import moa.classifiers.trees.HoeffdingTree;
+import moa.streams.InstanceStream;
+import moa.streams.generators.HyperplaneGeneratorReg;
+import moa.streams.generators.RandomTreeGenerator;
+
+import java.lang.management.ManagementFactory;
+
+
+// Compares the latency of predictions of HoeffdingTree and FIMTDD going through the tree nodes
+// and through the compiled flat array tree (-i): nanoseconds and bytes allocated per prediction,
+// and a checksum of the predictions, that must be the same. Trees are grown first, with
+// majority class leaves and regression tree leaves so that the descent dominates the latency.
+// java -cp moa-pom.jar moa.experiments.CompiledTreeBenchmark [trainInstances] [testInstances]
+public class CompiledTreeBenchmark {
+
+    private static final int DEFAULT_TRAIN_INSTANCES = 200000;
+    private static final int DEFAULT_TEST_INSTANCES = 100000;
+    private static final int ROUNDS = 5;
+
+    public static void main(String args[]) {
+        int numTrain = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_TRAIN_INSTANCES;
+        int numTest = args.length > 1 ? Integer.parseInt(args[1]) : DEFAULT_TEST_INSTANCES;
+
+        RandomTreeGenerator classification = new RandomTreeGenerator();
+        classification.numNominalsOption.setValue(5);
+        classification.numNumericsOption.setValue(10);
+        classification.prepareForUse();
+        HoeffdingTree ht = new HoeffdingTree();
+        ht.gracePeriodOption.setValue(50);
+        ht.leafpredictionOption.setChosenIndex(0);
+        ht.setModelContext(classification.getHeader());
+        ht.prepareForUse();
+
+        HyperplaneGeneratorReg regression = new HyperplaneGeneratorReg();
+        regression.prepareForUse();
+        FIMTDD fimtdd = new FIMTDD();
+        fimtdd.regressionTreeOption.setValue(true);
+        fimtdd.setModelContext(regression.getHeader());
+        fimtdd.prepareForUse();
+
+        System.out.println("learner\tpath\tround\tns/prediction\tbytes/prediction\tchecksum");
+        benchmark(ht, ht.compiledInferenceOption, classification, numTrain, numTest);
+        benchmark(fimtdd, fimtdd.compiledInferenceOption, regression, numTrain, numTest);
+    }
+
+    private static void benchmark(AbstractClassifier learner, FlagOption compiled,
+            InstanceStream stream, int numTrain, int numTest) {
+        for (int i = 0; i < numTrain; i++) {
+            learner.trainOnInstance(stream.nextInstance().getData());
+        }
+        Instance[] instances = new Instance[numTest];
+        for (int i = 0; i < numTest; i++) {
+            instances[i] = stream.nextInstance().getData();
+        }
+        System.out.println(learner.getClass().getSimpleName() + "\t" + learner.getModelMeasurements()[2]);
+        // the first rounds warm up the JIT
+        for (int round = 0; round < ROUNDS; round++) {
+            compiled.setValue(false);
+            run(learner, "nodes", instances, round);
+            compiled.setValue(true);
+            run(learner, "compiled", instances, round);
+        }
+    }
+
+    private static void run(AbstractClassifier learner, String path, Instance[] instances, int round) {
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long threadId = Thread.currentThread().getId();
+        double checksum = 0.0;
+        long allocatedStart = threads.getThreadAllocatedBytes(threadId);
+        long start = System.nanoTime();
+        for (Instance inst : instances) {
+            double[] votes = learner.getVotesForInstance(inst);
+            for (double vote : votes) {
+                checksum += vote;
+            }
+        }
+        long nanos = System.nanoTime() - start;
+        long allocated = threads.getThreadAllocatedBytes(threadId) - allocatedStart;
+        System.out.println(learner.getClass().getSimpleName() + "\t" + path + "\t" + round + "\t"
+                + String.format("%.1f", nanos / (double) instances.length) + "\t"
+                + String.format("%.1f", allocated / (double) instances.length) + "\t" + checksum);
+    }
+}
@@ -0,0 +1,89 @@
+package moa.experiments;
+
+import com.yahoo.labs.samoa.instances.Instance;
+import moa.classifiers.AbstractClassifier;
+import moa.classifiers.trees.ARFFIMTDD;
+import moa.classifiers.trees.FIMTDD;
+import moa.classifiers.trees.ORTO;
+import moa.streams.generators.HyperplaneGeneratorReg;
+
+import java.lang.management.ManagementFactory;
+import java.util.Random;
+
+
+// Measures the perceptron leaf models of FIMTDD, ARFFIMTDD and ORTO: throughput and bytes
+// allocated per instance, for predictions alone and for training with poisson(6) weights
+// as in the bagging ensembles. Trees are grown first, so split searches are rare while measuring.
+// java -cp moa-pom.jar moa.experiments.FIMTDDLeafModelBenchmark [instances] [numAtts]
+public class FIMTDDLeafModelBenchmark {
+
+    private static final int DEFAULT_INSTANCES = 50000;
+    private static final int DEFAULT_NUM_ATTS = 100;
+    private static final double LAMBDA = 6.0;
+
+    public static void main(String args[]) {
+        int numInstances = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_INSTANCES;
+        int numAtts = args.length > 1 ? Integer.parseInt(args[1]) : DEFAULT_NUM_ATTS;
+
+        HyperplaneGeneratorReg stream = new HyperplaneGeneratorReg();
+        stream.numAttsOption.setValue(numAtts);
+        stream.prepareForUse();
+        Instance[] instances = new Instance[numInstances];
+        int[] weights = new int[numInstances];
+        Random random = new Random(1);
+        for (int i = 0; i < numInstances; i++) {
+            instances[i] = stream.nextInstance().getData();
+            weights[i] = poisson(LAMBDA, random);
+        }
+
+        AbstractClassifier[] learners = {new FIMTDD(), new ARFFIMTDD(), new ORTO()};
+        System.out.println("learner\tmode\tinstances/s\tbytes/instance\tchecksum");
+        for (AbstractClassifier learner : learners) {
+            learner.setModelContext(stream.getHeader());
+            learner.prepareForUse();
+            // grows the tree and warms up the JIT
+            for (int round = 0; round < 2; round++) {
+                run(learner, "train", instances, weights, false);
+            }
+            run(learner, "predict", instances, weights, true);
+            run(learner, "train", instances, weights, true);
+        }
+    }
+
+    private static void run(AbstractClassifier learner, String mode, Instance[] instances, int[] weights, boolean print) {
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long threadId = Thread.currentThread().getId();
+        boolean train = mode.equals("train");
+        double checksum = 0.0;
+        long allocatedStart = threads.getThreadAllocatedBytes(threadId);
+        long start = System.nanoTime();
+        for (int i = 0; i < instances.length; i++) {
+            if (train) {
+                if (weights[i] > 0) {
+                    instances[i].setWeight(weights[i]);
+                    learner.trainOnInstance(instances[i]);
+                }
+            } else {
+                checksum += learner.getVotesForInstance(instances[i])[0];
+            }
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        long allocated = threads.getThreadAllocatedBytes(threadId) - allocatedStart;
+        if (print) {
+            System.out.println(learner.getClass().getSimpleName() + "\t" + mode + "\t"
+                    + String.format("%.0f", instances.length / seconds) + "\t"
+                    + String.format("%.1f", allocated / (double) instances.length) + "\t" + checksum);
+        }
+    }
+
+    private static int poisson(double lambda, Random random) {
+        double l = Math.exp(-lambda);
+        double p = 1.0;
+        int k = 0;
+        do {
+            k++;
+            p *= random.nextDouble();
+        } while (p > l);
+        return k - 1;
+    }
+}
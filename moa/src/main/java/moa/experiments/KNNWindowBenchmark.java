@@ -0,0 +1,83 @@
+package moa.experiments;
+
+import com.yahoo.labs.samoa.instances.Instance;
+import moa.classifiers.lazy.kNN;
+import moa.streams.generators.RandomRBFGenerator;
+
+import java.util.Arrays;
+
+
+// Measures kNN on a full window with each nearest neighbour search: microseconds per prediction,
+// per prediction in blocks (getVotesForInstances) and per training instance, and a checksum of
+// the votes, that must be the same for LinearNN and WindowNN.
+// java -cp moa-pom.jar moa.experiments.KNNWindowBenchmark [window] [testInstances] [blockSize]
+public class KNNWindowBenchmark {
+
+    private static final int DEFAULT_WINDOW = 10000;
+    private static final int DEFAULT_TEST_INSTANCES = 500;
+    private static final int DEFAULT_BLOCK_SIZE = 16;
+    private static final String[] SEARCHES = {"LinearNN", "KDTree", "WindowNN"};
+
+    public static void main(String args[]) {
+        int window = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_WINDOW;
+        int numTest = args.length > 1 ? Integer.parseInt(args[1]) : DEFAULT_TEST_INSTANCES;
+        int blockSize = args.length > 2 ? Integer.parseInt(args[2]) : DEFAULT_BLOCK_SIZE;
+
+        RandomRBFGenerator stream = new RandomRBFGenerator();
+        stream.prepareForUse();
+        Instance[] train = new Instance[window];
+        for (int i = 0; i < window; i++) {
+            train[i] = stream.nextInstance().getData();
+        }
+        Instance[] test = new Instance[numTest];
+        for (int i = 0; i < numTest; i++) {
+            test[i] = stream.nextInstance().getData();
+        }
+
+        System.out.println("search\tus/train\tus/prediction\tus/prediction in blocks\tchecksum");
+        for (String search : SEARCHES) {
+            kNN learner = new kNN();
+            learner.limitOption.setValue(window);
+            learner.nearestNeighbourSearchOption.setChosenLabel(search);
+            learner.setModelContext(stream.getHeader());
+            learner.prepareForUse();
+
+            long start = System.nanoTime();
+            for (Instance inst : train) {
+                learner.trainOnInstance(inst);
+            }
+            // the window is full, so training also evicts from now on
+            for (Instance inst : test) {
+                learner.trainOnInstance(inst);
+            }
+            double trainMicros = (System.nanoTime() - start) / 1e3 / (window + numTest);
+
+            double[][] blockVotes = new double[blockSize][];
+            double checksum = 0.0;
+            double predictMicros = 0.0;
+            double blockMicros = 0.0;
+            // the first round warms up the JIT
+            for (int round = 0; round < 2; round++) {
+                checksum = 0.0;
+                start = System.nanoTime();
+                for (Instance inst : test) {
+                    double[] votes = learner.getVotesForInstance(inst);
+                    for (int i = 0; i < votes.length; i++) {
+                        checksum += (i + 1) * votes[i];
+                    }
+                }
+                predictMicros = (System.nanoTime() - start) / 1e3 / numTest;
+
+                start = System.nanoTime();
+                for (int from = 0; from < numTest; from += blockSize) {
+                    Instance[] block = Arrays.copyOfRange(test, from, Math.min(numTest, from + blockSize));
+                    learner.getVotesForInstances(block, block.length, blockVotes);
+                }
+                blockMicros = (System.nanoTime() - start) / 1e3 / numTest;
+            }
+
+            System.out.println(search + "\t" + String.format("%.1f", trainMicros) + "\t"
+                    + String.format("%.1f", predictMicros) + "\t" + String.format("%.1f", blockMicros) + "\t" + checksum);
+        }
+    }
+}
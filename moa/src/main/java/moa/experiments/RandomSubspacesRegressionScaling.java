@@ -0,0 +1,56 @@
+package moa.experiments;
+
+import com.yahoo.labs.samoa.instances.Instance;
+import moa.classifiers.meta.RandomSubspacesRegression;
+import moa.streams.generators.HyperplaneGeneratorReg;
+
+
+// Measures how the throughput of RandomSubspacesRegression scales with the number of jobs.
+// The same seeds are used for every run, so the checksum of the predictions must not change.
+// java -cp moa-pom.jar moa.experiments.RandomSubspacesRegressionScaling [instances] [ensembleSize] [numAtts] [maxJobs]
+public class RandomSubspacesRegressionScaling {
+
+    private static final int DEFAULT_INSTANCES = 20000;
+    private static final int DEFAULT_ENSEMBLE_SIZE = 100;
+    private static final int DEFAULT_NUM_ATTS = 50;
+
+    public static void main(String args[]) {
+        int numInstances = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_INSTANCES;
+        int ensembleSize = args.length > 1 ? Integer.parseInt(args[1]) : DEFAULT_ENSEMBLE_SIZE;
+        int numAtts = args.length > 2 ? Integer.parseInt(args[2]) : DEFAULT_NUM_ATTS;
+        int maxJobs = args.length > 3 ? Integer.parseInt(args[3]) : Runtime.getRuntime().availableProcessors();
+
+        System.out.println("jobs\tinstances/s\tspeedup\tchecksum");
+        double baseline = 0.0;
+        for (int jobs = 1; jobs <= maxJobs; jobs *= 2) {
+            double[] result = run(jobs, numInstances, ensembleSize, numAtts);
+            if (jobs == 1) baseline = result[0];
+            System.out.println(jobs + "\t" + String.format("%.1f", result[0]) + "\t"
+                    + String.format("%.2f", result[0] / baseline) + "\t" + result[1]);
+        }
+        // the fixed thread pools of the learners are not daemon threads
+        System.exit(0);
+    }
+
+    private static double[] run(int jobs, int numInstances, int ensembleSize, int numAtts) {
+        HyperplaneGeneratorReg stream = new HyperplaneGeneratorReg();
+        stream.numAttsOption.setValue(numAtts);
+        stream.prepareForUse();
+
+        RandomSubspacesRegression learner = new RandomSubspacesRegression();
+        learner.ensembleSizeOption.setValue(ensembleSize);
+        learner.numberOfJobsOption.setValue(jobs);
+        learner.setModelContext(stream.getHeader());
+        learner.prepareForUse();
+
+        double checksum = 0.0;
+        long start = System.nanoTime();
+        for (int i = 0; i < numInstances && stream.hasMoreInstances(); i++) {
+            Instance inst = stream.nextInstance().getData();
+            checksum += learner.getVotesForInstance(inst)[0];
+            learner.trainOnInstance(inst);
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        return new double[]{numInstances / seconds, checksum};
+    }
+}
@@ -0,0 +1,127 @@
+package moa.experiments;
+
+import com.yahoo.labs.samoa.instances.FilteredSparseInstance;
+import com.yahoo.labs.samoa.instances.Instance;
+import com.yahoo.labs.samoa.instances.SubspaceInstance;
+import moa.classifiers.trees.FIMTDD;
+import moa.streams.generators.HyperplaneGeneratorReg;
+
+import java.lang.management.ManagementFactory;
+import java.util.Random;
+
+
+// Compares building a FilteredSparseInstance per member and instance (the former
+// RandomSubspacesRegression path) against reading through a reusable SubspaceInstance.
+// Reports throughput and bytes allocated per projected instance, with and without a FIMTDD prediction.
+// java -cp moa-pom.jar moa.experiments.SubspaceInstanceBenchmark [instances] [members] [numAtts]
+public class SubspaceInstanceBenchmark {
+
+    private static final int DEFAULT_INSTANCES = 20000;
+    private static final int DEFAULT_MEMBERS = 100;
+    private static final int DEFAULT_NUM_ATTS = 500;
+    private static final double SUBSPACE_PERCENTAGE = 0.7;
+
+    public static void main(String args[]) {
+        int numInstances = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_INSTANCES;
+        int numMembers = args.length > 1 ? Integer.parseInt(args[1]) : DEFAULT_MEMBERS;
+        int numAtts = args.length > 2 ? Integer.parseInt(args[2]) : DEFAULT_NUM_ATTS;
+
+        HyperplaneGeneratorReg stream = new HyperplaneGeneratorReg();
+        stream.numAttsOption.setValue(numAtts);
+        stream.prepareForUse();
+        Instance[] instances = new Instance[numInstances];
+        for (int i = 0; i < numInstances; i++) {
+            instances[i] = stream.nextInstance().getData();
+        }
+        int classIndex = instances[0].classIndex();
+        int numAttributes = instances[0].numAttributes();
+
+        // members' subspaces (features followed by the class index)
+        Random random = new Random(1);
+        int[][] indices = new int[numMembers][];
+        SubspaceInstance[] views = new SubspaceInstance[numMembers];
+        FIMTDD[] trees = new FIMTDD[numMembers];
+        for (int m = 0; m < numMembers; m++) {
+            indices[m] = subspace(random, numAttributes - 1, (int) Math.ceil(SUBSPACE_PERCENTAGE * (numAttributes - 1)), classIndex);
+            views[m] = new SubspaceInstance(indices[m], numAttributes);
+            trees[m] = new FIMTDD();
+            trees[m].setModelContext(stream.getHeader());
+            trees[m].prepareForUse();
+        }
+        // a little training so that predictions go through the leaf models
+        for (int i = 0; i < Math.min(numInstances, 1000); i++) {
+            for (int m = 0; m < numMembers; m++) {
+                trees[m].trainOnInstance(views[m].setInstance(instances[i]));
+            }
+        }
+
+        System.out.println("mode\tpredict\tprojections/s\tbytes/projection\tchecksum");
+        for (int round = 0; round < 2; round++) {
+            // the first round warms up the JIT
+            boolean print = round == 1;
+            for (int predict = 0; predict < 2; predict++) {
+                run("filtered", false, predict == 1, instances, indices, views, trees, print);
+                run("view", true, predict == 1, instances, indices, views, trees, print);
+            }
+        }
+    }
+
+    private static void run(String mode, boolean useView, boolean predict, Instance[] instances,
+                            int[][] indices, SubspaceInstance[] views, FIMTDD[] trees, boolean print) {
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long threadId = Thread.currentThread().getId();
+        double checksum = 0.0;
+        long allocatedStart = threads.getThreadAllocatedBytes(threadId);
+        long start = System.nanoTime();
+        for (Instance inst : instances) {
+            for (int m = 0; m < indices.length; m++) {
+                Instance projected = useView ? views[m].setInstance(inst) : filter(inst, indices[m]);
+                if (predict) {
+                    checksum += trees[m].getVotesForInstance(projected)[0];
+                } else {
+                    for (int i = 0; i < projected.numValues(); i++) {
+                        checksum += projected.valueSparse(i);
+                    }
+                }
+            }
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        long allocated = threads.getThreadAllocatedBytes(threadId) - allocatedStart;
+        double projections = (double) instances.length * indices.length;
+        if (print) {
+            System.out.println(mode + "\t" + predict + "\t" + String.format("%.0f", projections / seconds) + "\t"
+                    + String.format("%.1f", allocated / projections) + "\t" + checksum);
+        }
+    }
+
+    private static Instance filter(Instance inst, int[] indices) {
+        double values[] = new double[indices.length];
+        int copy[] = new int[indices.length];
+        for (int i = 0; i < indices.length; i++) {
+            copy[i] = indices[i];
+            values[i] = inst.value(indices[i]);
+        }
+        Instance filtered = new FilteredSparseInstance(1.0, values, copy, inst.numAttributes());
+        filtered.setDataset(inst.dataset());
+        return filtered;
+    }
+
+    private static int[] subspace(Random random, int numFeatures, int size, int classIndex) {
+        boolean[] selected = new boolean[numFeatures];
+        int count = 0;
+        while (count < size) {
+            int position = random.nextInt(numFeatures);
+            if (position != classIndex && !selected[position]) {
+                selected[position] = true;
+                count++;
+            }
+        }
+        int[] indices = new int[size + 1];
+        int index = 0;
+        for (int i = 0; i < numFeatures; i++) {
+            if (selected[i]) indices[index++] = i;
+        }
+        indices[size] = classIndex;
+        return indices;
+    }
+}
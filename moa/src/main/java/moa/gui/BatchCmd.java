@@ -29,6 +29,8 @@ import java.io.IOException;
 import java.io.PrintWriter;
 import java.util.ArrayList;
 import java.util.Iterator;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -64,8 +66,20 @@ public class BatchCmd implements ClusterEventListener{
 	private int totalInstances;
 	public boolean useMicroGT = false;
 
+	/** threads evaluating the measures, 1 to evaluate them on the calling thread */
+	private int numberOfJobs;
+
 
 	public BatchCmd(AbstractClusterer clusterer, ClusteringStream stream, MeasureCollection[] measures, int totalInstances){
+		this(clusterer, stream, measures, totalInstances, 1);
+	}
+
+	/**
+	 * @param numberOfJobs number of threads evaluating the measure collections
+	 * and the point loops of the quadratic measures, -1 for as many as processors
+	 */
+	public BatchCmd(AbstractClusterer clusterer, ClusteringStream stream, MeasureCollection[] measures, int totalInstances, int numberOfJobs){
+		this.numberOfJobs = numberOfJobs == -1 ? Runtime.getRuntime().availableProcessors() : numberOfJobs;
 		this.clusterer = clusterer;
 		this.stream = stream;
 		if(totalInstances == -1)
@@ -128,11 +142,17 @@ public class BatchCmd implements ClusterEventListener{
 
 	public static void runBatch(ClusteringStream stream, AbstractClusterer clusterer,
 			boolean[] measureCollection, int amountInstances, String outputFile){
+		runBatch(stream, clusterer, measureCollection, amountInstances, outputFile, 1);
+	}
+
+
+	public static void runBatch(ClusteringStream stream, AbstractClusterer clusterer,
+			boolean[] measureCollection, int amountInstances, String outputFile, int numberOfJobs){
 		// create the measure collection 
 		MeasureCollection[] measures = getMeasures(getMeasureSelection(measureCollection));
 		
 		// run the batch job
-		BatchCmd batch = new BatchCmd(clusterer, stream, measures, amountInstances);
+		BatchCmd batch = new BatchCmd(clusterer, stream, measures, amountInstances, numberOfJobs);
 		batch.run();
 
 		// read events and horizon
@@ -145,6 +165,20 @@ public class BatchCmd implements ClusterEventListener{
 
 
 	public void run(){
+		// the measure collections only read the clusterings and the points, and
+		// split their point loops into tasks when they run on the pool
+		ForkJoinPool pool = this.numberOfJobs > 1 ? new ForkJoinPool(this.numberOfJobs) : null;
+		try {
+			run(pool);
+		} finally {
+			if (pool != null) {
+				pool.shutdown();
+			}
+		}
+	}
+
+
+	private void run(ForkJoinPool pool){
 		ArrayList<DataPoint> pointBuffer0 = new ArrayList<DataPoint>();
 		int m_timestamp = 0;
 		int decayHorizon = stream.getDecayHorizon();
@@ -201,11 +235,23 @@ public class BatchCmd implements ClusterEventListener{
 
 
 				//evaluate
-				for (int i = 0; i < measures.length; i++) {
-					try {
-						/*double sec =*/ measures[i].evaluateClusteringPerformance(clustering0, gtClustering0, pointBuffer0);
-						//System.out.println("Eval of "+measures[i].getClass().getSimpleName()+" at "+m_timestamp+" took "+sec);
-					} catch (Exception ex) { ex.printStackTrace(); }
+				if (pool != null) {
+					MeasureEvaluation[] evaluations = new MeasureEvaluation[measures.length];
+					for (int i = 0; i < measures.length; i++) {
+						evaluations[i] = new MeasureEvaluation(measures[i], clustering0, gtClustering0, pointBuffer0);
+						pool.execute(evaluations[i]);
+					}
+					for (MeasureEvaluation evaluation : evaluations) {
+						evaluation.join();
+					}
+				}
+				else {
+					for (int i = 0; i < measures.length; i++) {
+						try {
+							/*double sec =*/ measures[i].evaluateClusteringPerformance(clustering0, gtClustering0, pointBuffer0);
+							//System.out.println("Eval of "+measures[i].getClass().getSimpleName()+" at "+m_timestamp+" took "+sec);
+						} catch (Exception ex) { ex.printStackTrace(); }
+					}
 				}
 
 				pointBuffer0.clear();
@@ -214,6 +260,33 @@ public class BatchCmd implements ClusterEventListener{
 		}
 	}
 
+	/**
+	 * Evaluation of one measure collection on the pool
+	 */
+	private static class MeasureEvaluation extends RecursiveAction {
+
+		private static final long serialVersionUID = 1L;
+
+		private final MeasureCollection measure;
+		private final Clustering clustering;
+		private final Clustering trueClustering;
+		private final ArrayList<DataPoint> points;
+
+		MeasureEvaluation(MeasureCollection measure, Clustering clustering, Clustering trueClustering, ArrayList<DataPoint> points) {
+			this.measure = measure;
+			this.clustering = clustering;
+			this.trueClustering = trueClustering;
+			this.points = points;
+		}
+
+		@Override
+		protected void compute() {
+			try {
+				this.measure.evaluateClusteringPerformance(this.clustering, this.trueClustering, this.points);
+			} catch (Exception ex) { ex.printStackTrace(); }
+		}
+	}
+
 	@SuppressWarnings("unchecked")
 	private static MeasureCollection[] getMeasures(ArrayList<Class> measure_classes){
 		MeasureCollection[] measures = new MeasureCollection[measure_classes.size()];
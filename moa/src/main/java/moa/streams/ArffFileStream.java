@@ -20,7 +20,9 @@
 package moa.streams;
 
 import com.github.javacliparser.FileOption;
+import com.github.javacliparser.FlagOption;
 import com.github.javacliparser.IntOption;
+import com.yahoo.labs.samoa.instances.FastArffLoader;
 import com.yahoo.labs.samoa.instances.Instances;
 import com.yahoo.labs.samoa.instances.InstancesHeader;
 import java.io.BufferedReader;
@@ -64,6 +66,9 @@ public class ArffFileStream extends AbstractOptionHandler implements
             "Class index of data. 0 for none or -1 for last attribute in file.",
             -1, -1, Integer.MAX_VALUE);
 
+    public FlagOption fastLoaderOption = new FlagOption("fastLoader", 'l',
+            "Parse the data with FastArffLoader, reading large blocks of bytes instead of tokens.");
+
     protected Instances instances;
 
     protected Reader fileReader;
@@ -76,6 +81,8 @@ public class ArffFileStream extends AbstractOptionHandler implements
 
     protected InputStreamProgressMonitor fileProgressMonitor;
 
+    protected FastArffLoader fastLoader;
+
     public ArffFileStream() {
     }
 
@@ -98,7 +105,9 @@ public class ArffFileStream extends AbstractOptionHandler implements
 
     @Override
     public long estimatedRemainingInstances() {
-        double progressFraction = this.fileProgressMonitor.getProgressFraction();
+        double progressFraction = this.fastLoader != null
+                ? this.fastLoader.getProgressFraction()
+                : this.fileProgressMonitor.getProgressFraction();
         if ((progressFraction > 0.0) && (this.numInstancesRead > 0)) {
             return (long) ((this.numInstancesRead / progressFraction) - this.numInstancesRead);
         }
@@ -127,14 +136,25 @@ public class ArffFileStream extends AbstractOptionHandler implements
         try {
             if (this.fileReader != null) {
                 this.fileReader.close();
+                this.fileReader = null;
+            }
+            if (this.fastLoader != null) {
+                this.fastLoader.close();
+                this.fastLoader = null;
             }
-            InputStream fileStream = new FileInputStream(this.arffFileOption.getFile());
-            this.fileProgressMonitor = new InputStreamProgressMonitor(
-                    fileStream);
-            this.fileReader = new BufferedReader(new InputStreamReader(
-                    this.fileProgressMonitor));
             int classIndex = this.classIndexOption.getValue();
-            this.instances = new Instances(this.fileReader, 1, classIndex);
+            if (this.fastLoaderOption.isSet()) {
+                this.fileProgressMonitor = null;
+                this.fastLoader = new FastArffLoader(this.arffFileOption.getFile(), classIndex);
+                this.instances = new Instances(this.fastLoader);
+            } else {
+                InputStream fileStream = new FileInputStream(this.arffFileOption.getFile());
+                this.fileProgressMonitor = new InputStreamProgressMonitor(
+                        fileStream);
+                this.fileReader = new BufferedReader(new InputStreamReader(
+                        this.fileProgressMonitor));
+                this.instances = new Instances(this.fileReader, 1, classIndex);
+            }
             if (classIndex < 0) {
 		this.instances.setClassIndex(this.instances.numAttributes() - 1);
             } else if (this.classIndexOption.getValue() > 0) {
@@ -161,6 +181,9 @@ public class ArffFileStream extends AbstractOptionHandler implements
                 this.fileReader.close();
                 this.fileReader = null;
             }
+            if (this.fastLoader != null) {
+                this.fastLoader.close();
+            }
             return false;
         } catch (IOException ioe) {
             throw new RuntimeException(
@@ -20,6 +20,8 @@
 package moa.streams;
 
 import com.github.javacliparser.FileOption;
+import com.github.javacliparser.FlagOption;
+import com.yahoo.labs.samoa.instances.FastArffLoader;
 import com.yahoo.labs.samoa.instances.Instances;
 import com.yahoo.labs.samoa.instances.InstancesHeader;
 import java.io.BufferedReader;
@@ -60,6 +62,9 @@ public class MultiTargetArffFileStream extends AbstractOptionHandler implements
             "Output attributes:  n for first n attributes,  -n for last n attributes  For example, 2 for the two first attributes, -2 for the two last attributes.",
 			"-1");
 
+    public FlagOption fastLoaderOption = new FlagOption("fastLoader", 'l',
+            "Parse the data with FastArffLoader, reading large blocks of bytes instead of tokens.");
+
     protected Instances instances;
 
     protected Reader fileReader;
@@ -72,6 +77,8 @@ public class MultiTargetArffFileStream extends AbstractOptionHandler implements
 
     protected InputStreamProgressMonitor fileProgressMonitor;
 
+    protected FastArffLoader fastLoader;
+
     public MultiTargetArffFileStream() {
     }
 
@@ -103,7 +110,9 @@ public class MultiTargetArffFileStream extends AbstractOptionHandler implements
 
     @Override
     public long estimatedRemainingInstances() {
-        double progressFraction = this.fileProgressMonitor.getProgressFraction();
+        double progressFraction = this.fastLoader != null
+                ? this.fastLoader.getProgressFraction()
+                : this.fileProgressMonitor.getProgressFraction();
         if ((progressFraction > 0.0) && (this.numInstancesRead > 0)) {
             return (long) ((this.numInstancesRead / progressFraction) - this.numInstancesRead);
         }
@@ -132,12 +141,22 @@ public class MultiTargetArffFileStream extends AbstractOptionHandler implements
         try {
             if (this.fileReader != null) {
                 this.fileReader.close();
+                this.fileReader = null;
             }
-            InputStream fileStream = new FileInputStream(this.arffFileOption.getFile());
-            this.fileProgressMonitor = new InputStreamProgressMonitor(
-                    fileStream);
-            this.fileReader = new BufferedReader(new InputStreamReader(
-                    this.fileProgressMonitor));
+            if (this.fastLoader != null) {
+                this.fastLoader.close();
+                this.fastLoader = null;
+            }
+            if (this.fastLoaderOption.isSet()) {
+                this.fileProgressMonitor = null;
+                this.fastLoader = new FastArffLoader(this.arffFileOption.getFile(), this.outputAttributesOption.getRange());
+                this.instances = new Instances(this.fastLoader);
+            } else {
+                InputStream fileStream = new FileInputStream(this.arffFileOption.getFile());
+                this.fileProgressMonitor = new InputStreamProgressMonitor(
+                        fileStream);
+                this.fileReader = new BufferedReader(new InputStreamReader(
+                        this.fileProgressMonitor));
 			// jesse -----
 			/*int cs[] = this.outputAttributesOption.getRange(); 
 			if (cs.length == 1) {
@@ -155,6 +174,7 @@ public class MultiTargetArffFileStream extends AbstractOptionHandler implements
 				// what to do here?
 			this.instances = new Instances(this.fileReader, this.outputAttributesOption.getRange());
 			//}
+            }
             this.numInstancesRead = 0;
             this.lastInstanceRead = null;
             this.hitEndOfFile = !readNextInstanceFromFile();
@@ -175,6 +195,9 @@ public class MultiTargetArffFileStream extends AbstractOptionHandler implements
                 this.fileReader.close();
                 this.fileReader = null;
             }
+            if (this.fastLoader != null) {
+                this.fastLoader.close();
+            }
             return false;
         } catch (IOException ioe) {
             throw new RuntimeException(
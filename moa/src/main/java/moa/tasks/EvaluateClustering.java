@@ -62,6 +62,10 @@ public class EvaluateClustering extends AuxiliarMainTask {
     public FlagOption silhouetteOption = new FlagOption("Silhouette", 'h', "SilhCoeff.");
     
     public FlagOption statisticalOption = new FlagOption("Statistical", 't', "van Dongen, Rand statistic.");
+
+    public IntOption numberOfJobsOption = new IntOption("numberOfJobs", 'j',
+            "Number of threads evaluating the measures at each evaluation point (-1 = as many as processors, 0 or 1 = no threads).",
+            1, -1, Integer.MAX_VALUE);
        
     /*public ClassOption evaluatorOption = new ClassOption("evaluator", 'e',
     "Performance evaluation method.",
@@ -124,7 +128,8 @@ public class EvaluateClustering extends AuxiliarMainTask {
                 (AbstractClusterer) getPreparedClassOption(this.learnerOption),
                 measureCollection,
                 (int) this.instanceLimitOption.getValue(),
-                (String) dumpFileOption.getValue());
+                (String) dumpFileOption.getValue(),
+                this.numberOfJobsOption.getValue());
 
         LearningCurve learningCurve = new LearningCurve("EvaluateClustering does not support custom output file (> [filename]).\n" +
         												"Check out the dump file to see the results (if you haven't specified, dumpClustering.csv by default).");
@@ -35,6 +35,7 @@ import moa.evaluation.preview.LearningCurve;
 import moa.learners.Learner;
 import moa.options.ClassOption;
 import com.github.javacliparser.FileOption;
+import com.github.javacliparser.FlagOption;
 import com.github.javacliparser.IntOption;
 import moa.streams.ExampleStream;
 import moa.streams.InstanceStream;
@@ -89,6 +90,13 @@ public class EvaluateInterleavedTestThenTrain extends ClassificationMainTask {
             "How many instances between memory bound checks.", 100000, 0,
             Integer.MAX_VALUE);
 
+    public FlagOption estimateModelSizeOption = new FlagOption("estimateModelSize", 'z',
+            "Use the model size estimated by the learner, when available, instead of measuring its serialized size.");
+
+    public IntOption modelSizeFrequencyOption = new IntOption("modelSizeFrequency", 'y',
+            "How many samples between measurements of the serialized model size (the last size is reused in between).",
+            1, 1, Integer.MAX_VALUE);
+
     public FileOption dumpFileOption = new FileOption("dumpFile", 'd',
             "File to append intermediate csv reslts to.", null, "csv", true);
 
@@ -114,6 +122,8 @@ public class EvaluateInterleavedTestThenTrain extends ClassificationMainTask {
         
         LearningPerformanceEvaluator evaluator = (LearningPerformanceEvaluator) getPreparedClassOption(this.evaluatorOption);
         learner.setModelContext(stream.getHeader());
+        ModelByteSize.setMeasurement(learner, this.estimateModelSizeOption.isSet(), this.modelSizeFrequencyOption.getValue());
+        boolean sizeMeasurementSet = ModelByteSize.isMeasurementSet(this.estimateModelSizeOption.isSet(), this.modelSizeFrequencyOption.getValue());
         int maxInstances = this.instanceLimitOption.getValue();
         long instancesProcessed = 0;
         int maxSeconds = this.timeLimitOption.getValue();
@@ -160,12 +170,12 @@ public class EvaluateInterleavedTestThenTrain extends ClassificationMainTask {
                 long evaluateTime = TimingUtils.getNanoCPUTimeOfCurrentThread();
                 double time = TimingUtils.nanoTimeToSeconds(evaluateTime - evaluateStartTime);
                 double timeIncrement = TimingUtils.nanoTimeToSeconds(evaluateTime - lastEvaluateStartTime);
-                double RAMHoursIncrement = learner.measureByteSize() / (1024.0 * 1024.0 * 1024.0); //GBs
+                double RAMHoursIncrement = ModelByteSize.getByteSize(learner) / (1024.0 * 1024.0 * 1024.0); //GBs
                 RAMHoursIncrement *= (timeIncrement / 3600.0); //Hours
                 RAMHours += RAMHoursIncrement;
                 lastEvaluateStartTime = evaluateTime;
                 learningCurve.insertEntry(new LearningEvaluation(
-                        new Measurement[]{
+                        ModelByteSize.addMeasurementTime(new Measurement[]{
                             new Measurement(
                             "learning evaluation instances",
                             instancesProcessed),
@@ -177,7 +187,7 @@ public class EvaluateInterleavedTestThenTrain extends ClassificationMainTask {
                             new Measurement(
                             "model cost (RAM-Hours)",
                             RAMHours)
-                        },
+                        }, ModelByteSize.getMeasurementTime(learner), sizeMeasurementSet),
                         evaluator, learner));
                 if (immediateResultStream != null) {
                     if (firstDump) {
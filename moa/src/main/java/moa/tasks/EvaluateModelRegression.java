@@ -20,10 +20,9 @@
 package moa.tasks;
 
 import java.io.File;
-import java.io.FileOutputStream;
-import java.io.PrintStream;
 import com.github.javacliparser.FileOption;
 import com.github.javacliparser.IntOption;
+import com.github.javacliparser.MultiChoiceOption;
 import moa.classifiers.Classifier;
 import moa.classifiers.Regressor;
 import moa.core.Example;
@@ -73,6 +72,10 @@ public class EvaluateModelRegression extends RegressionMainTask {
     public FileOption outputPredictionFileOption = new FileOption("outputPredictionFile", 'o',
             "File to append output predictions to.", null, "pred", true);
 
+    public MultiChoiceOption outputPredictionFormatOption = new MultiChoiceOption(
+            "outputPredictionFormat", 'F', "Format of the output predictions file.",
+            ResultWriter.FORMAT_NAMES, ResultWriter.FORMAT_DESCRIPTIONS, ResultWriter.CSV);
+
     public EvaluateModelRegression() {
     }
 
@@ -100,58 +103,46 @@ public class EvaluateModelRegression extends RegressionMainTask {
 
         //File for output predictions
         File outputPredictionFile = this.outputPredictionFileOption.getFile();
-        PrintStream outputPredictionResultStream = null;
-        if (outputPredictionFile != null) {
-            try {
-                if (outputPredictionFile.exists()) {
-                    outputPredictionResultStream = new PrintStream(
-                            new FileOutputStream(outputPredictionFile, true), true);
-                } else {
-                    outputPredictionResultStream = new PrintStream(
-                            new FileOutputStream(outputPredictionFile), true);
-                }
-            } catch (Exception ex) {
-                throw new RuntimeException(
-                        "Unable to open prediction result file: " + outputPredictionFile, ex);
-            }
-        }
-        while (stream.hasMoreInstances()
-                && ((maxInstances < 0) || (instancesProcessed < maxInstances))) {
-            Example testInst = (Example) stream.nextInstance();//.copy();
-            double trueClass = ((Instance) testInst.getData()).classValue();
-            //testInst.setClassMissing();
-            double[] prediction = model.getVotesForInstance(testInst);
-            //evaluator.addClassificationAttempt(trueClass, prediction, testInst
-            //		.weight());
-            if (outputPredictionFile != null) {
-                outputPredictionResultStream.println(prediction[0] + "," + trueClass);
-            }
-            evaluator.addResult(testInst, prediction);
-            instancesProcessed++;
-            if (instancesProcessed % INSTANCES_BETWEEN_MONITOR_UPDATES == 0) {
-                if (monitor.taskShouldAbort()) {
-                    return null;
+        ResultWriter outputPredictionResultStream = ResultWriter.open(outputPredictionFile,
+                this.outputPredictionFormatOption.getChosenIndex(), "prediction result");
+        try {
+            while (stream.hasMoreInstances()
+                    && ((maxInstances < 0) || (instancesProcessed < maxInstances))) {
+                Example testInst = (Example) stream.nextInstance();//.copy();
+                double trueClass = ((Instance) testInst.getData()).classValue();
+                //testInst.setClassMissing();
+                double[] prediction = model.getVotesForInstance(testInst);
+                //evaluator.addClassificationAttempt(trueClass, prediction, testInst
+                //		.weight());
+                if (outputPredictionFile != null) {
+                    outputPredictionResultStream.writeRegression(prediction[0], trueClass);
                 }
-                long estimatedRemainingInstances = stream.estimatedRemainingInstances();
-                if (maxInstances > 0) {
-                    long maxRemaining = maxInstances - instancesProcessed;
-                    if ((estimatedRemainingInstances < 0)
-                            || (maxRemaining < estimatedRemainingInstances)) {
-                        estimatedRemainingInstances = maxRemaining;
+                evaluator.addResult(testInst, prediction);
+                instancesProcessed++;
+                if (instancesProcessed % INSTANCES_BETWEEN_MONITOR_UPDATES == 0) {
+                    if (monitor.taskShouldAbort()) {
+                        return null;
+                    }
+                    long estimatedRemainingInstances = stream.estimatedRemainingInstances();
+                    if (maxInstances > 0) {
+                        long maxRemaining = maxInstances - instancesProcessed;
+                        if ((estimatedRemainingInstances < 0)
+                                || (maxRemaining < estimatedRemainingInstances)) {
+                            estimatedRemainingInstances = maxRemaining;
+                        }
+                    }
+                    monitor.setCurrentActivityFractionComplete(estimatedRemainingInstances < 0 ? -1.0
+                            : (double) instancesProcessed
+                            / (double) (instancesProcessed + estimatedRemainingInstances));
+                    if (monitor.resultPreviewRequested()) {
+                        monitor.setLatestResultPreview(new LearningEvaluation(
+                                evaluator, model));
                     }
-                }
-                monitor.setCurrentActivityFractionComplete(estimatedRemainingInstances < 0 ? -1.0
-                        : (double) instancesProcessed
-                        / (double) (instancesProcessed + estimatedRemainingInstances));
-                if (monitor.resultPreviewRequested()) {
-                    monitor.setLatestResultPreview(new LearningEvaluation(
-                            evaluator, model));
                 }
             }
+            return new LearningEvaluation(evaluator, model);
+        } finally {
+            ResultWriter.closeAll(outputPredictionResultStream);
         }
-        if (outputPredictionResultStream != null) {
-            outputPredictionResultStream.close();
-        }
-        return new LearningEvaluation(evaluator, model);
     }
 }
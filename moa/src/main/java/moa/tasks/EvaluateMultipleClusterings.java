@@ -82,6 +82,10 @@ public class EvaluateMultipleClusterings extends AuxiliarMainTask {
     
     public FlagOption statisticalOption = new FlagOption("Statistical", 't', "van Dongen, Rand statistic.");
 
+    public IntOption numberOfJobsOption = new IntOption("numberOfJobs", 'j',
+            "Number of threads evaluating the measures at each evaluation point (-1 = as many as processors, 0 or 1 = no threads).",
+            1, -1, Integer.MAX_VALUE);
+
 	
 	public FileOption dumpFileOption = new FileOption("dumpFile", 'd',
 			"File to append intermediate csv reslts to.", "dumpClustering.csv", "csv", true);
@@ -127,6 +131,8 @@ public class EvaluateMultipleClusterings extends AuxiliarMainTask {
             
             // Instance Limit
             this.task.instanceLimitOption.setValue(-1);
+
+            this.task.numberOfJobsOption.setValue(this.numberOfJobsOption.getValue());
             
             // Measure Collection
             // Create an array to summarize the selected measures
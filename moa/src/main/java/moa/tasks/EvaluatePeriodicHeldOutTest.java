@@ -60,6 +60,9 @@ public class EvaluatePeriodicHeldOutTest extends ClassificationMainTask {
 
     private static final long serialVersionUID = 1L;
 
+    // Number of test examples predicted together
+    private static final int TEST_BLOCK_SIZE = 256;
+
     public ClassOption learnerOption = new ClassOption("learner", 'l',
             "Classifier to train.", MultiClassClassifier.class, "moa.classifiers.trees.HoeffdingTree");
 
@@ -145,6 +148,10 @@ public class EvaluatePeriodicHeldOutTest extends ClassificationMainTask {
             stream.nextInstance();
             }*/
         }
+        Classifier classifier = (Classifier) learner;
+        Example[] testBlock = new Example[TEST_BLOCK_SIZE];
+        Instance[] testBlockInstances = new Instance[TEST_BLOCK_SIZE];
+        double[][] testPredictions = new double[TEST_BLOCK_SIZE][];
         instancesProcessed = 0;
         TimingUtils.enablePreciseTiming();
         double totalTrainTime = 0.0;
@@ -184,23 +191,35 @@ public class EvaluatePeriodicHeldOutTest extends ClassificationMainTask {
                     + "% training)...");
             long testStartTime = TimingUtils.getNanoCPUTimeOfCurrentThread();
             int instCount = 0 ;
-            for (instCount = 0; instCount < testSize; instCount++) {
-				if (stream.hasMoreInstances() == false) {
-					break;
-				}
-                Example testInst = (Example) testStream.nextInstance(); //.copy();
-                double trueClass = ((Instance) testInst.getData()).classValue();
-                //testInst.setClassMissing();
-                double[] prediction = learner.getVotesForInstance(testInst);
-                //testInst.setClassValue(trueClass);
-                evaluator.addResult(testInst, prediction);
-                testInstancesProcessed++;
-                if (testInstancesProcessed % INSTANCES_BETWEEN_MONITOR_UPDATES == 0) {
-                    if (monitor.taskShouldAbort()) {
-                        return null;
+            while (instCount < testSize) {
+                // the test examples are predicted a block at a time
+                int blockSize = 0;
+                while (blockSize < TEST_BLOCK_SIZE && instCount < testSize) {
+                    if (stream.hasMoreInstances() == false) {
+                        break;
                     }
-                    monitor.setCurrentActivityFractionComplete((double) testInstancesProcessed
-                            / (double) (testSize));
+                    testBlock[blockSize] = (Example) testStream.nextInstance(); //.copy();
+                    testBlockInstances[blockSize] = (Instance) testBlock[blockSize].getData();
+                    blockSize++;
+                    instCount++;
+                }
+                if (blockSize == 0) {
+                    break;
+                }
+                classifier.getVotesForInstances(testBlockInstances, blockSize, testPredictions);
+                for (int i = 0; i < blockSize; i++) {
+                    evaluator.addResult(testBlock[i], testPredictions[i]);
+                    testBlock[i] = null;
+                    testBlockInstances[i] = null;
+                }
+                testInstancesProcessed += blockSize;
+                if (monitor.taskShouldAbort()) {
+                    return null;
+                }
+                monitor.setCurrentActivityFractionComplete((double) testInstancesProcessed
+                        / (double) (testSize));
+                if (blockSize < TEST_BLOCK_SIZE && instCount < testSize) {
+                    break;
                 }
             }
         	if ( instCount != testSize) {
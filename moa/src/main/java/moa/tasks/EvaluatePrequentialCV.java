@@ -21,6 +21,7 @@
 package moa.tasks;
 
 import com.github.javacliparser.FileOption;
+import com.github.javacliparser.FlagOption;
 import com.github.javacliparser.IntOption;
 import com.github.javacliparser.MultiChoiceOption;
 import moa.classifiers.Classifier;
@@ -39,6 +40,9 @@ import java.util.Arrays;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Random;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
 
 /**
  * Task for prequential cross-validation evaluation of a classifier on a stream by testing then training with each
@@ -91,6 +95,13 @@ public class EvaluatePrequentialCV extends ClassificationMainTask {
             "How many instances between memory bound checks.", 100000, 0,
             Integer.MAX_VALUE);
 
+    public FlagOption estimateModelSizeOption = new FlagOption("estimateModelSize", 'z',
+            "Use the model size estimated by the learner, when available, instead of measuring its serialized size.");
+
+    public IntOption modelSizeFrequencyOption = new IntOption("modelSizeFrequency", 'y',
+            "How many samples between measurements of the serialized model size (the last size is reused in between).",
+            1, 1, Integer.MAX_VALUE);
+
     public FileOption dumpFileOption = new FileOption("dumpFile", 'd',
             "File to append intermediate csv results to.", null, "csv", true);
 
@@ -108,6 +119,16 @@ public class EvaluatePrequentialCV extends ClassificationMainTask {
     public IntOption randomSeedOption = new IntOption("randomSeed", 'r',
             "Seed for random behaviour of the task.", 1);
 
+    public IntOption numberOfJobsOption = new IntOption("numberOfJobs", 'j',
+            "Number of threads running the folds, each fold always on the same thread (-1 = as many as processors, 0 or 1 = no threads).",
+            1, -1, Integer.MAX_VALUE);
+
+    // Instances sent to the fold threads at once
+    private static final int BLOCK_SIZE = 64;
+
+    // Blocks waiting for each fold thread
+    private static final int QUEUE_CAPACITY = 16;
+
 
     @Override
     public Class<?> getTaskResultType() {
@@ -129,15 +150,38 @@ public class EvaluatePrequentialCV extends ClassificationMainTask {
         for (int i = 0; i < learners.length; i++) {
             learners[i] = (Learner) baseLearner.copy();
             learners[i].setModelContext(stream.getHeader());
+            ModelByteSize.setMeasurement(learners[i], this.estimateModelSizeOption.isSet(), this.modelSizeFrequencyOption.getValue());
             evaluators[i] = (LearningPerformanceEvaluator) baseEvaluator.copy();
         }
 
+        int numberOfJobs = this.numberOfJobsOption.getValue() == -1
+                ? Runtime.getRuntime().availableProcessors() : this.numberOfJobsOption.getValue();
+        FoldExecutor executor = null;
+        if (numberOfJobs > 1 && learners.length > 1) {
+            executor = new FoldExecutor(learners, evaluators, Math.min(numberOfJobs, learners.length));
+        }
+        try {
+            return evaluate(monitor, stream, learners, evaluators, executor, random);
+        } finally {
+            if (executor != null) {
+                executor.shutdown();
+            }
+        }
+    }
+
+    /**
+     * Runs the evaluation, with the folds on the threads of the executor if
+     * there is one.
+     */
+    protected Object evaluate(TaskMonitor monitor, ExampleStream stream, Learner[] learners,
+            LearningPerformanceEvaluator[] evaluators, FoldExecutor executor, Random random) {
         LearningCurve learningCurve = new LearningCurve(
                 "learning evaluation instances");
         int maxInstances = this.instanceLimitOption.getValue();
         long instancesProcessed = 0;
         int maxSeconds = this.timeLimitOption.getValue();
         int secondsElapsed = 0;
+        boolean sizeMeasurementSet = ModelByteSize.isMeasurementSet(this.estimateModelSizeOption.isSet(), this.modelSizeFrequencyOption.getValue());
         monitor.setCurrentActivity("Evaluating learner...", -1.0);
 
         File dumpFile = this.dumpFileOption.getFile();
@@ -169,47 +213,49 @@ public class EvaluatePrequentialCV extends ClassificationMainTask {
             Example testInst = (Example) trainInst; //.copy();
             //testInst.setClassMissing();
 
-            for (int i = 0; i < learners.length; i++) {
-                evaluators[i].addResult(testInst, learners[i].getVotesForInstance(testInst));
-            }
-
-            for (int i = 0; i < learners.length; i++) {
-                int k = 1;
-                switch (this.validationMethodologyOption.getChosenIndex()) {
-                    case 0: //Cross-Validation;
-                        k = instancesProcessed % learners.length == i ? 0: 1; //Test all except one
-                        break;
-                    case 1: //Bootstrap;
-                        k = MiscUtils.poisson(1, random);
-                        break;
-                    case 2: //Split-Validation;
-                        k = instancesProcessed % learners.length == i ? 1: 0; //Test only one
-                        break;
+            if (executor != null) {
+                int[] weights = executor.add(trainInst);
+                for (int i = 0; i < learners.length; i++) {
+                    weights[i] = foldWeight(i, instancesProcessed, learners.length, random);
+                }
+            } else {
+                for (int i = 0; i < learners.length; i++) {
+                    evaluators[i].addResult(testInst, learners[i].getVotesForInstance(testInst));
                 }
-                if (k > 0) {
-                    Example weightedInst = (Example) trainInst.copy();
-                    weightedInst.setWeight(trainInst.weight() * k);
-                    learners[i].trainOnInstance(weightedInst);
+
+                for (int i = 0; i < learners.length; i++) {
+                    int k = foldWeight(i, instancesProcessed, learners.length, random);
+                    if (k > 0) {
+                        Example weightedInst = (Example) trainInst.copy();
+                        weightedInst.setWeight(trainInst.weight() * k);
+                        learners[i].trainOnInstance(weightedInst);
+                    }
                 }
             }
 
             instancesProcessed++;
             if (instancesProcessed % this.sampleFrequencyOption.getValue() == 0
                     || stream.hasMoreInstances() == false) {
-                long evaluateTime = TimingUtils.getNanoCPUTimeOfCurrentThread();
+                if (executor != null) {
+                    executor.await();
+                }
+                long evaluateTime = TimingUtils.getNanoCPUTimeOfCurrentThread()
+                        + (executor != null && preciseCPUTiming ? executor.getNanoCPUTime() : 0);
                 double time = TimingUtils.nanoTimeToSeconds(evaluateTime - evaluateStartTime);
                 double timeIncrement = TimingUtils.nanoTimeToSeconds(evaluateTime - lastEvaluateStartTime);
 
+                double sizeMeasurementTime = 0.0;
                 for (int i = 0; i < learners.length; i++) {
-                    double RAMHoursIncrement = learners[i].measureByteSize() / (1024.0 * 1024.0 * 1024.0); //GBs
+                    double RAMHoursIncrement = ModelByteSize.getByteSize(learners[i]) / (1024.0 * 1024.0 * 1024.0); //GBs
                     RAMHoursIncrement *= (timeIncrement / 3600.0); //Hours
                     RAMHours += RAMHoursIncrement;
+                    sizeMeasurementTime += ModelByteSize.getMeasurementTime(learners[i]);
                 }
 
                 lastEvaluateStartTime = evaluateTime;
                 learningCurve.insertEntry(new LearningEvaluation(
                         getEvaluationMeasurements(
-                        new Measurement[]{
+                        ModelByteSize.addMeasurementTime(new Measurement[]{
                                 new Measurement(
                                         "learning evaluation instances",
                                         instancesProcessed),
@@ -221,7 +267,7 @@ public class EvaluatePrequentialCV extends ClassificationMainTask {
                                 new Measurement(
                                         "model cost (RAM-Hours)",
                                         RAMHours)
-                        }, evaluators)));
+                        }, sizeMeasurementTime, sizeMeasurementSet), evaluators)));
 
                 if (immediateResultStream != null) {
                     if (firstDump) {
@@ -251,6 +297,7 @@ public class EvaluatePrequentialCV extends ClassificationMainTask {
                     monitor.setLatestResultPreview(learningCurve.copy());
                 }
                 secondsElapsed = (int) TimingUtils.nanoTimeToSeconds(TimingUtils.getNanoCPUTimeOfCurrentThread()
+                        + (executor != null && preciseCPUTiming ? executor.getNanoCPUTime() : 0)
                         - evaluateStartTime);
             }
         }
@@ -260,6 +307,196 @@ public class EvaluatePrequentialCV extends ClassificationMainTask {
         return learningCurve;
     }
 
+    /**
+     * Returns the weight of an instance for the training of a fold: 0 if the
+     * fold does not train on it, or the number of times it trains on it.
+     */
+    protected int foldWeight(int fold, long instancesProcessed, int numFolds, Random random) {
+        int k = 1;
+        switch (this.validationMethodologyOption.getChosenIndex()) {
+            case 0: //Cross-Validation;
+                k = instancesProcessed % numFolds == fold ? 0: 1; //Test all except one
+                break;
+            case 1: //Bootstrap;
+                k = MiscUtils.poisson(1, random);
+                break;
+            case 2: //Split-Validation;
+                k = instancesProcessed % numFolds == fold ? 1: 0; //Test only one
+                break;
+        }
+        return k;
+    }
+
+    /**
+     * Runs the folds on threads. Each thread tests and trains its own folds,
+     * in the order of the stream, so every fold sees the same instances and
+     * weights as in a sequential run. Instances are sent to the threads in
+     * blocks through bounded queues, so reading the stream runs ahead of the
+     * slowest fold by a bounded number of instances.
+     */
+    protected static class FoldExecutor {
+
+        protected final Learner[] learners;
+
+        protected final LearningPerformanceEvaluator[] evaluators;
+
+        protected final FoldThread[] threads;
+
+        // Block being filled, and the last one sent
+        protected Block block;
+
+        protected Block lastSent;
+
+        protected volatile Throwable failure;
+
+        public FoldExecutor(Learner[] learners, LearningPerformanceEvaluator[] evaluators, int numThreads) {
+            this.learners = learners;
+            this.evaluators = evaluators;
+            this.threads = new FoldThread[numThreads];
+            for (int t = 0; t < numThreads; t++) {
+                this.threads[t] = new FoldThread(t);
+                this.threads[t].start();
+            }
+        }
+
+        /**
+         * Adds an instance, and returns the array where to set its weight for
+         * each fold.
+         */
+        public int[] add(Example example) {
+            if (this.block != null && this.block.size == BLOCK_SIZE) {
+                send();
+            }
+            if (this.block == null) {
+                this.block = new Block(this.learners.length, this.threads.length);
+            }
+            return this.block.add(example);
+        }
+
+        protected void send() {
+            try {
+                for (FoldThread thread : this.threads) {
+                    thread.queue.put(this.block);
+                }
+            } catch (InterruptedException e) {
+                throw new RuntimeException("Interrupted while sending instances to the folds.", e);
+            }
+            this.lastSent = this.block;
+            this.block = null;
+        }
+
+        /**
+         * Waits until all the folds have processed all the instances added.
+         */
+        public void await() {
+            if (this.block != null) {
+                send();
+            }
+            if (this.lastSent != null) {
+                try {
+                    this.lastSent.done.await();
+                } catch (InterruptedException e) {
+                    throw new RuntimeException("Interrupted while waiting for the folds.", e);
+                }
+            }
+            if (this.failure != null) {
+                throw new RuntimeException("Fold evaluation failed.", this.failure);
+            }
+        }
+
+        /**
+         * Returns the CPU time used by the fold threads.
+         */
+        public long getNanoCPUTime() {
+            long time = 0;
+            for (FoldThread thread : this.threads) {
+                time += TimingUtils.getNanoCPUTimeOfThread(thread.getId());
+            }
+            return time;
+        }
+
+        public void shutdown() {
+            for (FoldThread thread : this.threads) {
+                thread.interrupt();
+            }
+        }
+
+        /**
+         * Instances and their weights for each fold.
+         */
+        protected static class Block {
+
+            protected final Example[] examples = new Example[BLOCK_SIZE];
+
+            protected final int[][] weights;
+
+            protected int size;
+
+            protected final CountDownLatch done;
+
+            protected Block(int numFolds, int numThreads) {
+                this.weights = new int[BLOCK_SIZE][numFolds];
+                this.done = new CountDownLatch(numThreads);
+            }
+
+            protected int[] add(Example example) {
+                this.examples[this.size] = example;
+                return this.weights[this.size++];
+            }
+        }
+
+        /**
+         * Thread running the folds whose index modulo the number of threads
+         * is its own index.
+         */
+        protected class FoldThread extends Thread {
+
+            protected final int index;
+
+            protected final BlockingQueue<Block> queue = new ArrayBlockingQueue<Block>(QUEUE_CAPACITY);
+
+            protected FoldThread(int index) {
+                super("EvaluatePrequentialCV fold thread " + index);
+                this.index = index;
+                setDaemon(true);
+            }
+
+            @Override
+            public void run() {
+                try {
+                    while (true) {
+                        Block block = this.queue.take();
+                        if (failure == null) {
+                            try {
+                                process(block);
+                            } catch (Throwable t) {
+                                failure = t;
+                            }
+                        }
+                        block.done.countDown();
+                    }
+                } catch (InterruptedException e) {
+                    // shut down
+                }
+            }
+
+            protected void process(Block block) {
+                for (int j = 0; j < block.size; j++) {
+                    Example example = block.examples[j];
+                    for (int i = this.index; i < learners.length; i += threads.length) {
+                        evaluators[i].addResult(example, learners[i].getVotesForInstance(example));
+                        int k = block.weights[j][i];
+                        if (k > 0) {
+                            Example weightedInst = (Example) example.copy();
+                            weightedInst.setWeight(example.weight() * k);
+                            learners[i].trainOnInstance(weightedInst);
+                        }
+                    }
+                }
+            }
+        }
+    }
+
 
     public Measurement[] getEvaluationMeasurements(Measurement[] modelMeasurements, LearningPerformanceEvaluator[] subEvaluators) {
         List<Measurement> measurementList = new LinkedList<Measurement>();
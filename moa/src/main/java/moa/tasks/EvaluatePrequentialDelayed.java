@@ -22,8 +22,6 @@
 package moa.tasks;
 
 import java.io.File;
-import java.io.FileOutputStream;
-import java.io.PrintStream;
 
 import moa.classifiers.Classifier;
 import moa.classifiers.MultiClassClassifier;
@@ -44,6 +42,7 @@ import com.github.javacliparser.FileOption;
 import com.github.javacliparser.FlagOption;
 import com.github.javacliparser.FloatOption;
 import com.github.javacliparser.IntOption;
+import com.github.javacliparser.MultiChoiceOption;
 import moa.streams.ExampleStream;
 import com.yahoo.labs.samoa.instances.Instance;
 import java.util.LinkedList;
@@ -117,12 +116,23 @@ public class EvaluatePrequentialDelayed extends ClassificationMainTask {
             "How many instances between memory bound checks.", 100000, 0,
             Integer.MAX_VALUE);
 
+    public FlagOption estimateModelSizeOption = new FlagOption("estimateModelSize", 'z',
+            "Use the model size estimated by the learner, when available, instead of measuring its serialized size.");
+
+    public IntOption modelSizeFrequencyOption = new IntOption("modelSizeFrequency", 'y',
+            "How many samples between measurements of the serialized model size (the last size is reused in between).",
+            1, 1, Integer.MAX_VALUE);
+
     public FileOption dumpFileOption = new FileOption("dumpFile", 'd',
             "File to append intermediate csv results to.", null, "csv", true);
 
     public FileOption outputPredictionFileOption = new FileOption("outputPredictionFile", 'o',
             "File to append output predictions to.", null, "pred", true);
 
+    public MultiChoiceOption outputPredictionFormatOption = new MultiChoiceOption(
+            "outputPredictionFormat", 'F', "Format of the output predictions file.",
+            ResultWriter.FORMAT_NAMES, ResultWriter.FORMAT_DESCRIPTIONS, ResultWriter.CSV);
+
     //New for prequential method DEPRECATED
     public IntOption widthOption = new IntOption("width",
             'w', "Size of Window", 1000);
@@ -172,6 +182,8 @@ public class EvaluatePrequentialDelayed extends ClassificationMainTask {
         }
 
         learner.setModelContext(stream.getHeader());
+        ModelByteSize.setMeasurement(learner, this.estimateModelSizeOption.isSet(), this.modelSizeFrequencyOption.getValue());
+        boolean sizeMeasurementSet = ModelByteSize.isMeasurementSet(this.estimateModelSizeOption.isSet(), this.modelSizeFrequencyOption.getValue());
         int maxInstances = this.instanceLimitOption.getValue();
         long instancesProcessed = 0;
         int maxSeconds = this.timeLimitOption.getValue();
@@ -179,158 +191,129 @@ public class EvaluatePrequentialDelayed extends ClassificationMainTask {
         monitor.setCurrentActivity("Evaluating learner...", -1.0);
 
         File dumpFile = this.dumpFileOption.getFile();
-        PrintStream immediateResultStream = null;
-        if (dumpFile != null) {
-            try {
-                if (dumpFile.exists()) {
-                    immediateResultStream = new PrintStream(
-                            new FileOutputStream(dumpFile, true), true);
-                } else {
-                    immediateResultStream = new PrintStream(
-                            new FileOutputStream(dumpFile), true);
-                }
-            } catch (Exception ex) {
-                throw new RuntimeException(
-                        "Unable to open immediate result file: " + dumpFile, ex);
-            }
-        }
+        ResultWriter immediateResultStream = ResultWriter.open(dumpFile, ResultWriter.CSV, "immediate result");
         //File for output predictions
         File outputPredictionFile = this.outputPredictionFileOption.getFile();
-        PrintStream outputPredictionResultStream = null;
-        if (outputPredictionFile != null) {
-            try {
-                if (outputPredictionFile.exists()) {
-                    outputPredictionResultStream = new PrintStream(
-                            new FileOutputStream(outputPredictionFile, true), true);
-                } else {
-                    outputPredictionResultStream = new PrintStream(
-                            new FileOutputStream(outputPredictionFile), true);
-                }
-            } catch (Exception ex) {
-                throw new RuntimeException(
-                        "Unable to open prediction result file: " + outputPredictionFile, ex);
-            }
-        }
-        boolean firstDump = true;
-        boolean preciseCPUTiming = TimingUtils.enablePreciseTiming();
-        long evaluateStartTime = TimingUtils.getNanoCPUTimeOfCurrentThread();
-        long lastEvaluateStartTime = evaluateStartTime;
-        double RAMHours = 0.0;
+        ResultWriter outputPredictionResultStream = ResultWriter.open(outputPredictionFile,
+                this.outputPredictionFormatOption.getChosenIndex(), "prediction result");
+        try {
+            boolean firstDump = true;
+            boolean preciseCPUTiming = TimingUtils.enablePreciseTiming();
+            long evaluateStartTime = TimingUtils.getNanoCPUTimeOfCurrentThread();
+            long lastEvaluateStartTime = evaluateStartTime;
+            double RAMHours = 0.0;
         
-        while (stream.hasMoreInstances()
-                && ((maxInstances < 0) || (instancesProcessed < maxInstances))
-                && ((maxSeconds < 0) || (secondsElapsed < maxSeconds))) {
+            while (stream.hasMoreInstances()
+                    && ((maxInstances < 0) || (instancesProcessed < maxInstances))
+                    && ((maxSeconds < 0) || (secondsElapsed < maxSeconds))) {
             
-            instancesProcessed++;
-            Example currentInst = stream.nextInstance();
+                instancesProcessed++;
+                Example currentInst = stream.nextInstance();
             
-            if(instancesProcessed <= this.initialWindowSizeOption.getValue()) {
-                if(this.trainOnInitialWindowOption.isSet()) {
-                    learner.trainOnInstance(currentInst);
+                if(instancesProcessed <= this.initialWindowSizeOption.getValue()) {
+                    if(this.trainOnInitialWindowOption.isSet()) {
+                        learner.trainOnInstance(currentInst);
+                    }
+                    else if((this.initialWindowSizeOption.getValue() - instancesProcessed) < this.delayLengthOption.getValue()) {
+                        this.trainInstances.addLast(currentInst);
+                    }
                 }
-                else if((this.initialWindowSizeOption.getValue() - instancesProcessed) < this.delayLengthOption.getValue()) {
+                else {
                     this.trainInstances.addLast(currentInst);
-                }
-            }
-            else {
-                this.trainInstances.addLast(currentInst);
 
-                if(this.delayLengthOption.getValue() < this.trainInstances.size()) {
-                    if(this.trainInBatches.isSet()) {
-                        // Do not train on the latest instance, otherwise
-                        // it would train on k+1 instances
-                        while(this.trainInstances.size() > 1) {
+                    if(this.delayLengthOption.getValue() < this.trainInstances.size()) {
+                        if(this.trainInBatches.isSet()) {
+                            // Do not train on the latest instance, otherwise
+                            // it would train on k+1 instances
+                            while(this.trainInstances.size() > 1) {
+                                Example trainInst = this.trainInstances.removeFirst();
+                                learner.trainOnInstance(trainInst);
+                            }
+                        }
+                        else {
                             Example trainInst = this.trainInstances.removeFirst();
                             learner.trainOnInstance(trainInst);
                         }
                     }
-                    else {
-                        Example trainInst = this.trainInstances.removeFirst();
-                        learner.trainOnInstance(trainInst);
-                    }
-                }
 
-                // Remove class label from test instances. 
-                Instance testInstance = ((Instance) currentInst.getData()).copy();
-                Example testInst = new InstanceExample(testInstance);
-                testInstance.setMissing(testInstance.classAttribute());
-                testInstance.setClassValue(0.0);
+                    // Remove class label from test instances. 
+                    Instance testInstance = ((Instance) currentInst.getData()).copy();
+                    Example testInst = new InstanceExample(testInstance);
+                    testInstance.setMissing(testInstance.classAttribute());
+                    testInstance.setClassValue(0.0);
           
-                double[] prediction = learner.getVotesForInstance(testInst);
-    //          reinstate the testInstance as it is used in evaluator.addResult
-                testInstance = ((Instance) currentInst.getData()).copy();
-                testInst = new InstanceExample(testInstance);
+                    double[] prediction = learner.getVotesForInstance(testInst);
+        //          reinstate the testInstance as it is used in evaluator.addResult
+                    testInstance = ((Instance) currentInst.getData()).copy();
+                    testInst = new InstanceExample(testInstance);
 
-                // Output prediction
-                if (outputPredictionFile != null) {
-                    int trueClass = (int) ((Instance) currentInst.getData()).classValue();
-                    outputPredictionResultStream.println(Utils.maxIndex(prediction) + "," + (
-                     ((Instance) testInst.getData()).classIsMissing() == true ? " ? " : trueClass));
-                }
-                evaluator.addResult(testInst, prediction);
+                    // Output prediction
+                    if (outputPredictionFile != null) {
+                        double trueClass = ((Instance) testInst.getData()).classIsMissing() ? Double.NaN
+                                : ((Instance) currentInst.getData()).classValue();
+                        outputPredictionResultStream.writeClassification(Utils.maxIndex(prediction), trueClass);
+                    }
+                    evaluator.addResult(testInst, prediction);
                 
-                if (instancesProcessed % this.sampleFrequencyOption.getValue() == 0
-                        || stream.hasMoreInstances() == false) {
-                    long evaluateTime = TimingUtils.getNanoCPUTimeOfCurrentThread();
-                    double time = TimingUtils.nanoTimeToSeconds(evaluateTime - evaluateStartTime);
-                    double timeIncrement = TimingUtils.nanoTimeToSeconds(evaluateTime - lastEvaluateStartTime);
-                    double RAMHoursIncrement = learner.measureByteSize() / (1024.0 * 1024.0 * 1024.0); //GBs
-                    RAMHoursIncrement *= (timeIncrement / 3600.0); //Hours
-                    RAMHours += RAMHoursIncrement;
-                    lastEvaluateStartTime = evaluateTime;
-                    learningCurve.insertEntry(new LearningEvaluation(
-                            new Measurement[]{
-                                new Measurement(
-                                "learning evaluation instances",
-                                instancesProcessed),
-                                new Measurement(
-                                "evaluation time ("
-                                + (preciseCPUTiming ? "cpu "
-                                : "") + "seconds)",
-                                time),
-                                new Measurement(
-                                "model cost (RAM-Hours)",
-                                RAMHours)
-                            },
-                            evaluator, learner));
-                    if (immediateResultStream != null) {
-                        if (firstDump) {
-                            immediateResultStream.println(learningCurve.headerToString());
-                            firstDump = false;
+                    if (instancesProcessed % this.sampleFrequencyOption.getValue() == 0
+                            || stream.hasMoreInstances() == false) {
+                        long evaluateTime = TimingUtils.getNanoCPUTimeOfCurrentThread();
+                        double time = TimingUtils.nanoTimeToSeconds(evaluateTime - evaluateStartTime);
+                        double timeIncrement = TimingUtils.nanoTimeToSeconds(evaluateTime - lastEvaluateStartTime);
+                        double RAMHoursIncrement = ModelByteSize.getByteSize(learner) / (1024.0 * 1024.0 * 1024.0); //GBs
+                        RAMHoursIncrement *= (timeIncrement / 3600.0); //Hours
+                        RAMHours += RAMHoursIncrement;
+                        lastEvaluateStartTime = evaluateTime;
+                        learningCurve.insertEntry(new LearningEvaluation(
+                                ModelByteSize.addMeasurementTime(new Measurement[]{
+                                    new Measurement(
+                                    "learning evaluation instances",
+                                    instancesProcessed),
+                                    new Measurement(
+                                    "evaluation time ("
+                                    + (preciseCPUTiming ? "cpu "
+                                    : "") + "seconds)",
+                                    time),
+                                    new Measurement(
+                                    "model cost (RAM-Hours)",
+                                    RAMHours)
+                                }, ModelByteSize.getMeasurementTime(learner), sizeMeasurementSet),
+                                evaluator, learner));
+                        if (immediateResultStream != null) {
+                            if (firstDump) {
+                                immediateResultStream.writeLine(learningCurve.headerToString());
+                                firstDump = false;
+                            }
+                            immediateResultStream.writeLine(learningCurve.entryToString(learningCurve.numEntries() - 1));
+                            immediateResultStream.flush();
                         }
-                        immediateResultStream.println(learningCurve.entryToString(learningCurve.numEntries() - 1));
-                        immediateResultStream.flush();
-                    }
-                }
-                if (instancesProcessed % INSTANCES_BETWEEN_MONITOR_UPDATES == 0) {
-                    if (monitor.taskShouldAbort()) {
-                        return null;
                     }
-                    long estimatedRemainingInstances = stream.estimatedRemainingInstances();
-                    if (maxInstances > 0) {
-                        long maxRemaining = maxInstances - instancesProcessed;
-                        if ((estimatedRemainingInstances < 0)
-                                || (maxRemaining < estimatedRemainingInstances)) {
-                            estimatedRemainingInstances = maxRemaining;
+                    if (instancesProcessed % INSTANCES_BETWEEN_MONITOR_UPDATES == 0) {
+                        if (monitor.taskShouldAbort()) {
+                            return null;
                         }
+                        long estimatedRemainingInstances = stream.estimatedRemainingInstances();
+                        if (maxInstances > 0) {
+                            long maxRemaining = maxInstances - instancesProcessed;
+                            if ((estimatedRemainingInstances < 0)
+                                    || (maxRemaining < estimatedRemainingInstances)) {
+                                estimatedRemainingInstances = maxRemaining;
+                            }
+                        }
+                        monitor.setCurrentActivityFractionComplete(estimatedRemainingInstances < 0 ? -1.0
+                                : (double) instancesProcessed
+                                / (double) (instancesProcessed + estimatedRemainingInstances));
+                        if (monitor.resultPreviewRequested()) {
+                            monitor.setLatestResultPreview(learningCurve.copy());
+                        }
+                        secondsElapsed = (int) TimingUtils.nanoTimeToSeconds(TimingUtils.getNanoCPUTimeOfCurrentThread()
+                                - evaluateStartTime);
                     }
-                    monitor.setCurrentActivityFractionComplete(estimatedRemainingInstances < 0 ? -1.0
-                            : (double) instancesProcessed
-                            / (double) (instancesProcessed + estimatedRemainingInstances));
-                    if (monitor.resultPreviewRequested()) {
-                        monitor.setLatestResultPreview(learningCurve.copy());
-                    }
-                    secondsElapsed = (int) TimingUtils.nanoTimeToSeconds(TimingUtils.getNanoCPUTimeOfCurrentThread()
-                            - evaluateStartTime);
                 }
             }
+            return learningCurve;
+        } finally {
+            ResultWriter.closeAll(immediateResultStream, outputPredictionResultStream);
         }
-        if (immediateResultStream != null) {
-            immediateResultStream.close();
-        }
-        if (outputPredictionResultStream != null) {
-            outputPredictionResultStream.close();
-        }
-        return learningCurve;
     }
 }
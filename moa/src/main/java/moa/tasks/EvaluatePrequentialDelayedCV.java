@@ -22,6 +22,7 @@
 package moa.tasks;
 
 import com.github.javacliparser.FileOption;
+import com.github.javacliparser.FlagOption;
 import com.github.javacliparser.IntOption;
 import com.github.javacliparser.MultiChoiceOption;
 import moa.classifiers.Classifier;
@@ -103,6 +104,13 @@ public class EvaluatePrequentialDelayedCV extends ClassificationMainTask {
             "How many instances between memory bound checks.", 100000, 0,
             Integer.MAX_VALUE);
 
+    public FlagOption estimateModelSizeOption = new FlagOption("estimateModelSize", 'z',
+            "Use the model size estimated by the learner, when available, instead of measuring its serialized size.");
+
+    public IntOption modelSizeFrequencyOption = new IntOption("modelSizeFrequency", 'y',
+            "How many samples between measurements of the serialized model size (the last size is reused in between).",
+            1, 1, Integer.MAX_VALUE);
+
     public FileOption dumpFileOption = new FileOption("dumpFile", 'd',
             "File to append intermediate csv results to.", null, "csv", true);
 
@@ -145,8 +153,10 @@ public class EvaluatePrequentialDelayedCV extends ClassificationMainTask {
         for (int i = 0; i < learners.length; i++) {
             learners[i] = (Learner) baseLearner.copy();
             learners[i].setModelContext(stream.getHeader());
+            ModelByteSize.setMeasurement(learners[i], this.estimateModelSizeOption.isSet(), this.modelSizeFrequencyOption.getValue());
             evaluators[i] = (LearningPerformanceEvaluator) baseEvaluator.copy();
         }
+        boolean sizeMeasurementSet = ModelByteSize.isMeasurementSet(this.estimateModelSizeOption.isSet(), this.modelSizeFrequencyOption.getValue());
 
         LearningCurve learningCurve = new LearningCurve(
                 "learning evaluation instances");
@@ -225,16 +235,18 @@ public class EvaluatePrequentialDelayedCV extends ClassificationMainTask {
                 double time = TimingUtils.nanoTimeToSeconds(evaluateTime - evaluateStartTime);
                 double timeIncrement = TimingUtils.nanoTimeToSeconds(evaluateTime - lastEvaluateStartTime);
 
+                double sizeMeasurementTime = 0.0;
                 for (int i = 0; i < learners.length; i++) {
-                    double RAMHoursIncrement = learners[i].measureByteSize() / (1024.0 * 1024.0 * 1024.0); //GBs
+                    double RAMHoursIncrement = ModelByteSize.getByteSize(learners[i]) / (1024.0 * 1024.0 * 1024.0); //GBs
                     RAMHoursIncrement *= (timeIncrement / 3600.0); //Hours
                     RAMHours += RAMHoursIncrement;
+                    sizeMeasurementTime += ModelByteSize.getMeasurementTime(learners[i]);
                 }
 
                 lastEvaluateStartTime = evaluateTime;
                 learningCurve.insertEntry(new LearningEvaluation(
                         getEvaluationMeasurements(
-                        new Measurement[]{
+                        ModelByteSize.addMeasurementTime(new Measurement[]{
                                 new Measurement(
                                         "learning evaluation instances",
                                         instancesProcessed),
@@ -246,7 +258,7 @@ public class EvaluatePrequentialDelayedCV extends ClassificationMainTask {
                                 new Measurement(
                                         "model cost (RAM-Hours)",
                                         RAMHours)
-                        }, evaluators)));
+                        }, sizeMeasurementTime, sizeMeasurementSet), evaluators)));
 
                 if (immediateResultStream != null) {
                     if (firstDump) {
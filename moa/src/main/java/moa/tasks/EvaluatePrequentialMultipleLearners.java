@@ -0,0 +1,498 @@
+/*
+ *    EvaluatePrequentialMultipleLearners.java
+ *
+ *    This program is free software; you can redistribute it and/or modify
+ *    it under the terms of the GNU General Public License as published by
+ *    the Free Software Foundation; either version 3 of the License, or
+ *    (at your option) any later version.
+ *
+ *    This program is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *    GNU General Public License for more details.
+ *
+ *    You should have received a copy of the GNU General Public License
+ *    along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package moa.tasks;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+import moa.classifiers.MultiClassClassifier;
+import moa.core.Example;
+import moa.core.Measurement;
+import moa.core.ObjectRepository;
+import moa.core.TimingUtils;
+import moa.evaluation.LearningEvaluation;
+import moa.evaluation.LearningPerformanceEvaluator;
+import moa.evaluation.preview.LearningCurve;
+import moa.learners.Learner;
+import moa.options.ClassOption;
+import moa.streams.ExampleStream;
+
+import com.github.javacliparser.FileOption;
+import com.github.javacliparser.FlagOption;
+import com.github.javacliparser.IntOption;
+import com.github.javacliparser.ListOption;
+import com.github.javacliparser.Option;
+
+/**
+ * Task for evaluating several learners on the same stream by testing then
+ * training with each example in sequence.
+ *
+ * The stream is read once and its instances are sent in blocks to every
+ * learner, each one with its own evaluator and learning curve. With several
+ * jobs the learners are split among threads, each learner always on the same
+ * thread, so a sweep over learner configurations decodes the stream only once
+ * and uses all the processors. Each learner tests and trains on its own copy
+ * of the instances, and gets the learning curve that EvaluatePrequential
+ * would give, except for the evaluation time, which is the CPU time spent on
+ * the learner alone, without reading the stream.
+ *
+ * The result is the learning curves of all the learners, with the index of
+ * the learner as first column, and each learning curve can be written to its
+ * own file.
+ */
+public class EvaluatePrequentialMultipleLearners extends ClassificationMainTask {
+
+    @Override
+    public String getPurposeString() {
+        return "Evaluates several classifiers on the same stream, read once, by testing then training with each example in sequence.";
+    }
+
+    private static final long serialVersionUID = 1L;
+
+    public ListOption learnersOption = new ListOption("learners", 'l',
+            "Learners to train.",
+            new ClassOption("learner", ' ', "", MultiClassClassifier.class, "moa.classifiers.bayes.NaiveBayes"),
+            new Option[]{
+                new ClassOption("", ' ', "", MultiClassClassifier.class, "moa.classifiers.bayes.NaiveBayes"),
+                new ClassOption("", ' ', "", MultiClassClassifier.class, "moa.classifiers.trees.HoeffdingTree")},
+            ',');
+
+    public ClassOption streamOption = new ClassOption("stream", 's',
+            "Stream to learn from.", ExampleStream.class,
+            "generators.RandomTreeGenerator");
+
+    public ClassOption evaluatorOption = new ClassOption("evaluator", 'e',
+            "Classification performance evaluation method.",
+            LearningPerformanceEvaluator.class,
+            "WindowClassificationPerformanceEvaluator");
+
+    public IntOption instanceLimitOption = new IntOption("instanceLimit", 'i',
+            "Maximum number of instances to test/train on  (-1 = no limit).",
+            100000000, -1, Integer.MAX_VALUE);
+
+    public IntOption timeLimitOption = new IntOption("timeLimit", 't',
+            "Maximum number of seconds to test/train each learner for (-1 = no limit).", -1,
+            -1, Integer.MAX_VALUE);
+
+    public IntOption sampleFrequencyOption = new IntOption("sampleFrequency",
+            'f',
+            "How many instances between samples of the learning performance.",
+            100000, 0, Integer.MAX_VALUE);
+
+    public FlagOption estimateModelSizeOption = new FlagOption("estimateModelSize", 'z',
+            "Use the model size estimated by the learner, when available, instead of measuring its serialized size.");
+
+    public IntOption modelSizeFrequencyOption = new IntOption("modelSizeFrequency", 'y',
+            "How many samples between measurements of the serialized model size (the last size is reused in between).",
+            1, 1, Integer.MAX_VALUE);
+
+    public FileOption dumpFileOption = new FileOption("dumpFile", 'd',
+            "File to append intermediate csv results to, one file per learner with its index added to the file name.",
+            null, "csv", true);
+
+    public IntOption numberOfJobsOption = new IntOption("numberOfJobs", 'j',
+            "Number of threads running the learners, each learner always on the same thread (-1 = as many as processors, 0 or 1 = no threads).",
+            1, -1, Integer.MAX_VALUE);
+
+    // Instances sent to the learners at once
+    private static final int BLOCK_SIZE = 64;
+
+    // Blocks waiting for each learner thread
+    private static final int QUEUE_CAPACITY = 16;
+
+    @Override
+    public Class<?> getTaskResultType() {
+        return LearningCurve.class;
+    }
+
+    @Override
+    protected Object doMainTask(TaskMonitor monitor, ObjectRepository repository) {
+        ExampleStream stream = (ExampleStream) getPreparedClassOption(this.streamOption);
+        LearningPerformanceEvaluator baseEvaluator = (LearningPerformanceEvaluator) getPreparedClassOption(this.evaluatorOption);
+        Option[] learnerOptions = this.learnersOption.getList();
+        Pipeline[] pipelines = new Pipeline[learnerOptions.length];
+        File dumpFile = this.dumpFileOption.getFile();
+        boolean preciseCPUTiming = TimingUtils.enablePreciseTiming();
+        try {
+            for (int i = 0; i < pipelines.length; i++) {
+                monitor.setCurrentActivity("Materializing learner " + (i + 1) + "...", -1.0);
+                Learner learner = (Learner) ((ClassOption) learnerOptions[i]).materializeObject(monitor, repository);
+                if (monitor.taskShouldAbort()) {
+                    return null;
+                }
+                learner.prepareForUse(monitor, repository);
+                if (monitor.taskShouldAbort()) {
+                    return null;
+                }
+                learner.setModelContext(stream.getHeader());
+                ModelByteSize.setMeasurement(learner, this.estimateModelSizeOption.isSet(), this.modelSizeFrequencyOption.getValue());
+                pipelines[i] = new Pipeline(i, learner, (LearningPerformanceEvaluator) baseEvaluator.copy(),
+                        dumpFile != null ? ResultWriter.open(getDumpFile(dumpFile, i), ResultWriter.CSV, "immediate result") : null,
+                        pipelines.length > 1, preciseCPUTiming, this.sampleFrequencyOption.getValue(),
+                        this.timeLimitOption.getValue(),
+                        ModelByteSize.isMeasurementSet(this.estimateModelSizeOption.isSet(), this.modelSizeFrequencyOption.getValue()));
+            }
+
+            int numberOfJobs = this.numberOfJobsOption.getValue() == -1
+                    ? Runtime.getRuntime().availableProcessors() : this.numberOfJobsOption.getValue();
+            PipelineThread[] threads = null;
+            if (numberOfJobs > 1 && pipelines.length > 1) {
+                threads = new PipelineThread[Math.min(numberOfJobs, pipelines.length)];
+                for (int t = 0; t < threads.length; t++) {
+                    threads[t] = new PipelineThread(t, pipelines, threads.length);
+                    threads[t].start();
+                }
+            }
+            try {
+                return evaluate(monitor, stream, pipelines, threads);
+            } finally {
+                if (threads != null) {
+                    for (PipelineThread thread : threads) {
+                        thread.interrupt();
+                    }
+                    join(threads);
+                }
+            }
+        } finally {
+            ResultWriter[] writers = new ResultWriter[pipelines.length];
+            for (int i = 0; i < pipelines.length; i++) {
+                writers[i] = pipelines[i] != null ? pipelines[i].immediateResultStream : null;
+            }
+            ResultWriter.closeAll(writers);
+        }
+    }
+
+    /**
+     * Reads the stream and sends its instances to the learners, on the
+     * threads if there are any.
+     */
+    protected Object evaluate(TaskMonitor monitor, ExampleStream stream, Pipeline[] pipelines,
+            PipelineThread[] threads) {
+        int maxInstances = this.instanceLimitOption.getValue();
+        long instancesProcessed = 0;
+        monitor.setCurrentActivity("Evaluating learners...", -1.0);
+
+        Block block = new Block();
+        while (stream.hasMoreInstances()
+                && ((maxInstances < 0) || (instancesProcessed < maxInstances))
+                && !allFinished(pipelines)) {
+            block.examples[block.size++] = stream.nextInstance();
+            instancesProcessed++;
+            if (block.size == BLOCK_SIZE) {
+                block.streamEnded = !stream.hasMoreInstances();
+                send(block, pipelines, threads);
+                block = new Block();
+            }
+            if (instancesProcessed % INSTANCES_BETWEEN_MONITOR_UPDATES == 0) {
+                if (monitor.taskShouldAbort()) {
+                    return null;
+                }
+                long estimatedRemainingInstances = stream.estimatedRemainingInstances();
+                if (maxInstances > 0) {
+                    long maxRemaining = maxInstances - instancesProcessed;
+                    if ((estimatedRemainingInstances < 0)
+                            || (maxRemaining < estimatedRemainingInstances)) {
+                        estimatedRemainingInstances = maxRemaining;
+                    }
+                }
+                monitor.setCurrentActivityFractionComplete(estimatedRemainingInstances < 0 ? -1.0
+                        : (double) instancesProcessed
+                        / (double) (instancesProcessed + estimatedRemainingInstances));
+                if (monitor.resultPreviewRequested()) {
+                    monitor.setLatestResultPreview(mergeLearningCurves(pipelines));
+                }
+            }
+        }
+        block.streamEnded = !stream.hasMoreInstances();
+        block.last = true;
+        send(block, pipelines, threads);
+        if (threads != null) {
+            join(threads);
+            for (PipelineThread thread : threads) {
+                if (thread.failure != null) {
+                    throw new RuntimeException("Learner evaluation failed.", thread.failure);
+                }
+            }
+        }
+        return mergeLearningCurves(pipelines);
+    }
+
+    protected void send(Block block, Pipeline[] pipelines, PipelineThread[] threads) {
+        if (threads == null) {
+            for (Pipeline pipeline : pipelines) {
+                pipeline.process(block);
+            }
+            return;
+        }
+        try {
+            for (PipelineThread thread : threads) {
+                if (thread.failure != null) {
+                    throw new RuntimeException("Learner evaluation failed.", thread.failure);
+                }
+                thread.queue.put(block);
+            }
+        } catch (InterruptedException e) {
+            throw new RuntimeException("Interrupted while sending instances to the learners.", e);
+        }
+    }
+
+    protected static boolean allFinished(Pipeline[] pipelines) {
+        for (Pipeline pipeline : pipelines) {
+            if (!pipeline.finished) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    protected static void join(PipelineThread[] threads) {
+        for (PipelineThread thread : threads) {
+            try {
+                thread.join();
+            } catch (InterruptedException e) {
+                throw new RuntimeException("Interrupted while waiting for the learners.", e);
+            }
+        }
+    }
+
+    /**
+     * Returns the learning curves of all the learners in one, with the index
+     * of the learner as first measurement.
+     */
+    protected static LearningCurve mergeLearningCurves(Pipeline[] pipelines) {
+        List<String> names = new ArrayList<String>();
+        names.add("learner");
+        List<double[]> values = new ArrayList<double[]>();
+        for (Pipeline pipeline : pipelines) {
+            LearningCurve curve = pipeline.learningCurve;
+            synchronized (curve) {
+                int[] columns = new int[curve.getMeasurementNameCount()];
+                for (int m = 0; m < columns.length; m++) {
+                    String name = curve.getMeasurementName(m);
+                    columns[m] = names.indexOf(name);
+                    if (columns[m] < 0) {
+                        columns[m] = names.size();
+                        names.add(name);
+                    }
+                }
+                for (int e = 0; e < curve.numEntries(); e++) {
+                    double[] entry = new double[columns.length + 1];
+                    Arrays.fill(entry, Double.NaN);
+                    entry[0] = pipeline.index;
+                    for (int m = 0; m < curve.getEntryMeasurementCount(e); m++) {
+                        if (columns[m] >= entry.length) {
+                            entry = Arrays.copyOf(entry, columns[m] + 1);
+                        }
+                        entry[columns[m]] = curve.getMeasurement(e, m);
+                    }
+                    values.add(entry);
+                }
+            }
+        }
+        LearningCurve learningCurve = new LearningCurve("learner");
+        learningCurve.setData(names, values);
+        return learningCurve;
+    }
+
+    /**
+     * Returns the file for the results of a learner: the dump file with the
+     * index of the learner before the extension.
+     */
+    protected static File getDumpFile(File dumpFile, int index) {
+        String name = dumpFile.getName();
+        int dot = name.lastIndexOf('.');
+        name = dot > 0 ? name.substring(0, dot) + "_" + index + name.substring(dot) : name + "_" + index;
+        return new File(dumpFile.getParentFile(), name);
+    }
+
+    /**
+     * Instances read from the stream, sent to all the learners.
+     */
+    protected static class Block {
+
+        protected final Example[] examples = new Example[BLOCK_SIZE];
+
+        protected int size;
+
+        // Whether the last instance of the block is the last of the stream
+        protected boolean streamEnded;
+
+        // Whether no more blocks follow
+        protected boolean last;
+    }
+
+    /**
+     * Learner tested then trained on the instances of the stream, with its
+     * evaluator and learning curve.
+     */
+    protected static class Pipeline {
+
+        protected final int index;
+
+        protected final Learner learner;
+
+        protected final LearningPerformanceEvaluator evaluator;
+
+        protected final LearningCurve learningCurve = new LearningCurve(
+                "learning evaluation instances");
+
+        protected final ResultWriter immediateResultStream;
+
+        protected final boolean copyInstances;
+
+        protected final boolean preciseCPUTiming;
+
+        protected final int sampleFrequency;
+
+        protected final int maxSeconds;
+
+        protected final boolean sizeMeasurementSet;
+
+        protected long instancesProcessed;
+
+        // CPU time spent on the learner
+        protected long evaluateTime;
+
+        protected long lastEvaluateTime;
+
+        protected double RAMHours;
+
+        protected volatile boolean finished;
+
+        public Pipeline(int index, Learner learner, LearningPerformanceEvaluator evaluator,
+                ResultWriter immediateResultStream, boolean copyInstances, boolean preciseCPUTiming,
+                int sampleFrequency, int maxSeconds, boolean sizeMeasurementSet) {
+            this.index = index;
+            this.learner = learner;
+            this.evaluator = evaluator;
+            this.immediateResultStream = immediateResultStream;
+            this.copyInstances = copyInstances;
+            this.preciseCPUTiming = preciseCPUTiming;
+            this.sampleFrequency = sampleFrequency;
+            this.maxSeconds = maxSeconds;
+            this.sizeMeasurementSet = sizeMeasurementSet;
+        }
+
+        public void process(Block block) {
+            if (this.finished) {
+                return;
+            }
+            long startTime = TimingUtils.getNanoCPUTimeOfCurrentThread();
+            for (int i = 0; i < block.size; i++) {
+                Example testInst = this.copyInstances ? block.examples[i].copy() : block.examples[i];
+                double[] prediction = this.learner.getVotesForInstance(testInst);
+                this.evaluator.addResult(testInst, prediction);
+                this.learner.trainOnInstance(testInst);
+                this.instancesProcessed++;
+                if (this.instancesProcessed % this.sampleFrequency == 0
+                        || (block.streamEnded && i == block.size - 1)) {
+                    sample(this.evaluateTime + TimingUtils.getNanoCPUTimeOfCurrentThread() - startTime);
+                }
+                if (this.maxSeconds >= 0 && this.instancesProcessed % INSTANCES_BETWEEN_MONITOR_UPDATES == 0
+                        && TimingUtils.nanoTimeToSeconds(this.evaluateTime
+                        + TimingUtils.getNanoCPUTimeOfCurrentThread() - startTime) >= this.maxSeconds) {
+                    this.finished = true;
+                    break;
+                }
+            }
+            this.evaluateTime += TimingUtils.getNanoCPUTimeOfCurrentThread() - startTime;
+        }
+
+        protected void sample(long evaluateTime) {
+            double time = TimingUtils.nanoTimeToSeconds(evaluateTime);
+            double timeIncrement = TimingUtils.nanoTimeToSeconds(evaluateTime - this.lastEvaluateTime);
+            double RAMHoursIncrement = ModelByteSize.getByteSize(this.learner) / (1024.0 * 1024.0 * 1024.0); //GBs
+            RAMHoursIncrement *= (timeIncrement / 3600.0); //Hours
+            this.RAMHours += RAMHoursIncrement;
+            this.lastEvaluateTime = evaluateTime;
+            LearningEvaluation evaluation = new LearningEvaluation(
+                    ModelByteSize.addMeasurementTime(new Measurement[]{
+                        new Measurement(
+                        "learning evaluation instances",
+                        this.instancesProcessed),
+                        new Measurement(
+                        "evaluation time ("
+                        + (this.preciseCPUTiming ? "cpu "
+                        : "") + "seconds)",
+                        time),
+                        new Measurement(
+                        "model cost (RAM-Hours)",
+                        this.RAMHours)
+                    }, ModelByteSize.getMeasurementTime(this.learner), this.sizeMeasurementSet),
+                    this.evaluator, this.learner);
+            synchronized (this.learningCurve) {
+                this.learningCurve.insertEntry(evaluation);
+                if (this.immediateResultStream != null) {
+                    if (this.learningCurve.numEntries() == 1) {
+                        this.immediateResultStream.writeLine(this.learningCurve.headerToString());
+                    }
+                    this.immediateResultStream.writeLine(this.learningCurve.entryToString(this.learningCurve.numEntries() - 1));
+                    this.immediateResultStream.flush();
+                }
+            }
+        }
+    }
+
+    /**
+     * Thread testing and training some of the learners, on each block of
+     * instances in turn.
+     */
+    protected static class PipelineThread extends Thread {
+
+        protected final BlockingQueue<Block> queue = new ArrayBlockingQueue<Block>(QUEUE_CAPACITY);
+
+        protected final Pipeline[] pipelines;
+
+        protected volatile Throwable failure;
+
+        public PipelineThread(int index, Pipeline[] pipelines, int numThreads) {
+            super("EvaluatePrequentialMultipleLearners thread " + index);
+            setDaemon(true);
+            this.pipelines = new Pipeline[(pipelines.length - index + numThreads - 1) / numThreads];
+            for (int i = 0; i < this.pipelines.length; i++) {
+                this.pipelines[i] = pipelines[index + i * numThreads];
+            }
+        }
+
+        @Override
+        public void run() {
+            try {
+                Block block;
+                do {
+                    block = this.queue.take();
+                    // after a failure, keep taking blocks so that the reader is not blocked
+                    if (this.failure == null) {
+                        try {
+                            for (Pipeline pipeline : this.pipelines) {
+                                pipeline.process(block);
+                            }
+                        } catch (Throwable t) {
+                            this.failure = t;
+                        }
+                    }
+                } while (!block.last);
+            } catch (InterruptedException e) {
+                // the task stopped
+            }
+        }
+    }
+}
@@ -0,0 +1,104 @@
+/*
+ *    ModelByteSize.java
+ *
+ *    This program is free software; you can redistribute it and/or modify
+ *    it under the terms of the GNU General Public License as published by
+ *    the Free Software Foundation; either version 3 of the License, or
+ *    (at your option) any later version.
+ *
+ *    This program is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *    GNU General Public License for more details.
+ *
+ *    You should have received a copy of the GNU General Public License
+ *    along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package moa.tasks;
+
+import java.util.Arrays;
+
+import moa.classifiers.AbstractClassifier;
+import moa.core.Measurement;
+import moa.learners.Learner;
+
+/**
+ * Size of the learners evaluated by the tasks, used to compute RAM-Hours.
+ * Classifiers get their size as set with
+ * AbstractClassifier.setByteSizeMeasurement(), other learners measure their
+ * serialized size every time.
+ */
+public class ModelByteSize {
+
+    /**
+     * Sets how the size of the learner is obtained.
+     *
+     * @param learner the learner
+     * @param estimated whether to use the size estimated by the learner, when available
+     * @param frequency number of samples between measurements of the serialized size
+     */
+    public static void setMeasurement(Learner learner, boolean estimated, int frequency) {
+        if (learner instanceof AbstractClassifier) {
+            ((AbstractClassifier) learner).setByteSizeMeasurement(estimated, frequency);
+        }
+    }
+
+    /**
+     * Gets the size of the learner.
+     *
+     * @param learner the learner
+     * @return the size, in bytes
+     */
+    public static int getByteSize(Learner learner) {
+        if (learner instanceof AbstractClassifier) {
+            return ((AbstractClassifier) learner).getModelByteSize();
+        }
+        return learner.measureByteSize();
+    }
+
+    /**
+     * Gets the CPU time spent obtaining the size of the learner, or 0 if it
+     * is not known.
+     *
+     * @param learner the learner
+     * @return the time, in seconds
+     */
+    public static double getMeasurementTime(Learner learner) {
+        if (learner instanceof AbstractClassifier) {
+            return ((AbstractClassifier) learner).getByteSizeMeasurementTime();
+        }
+        return 0.0;
+    }
+
+    /**
+     * Whether the size is not measured every time, as the tasks do by
+     * default.
+     *
+     * @param estimated whether to use the size estimated by the learner, when available
+     * @param frequency number of samples between measurements of the serialized size
+     * @return true if the measurement differs from the default one
+     */
+    public static boolean isMeasurementSet(boolean estimated, int frequency) {
+        return estimated || frequency > 1;
+    }
+
+    /**
+     * Adds the CPU time spent obtaining the size of the learners to the
+     * measurements of a sample. It is only added when the measurement is set,
+     * so that the results of the tasks keep their columns by default.
+     *
+     * @param measurements the measurements of the sample
+     * @param time the time, in seconds
+     * @param measurementSet whether the measurement is set
+     * @return the measurements, with the time if the measurement is set
+     */
+    public static Measurement[] addMeasurementTime(Measurement[] measurements, double time, boolean measurementSet) {
+        if (!measurementSet) {
+            return measurements;
+        }
+        Measurement[] result = Arrays.copyOf(measurements, measurements.length + 1);
+        result[measurements.length] = new Measurement("model size measurement time (cpu seconds)", time);
+        return result;
+    }
+}
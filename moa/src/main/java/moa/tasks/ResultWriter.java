@@ -0,0 +1,355 @@
+/*
+ *    ResultWriter.java
+ *
+ *    This program is free software; you can redistribute it and/or modify
+ *    it under the terms of the GNU General Public License as published by
+ *    the Free Software Foundation; either version 3 of the License, or
+ *    (at your option) any later version.
+ *
+ *    This program is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *    GNU General Public License for more details.
+ *
+ *    You should have received a copy of the GNU General Public License
+ *    along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package moa.tasks;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+import com.yahoo.labs.samoa.instances.Prediction;
+
+/**
+ * Writer of the result and prediction files of the tasks, that appends to
+ * the file on a background thread.
+ *
+ * Results are recorded in a reusable buffer of primitive values, which is
+ * handed to the background thread when full, or when flushed. The thread
+ * formats the whole buffer and writes it to the file at once, so recording a
+ * prediction does not build strings nor make a system call. A few buffers
+ * are used in turn, so recording only waits when the thread falls behind.
+ *
+ * In CSV format predictions are written as the tasks wrote them with
+ * println: the predicted class and the true class, " ? " if it is missing,
+ * or the predicted and the true values. In binary format each prediction is
+ * a record of two doubles, predicted and true value, the predicted class
+ * index for classification and NaN for a missing true value, and lines of
+ * text cannot be written.
+ */
+public class ResultWriter {
+
+    public static final int CSV = 0;
+
+    public static final int BINARY = 1;
+
+    public static final String[] FORMAT_NAMES = {"CSV", "Binary"};
+
+    public static final String[] FORMAT_DESCRIPTIONS = {
+        "Comma separated values, one line per prediction.",
+        "Two big-endian doubles per prediction, predicted and true value."};
+
+    private static final int BUFFER_SIZE = 4096;
+
+    private static final int NUM_BUFFERS = 3;
+
+    private static final int OUTPUT_BUFFER_SIZE = 1 << 16;
+
+    private static final byte CLASSIFICATION = 0;
+
+    private static final byte REGRESSION = 1;
+
+    private static final byte PREDICTION = 2;
+
+    private static final byte LINE = 3;
+
+    protected final File file;
+
+    protected final int format;
+
+    protected final BlockingQueue<Buffer> freeBuffers = new ArrayBlockingQueue<Buffer>(NUM_BUFFERS);
+
+    protected final BlockingQueue<Buffer> fullBuffers = new ArrayBlockingQueue<Buffer>(NUM_BUFFERS);
+
+    protected final WriterThread thread;
+
+    protected Buffer buffer;
+
+    protected volatile Throwable failure;
+
+    protected boolean closed;
+
+    /**
+     * Opens the file for appending.
+     *
+     * @param file the file
+     * @param format CSV or BINARY
+     */
+    public ResultWriter(File file, int format) throws IOException {
+        this.file = file;
+        this.format = format;
+        OutputStream out = new BufferedOutputStream(new FileOutputStream(file, true), OUTPUT_BUFFER_SIZE);
+        this.buffer = new Buffer();
+        for (int i = 1; i < NUM_BUFFERS; i++) {
+            this.freeBuffers.add(new Buffer());
+        }
+        this.thread = new WriterThread(out);
+        this.thread.start();
+    }
+
+    /**
+     * Opens the file for appending, or returns null if there is no file.
+     */
+    public static ResultWriter open(File file, int format, String description) {
+        if (file == null) {
+            return null;
+        }
+        try {
+            return new ResultWriter(file, format);
+        } catch (Exception ex) {
+            throw new RuntimeException(
+                    "Unable to open " + description + " file: " + file, ex);
+        }
+    }
+
+    /**
+     * Records the predicted class index and the true class, NaN if missing.
+     */
+    public void writeClassification(int predictedClass, double trueClass) {
+        add(CLASSIFICATION, predictedClass, trueClass, null);
+    }
+
+    /**
+     * Records a predicted value and the true value.
+     */
+    public void writeRegression(double prediction, double trueValue) {
+        add(REGRESSION, prediction, trueValue, null);
+    }
+
+    /**
+     * Records a prediction, written as its string in CSV format and as its
+     * first vote in binary format, and the true value.
+     */
+    public void writePrediction(Prediction prediction, double trueValue) {
+        if (this.format == BINARY) {
+            double[] votes = prediction.numOutputAttributes() > 0 ? prediction.getVotes(0) : null;
+            add(REGRESSION, votes != null && votes.length > 0 ? votes[0] : Double.NaN, trueValue, null);
+        } else {
+            add(PREDICTION, 0, trueValue, prediction);
+        }
+    }
+
+    /**
+     * Records a line of text.
+     */
+    public void writeLine(String line) {
+        if (this.format == BINARY) {
+            throw new IllegalStateException("Lines of text cannot be written in binary format.");
+        }
+        add(LINE, 0, 0, line);
+    }
+
+    protected void add(byte kind, double first, double second, Object object) {
+        Buffer buffer = this.buffer;
+        int i = buffer.size++;
+        buffer.kinds[i] = kind;
+        buffer.first[i] = first;
+        buffer.second[i] = second;
+        buffer.objects[i] = object;
+        if (buffer.size == BUFFER_SIZE) {
+            send();
+        }
+    }
+
+    /**
+     * Makes the background thread write everything recorded so far to the
+     * file, without waiting for it.
+     */
+    public void flush() {
+        send();
+    }
+
+    protected void send() {
+        if (this.failure != null) {
+            throw new RuntimeException("Unable to write to file: " + this.file, this.failure);
+        }
+        try {
+            this.fullBuffers.put(this.buffer);
+            this.buffer = this.freeBuffers.take();
+        } catch (InterruptedException e) {
+            throw new RuntimeException("Interrupted while writing to file: " + this.file, e);
+        }
+    }
+
+    /**
+     * Writes everything recorded and closes the file, waiting for the
+     * background thread.
+     */
+    public void close() {
+        if (this.closed) {
+            return;
+        }
+        this.closed = true;
+        this.buffer.close = true;
+        try {
+            this.fullBuffers.put(this.buffer);
+            this.thread.join();
+        } catch (InterruptedException e) {
+            throw new RuntimeException("Interrupted while writing to file: " + this.file, e);
+        }
+        if (this.failure != null) {
+            throw new RuntimeException("Unable to write to file: " + this.file, this.failure);
+        }
+    }
+
+    /**
+     * Closes the writers that were opened, skipping null ones. The tasks call
+     * it in a finally block, so that the records are written and the threads
+     * stopped when the learner or the stream throws as well.
+     */
+    public static void closeAll(ResultWriter... writers) {
+        RuntimeException failure = null;
+        for (ResultWriter writer : writers) {
+            if (writer != null) {
+                try {
+                    writer.close();
+                } catch (RuntimeException e) {
+                    if (failure == null) {
+                        failure = e;
+                    }
+                }
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    /**
+     * Records waiting to be written.
+     */
+    protected static class Buffer {
+
+        protected final byte[] kinds = new byte[BUFFER_SIZE];
+
+        protected final double[] first = new double[BUFFER_SIZE];
+
+        protected final double[] second = new double[BUFFER_SIZE];
+
+        protected final Object[] objects = new Object[BUFFER_SIZE];
+
+        protected int size;
+
+        // Whether this is the last buffer
+        protected boolean close;
+    }
+
+    /**
+     * Thread formatting the buffers and writing them to the file.
+     */
+    protected class WriterThread extends Thread {
+
+        protected final OutputStream out;
+
+        protected final Writer writer;
+
+        protected final ByteBuffer bytes;
+
+        protected final StringBuilder text = new StringBuilder();
+
+        protected final String lineSeparator = System.getProperty("line.separator");
+
+        public WriterThread(OutputStream out) {
+            super("ResultWriter " + file.getName());
+            setDaemon(true);
+            this.out = out;
+            this.writer = format == CSV ? new OutputStreamWriter(out) : null;
+            this.bytes = format == BINARY ? ByteBuffer.allocate(16 * BUFFER_SIZE) : null;
+        }
+
+        @Override
+        public void run() {
+            try {
+                boolean close;
+                do {
+                    Buffer buffer = fullBuffers.take();
+                    // after a failure, keep taking buffers so that the tasks are not blocked
+                    if (failure == null) {
+                        try {
+                            write(buffer);
+                        } catch (Throwable e) {
+                            // also the values that fail to format, as the
+                            // thread must not die while the tasks record
+                            failure = e;
+                        }
+                    }
+                    // the buffer is reused as soon as it is free
+                    close = buffer.close;
+                    buffer.size = 0;
+                    if (!close) {
+                        freeBuffers.put(buffer);
+                    }
+                } while (!close);
+            } catch (InterruptedException e) {
+                // the writer was abandoned
+            }
+            try {
+                this.out.close();
+            } catch (IOException e) {
+                if (failure == null) {
+                    failure = e;
+                }
+            }
+        }
+
+        protected void write(Buffer buffer) throws IOException {
+            if (format == BINARY) {
+                ByteBuffer bytes = this.bytes;
+                bytes.clear();
+                for (int i = 0; i < buffer.size; i++) {
+                    bytes.putDouble(buffer.first[i]);
+                    bytes.putDouble(buffer.second[i]);
+                }
+                this.out.write(bytes.array(), 0, bytes.position());
+                this.out.flush();
+            } else {
+                StringBuilder text = this.text;
+                text.setLength(0);
+                for (int i = 0; i < buffer.size; i++) {
+                    switch (buffer.kinds[i]) {
+                        case CLASSIFICATION:
+                            text.append((int) buffer.first[i]).append(',');
+                            if (Double.isNaN(buffer.second[i])) {
+                                text.append(" ? ");
+                            } else {
+                                text.append((int) buffer.second[i]);
+                            }
+                            break;
+                        case REGRESSION:
+                            text.append(buffer.first[i]).append(',').append(buffer.second[i]);
+                            break;
+                        case PREDICTION:
+                            text.append(buffer.objects[i]).append(',').append(buffer.second[i]);
+                            break;
+                        default:
+                            text.append(buffer.objects[i]);
+                    }
+                    text.append(this.lineSeparator);
+                    buffer.objects[i] = null;
+                }
+                this.writer.append(text);
+                this.writer.flush();
+            }
+        }
+    }
+}
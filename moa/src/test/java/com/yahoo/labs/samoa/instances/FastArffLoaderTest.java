@@ -0,0 +1,72 @@
+package com.yahoo.labs.samoa.instances;
+
+import static org.junit.Assert.*;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+
+import org.junit.Test;
+
+/**
+ * Checks that FastArffLoader reads the same instances as ArffLoader.
+ */
+public class FastArffLoaderTest {
+
+	private static final String[] NUMBERS = {
+		"1.5", "-0", "0.1", ".5", "-7.", "+2.25e+3", "1e-5", "0.30000000000000004",
+		"123456789012345678", "0.1234567890123456789", "2.2250738585072011e-308",
+		"4.9e-324", "1e400", "9007199254740993", "1.7976931348623157e308", "1d", "0x1p3"};
+
+	private void assertSameInstances(File file, int classIndex) throws IOException {
+		ArffLoader loader = new ArffLoader(new BufferedReader(new InputStreamReader(new FileInputStream(file))), 0, classIndex);
+		FastArffLoader fastLoader = new FastArffLoader(file, classIndex);
+		assertEquals(loader.getStructure().numAttributes(), fastLoader.getStructure().numAttributes());
+		assertEquals(loader.getStructure().classIndex(), fastLoader.getStructure().classIndex());
+		int count = 0;
+		Instance instance;
+		while ((instance = loader.readInstance()) != null) {
+			Instance fastInstance = fastLoader.readInstance();
+			assertNotNull(fastInstance);
+			assertEquals(instance.numValues(), fastInstance.numValues());
+			for (int i = 0; i < instance.numValues(); i++) {
+				assertEquals(instance.index(i), fastInstance.index(i));
+				assertEquals(Double.doubleToLongBits(instance.valueSparse(i)),
+						Double.doubleToLongBits(fastInstance.valueSparse(i)));
+			}
+			count++;
+		}
+		assertNull(fastLoader.readInstance());
+		assertTrue(count > 0);
+		assertEquals(1.0, fastLoader.getProgressFraction(), 0.0);
+		fastLoader.close();
+	}
+
+	private File resource(String name) {
+		return new File(ClassLoader.getSystemResource(name).getPath());
+	}
+
+	@Test
+	public void testResources() throws IOException {
+		assertSameInstances(resource("moa/classifiers/data/regression.arff"), -1);
+		assertSameInstances(resource("moa/classifiers/data/small_regression.arff"), 4);
+		assertSameInstances(resource("moa/classifiers/data/small_classification.arff"), 1);
+	}
+
+	@Test
+	public void testNumbersAndLabels() throws IOException {
+		File file = File.createTempFile("FastArffLoaderTest", ".arff");
+		file.deleteOnExit();
+		FileWriter writer = new FileWriter(file);
+		writer.write("% numbers\n@relation test\n@attribute a numeric\n@attribute b {x,y,'z z'}\n@data\n");
+		for (String number : NUMBERS) {
+			writer.write(number + ",x\r\n");
+		}
+		writer.write("\n?,'z z' % quoted\n3,new\n4,\"y\"\n,,\n{0 1,1 y}\n{1 other}\n5,y");
+		writer.close();
+		assertSameInstances(file, -1);
+	}
+}
@@ -0,0 +1,106 @@
+package com.yahoo.labs.samoa.instances;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * Checks that WindowInstances holds the same instances as a list-backed
+ * Instances from which the oldest instances are deleted.
+ */
+public class WindowInstancesTest {
+
+	private static Instances header() {
+		List<Attribute> attributes = new ArrayList<Attribute>();
+		attributes.add(new Attribute("a"));
+		attributes.add(new Attribute("b"));
+		List<String> classes = new ArrayList<String>();
+		classes.add("x");
+		classes.add("y");
+		attributes.add(new Attribute("class", classes));
+		Instances header = new Instances("window", attributes, 0);
+		header.setClassIndex(2);
+		return header;
+	}
+
+	private static Instance randomInstance(Instances header, Random random) {
+		Instance inst = new DenseInstance(random.nextDouble(), new double[]{random.nextGaussian(), random.nextGaussian(), random.nextInt(2)});
+		inst.setDataset(header);
+		return inst;
+	}
+
+	private void assertSameInstances(Instances expected, WindowInstances window) {
+		assertEquals(expected.numInstances(), window.numInstances());
+		for (int i = 0; i < expected.numInstances(); i++) {
+			Instance inst = window.instance(i);
+			assertArrayEquals(expected.instance(i).toDoubleArray(), inst.toDoubleArray(), 0.0);
+			assertEquals(expected.instance(i).weight(), inst.weight(), 0.0);
+			assertEquals(expected.instance(i).weight(), window.weight(i), 0.0);
+			assertEquals(expected.instance(i).classValue(), window.classValue(i), 0.0);
+			assertEquals(expected.instance(i).value(1), window.value(i, 1), 0.0);
+			assertEquals(2, inst.classIndex());
+		}
+	}
+
+	@Test
+	public void testSlidingWindow() {
+		Instances header = header();
+		// the capacity is not a multiple of the initial allocation, so the ring grows while it wraps
+		WindowInstances window = new WindowInstances(header, 1500);
+		Instances expected = new Instances(header, 0);
+		Random random = new Random(1);
+		for (int i = 0; i < 5000; i++) {
+			Instance inst = randomInstance(header, random);
+			if (expected.numInstances() == window.capacity()) {
+				expected.delete(0);
+			}
+			expected.add(inst);
+			window.add(inst);
+			if (i % 997 == 0) {
+				assertSameInstances(expected, window);
+			}
+		}
+		assertSameInstances(expected, window);
+	}
+
+	@Test
+	public void testDeleteAndSwap() {
+		Instances header = header();
+		WindowInstances window = new WindowInstances(header, 100);
+		Instances expected = new Instances(header, 0);
+		Random random = new Random(2);
+		for (int i = 0; i < 150; i++) {
+			Instance inst = randomInstance(header, random);
+			if (expected.numInstances() == window.capacity()) {
+				expected.delete(0);
+			}
+			expected.add(inst);
+			window.add(inst);
+		}
+		expected.delete(0);
+		window.delete(0);
+		expected.delete(40);
+		window.delete(40);
+		expected.swap(3, 90);
+		window.swap(3, 90);
+		Instance inst = randomInstance(header, random);
+		expected.set(10, inst);
+		window.set(10, inst);
+		assertSameInstances(expected, window);
+		for (int i = 0; i < 10; i++) {
+			inst = randomInstance(header, random);
+			if (expected.numInstances() == window.capacity()) {
+				expected.delete(0);
+			}
+			expected.add(inst);
+			window.add(inst);
+		}
+		assertSameInstances(expected, window);
+		window.delete();
+		assertEquals(0, window.numInstances());
+	}
+}
@@ -0,0 +1,228 @@
+package moa;
+
+import static org.junit.Assert.*;
+
+import java.util.Random;
+
+import com.yahoo.labs.samoa.instances.Instance;
+import moa.classifiers.AbstractClassifier;
+import moa.classifiers.core.AttributeSplitSuggestion;
+import moa.classifiers.core.attributeclassobservers.AttributeClassObserver;
+import moa.classifiers.core.attributeclassobservers.FIMTDDArrayNumericAttributeClassObserver;
+import moa.classifiers.core.attributeclassobservers.FIMTDDNumericAttributeClassObserver;
+import moa.classifiers.core.attributeclassobservers.GaussianNumericAttributeClassObserver;
+import moa.classifiers.core.attributeclassobservers.NominalAttributeClassObserver;
+import moa.classifiers.core.driftdetection.ADWINChangeDetector;
+import moa.classifiers.core.driftdetection.ChangeDetector;
+import moa.classifiers.core.driftdetection.DDM;
+import moa.classifiers.core.driftdetection.EDDM;
+import moa.classifiers.core.driftdetection.PageHinkleyDM;
+import moa.classifiers.core.splitcriteria.InfoGainSplitCriterion;
+import moa.classifiers.core.splitcriteria.SplitCriterion;
+import moa.classifiers.core.splitcriteria.VarianceReductionSplitCriterion;
+import moa.core.Example;
+import moa.core.InstanceExample;
+import moa.core.Measurement;
+import moa.core.SerializeUtils;
+import moa.evaluation.BasicClassificationPerformanceEvaluator;
+import moa.evaluation.BasicRegressionPerformanceEvaluator;
+import moa.evaluation.LearningPerformanceEvaluator;
+import moa.classifiers.trees.ARFFIMTDD;
+import moa.classifiers.trees.ARFHoeffdingTree;
+import moa.streams.InstanceStream;
+import moa.streams.generators.HyperplaneGeneratorReg;
+import moa.streams.generators.RandomRBFGenerator;
+
+import org.junit.Test;
+
+/**
+ * Checks that the copies made by copy constructors behave as the copies made
+ * through serialization, and do not share state with the original.
+ */
+public class AbstractMOAObjectCopyTest {
+
+	private static MOAObject serializationCopy(MOAObject object) throws Exception {
+		return (MOAObject) SerializeUtils.copyObject(object);
+	}
+
+	private void assertSameDetections(ChangeDetector detector) throws Exception {
+		Random random = new Random(1);
+		for (int i = 0; i < 3000; i++) {
+			detector.input(random.nextDouble() < (i < 1500 ? 0.1 : 0.5) ? 1 : 0);
+		}
+		ChangeDetector copy = detector.copy();
+		assertSame(detector.getClass(), copy.getClass());
+		ChangeDetector expected = (ChangeDetector) serializationCopy(detector);
+		// moving the original on must not change the copy
+		for (int i = 0; i < 1000; i++) {
+			detector.input(1);
+		}
+		for (int i = 0; i < 3000; i++) {
+			double input = random.nextDouble() < (i < 1000 ? 0.5 : 0.05) ? 1 : 0;
+			expected.input(input);
+			copy.input(input);
+			assertEquals(expected.getChange(), copy.getChange());
+			assertEquals(expected.getWarningZone(), copy.getWarningZone());
+			assertEquals(expected.getEstimation(), copy.getEstimation(), 0.0);
+		}
+	}
+
+	@Test
+	public void testChangeDetectors() throws Exception {
+		ADWINChangeDetector adwin = new ADWINChangeDetector();
+		adwin.deltaAdwinOption.setValue(0.1);
+		DDM ddm = new DDM();
+		ddm.warningLevelOption.setValue(1.5);
+		ChangeDetector[] detectors = {adwin, ddm, new EDDM(), new PageHinkleyDM()};
+		for (ChangeDetector detector : detectors) {
+			detector.prepareForUse();
+			assertSameDetections(detector);
+		}
+	}
+
+	private void assertSameSplit(AttributeSplitSuggestion expected, AttributeSplitSuggestion actual) {
+		assertEquals(expected.merit, actual.merit, 0.0);
+		for (int i = 0; i < expected.resultingClassDistributions.length; i++) {
+			assertArrayEquals(expected.resultingClassDistributions[i], actual.resultingClassDistributions[i], 0.0);
+		}
+	}
+
+	@Test
+	public void testClassificationObservers() throws Exception {
+		SplitCriterion criterion = new InfoGainSplitCriterion();
+		AttributeClassObserver[] observers = {new NominalAttributeClassObserver(), new GaussianNumericAttributeClassObserver()};
+		for (AttributeClassObserver observer : observers) {
+			Random random = new Random(1);
+			double[] preSplitDist = new double[3];
+			for (int i = 0; i < 1000; i++) {
+				int classValue = random.nextInt(3);
+				observer.observeAttributeClass(random.nextInt(4) + classValue, classValue, 1.0);
+				preSplitDist[classValue]++;
+			}
+			AttributeClassObserver copy = (AttributeClassObserver) observer.copy();
+			AttributeClassObserver expected = (AttributeClassObserver) serializationCopy(observer);
+			observer.observeAttributeClass(0, 0, 100.0);
+			for (int i = 0; i < 1000; i++) {
+				int classValue = random.nextInt(3);
+				double value = random.nextInt(2) + classValue;
+				copy.observeAttributeClass(value, classValue, 1.0);
+				expected.observeAttributeClass(value, classValue, 1.0);
+				preSplitDist[classValue]++;
+			}
+			assertSameSplit(expected.getBestEvaluatedSplitSuggestion(criterion, preSplitDist, 0, true),
+					copy.getBestEvaluatedSplitSuggestion(criterion, preSplitDist, 0, true));
+			assertEquals(expected.probabilityOfAttributeValueGivenClass(2, 1),
+					copy.probabilityOfAttributeValueGivenClass(2, 1), 0.0);
+		}
+	}
+
+	@Test
+	public void testRegressionObservers() throws Exception {
+		SplitCriterion criterion = new VarianceReductionSplitCriterion();
+		FIMTDDNumericAttributeClassObserver[] observers = {new FIMTDDNumericAttributeClassObserver(),
+				new FIMTDDArrayNumericAttributeClassObserver()};
+		for (FIMTDDNumericAttributeClassObserver observer : observers) {
+			Random random = new Random(1);
+			double[] preSplitDist = new double[3];
+			for (int i = 0; i < 2000; i++) {
+				double value = random.nextInt(100);
+				double target = value > 30 ? 5.0 + random.nextGaussian() : random.nextGaussian();
+				observer.observeAttributeClass(value, target, 1.0);
+				preSplitDist[0]++;
+				preSplitDist[1] += target;
+				preSplitDist[2] += target * target;
+			}
+			FIMTDDNumericAttributeClassObserver copy = (FIMTDDNumericAttributeClassObserver) observer.copy();
+			assertSame(observer.getClass(), copy.getClass());
+			FIMTDDNumericAttributeClassObserver expected = (FIMTDDNumericAttributeClassObserver) serializationCopy(observer);
+			observer.observeAttributeClass(50.5, 1000.0, 1.0);
+			assertSameSplit(expected.getBestEvaluatedSplitSuggestion(criterion, preSplitDist, 0, true),
+					copy.getBestEvaluatedSplitSuggestion(criterion, preSplitDist, 0, true));
+		}
+	}
+
+	private void assertSameMeasurements(LearningPerformanceEvaluator<Example<Instance>> expected, LearningPerformanceEvaluator<Example<Instance>> actual) {
+		Measurement[] expectedMeasurements = expected.getPerformanceMeasurements();
+		Measurement[] actualMeasurements = actual.getPerformanceMeasurements();
+		assertEquals(expectedMeasurements.length, actualMeasurements.length);
+		for (int i = 0; i < expectedMeasurements.length; i++) {
+			assertEquals(expectedMeasurements[i].getName(), actualMeasurements[i].getName());
+			assertEquals(expectedMeasurements[i].getValue(), actualMeasurements[i].getValue(), 0.0);
+		}
+	}
+
+	@SuppressWarnings("unchecked")
+	@Test
+	public void testEvaluators() throws Exception {
+		RandomRBFGenerator classification = new RandomRBFGenerator();
+		classification.prepareForUse();
+		BasicClassificationPerformanceEvaluator classificationEvaluator = new BasicClassificationPerformanceEvaluator();
+		classificationEvaluator.precisionRecallOutputOption.set();
+		classificationEvaluator.prepareForUse();
+		// an evaluator that has not seen any result yet
+		assertNotNull(classificationEvaluator.copy());
+
+		HyperplaneGeneratorReg regression = new HyperplaneGeneratorReg();
+		regression.prepareForUse();
+		BasicRegressionPerformanceEvaluator regressionEvaluator = new BasicRegressionPerformanceEvaluator();
+
+		Random random = new Random(1);
+		for (int i = 0; i < 1000; i++) {
+			classificationEvaluator.addResult(classification.nextInstance(), new double[]{random.nextDouble(), random.nextDouble()});
+			regressionEvaluator.addResult(regression.nextInstance(), new double[]{random.nextDouble()});
+		}
+		LearningPerformanceEvaluator<Example<Instance>>[] evaluators = new LearningPerformanceEvaluator[]{classificationEvaluator, regressionEvaluator};
+		for (LearningPerformanceEvaluator<Example<Instance>> evaluator : evaluators) {
+			LearningPerformanceEvaluator<Example<Instance>> copy = (LearningPerformanceEvaluator<Example<Instance>>) evaluator.copy();
+			LearningPerformanceEvaluator<Example<Instance>> expected = (LearningPerformanceEvaluator<Example<Instance>>) serializationCopy(evaluator);
+			assertSameMeasurements(expected, copy);
+			boolean isClassification = evaluator instanceof BasicClassificationPerformanceEvaluator;
+			for (int i = 0; i < 1000; i++) {
+				InstanceExample example = isClassification ? classification.nextInstance() : regression.nextInstance();
+				double[] prediction = isClassification ? new double[]{random.nextDouble(), random.nextDouble()} : new double[]{random.nextDouble()};
+				evaluator.addResult(example, new double[]{0.0});
+				copy.addResult(example, prediction);
+				expected.addResult(example, prediction);
+			}
+			assertSameMeasurements(expected, copy);
+		}
+	}
+
+	private void assertSameVotes(AbstractClassifier expected, AbstractClassifier actual, InstanceStream stream) {
+		assertSame(expected.getClass(), actual.getClass());
+		assertEquals(expected.getOptions().getAsCLIString(), actual.getOptions().getAsCLIString());
+		for (int i = 0; i < 3000; i++) {
+			Instance inst = stream.nextInstance().getData();
+			assertArrayEquals(expected.getVotesForInstance(inst), actual.getVotesForInstance(inst), 0.0);
+			expected.trainOnInstance(inst);
+			actual.trainOnInstance(inst);
+		}
+	}
+
+	@Test
+	public void testUntrainedTreeCopies() {
+		RandomRBFGenerator classification = new RandomRBFGenerator();
+		classification.prepareForUse();
+		ARFHoeffdingTree tree = new ARFHoeffdingTree();
+		tree.getOptions().setViaCLIString("-k 3 -g 50 -c 0.01 -l NB");
+		tree.setRandomSeed(5);
+		tree.prepareForUse();
+		HyperplaneGeneratorReg regression = new HyperplaneGeneratorReg();
+		regression.prepareForUse();
+		ARFFIMTDD regressionTree = new ARFFIMTDD();
+		regressionTree.getOptions().setViaCLIString("-k 3 -g 50");
+		regressionTree.setRandomSeed(5);
+		regressionTree.prepareForUse();
+		for (int i = 0; i < 2000; i++) {
+			tree.trainOnInstance(classification.nextInstance().getData());
+			regressionTree.trainOnInstance(regression.nextInstance().getData());
+		}
+
+		ARFHoeffdingTree expected = (ARFHoeffdingTree) tree.copy();
+		expected.resetLearning();
+		assertSameVotes(expected, tree.copyUntrained(), classification);
+		ARFFIMTDD expectedRegressionTree = (ARFFIMTDD) regressionTree.copy();
+		expectedRegressionTree.resetLearning();
+		assertSameVotes(expectedRegressionTree, regressionTree.copyUntrained(), regression);
+	}
+}
@@ -0,0 +1,118 @@
+package as.graph;
+
+import static org.junit.Assert.*;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * Checks the centrality metrics of Graph against the values obtained with the
+ * hash map based implementation, before and after a topology change.
+ */
+public class GraphTest {
+
+    private static final float EPS = 0.0000001f;
+
+    private static final int[] TREE_IDS = {0, 1, 2, 3, 4};
+    private static final int[] CYCLE_IDS = {0, 1, 2, 3, 5};
+
+    private Graph<String, Integer> buildTree(String metric) {
+        Graph<String, Integer> graph = new Graph<String, Integer>(metric);
+        for (int i = 0; i < 5; i++) {
+            graph.addNode(i, "n" + i);
+        }
+        graph.setEdge(0, 1, 1);
+        graph.setEdge(1, 2, 1);
+        graph.setEdge(2, 3, 1);
+        graph.setEdge(1, 4, 1);
+        return graph;
+    }
+
+    // turns the tree into the cycle 0-1-2-3-5-0
+    private void toCycle(Graph<String, Integer> graph) {
+        graph.removeNode(4);
+        graph.addNode(5, "n5");
+        graph.setEdge(3, 5, 1);
+        graph.setEdge(0, 5, 1);
+    }
+
+    private void assertMetric(Graph<String, Integer> graph, int[] ids, float[] expected) {
+        for (int i = 0; i < ids.length; i++) {
+            assertEquals(expected[i], graph.getCentralityMetric(ids[i]), EPS);
+        }
+    }
+
+    @Test
+    public void testDegree() {
+        Graph<String, Integer> graph = buildTree("Degree");
+        assertMetric(graph, TREE_IDS, new float[]{0.125f, 0.375f, 0.25f, 0.125f, 0.125f});
+        toCycle(graph);
+        assertMetric(graph, CYCLE_IDS, new float[]{0.2f, 0.2f, 0.2f, 0.2f, 0.2f});
+    }
+
+    @Test
+    public void testBetweenness() {
+        Graph<String, Integer> graph = buildTree("Betweenness");
+        assertMetric(graph, TREE_IDS, new float[]{0.0f, 0.625f, 0.375f, 0.0f, 0.0f});
+        toCycle(graph);
+        assertMetric(graph, CYCLE_IDS, new float[]{0.06666667f, 0.0f, 0.2f, 0.4f, 0.33333334f});
+    }
+
+    // after removals the nodes map is larger than a new one, so it iterates
+    // in another order, and the sum of the betweenness must not change
+    @Test
+    public void testBetweennessAfterRemovals() {
+        Random random = new Random(10);
+        Graph<String, Integer> graph = new Graph<String, Integer>("Betweenness");
+        for (int i = 0; i < 40; i++) {
+            graph.addNode(i, "n" + i);
+        }
+        for (int i = 0; i < 40; i++) {
+            for (int e = 0; e < 2; e++) {
+                int j = random.nextInt(40);
+                if (j != i) {
+                    graph.setEdge(i, j, 1);
+                }
+            }
+        }
+        for (int i = 0; i < 40; i++) {
+            if (random.nextInt(3) == 0) {
+                graph.removeNode(i);
+            }
+        }
+        int hash = 0;
+        for (int id = 0; id < 40; id++) {
+            if (graph.getNode(id) != null) {
+                hash = 31 * hash + Float.floatToIntBits(graph.getCentralityMetric(id));
+            }
+        }
+        assertEquals(-677836064, hash);
+    }
+
+    @Test
+    public void testCloseness() {
+        Graph<String, Integer> graph = buildTree("Closeness");
+        assertMetric(graph, TREE_IDS, new float[]{0.17175573f, 0.27480915f, 0.22900765f, 0.15267175f, 0.17175573f});
+        toCycle(graph);
+        assertMetric(graph, CYCLE_IDS, new float[]{0.2f, 0.2f, 0.2f, 0.2f, 0.2f});
+    }
+
+    @Test
+    public void testPagerank() {
+        Graph<String, Integer> graph = buildTree("Pagerank");
+        assertMetric(graph, TREE_IDS, new float[]{0.15151617f, 0.30908784f, 0.23030508f, 0.15757474f, 0.15151617f});
+        toCycle(graph);
+        assertMetric(graph, CYCLE_IDS, new float[]{0.2f, 0.2f, 0.2f, 0.2f, 0.2f});
+    }
+
+    @Test
+    public void testMetricMap() {
+        Graph<String, Integer> graph = buildTree("Degree");
+        assertEquals(5, graph.getCentralityMetric().size());
+        assertEquals(0.375f, graph.getCentralityMetric().get(1), EPS);
+        toCycle(graph);
+        assertNull(graph.getCentralityMetric().get(4));
+        assertEquals(0.2f, graph.getCentralityMetric().get(5), EPS);
+    }
+}
@@ -0,0 +1,65 @@
+package moa.classifiers;
+
+import static org.junit.Assert.*;
+
+import com.yahoo.labs.samoa.instances.Instance;
+import moa.classifiers.functions.Perceptron;
+import moa.classifiers.functions.SGDMultiClass;
+import moa.classifiers.meta.AdaptiveRandomForest;
+import moa.classifiers.meta.AdaptiveRandomForestRegressor;
+import moa.classifiers.trees.FIMTDD;
+import moa.classifiers.trees.HoeffdingAdaptiveTree;
+import moa.classifiers.trees.HoeffdingTree;
+import moa.streams.InstanceStream;
+import moa.streams.generators.HyperplaneGeneratorReg;
+import moa.streams.generators.RandomRBFGenerator;
+
+import org.junit.Test;
+
+/**
+ * Checks that getVotesForInstances predicts each instance of a block as
+ * getVotesForInstance does, including when the vote arrays are reused.
+ */
+public class BatchPredictionTest {
+
+	private static final int BLOCK_SIZE = 50;
+
+	private void assertSameVotes(Classifier learner, String options, InstanceStream stream) {
+		((moa.options.AbstractOptionHandler) stream).prepareForUse();
+		learner.getOptions().setViaCLIString(options);
+		learner.prepareForUse();
+		learner.setModelContext(stream.getHeader());
+		Instance[] block = new Instance[BLOCK_SIZE];
+		double[][] votes = new double[BLOCK_SIZE][];
+		for (int round = 0; round < 10; round++) {
+			// the last block is only partly filled
+			int numInstances = round == 9 ? BLOCK_SIZE / 2 : BLOCK_SIZE;
+			for (int i = 0; i < numInstances; i++) {
+				block[i] = stream.nextInstance().getData();
+			}
+			learner.getVotesForInstances(block, numInstances, votes);
+			for (int i = 0; i < numInstances; i++) {
+				assertArrayEquals(learner.getVotesForInstance(block[i]), votes[i], 0.0);
+			}
+			for (int i = 0; i < 300; i++) {
+				learner.trainOnInstance(stream.nextInstance().getData());
+			}
+		}
+	}
+
+	@Test
+	public void testClassifiers() {
+		assertSameVotes(new HoeffdingTree(), "-g 50", new RandomRBFGenerator());
+		assertSameVotes(new HoeffdingTree(), "-g 50 -l MC", new RandomRBFGenerator());
+		assertSameVotes(new HoeffdingAdaptiveTree(), "-g 50", new RandomRBFGenerator());
+		assertSameVotes(new Perceptron(), "", new RandomRBFGenerator());
+		assertSameVotes(new SGDMultiClass(), "", new RandomRBFGenerator());
+		assertSameVotes(new AdaptiveRandomForest(), "-s 3", new RandomRBFGenerator());
+	}
+
+	@Test
+	public void testRegressors() {
+		assertSameVotes(new FIMTDD(), "", new HyperplaneGeneratorReg());
+		assertSameVotes(new AdaptiveRandomForestRegressor(), "-s 3", new HyperplaneGeneratorReg());
+	}
+}
@@ -0,0 +1,88 @@
+package moa.classifiers.core.attributeclassobservers;
+
+import static org.junit.Assert.*;
+
+import java.util.Random;
+import moa.classifiers.core.AttributeSplitSuggestion;
+import moa.classifiers.core.conditionaltests.NumericAttributeBinaryTest;
+import moa.classifiers.core.splitcriteria.SplitCriterion;
+import moa.classifiers.core.splitcriteria.VarianceReductionSplitCriterion;
+import org.junit.Test;
+
+/**
+ * Checks the array-backed observer against the E-BST of
+ * FIMTDDNumericAttributeClassObserver.
+ */
+public class FIMTDDArrayNumericAttributeClassObserverTest {
+
+	private static final double EPS = 1e-9;
+
+	private final SplitCriterion criterion = new VarianceReductionSplitCriterion();
+
+	private AttributeSplitSuggestion bestSplit(FIMTDDNumericAttributeClassObserver observer, double[] preSplitDist) {
+		return observer.getBestEvaluatedSplitSuggestion(criterion, preSplitDist, 0, true);
+	}
+
+	private double splitValue(AttributeSplitSuggestion suggestion) {
+		return ((NumericAttributeBinaryTest) suggestion.splitTest).getSplitValue();
+	}
+
+	@Test
+	public void testSameSplitAsEBST() {
+		FIMTDDNumericAttributeClassObserver ebst = new FIMTDDNumericAttributeClassObserver();
+		FIMTDDArrayNumericAttributeClassObserver array = new FIMTDDArrayNumericAttributeClassObserver();
+		double[] preSplitDist = new double[3];
+		Random random = new Random(1);
+		for (int i = 0; i < 2000; i++) {
+			// repeated values, and a target that jumps at 0.3
+			double value = random.nextInt(200) / 200.0;
+			double target = (value > 0.3 ? 5.0 : 1.0) + random.nextGaussian();
+			ebst.observeAttributeClass(value, target, 1.0);
+			array.observeAttributeClass(value, target, 1.0);
+			preSplitDist[0] += 1;
+			preSplitDist[1] += target;
+			preSplitDist[2] += target * target;
+		}
+		AttributeSplitSuggestion expected = bestSplit(ebst, preSplitDist);
+		AttributeSplitSuggestion actual = bestSplit(array, preSplitDist);
+		assertEquals(splitValue(expected), splitValue(actual), 0.0);
+		assertEquals(expected.merit, actual.merit, EPS);
+		for (int i = 0; i < 2; i++) {
+			assertArrayEquals(expected.resultingClassDistributions[i], actual.resultingClassDistributions[i], EPS);
+		}
+	}
+
+	@Test
+	public void testSortedValues() {
+		// would be a linked list in the E-BST
+		FIMTDDArrayNumericAttributeClassObserver array = new FIMTDDArrayNumericAttributeClassObserver();
+		double[] preSplitDist = new double[3];
+		for (int i = 0; i < 100000; i++) {
+			double target = i < 25000 ? 0.0 : 10.0;
+			array.observeAttributeClass(i, target, 1.0);
+			preSplitDist[0] += 1;
+			preSplitDist[1] += target;
+			preSplitDist[2] += target * target;
+		}
+		assertEquals(24999.0, splitValue(bestSplit(array, preSplitDist)), 0.0);
+	}
+
+	@Test
+	public void testMaxSplitPoints() {
+		FIMTDDArrayNumericAttributeClassObserver array = new FIMTDDArrayNumericAttributeClassObserver();
+		array.maxSplitPointsOption.setValue(32);
+		double[] preSplitDist = new double[3];
+		for (int i = 0; i < 1000; i++) {
+			double target = i < 500 ? 0.0 : 10.0;
+			array.observeAttributeClass(i, target, 1.0);
+			preSplitDist[0] += 1;
+			preSplitDist[1] += target;
+			preSplitDist[2] += target * target;
+		}
+		assertTrue(array.size <= 32);
+		AttributeSplitSuggestion suggestion = bestSplit(array, preSplitDist);
+		// merged points keep all the counts, and the split is still close to where the target jumps
+		assertEquals(1000.0, suggestion.resultingClassDistributions[0][0] + suggestion.resultingClassDistributions[1][0], 0.0);
+		assertEquals(499.0, splitValue(suggestion), 1000.0 / 32);
+	}
+}
@@ -0,0 +1,101 @@
+package moa.classifiers.lazy;
+
+import static org.junit.Assert.*;
+
+import java.lang.reflect.Field;
+import java.util.Random;
+
+import com.yahoo.labs.samoa.instances.Instance;
+import com.yahoo.labs.samoa.instances.Instances;
+import moa.classifiers.AbstractClassifier;
+import moa.streams.InstanceStream;
+import moa.streams.generators.AgrawalGenerator;
+import moa.streams.generators.LEDGeneratorDrift;
+import moa.streams.generators.RandomRBFGeneratorDrift;
+
+import org.junit.Test;
+
+/**
+ * Checks that SAMkNNCompact votes the same as SAMkNN, with memories below the
+ * limit and with a small limit under which the LTM is clustered down.
+ */
+public class SAMkNNCompactTest {
+
+	private void assertSameVotes(InstanceStream stream, String options) {
+		AbstractClassifier samknn = new SAMkNN();
+		AbstractClassifier compact = new SAMkNNCompact();
+		for (AbstractClassifier learner : new AbstractClassifier[]{samknn, compact}) {
+			learner.getOptions().setViaCLIString(options);
+			learner.prepareForUse();
+			learner.setModelContext(stream.getHeader());
+		}
+		for (int i = 0; i < 1500; i++) {
+			Instance inst = stream.nextInstance().getData();
+			assertArrayEquals(samknn.getVotesForInstance(inst), compact.getVotesForInstance(inst), 0.0);
+			samknn.trainOnInstance(inst);
+			compact.trainOnInstance(inst);
+		}
+	}
+
+	private static void seed(Object learner, Class<?> learnerClass, long seed) throws Exception {
+		Field random = learnerClass.getDeclaredField("random");
+		random.setAccessible(true);
+		random.set(learner, new Random(seed));
+	}
+
+	private static int ltmSize(SAMkNN learner) throws Exception {
+		Field ltm = SAMkNN.class.getDeclaredField("ltm");
+		ltm.setAccessible(true);
+		return ((Instances) ltm.get(learner)).numInstances();
+	}
+
+	@Test
+	public void testSameVotesWithClustering() throws Exception {
+		InstanceStream[] streams = {new RandomRBFGeneratorDrift(), new AgrawalGenerator(), new LEDGeneratorDrift()};
+		for (InstanceStream stream : streams) {
+			((moa.options.AbstractOptionHandler) stream).prepareForUse();
+			SAMkNN samknn = new SAMkNN();
+			SAMkNNCompact compact = new SAMkNNCompact();
+			for (AbstractClassifier learner : new AbstractClassifier[]{samknn, compact}) {
+				learner.getOptions().setViaCLIString("-w 200 -m 20");
+				learner.prepareForUse();
+				learner.setModelContext(stream.getHeader());
+			}
+			// kMeans++ draws its initial centroids from the learner's generator
+			seed(samknn, SAMkNN.class, 1);
+			seed(compact, SAMkNNCompact.class, 1);
+			for (int i = 0; i < 3000; i++) {
+				Instance inst = stream.nextInstance().getData();
+				assertArrayEquals(samknn.getVotesForInstance(inst), compact.getVotesForInstance(inst), 0.0);
+				samknn.trainOnInstance(inst);
+				compact.trainOnInstance(inst);
+			}
+			// instances only reach the LTM through a shift that clusters it down
+			assertTrue(ltmSize(samknn) > 0);
+		}
+	}
+
+	@Test
+	public void testSameVotes() {
+		InstanceStream[] streams = {new RandomRBFGeneratorDrift(), new AgrawalGenerator(), new LEDGeneratorDrift()};
+		for (InstanceStream stream : streams) {
+			((moa.options.AbstractOptionHandler) stream).prepareForUse();
+			assertSameVotes(stream, "-w 2000 -m 20");
+			assertSameVotes(stream, "-k 3 -w 2000 -m 10 -r");
+		}
+	}
+
+	@Test
+	public void testTrainOnly() {
+		AgrawalGenerator stream = new AgrawalGenerator();
+		stream.prepareForUse();
+		SAMkNNCompact learner = new SAMkNNCompact();
+		learner.limitOption.setValue(300);
+		learner.prepareForUse();
+		learner.setModelContext(stream.getHeader());
+		for (int i = 0; i < 1000; i++) {
+			learner.trainOnInstance(stream.nextInstance().getData());
+		}
+		assertEquals(2, learner.getVotesForInstance(stream.nextInstance().getData()).length);
+	}
+}
@@ -0,0 +1,44 @@
+package moa.classifiers.lazy;
+
+import static org.junit.Assert.*;
+
+import java.util.Arrays;
+
+import com.yahoo.labs.samoa.instances.Instance;
+import moa.classifiers.AbstractClassifier;
+import moa.streams.generators.RandomRBFGenerator;
+
+import org.junit.Test;
+
+/**
+ * Pins the votes of kNNwithPAW and kNNwithPAWandADWIN, whose windows can
+ * grow past the limit and lose instances at random positions, to the votes
+ * they gave before kNN kept its own window in WindowInstances.
+ */
+public class kNNwithPAWTest {
+
+	private static long votesHash(AbstractClassifier learner) {
+		RandomRBFGenerator stream = new RandomRBFGenerator();
+		stream.prepareForUse();
+		learner.getOptions().setViaCLIString("-w 200");
+		learner.prepareForUse();
+		learner.setModelContext(stream.getHeader());
+		long hash = 0;
+		for (int i = 0; i < 5000; i++) {
+			Instance inst = stream.nextInstance().getData();
+			hash = 31 * hash + Arrays.hashCode(learner.getVotesForInstance(inst));
+			learner.trainOnInstance(inst);
+		}
+		return hash;
+	}
+
+	@Test
+	public void testPAWVotes() {
+		assertEquals(3819054136206493282L, votesHash(new kNNwithPAW()));
+	}
+
+	@Test
+	public void testPAWandADWINVotes() {
+		assertEquals(3819054136206493282L, votesHash(new kNNwithPAWandADWIN()));
+	}
+}
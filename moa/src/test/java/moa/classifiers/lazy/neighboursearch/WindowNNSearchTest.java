@@ -0,0 +1,76 @@
+package moa.classifiers.lazy.neighboursearch;
+
+import static org.junit.Assert.*;
+
+import java.util.Random;
+
+import com.yahoo.labs.samoa.instances.Instance;
+import moa.classifiers.lazy.kNN;
+import moa.streams.InstanceStream;
+import moa.streams.generators.AgrawalGenerator;
+import moa.streams.generators.LEDGenerator;
+import moa.streams.generators.RandomTreeGenerator;
+
+import org.junit.Test;
+
+/**
+ * Checks that kNN votes the same with WindowNNSearch as with LinearNNSearch.
+ */
+public class WindowNNSearchTest {
+
+	/**
+	 * Trains on the instances of the stream, after setting the attribute
+	 * missingIndex missing in the first missingUntil ones.
+	 */
+	private void assertSameVotes(InstanceStream stream, int missingIndex, int missingUntil) {
+		kNN linear = new kNN();
+		kNN window = new kNN();
+		window.nearestNeighbourSearchOption.setChosenLabel("WindowNN");
+		for (kNN learner : new kNN[]{linear, window}) {
+			learner.limitOption.setValue(200);
+			learner.kOption.setValue(5);
+			learner.setModelContext(stream.getHeader());
+			learner.prepareForUse();
+		}
+		Random random = new Random(1);
+		Instance[] block = new Instance[4];
+		double[][] votes = new double[block.length][];
+		for (int i = 0; i < 2000; i++) {
+			Instance inst = stream.nextInstance().getData();
+			if (random.nextDouble() < 0.2) {
+				inst.setMissing(random.nextInt(inst.numAttributes() - 1));
+			}
+			block[i % block.length] = inst;
+			assertArrayEquals(linear.getVotesForInstance(inst), window.getVotesForInstance(inst), 0.0);
+			if (i % block.length == block.length - 1) {
+				window.getVotesForInstances(block, block.length, votes);
+				for (int j = 0; j < block.length; j++) {
+					assertArrayEquals(linear.getVotesForInstance(block[j]), votes[j], 0.0);
+				}
+			}
+			if (i < missingUntil) {
+				inst = inst.copy();
+				inst.setMissing(missingIndex);
+			}
+			linear.trainOnInstance(inst);
+			window.trainOnInstance(inst);
+		}
+	}
+
+	@Test
+	public void testSameVotes() {
+		InstanceStream[] streams = {new RandomTreeGenerator(), new AgrawalGenerator(), new LEDGenerator()};
+		for (InstanceStream stream : streams) {
+			((moa.options.AbstractOptionHandler) stream).prepareForUse();
+			assertSameVotes(stream, -1, 0);
+		}
+	}
+
+	@Test
+	public void testMissingInWindow() {
+		// a numeric attribute without values in the window, and then with a few
+		AgrawalGenerator stream = new AgrawalGenerator();
+		stream.prepareForUse();
+		assertSameVotes(stream, 0, 1000);
+	}
+}
@@ -0,0 +1,131 @@
+package moa.classifiers.trees;
+
+import static org.junit.Assert.*;
+
+import java.util.Random;
+
+import com.yahoo.labs.samoa.instances.Instance;
+import moa.classifiers.AbstractClassifier;
+import moa.classifiers.core.CompiledTree;
+import moa.classifiers.core.conditionaltests.NominalAttributeMultiwayTest;
+import moa.streams.InstanceStream;
+import moa.streams.generators.HyperplaneGeneratorReg;
+import moa.streams.generators.RandomTreeGenerator;
+
+import org.junit.Test;
+
+/**
+ * Checks that HoeffdingTree and FIMTDD vote the same with and without the
+ * compiled tree (-i), on instances with missing values, while the trees keep
+ * splitting after they were compiled. FIMTDD does not handle missing values,
+ * so it is only trained on complete instances, and its predictions with
+ * missing values must fail on the compiled tree where they fail on the tree.
+ */
+public class CompiledTreeTest {
+
+	private static final int NUM_INSTANCES = 6000;
+
+	private static final double MISSING_FRACTION = 0.1;
+
+	private static Instance withMissingValues(Instance inst, Random random) {
+		Instance copy = inst.copy();
+		for (int i = 0; i < copy.numAttributes(); i++) {
+			if (i != copy.classIndex() && random.nextDouble() < MISSING_FRACTION) {
+				copy.setMissing(i);
+			}
+		}
+		return copy;
+	}
+
+	// The votes of the learner, or null if it cannot predict the instance
+	private static double[] votes(AbstractClassifier learner, Instance inst) {
+		try {
+			return learner.getVotesForInstance(inst);
+		} catch (NullPointerException e) {
+			return null;
+		}
+	}
+
+	/*
+	 * Trains both learners on the same instances and compares their votes
+	 * for each instance, with missing values, before training. Returns the
+	 * number of split nodes of the first compiled tree with splits and of the
+	 * last compiled tree.
+	 */
+	private static int[] assertSameVotes(AbstractClassifier learner, AbstractClassifier compiledLearner,
+			String options, InstanceStream stream, boolean trainWithMissing) {
+		((moa.options.AbstractOptionHandler) stream).prepareForUse();
+		learner.getOptions().setViaCLIString(options);
+		learner.prepareForUse();
+		learner.setModelContext(stream.getHeader());
+		compiledLearner.getOptions().setViaCLIString(options + " -i");
+		compiledLearner.prepareForUse();
+		compiledLearner.setModelContext(stream.getHeader());
+		Random random = new Random(1);
+		int[] compiledSplits = {0, 0};
+		for (int n = 0; n < NUM_INSTANCES; n++) {
+			Instance complete = stream.nextInstance().getData();
+			Instance inst = withMissingValues(complete, random);
+			double[] votes = votes(learner, inst);
+			double[] compiledVotes = votes(compiledLearner, inst);
+			if (votes == null) {
+				assertNull(compiledVotes);
+			} else {
+				assertArrayEquals(votes, compiledVotes, 0.0);
+			}
+			CompiledTree compiled = compiledLearner instanceof HoeffdingTree
+					? ((HoeffdingTree) compiledLearner).compiledTree : ((FIMTDD) compiledLearner).compiledTree;
+			if (compiled != null) {
+				if (compiledSplits[0] == 0) {
+					compiledSplits[0] = compiled.numSplitNodes();
+				}
+				compiledSplits[1] = compiled.numSplitNodes();
+			}
+			if (!trainWithMissing) {
+				inst = complete;
+			}
+			learner.trainOnInstance(inst);
+			compiledLearner.trainOnInstance(inst);
+		}
+		return compiledSplits;
+	}
+
+	private static boolean hasMultiwaySplit(HoeffdingTree.Node node) {
+		if (node instanceof HoeffdingTree.SplitNode) {
+			HoeffdingTree.SplitNode split = (HoeffdingTree.SplitNode) node;
+			if (split.splitTest instanceof NominalAttributeMultiwayTest) {
+				return true;
+			}
+			for (int i = 0; i < split.numChildren(); i++) {
+				if (hasMultiwaySplit(split.getChild(i))) {
+					return true;
+				}
+			}
+		}
+		return false;
+	}
+
+	@Test
+	public void testHoeffdingTree() {
+		RandomTreeGenerator stream = new RandomTreeGenerator();
+		stream.numNominalsOption.setValue(3);
+		stream.numNumericsOption.setValue(3);
+		for (String options : new String[] {"-g 50", "-g 50 -l MC"}) {
+			HoeffdingTree compiledLearner = new HoeffdingTree();
+			int[] compiledSplits = assertSameVotes(new HoeffdingTree(), compiledLearner, options, stream, true);
+			assertTrue(hasMultiwaySplit(compiledLearner.treeRoot));
+			// the tree split after it was compiled with splits, and was compiled again
+			assertTrue(compiledSplits[0] > 0);
+			assertTrue(compiledSplits[1] > compiledSplits[0]);
+		}
+	}
+
+	@Test
+	public void testFIMTDD() {
+		for (String options : new String[] {"", "-e"}) {
+			int[] compiledSplits = assertSameVotes(new FIMTDD(), new FIMTDD(), options, new HyperplaneGeneratorReg(), false);
+			assertTrue(compiledSplits[0] > 0);
+			assertTrue(compiledSplits[1] > compiledSplits[0]);
+		}
+	}
+}
@@ -0,0 +1,51 @@
+package moa.clusterers.clustream;
+
+import static org.junit.Assert.*;
+
+import com.yahoo.labs.samoa.instances.Instance;
+import moa.cluster.Clustering;
+import moa.clusterers.AbstractClusterer;
+import moa.streams.clustering.RandomRBFGeneratorEvents;
+
+import org.junit.Test;
+
+/**
+ * Checks that Clustream and WithKmeans keep the same kernels with and
+ * without the ball tree over the kernel centers.
+ */
+public class KernelCenterIndexTest {
+
+	private void assertSameKernels(AbstractClusterer linear, AbstractClusterer indexed, String options) {
+		RandomRBFGeneratorEvents stream = new RandomRBFGeneratorEvents();
+		stream.prepareForUse();
+		linear.getOptions().setViaCLIString(options);
+		indexed.getOptions().setViaCLIString(options + " -i");
+		linear.prepareForUse();
+		indexed.prepareForUse();
+		for (int n = 1; n <= 6000; n++) {
+			Instance inst = stream.nextInstance().getData();
+			linear.trainOnInstanceImpl(inst);
+			indexed.trainOnInstanceImpl(inst);
+			if (n % 1000 == 0) {
+				Clustering expected = linear.getMicroClusteringResult();
+				Clustering actual = indexed.getMicroClusteringResult();
+				assertEquals(expected.size(), actual.size());
+				for (int i = 0; i < expected.size(); i++) {
+					assertArrayEquals(expected.get(i).getCenter(), actual.get(i).getCenter(), 0.0);
+					assertEquals(expected.get(i).getWeight(), actual.get(i).getWeight(), 0.0);
+				}
+			}
+		}
+	}
+
+	@Test
+	public void testClustream() {
+		assertSameKernels(new Clustream(), new Clustream(), "-k 200");
+		assertSameKernels(new Clustream(), new Clustream(), "-k 50 -h 200");
+	}
+
+	@Test
+	public void testWithKmeans() {
+		assertSameKernels(new WithKmeans(), new WithKmeans(), "-m 150");
+	}
+}
@@ -0,0 +1,166 @@
+package moa.clusterers.dstream;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Random;
+
+import com.yahoo.labs.samoa.instances.Attribute;
+import com.yahoo.labs.samoa.instances.DenseInstance;
+import com.yahoo.labs.samoa.instances.Instance;
+import com.yahoo.labs.samoa.instances.Instances;
+import moa.cluster.Clustering;
+import moa.core.Measurement;
+
+import org.junit.Test;
+
+/**
+ * Checks the packed and hashed keys of GridStore and that DstreamCompact
+ * finds two separate groups of grids as two clusters.
+ */
+public class DstreamCompactTest {
+
+	// Store whose hashes collide for most coordinates
+	private static class CollidingStore extends GridStore {
+
+		private static final long serialVersionUID = 1L;
+
+		CollidingStore(int dimensions) {
+			super(dimensions, true);
+		}
+
+		@Override
+		protected long hash(int[] coordinates) {
+			return coordinates[0] & 3;
+		}
+	}
+
+	private static void checkGrids(GridStore store, int numGrids, int spread, Random random) {
+		int d = store.getDimensions();
+		int[][] grids = new int[numGrids][d];
+		for (int n = 0; n < grids.length; n++) {
+			for (int i = 0; i < d; i++) {
+				// the ranges grow as the coordinates spread
+				int range = Math.min(n, spread);
+				grids[n][i] = random.nextInt(2 * range + 1) - range;
+			}
+			if (store.slot(grids[n]) < 0) {
+				assertEquals(store.size(), store.add(grids[n], n, 0.5, 2.0));
+			}
+		}
+		for (int n = 0; n < grids.length; n++) {
+			int slot = store.slot(grids[n]);
+			assertTrue(slot >= 0);
+			for (int i = 0; i < d; i++) {
+				assertEquals(grids[n][i], store.coordinate(slot, i));
+				int[] up = grids[n].clone();
+				up[i]++;
+				assertEquals(store.slot(up), store.neighbour(slot, i, true));
+				int[] down = grids[n].clone();
+				down[i]--;
+				assertEquals(store.slot(down), store.neighbour(slot, i, false));
+			}
+		}
+		int[] absent = new int[d];
+		Arrays.fill(absent, spread + 2);
+		assertEquals(-1, store.slot(absent));
+	}
+
+	@Test
+	public void testKeys() {
+		GridStore store = new GridStore(3);
+		checkGrids(store, 500, 500, new Random(1));
+		assertFalse(store.isHashed());
+		assertTrue(store.size() > 400);
+	}
+
+	@Test
+	public void testHashedKeys() {
+		// packed keys overflow as the ranges of 20 dimensions grow
+		GridStore store = new GridStore(20);
+		checkGrids(store, 2000, 200, new Random(2));
+		assertTrue(store.isHashed());
+		store = new GridStore(50);
+		checkGrids(store, 300, 5, new Random(3));
+		assertTrue(store.isHashed());
+		store = new CollidingStore(3);
+		checkGrids(store, 500, 10, new Random(4));
+		assertTrue(store.size() > 100);
+	}
+
+	@Test
+	public void testRemovalsWithCollidingKeys() {
+		GridStore store = new CollidingStore(2);
+		for (int x = 0; x < 20; x++) {
+			store.add(new int[] {x, x % 3}, 0, 0.5, 2.0);
+		}
+		// no grid is updated again, so every grid becomes sporadic and is removed
+		store.removeSporadic(10, 5, 0.9, 0.8, 1.0, 0.3);
+		store.removeSporadic(20, 5, 0.9, 0.8, 1.0, 0.3);
+		assertEquals(0, store.size());
+		store.add(new int[] {4, 1}, 21, 0.5, 2.0);
+		store.add(new int[] {5, 1}, 21, 0.5, 2.0);
+		assertEquals(1, store.neighbour(0, 0, true));
+		assertEquals(-1, store.neighbour(0, 1, true));
+		assertEquals(0, store.slot(new int[] {4, 1}));
+		assertEquals(-1, store.slot(new int[] {8, 1}));
+	}
+
+	@Test
+	public void testManyDimensions() {
+		// 16 attributes with values 0 to 9 overflow packed keys with slack
+		ArrayList<Attribute> attributes = new ArrayList<Attribute>();
+		for (int i = 0; i < 16; i++) {
+			attributes.add(new Attribute("a" + i));
+		}
+		Instances header = new Instances("grids", attributes, 0);
+		DstreamCompact clusterer = new DstreamCompact();
+		clusterer.prepareForUse();
+		Random random = new Random(5);
+		for (int n = 0; n < 2000; n++) {
+			double[] values = new double[16];
+			for (int i = 0; i < 16; i++) {
+				values[i] = random.nextInt(10);
+			}
+			Instance inst = new DenseInstance(1.0, values);
+			inst.setDataset(header);
+			clusterer.trainOnInstance(inst);
+		}
+		assertTrue(clusterer.getNumGrids() > 0);
+		clusterer.getClusteringResult();
+		Measurement[] measurements = clusterer.getModelMeasurements();
+		assertEquals(clusterer.getNumGrids(), Measurement.getMeasurementNamed("grids", measurements).getValue(), 0.0);
+		StringBuilder description = new StringBuilder();
+		clusterer.getModelDescription(description, 0);
+		assertTrue(description.toString().contains(clusterer.getNumGrids() + " density grids"));
+	}
+
+	@Test
+	public void testTwoGroups() {
+		ArrayList<Attribute> attributes = new ArrayList<Attribute>();
+		attributes.add(new Attribute("x"));
+		attributes.add(new Attribute("y"));
+		Instances header = new Instances("grids", attributes, 0);
+		DstreamCompact clusterer = new DstreamCompact();
+		clusterer.prepareForUse();
+		Random random = new Random(1);
+		for (int n = 0; n < 3000; n++) {
+			int corner = random.nextBoolean() ? 10 : 50;
+			double[] values = {corner + random.nextInt(3), corner + random.nextInt(3)};
+			Instance inst = new DenseInstance(1.0, values);
+			inst.setDataset(header);
+			clusterer.trainOnInstance(inst);
+		}
+		assertEquals(18, clusterer.getNumGrids());
+		assertEquals(2, (int) Measurement.getMeasurementNamed("clusters", clusterer.getModelMeasurements()).getValue());
+		Clustering clustering = clusterer.getClusteringResult();
+		assertEquals(2, clustering.size());
+		for (int c = 0; c < 2; c++) {
+			assertEquals(9.0, clustering.get(c).getWeight(), 0.0);
+		}
+		Instance inside = new DenseInstance(1.0, new double[] {11, 11});
+		inside.setDataset(header);
+		assertEquals(1.0, clustering.get(0).getInclusionProbability(inside) + clustering.get(1).getInclusionProbability(inside), 0.0);
+	}
+}
@@ -0,0 +1,62 @@
+package moa.clusterers.outliers.MCOD;
+
+import static org.junit.Assert.*;
+
+import java.util.Vector;
+
+import com.yahoo.labs.samoa.instances.Instance;
+import moa.clusterers.outliers.MyBaseOutlierDetector;
+import moa.clusterers.outliers.MyBaseOutlierDetector.Outlier;
+import moa.streams.clustering.RandomRBFGeneratorEvents;
+
+import org.junit.Test;
+
+/**
+ * Checks that MCODCompact reports the same outliers as MCOD after every
+ * object of a stream.
+ */
+public class MCODCompactTest {
+
+	private static void compare(int numAtts, int windowSize, double radius, int k) {
+		RandomRBFGeneratorEvents stream = new RandomRBFGeneratorEvents();
+		stream.numAttsOption.setValue(numAtts);
+		stream.prepareForUse();
+		MCOD mcod = new MCOD();
+		MCODCompact compact = new MCODCompact();
+		mcod.radiusOption.setValue(radius);
+		compact.radiusOption.setValue(radius);
+		mcod.kOption.setValue(k);
+		compact.kOption.setValue(k);
+		for (MyBaseOutlierDetector detector : new MyBaseOutlierDetector[] {mcod, compact}) {
+			detector.windowSizeOption.setValue(windowSize);
+			detector.setModelContext(stream.getHeader());
+			detector.prepareForUse();
+			detector.SetShowProgress(false);
+		}
+		int numOutliers = 0;
+		for (int n = 0; n < 2000; n++) {
+			Instance inst = stream.nextInstance().getData();
+			mcod.processNewInstanceImpl(inst);
+			compact.processNewInstanceImpl(inst);
+			Vector<Outlier> expected = mcod.getOutliersResult();
+			Vector<Outlier> actual = compact.getOutliersResult();
+			assertEquals("object " + n, expected.size(), actual.size());
+			for (int i = 0; i < expected.size(); i++) {
+				assertEquals("object " + n, expected.get(i).id, actual.get(i).id);
+			}
+			numOutliers += actual.size();
+		}
+		assertTrue(numOutliers > 0);
+	}
+
+	@Test
+	public void testSameOutliers() {
+		compare(2, 500, 0.1, 50);
+		compare(2, 300, 0.05, 10);
+	}
+
+	@Test
+	public void testMoreAttributesThanGridDimensions() {
+		compare(5, 500, 0.3, 20);
+	}
+}
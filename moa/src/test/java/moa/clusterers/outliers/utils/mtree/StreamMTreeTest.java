@@ -0,0 +1,158 @@
+package moa.clusterers.outliers.utils.mtree;
+
+import static org.junit.Assert.*;
+
+import java.util.Random;
+
+import moa.clusterers.outliers.utils.mtree.DistanceFunctions.EuclideanCoordinate;
+
+import org.junit.Test;
+
+/**
+ * Checks the range searches of StreamMTree against a linear scan while
+ * objects are added, removed and expired.
+ */
+public class StreamMTreeTest {
+
+	private static class Point implements EuclideanCoordinate {
+		final double[] values;
+
+		Point(double[] values) {
+			this.values = values;
+		}
+
+		@Override
+		public int dimensions() {
+			return this.values.length;
+		}
+
+		@Override
+		public double get(int index) {
+			return this.values[index];
+		}
+	}
+
+	private static Point[] randomPoints(Random random, int numPoints, int dimensions) {
+		Point[] points = new Point[numPoints];
+		for (int i = 0; i < numPoints; i++) {
+			double[] values = new double[dimensions];
+			for (int j = 0; j < dimensions; j++) {
+				// a coarse grid gives equal points and equal distances
+				values[j] = random.nextInt(20) / 20.0;
+			}
+			points[i] = new Point(values);
+		}
+		return points;
+	}
+
+	private static void checkSearch(StreamMTree<Point> tree, Point[] points, boolean[] present, Point query,
+			double range) {
+		int n = tree.rangeSearch(query, range);
+		int expected = 0;
+		boolean[] found = new boolean[points.length];
+		for (int i = 0; i < points.length; i++) {
+			if (present[i] && DistanceFunctions.euclidean(points[i], query) <= range) {
+				expected++;
+			}
+		}
+		assertEquals(expected, n);
+		for (int i = 0; i < n; i++) {
+			Point p = tree.resultItem(i);
+			int index = indexOf(points, p);
+			assertTrue(present[index]);
+			assertFalse(found[index]);
+			found[index] = true;
+			assertEquals(DistanceFunctions.euclidean(p, query), tree.resultDistance(i), 0.0);
+		}
+	}
+
+	private static int indexOf(Point[] points, Point p) {
+		for (int i = 0; i < points.length; i++) {
+			if (points[i] == p) {
+				return i;
+			}
+		}
+		fail("Unknown point");
+		return -1;
+	}
+
+	@Test
+	public void testSlidingWindow() {
+		Random random = new Random(1);
+		int window = 300;
+		Point[] points = randomPoints(random, 3000, 3);
+		boolean[] present = new boolean[points.length];
+		StreamMTree<Point> tree = new StreamMTree<Point>(4);
+		for (int i = 0; i < points.length; i++) {
+			tree.add(i, points[i], points[i]);
+			present[i] = true;
+			if (i >= window) {
+				if (i % 2 == 0) {
+					assertEquals(1, tree.removeExpired(i - window + 1));
+				} else {
+					assertTrue(tree.remove(i - window));
+				}
+				present[i - window] = false;
+			}
+			assertEquals(Math.min(i + 1, window), tree.size());
+			if (i % 10 == 0) {
+				checkSearch(tree, points, present, points[random.nextInt(i + 1)], 0.2);
+			}
+		}
+	}
+
+	@Test
+	public void testRandomRemovals() {
+		Random random = new Random(2);
+		Point[] points = randomPoints(random, 2000, 2);
+		boolean[] present = new boolean[points.length];
+		StreamMTree<Point> tree = new StreamMTree<Point>();
+		for (int i = 0; i < points.length; i++) {
+			tree.add(i, points[i], points[i]);
+			present[i] = true;
+		}
+		for (int i = 0; i < points.length; i++) {
+			int j = random.nextInt(points.length);
+			assertEquals(present[j], tree.remove(j));
+			present[j] = false;
+			if (i % 50 == 0) {
+				checkSearch(tree, points, present, points[random.nextInt(points.length)], 0.15);
+			}
+		}
+		int removed = 0;
+		for (int i = 0; i < 1000; i++) {
+			if (present[i]) {
+				present[i] = false;
+				removed++;
+			}
+		}
+		assertEquals(removed, tree.removeExpired(1000));
+		checkSearch(tree, points, present, points[0], 0.3);
+		assertEquals(tree.size(), tree.getItems().size());
+		assertEquals(tree.size(), tree.removeExpired(points.length));
+		assertEquals(0, tree.rangeSearch(points[0], 1.0));
+	}
+
+	@Test
+	public void testSortResults() {
+		Random random = new Random(3);
+		Point[] points = randomPoints(random, 500, 2);
+		StreamMTree<Point> tree = new StreamMTree<Point>();
+		for (int i = 0; i < points.length; i++) {
+			tree.add(i, points[i], points[i]);
+		}
+		int n = tree.rangeSearch(points[0], 0.5);
+		tree.sortResults();
+		for (int i = 1; i < n; i++) {
+			assertTrue(tree.resultDistance(i - 1) <= tree.resultDistance(i));
+		}
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testDuplicateId() {
+		StreamMTree<Point> tree = new StreamMTree<Point>();
+		Point p = new Point(new double[] {0.0, 0.0});
+		tree.add(1, p, p);
+		tree.add(1, p, p);
+	}
+}
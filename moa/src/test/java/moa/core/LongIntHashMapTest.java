@@ -0,0 +1,45 @@
+package moa.core;
+
+import static org.junit.Assert.*;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * Checks LongIntHashMap against a HashMap under random puts and removes.
+ */
+public class LongIntHashMapTest {
+
+	@Test
+	public void testAgainstHashMap() {
+		LongIntHashMap map = new LongIntHashMap();
+		HashMap<Long, Integer> expected = new HashMap<Long, Integer>();
+		Random random = new Random(1);
+		for (int n = 0; n < 100000; n++) {
+			// few distinct keys, so that removes hit and runs form
+			long key = random.nextInt(2000) * 0x100000001L;
+			if (random.nextInt(3) == 0) {
+				Integer removed = expected.remove(key);
+				assertEquals(removed == null ? -1 : removed.intValue(), map.remove(key, -1));
+			} else {
+				expected.put(key, n);
+				map.put(key, n);
+			}
+			assertEquals(expected.size(), map.size());
+		}
+		for (Map.Entry<Long, Integer> entry : expected.entrySet()) {
+			assertEquals(entry.getValue().intValue(), map.get(entry.getKey(), -1));
+		}
+		int entries = 0;
+		for (int pos = 0; pos < map.capacity(); pos++) {
+			if (map.isUsed(pos)) {
+				entries++;
+				assertEquals(expected.get(map.keyAt(pos)).intValue(), map.valueAt(pos));
+			}
+		}
+		assertEquals(expected.size(), entries);
+	}
+}
@@ -0,0 +1,83 @@
+package moa.evaluation;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import com.yahoo.labs.samoa.instances.Instance;
+import moa.cluster.Clustering;
+import moa.clusterers.clustream.WithKmeans;
+import moa.gui.visualization.DataPoint;
+import moa.streams.clustering.RandomRBFGeneratorEvents;
+
+import org.junit.Test;
+
+/**
+ * Checks that CMM and the silhouette coefficient give the same values when
+ * their point loops run as fork/join tasks as when they run on one thread.
+ */
+public class ParallelEvaluationTest {
+
+	private static MeasureCollection[] newMeasures() {
+		MeasureCollection[] measures = {new CMM(), new SilhouetteCoefficient()};
+		for (MeasureCollection measure : measures) {
+			for (int j = 0; j < measure.getNumMeasures(); j++) {
+				measure.setEnabled(j, true);
+			}
+		}
+		return measures;
+	}
+
+	@Test
+	public void testSameValues() throws Exception {
+		RandomRBFGeneratorEvents stream = new RandomRBFGeneratorEvents();
+		stream.prepareForUse();
+		WithKmeans clusterer = new WithKmeans();
+		clusterer.prepareForUse();
+		final MeasureCollection[] sequential = newMeasures();
+		final MeasureCollection[] parallel = newMeasures();
+		ForkJoinPool pool = new ForkJoinPool(4);
+		try {
+			final ArrayList<DataPoint> points = new ArrayList<DataPoint>();
+			for (int n = 1; n <= 3000; n++) {
+				Instance inst = stream.nextInstance().getData();
+				points.add(new DataPoint(inst, n));
+				Instance train = inst.copy();
+				train.deleteAttributeAt(inst.classIndex());
+				clusterer.trainOnInstanceImpl(train);
+				if (n % 1000 == 0) {
+					final Clustering truth = new Clustering(points);
+					final Clustering clustering = clusterer.getClusteringResult();
+					for (MeasureCollection measure : sequential) {
+						measure.evaluateClusteringPerformance(clustering, truth, points);
+					}
+					for (final MeasureCollection measure : parallel) {
+						pool.invoke(new RecursiveAction() {
+							@Override
+							protected void compute() {
+								try {
+									measure.evaluateClusteringPerformance(clustering, truth, points);
+								} catch (Exception e) {
+									throw new RuntimeException(e);
+								}
+							}
+						});
+					}
+					points.clear();
+				}
+			}
+		} finally {
+			pool.shutdown();
+		}
+		for (int m = 0; m < sequential.length; m++) {
+			for (int j = 0; j < sequential[m].getNumMeasures(); j++) {
+				assertEquals(3, parallel[m].getNumberOfValues(j));
+				for (int v = 0; v < 3; v++) {
+					assertEquals(sequential[m].getValue(j, v), parallel[m].getValue(j, v), 0.0);
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,40 @@
+package moa.tasks;
+
+import static org.junit.Assert.*;
+
+import moa.classifiers.trees.HoeffdingTree;
+import moa.evaluation.preview.LearningCurve;
+import moa.streams.generators.RandomRBFGenerator;
+
+import org.junit.Test;
+
+/**
+ * Checks that the results of the tasks only have the column of the time
+ * spent measuring the model size when its measurement is set.
+ */
+public class ModelByteSizeTest {
+
+	private static final String COLUMN = "model size measurement time (cpu seconds)";
+
+	private String header(String options) {
+		EvaluatePrequential task = new EvaluatePrequential();
+		task.getOptions().setViaCLIString(options);
+		task.learnerOption.setCurrentObject(new HoeffdingTree());
+		task.streamOption.setCurrentObject(new RandomRBFGenerator());
+		task.prepareForUse();
+		LearningCurve curve = (LearningCurve) task.doTask();
+		assertEquals(2, curve.numEntries());
+		return curve.headerToString();
+	}
+
+	@Test
+	public void testDefaultColumns() {
+		assertFalse(header("-i 2000 -f 1000").contains(COLUMN));
+	}
+
+	@Test
+	public void testMeasurementColumns() {
+		assertTrue(header("-i 2000 -f 1000 -z").contains(COLUMN));
+		assertTrue(header("-i 2000 -f 1000 -y 10").contains(COLUMN));
+	}
+}
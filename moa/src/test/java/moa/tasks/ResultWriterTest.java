@@ -0,0 +1,145 @@
+package moa.tasks;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.util.List;
+
+import com.yahoo.labs.samoa.instances.Instance;
+import com.yahoo.labs.samoa.instances.MultiLabelPrediction;
+import moa.classifiers.bayes.NaiveBayes;
+import moa.streams.generators.RandomRBFGenerator;
+
+import org.junit.Test;
+
+/**
+ * Checks that the files written by ResultWriter are complete, and the same
+ * as written with println, also when the learner of a task fails.
+ */
+public class ResultWriterTest {
+
+	// more than a few buffers, and not a multiple of their size
+	private static final int NUM_RECORDS = 50000;
+
+	@Test
+	public void testCSV() throws Exception {
+		File file = File.createTempFile("ResultWriterTest", ".pred");
+		file.deleteOnExit();
+		ResultWriter writer = new ResultWriter(file, ResultWriter.CSV);
+		ByteArrayOutputStream expected = new ByteArrayOutputStream();
+		PrintStream print = new PrintStream(expected, true);
+		writer.writeLine("header");
+		print.println("header");
+		for (int i = 0; i < NUM_RECORDS; i++) {
+			if (i % 3 == 0) {
+				writer.writeClassification(i % 7, i % 11 == 0 ? Double.NaN : i % 5);
+				print.println((i % 7) + "," + (i % 11 == 0 ? " ? " : (i % 5)));
+			} else {
+				writer.writeRegression(i / 3.0, -i);
+				print.println((i / 3.0) + "," + (double) -i);
+			}
+			if (i % 10000 == 0) {
+				writer.flush();
+			}
+		}
+		writer.close();
+		print.close();
+		assertArrayEquals(expected.toByteArray(), Files.readAllBytes(file.toPath()));
+	}
+
+	@Test
+	public void testBinary() throws Exception {
+		File file = File.createTempFile("ResultWriterTest", ".bin");
+		file.deleteOnExit();
+		ResultWriter writer = new ResultWriter(file, ResultWriter.BINARY);
+		for (int i = 0; i < NUM_RECORDS; i++) {
+			writer.writeClassification(i % 7, i % 11 == 0 ? Double.NaN : i % 5);
+		}
+		writer.close();
+		assertEquals(16L * NUM_RECORDS, file.length());
+		DataInputStream in = new DataInputStream(new FileInputStream(file));
+		for (int i = 0; i < NUM_RECORDS; i++) {
+			assertEquals(i % 7, in.readDouble(), 0.0);
+			assertEquals(i % 11 == 0 ? Double.NaN : i % 5, in.readDouble(), 0.0);
+		}
+		in.close();
+	}
+
+	@Test(timeout = 10000)
+	public void testFailingFormat() throws Exception {
+		File file = File.createTempFile("ResultWriterTest", ".pred");
+		file.deleteOnExit();
+		ResultWriter writer = new ResultWriter(file, ResultWriter.CSV);
+		MultiLabelPrediction prediction = new MultiLabelPrediction(1) {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			public String toString() {
+				throw new IllegalStateException("Failing prediction");
+			}
+		};
+		// the writer fails instead of blocking once its thread has stopped
+		try {
+			for (int i = 0; i < NUM_RECORDS; i++) {
+				writer.writePrediction(prediction, i);
+			}
+		} catch (RuntimeException e) {
+			assertEquals("Failing prediction", e.getCause().getMessage());
+		}
+		try {
+			writer.close();
+			fail("The writer should have failed");
+		} catch (RuntimeException e) {
+			assertEquals("Failing prediction", e.getCause().getMessage());
+		}
+	}
+
+	/**
+	 * Learner that fails after a number of instances.
+	 */
+	public static class FailingLearner extends NaiveBayes {
+
+		private static final long serialVersionUID = 1L;
+
+		private int numTrained;
+
+		@Override
+		public void trainOnInstanceImpl(Instance inst) {
+			if (++this.numTrained > NUM_RECORDS / 10) {
+				throw new IllegalStateException("Failing learner");
+			}
+			super.trainOnInstanceImpl(inst);
+		}
+	}
+
+	@Test
+	public void testFailingTask() throws Exception {
+		File dumpFile = File.createTempFile("ResultWriterTest", ".csv");
+		File predictionFile = File.createTempFile("ResultWriterTest", ".pred");
+		dumpFile.deleteOnExit();
+		predictionFile.deleteOnExit();
+		EvaluatePrequential task = new EvaluatePrequential();
+		task.learnerOption.setCurrentObject(new FailingLearner());
+		task.streamOption.setCurrentObject(new RandomRBFGenerator());
+		task.sampleFrequencyOption.setValue(1000);
+		task.dumpFileOption.setValue(dumpFile.getAbsolutePath());
+		task.outputPredictionFileOption.setValue(predictionFile.getAbsolutePath());
+		task.prepareForUse();
+		try {
+			task.doTask();
+			fail("The learner should have failed");
+		} catch (IllegalStateException e) {
+			assertEquals("Failing learner", e.getMessage());
+		}
+		// every prediction made and every sample taken before the failure is on disk
+		List<String> predictions = Files.readAllLines(predictionFile.toPath());
+		assertEquals(NUM_RECORDS / 10 + 1, predictions.size());
+		List<String> samples = Files.readAllLines(dumpFile.toPath());
+		assertEquals(1 + NUM_RECORDS / 10 / 1000, samples.size());
+	}
+}